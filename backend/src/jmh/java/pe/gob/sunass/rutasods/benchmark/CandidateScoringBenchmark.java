@@ -0,0 +1,162 @@
+package pe.gob.sunass.rutasods.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.services.CandidateSearchEngine;
+import pe.gob.sunass.rutasods.optimization.domain.services.DistanceEvaluator;
+import pe.gob.sunass.rutasods.optimization.domain.services.ItineraryCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.services.ItinerarySimulator;
+import pe.gob.sunass.rutasods.shared.domain.model.ItineraryResult;
+import pe.gob.sunass.rutasods.shared.domain.rules.OptimizationRules;
+import pe.gob.sunass.rutasods.shared.domain.rules.RoutingRules;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Puntaje completo de un candidato (itinerario + distancia + costo) y una
+ * búsqueda completa del CandidateSearchEngine sobre el pool de vecinos de una
+ * semilla, que es lo que el planner repite en cada ronda.
+ *
+ * El evaluador replica la métrica del GreedyRoutePlanner sin los logs de
+ * consola, para medir solo el cálculo. Como es un PathScorer simple, la
+ * búsqueda va en BRUTE_FORCE; las estrategias con poda necesitan el evaluador
+ * incremental del planner y se comparan en {@link PlanRoutesBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandidateScoringBenchmark {
+
+    private static final int SEEDS = 64;
+
+    @Param({"50", "200"})
+    public int points;
+
+    @Param({"COSTA", "SIERRA", "SELVA"})
+    public SyntheticInstance.RoadNetwork network;
+
+    @Param({"0.5"})
+    public double pcShare;
+
+    @Param({"1.5"})
+    public double ocMean;
+
+    private SyntheticInstance instance;
+    private final CostCalculator costCalculator = new CostCalculator();
+    private final ItineraryCalculator itineraryCalculator = new ItineraryCalculator();
+    private final DistanceEvaluator.ConnectionValidator validator = (a, b) -> true;
+    private DistanceEvaluator evaluator;
+
+    private ItinerarySimulator simulator;
+    private CandidateSearchEngine engine;
+
+    private int[][] paths;
+    private int nextPath;
+
+    // semilla y pool de vecinos más cercanos, como los arma el planner
+    private int[] seeds;
+    private int[][] pools;
+    private int nextSeed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = SyntheticInstance.generate(points, network, pcShare, ocMean, 42);
+        evaluator = new DistanceEvaluator(instance.distances);
+
+        int maxCluster = OptimizationRules.MAX_COMBO_SIZE;
+        simulator = new ItinerarySimulator(
+                new ItinerarySimulator.Model(
+                        instance.points, instance.durations, instance.pcDuration, instance.ocDuration),
+                maxCluster);
+        engine = new CandidateSearchEngine(maxCluster, OrderingStrategy.BRUTE_FORCE);
+
+        Random r = new Random(7);
+        paths = ItineraryBenchmark.randomPaths(r, points, maxCluster);
+
+        seeds = new int[SEEDS];
+        pools = new int[SEEDS][];
+        for (int s = 0; s < SEEDS; s++) {
+            int seed = 1 + r.nextInt(points);
+            seeds[s] = seed;
+            pools[s] = nearest(seed, OptimizationRules.SEARCH_POOL_SIZE);
+        }
+    }
+
+    /** Puntaje con el simulador primitivo (lo que usa la búsqueda hoy). */
+    @Benchmark
+    public double scoreWithSimulator() {
+        int[] path = paths[nextPath];
+        nextPath = (nextPath + 1) & (paths.length - 1);
+        return simulatorScore(path, path.length);
+    }
+
+    /** Puntaje armando el ItineraryResult completo y el costo con la lista de puntos. */
+    @Benchmark
+    public double scoreWithCalculator() {
+        int[] path = paths[nextPath];
+        nextPath = (nextPath + 1) & (paths.length - 1);
+
+        ItineraryResult itin = itineraryCalculator.calculate(
+                path, path.length, instance.points, instance.durations,
+                instance.pcDuration, instance.ocDuration);
+        if (itin.getNumDays() > RoutingRules.MAX_ROUTE_DAYS) {
+            return CandidateSearchEngine.REJECTED;
+        }
+        double km = distance(path, path.length);
+        double cost = costCalculator.computeTotalCost(
+                km, itin.getNumDays(), itin.getNumNights(), instance.points,
+                instance.kmCost, instance.foodCost, instance.hotelCost);
+        return (cost / (path.length - 1)) * (1.0 + km / 1000.0);
+    }
+
+    /** Búsqueda completa sobre semilla + pool (todas las combinaciones y órdenes). */
+    @Benchmark
+    public double searchCandidates() {
+        int s = nextSeed;
+        nextSeed = (nextSeed + 1) & (SEEDS - 1);
+
+        int[] pool = pools[s];
+        engine.search(seeds[s], pool, pool.length, OptimizationRules.MAX_COMBO_SIZE - 1, this::simulatorScore);
+        return engine.hasBest() ? engine.getBestMetric() : CandidateSearchEngine.REJECTED;
+    }
+
+    private double simulatorScore(int[] path, int length) {
+        simulator.simulate(path, length);
+        int days = simulator.getResultDays();
+        int nights = simulator.getResultNights();
+        if (days > RoutingRules.MAX_ROUTE_DAYS) {
+            return CandidateSearchEngine.REJECTED;
+        }
+        double km = distance(path, length);
+        double cost = costCalculator.computeTotalCost(
+                km, days, nights, instance.kmCost, instance.foodCost, instance.hotelCost);
+        return (cost / (length - 1)) * (1.0 + km / 1000.0);
+    }
+
+    private double distance(int[] path, int length) {
+        double d = 0;
+        for (int i = 0; i < length - 1; i++) {
+            d += evaluator.getDist(path[i], path[i + 1],
+                    instance.points.get(path[i]), instance.points.get(path[i + 1]), validator);
+        }
+        return d + evaluator.getDist(path[length - 1], 0,
+                instance.points.get(path[length - 1]), instance.points.get(0), validator);
+    }
+
+    private int[] nearest(int seed, int count) {
+        return IntStream.rangeClosed(1, points)
+                .filter(i -> i != seed)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> instance.distances.get(seed, i)))
+                .limit(count)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,101 @@
+package pe.gob.sunass.rutasods.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pe.gob.sunass.rutasods.optimization.domain.services.ItineraryCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.services.ItinerarySimulator;
+import pe.gob.sunass.rutasods.shared.domain.model.ItineraryResult;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulación de un itinerario (días / noches / minutos) para recorridos al
+ * azar de {@code stops} puntos: el simulador primitivo que usa la búsqueda
+ * frente al calculador que arma los DayLog de la ruta ganadora.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItineraryBenchmark {
+
+    private static final int PATHS = 1024;
+
+    @Param({"50", "200"})
+    public int points;
+
+    @Param({"COSTA", "SIERRA", "SELVA"})
+    public SyntheticInstance.RoadNetwork network;
+
+    @Param({"4", "8"})
+    public int stops;
+
+    @Param({"0.5"})
+    public double pcShare;
+
+    @Param({"1.5"})
+    public double ocMean;
+
+    private SyntheticInstance instance;
+    private ItinerarySimulator simulator;
+    private ItineraryCalculator calculator;
+
+    private int[][] paths;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = SyntheticInstance.generate(points, network, pcShare, ocMean, 42);
+        simulator = new ItinerarySimulator(
+                new ItinerarySimulator.Model(
+                        instance.points, instance.durations, instance.pcDuration, instance.ocDuration),
+                stops);
+        calculator = new ItineraryCalculator();
+        paths = randomPaths(new Random(7), points, stops);
+    }
+
+    @Benchmark
+    public int simulator() {
+        int[] path = nextPath();
+        simulator.simulate(path, path.length);
+        return simulator.getResultDays() * 31 + simulator.getResultNights();
+    }
+
+    @Benchmark
+    public void calculator(Blackhole bh) {
+        int[] path = nextPath();
+        ItineraryResult result = calculator.calculate(
+                path, path.length, instance.points, instance.durations,
+                instance.pcDuration, instance.ocDuration);
+        bh.consume(result);
+    }
+
+    private int[] nextPath() {
+        int[] path = paths[next];
+        next = (next + 1) & (PATHS - 1);
+        return path;
+    }
+
+    /** Recorridos [0, p1..pk] con puntos distintos. */
+    static int[][] randomPaths(Random r, int points, int stops) {
+        int[][] paths = new int[PATHS][];
+        int[] pool = new int[points];
+        for (int i = 0; i < points; i++) pool[i] = i + 1;
+
+        for (int p = 0; p < PATHS; p++) {
+            int[] path = new int[stops + 1];
+            for (int i = 0; i < stops; i++) {
+                int j = i + r.nextInt(points - i);
+                int tmp = pool[i];
+                pool[i] = pool[j];
+                pool[j] = tmp;
+                path[i + 1] = pool[i];
+            }
+            paths[p] = path;
+        }
+        return paths;
+    }
+}
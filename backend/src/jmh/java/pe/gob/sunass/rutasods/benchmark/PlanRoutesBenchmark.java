@@ -0,0 +1,92 @@
+package pe.gob.sunass.rutasods.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchMode;
+import pe.gob.sunass.rutasods.optimization.domain.services.GreedyRoutePlanner;
+import pe.gob.sunass.rutasods.optimization.domain.services.ItineraryCalculator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Corrida completa de GreedyRoutePlanner.planRoutes sobre una instancia
+ * sintética: todas las rondas de semilla + búsqueda + armado de rutas.
+ *
+ * El planner escribe mucho por consola; System.out se silencia durante la
+ * medición para no medir el I/O (el costo de esos logs se ve aparte con
+ * -p quiet=false).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanRoutesBenchmark {
+
+    @Param({"50", "200"})
+    public int points;
+
+    @Param({"COSTA", "SIERRA", "SELVA"})
+    public SyntheticInstance.RoadNetwork network;
+
+    @Param({"BRANCH_AND_BOUND", "HELD_KARP"})
+    public OrderingStrategy ordering;
+
+    @Param({"SERIAL", "PARALLEL"})
+    public SearchMode searchMode;
+
+    @Param({"0.5"})
+    public double pcShare;
+
+    @Param({"1.5"})
+    public double ocMean;
+
+    @Param({"true"})
+    public boolean quiet;
+
+    private SyntheticInstance instance;
+    private GreedyRoutePlanner planner;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = SyntheticInstance.generate(points, network, pcShare, ocMean, 42);
+
+        PlannerOptions options = PlannerOptions.defaults();
+        options.setOrdering(ordering);
+        options.setSearchMode(searchMode);
+
+        planner = new GreedyRoutePlanner(new ItineraryCalculator(), new CostCalculator(), options);
+
+        originalOut = System.out;
+        if (quiet) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    @Benchmark
+    public RoutePlan planRoutes() {
+        return planner.planRoutes(
+                instance.points,
+                instance.activeIndices,
+                instance.distances,
+                instance.durations,
+                instance.pcDuration,
+                instance.ocDuration,
+                instance.kmCost,
+                instance.foodCost,
+                instance.hotelCost,
+                (a, b) -> true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+}
@@ -0,0 +1,148 @@
+package pe.gob.sunass.rutasods.benchmark;
+
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Instancia sintética reproducible para los benchmarks: una ODS y N puntos
+ * alrededor, con matrices km / minutos parecidas a las de OSRM en cada tipo
+ * de red vial (ver {@link RoadNetwork}).
+ */
+public final class SyntheticInstance {
+
+    /**
+     * Forma de la red vial. Los factores aproximan lo que devuelve OSRM para
+     * Perú: la costa es alargada y con rutas casi rectas (Panamericana), la
+     * sierra compacta pero con muchas curvas y subidas (ida y vuelta distintas),
+     * la selva dispersa, lenta y con puntos aislados lejos de la ODS.
+     */
+    public enum RoadNetwork {
+        //       lat°  lng°  desvío  km/h  asimetría  aislados
+        COSTA(   2.5,  0.4,  1.25,   65,   0.05,      0.00),
+        SIERRA(  0.8,  0.8,  1.90,   35,   0.20,      0.05),
+        SELVA(   1.5,  1.5,  2.30,   25,   0.10,      0.15);
+
+        final double spreadLat;
+        final double spreadLng;
+        final double detour;
+        final double speedKmh;
+        final double asymmetry;
+        final double isolatedShare;
+
+        RoadNetwork(double spreadLat, double spreadLng, double detour,
+                    double speedKmh, double asymmetry, double isolatedShare) {
+            this.spreadLat = spreadLat;
+            this.spreadLng = spreadLng;
+            this.detour = detour;
+            this.speedKmh = speedKmh;
+            this.asymmetry = asymmetry;
+            this.isolatedShare = isolatedShare;
+        }
+    }
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    public final List<Location> points;     // [ODS, p1..pN]
+    public final List<Integer> activeIndices;
+    public final FlatTravelMatrix distances;
+    public final FlatTravelMatrix durations;
+
+    public final int pcDuration = 180;
+    public final int ocDuration = 180;
+    public final double kmCost = 1.0;
+    public final double foodCost = 180;
+    public final double hotelCost = 570;
+
+    private SyntheticInstance(List<Location> points, FlatTravelMatrix distances, FlatTravelMatrix durations) {
+        this.points = points;
+        this.activeIndices = IntStream.range(1, points.size()).boxed().toList();
+        this.distances = distances;
+        this.durations = durations;
+    }
+
+    /**
+     * @param n        cantidad de puntos sin contar la ODS
+     * @param pcShare  fracción de puntos PC (el resto son OC)
+     * @param ocMean   media de ocCount (distribución geométrica, tope 6)
+     */
+    public static SyntheticInstance generate(int n, RoadNetwork network, double pcShare, double ocMean, long seed) {
+        Random r = new Random(seed);
+
+        // ODS en Huancayo / Lima / Iquitos según la red, da igual para el costo
+        double odsLat = -12.05;
+        double odsLng = -75.20;
+
+        List<Location> points = new ArrayList<>(n + 1);
+        points.add(location(0, "ODS (Base)", odsLat, odsLng, Location.Category.PC, 0));
+
+        for (int i = 1; i <= n; i++) {
+            double scale = r.nextDouble() < network.isolatedShare ? 3.0 : 1.0;
+            double lat = odsLat + r.nextGaussian() * network.spreadLat * scale / 2;
+            double lng = odsLng + r.nextGaussian() * network.spreadLng * scale / 2;
+            boolean pc = r.nextDouble() < pcShare;
+            int ocCount = pc ? 0 : geometric(r, ocMean, 6);
+            points.add(location(i, "P" + i, lat, lng, pc ? Location.Category.PC : Location.Category.OC, ocCount));
+        }
+
+        int m = points.size();
+        FlatTravelMatrix distances = new FlatTravelMatrix(m, m);
+        FlatTravelMatrix durations = new FlatTravelMatrix(m, m);
+
+        // Sesgo de subida/bajada por punto: la ida y la vuelta no cuestan lo mismo
+        double[] slope = new double[m];
+        for (int i = 0; i < m; i++) {
+            slope[i] = r.nextGaussian() * network.asymmetry;
+        }
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) {
+                if (i == j) continue;
+                Location a = points.get(i);
+                Location b = points.get(j);
+                double km = haversineKm(a.getLat(), a.getLng(), b.getLat(), b.getLng())
+                        * network.detour * (1 + 0.1 * r.nextDouble());
+                double minutes = km / network.speedKmh * 60
+                        * Math.max(0.5, 1 + slope[j] - slope[i]);
+                distances.set(i, j, km);
+                durations.set(i, j, minutes);
+            }
+        }
+
+        return new SyntheticInstance(points, distances, durations);
+    }
+
+    private static Location location(long id, String name, double lat, double lng,
+                                     Location.Category category, int ocCount) {
+        Location l = new Location();
+        l.setId(id);
+        l.setName(name);
+        l.setLat(lat);
+        l.setLng(lng);
+        l.setCoords(lat + "," + lng);
+        l.setCategory(category);
+        l.setOcCount(ocCount);
+        l.setActive(true);
+        return l;
+    }
+
+    private static int geometric(Random r, double mean, int max) {
+        double p = 1.0 / (1.0 + mean);
+        int k = 0;
+        while (k < max && r.nextDouble() > p) k++;
+        return k;
+    }
+
+    private static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -3,10 +3,28 @@ package pe.gob.sunass.rutasods;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import pe.gob.sunass.rutasods.matrix.infrastructure.MatrixProperties;
 import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmProperties;
+import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheProperties;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationExecutorProperties;
+import pe.gob.sunass.rutasods.optimization.infrastructure.trace.SearchTraceProperties;
+import pe.gob.sunass.rutasods.reporting.infrastructure.cache.ReportCacheProperties;
+import pe.gob.sunass.rutasods.reporting.infrastructure.pdf.PdfRenderProperties;
+import pe.gob.sunass.rutasods.reporting.infrastructure.prerender.ReportPrerenderProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties(OsrmProperties.class)
+@EnableScheduling
+@EnableConfigurationProperties({
+		OsrmProperties.class,
+		MatrixProperties.class,
+		OptimizationCacheProperties.class,
+		OptimizationExecutorProperties.class,
+		SearchTraceProperties.class,
+		PdfRenderProperties.class,
+		ReportCacheProperties.class,
+		ReportPrerenderProperties.class
+})
 public class RutasOdsBackendApplication {
 
 	public static void main(String[] args) {
@@ -17,14 +17,26 @@ public class CostCalculator {
             double hotelCost
     ) {
 
+        return computeTotalCost(distance, days, nights, kmCost, foodCost, hotelCost);
+    }
+
+    /**
+     * Costo total sin recorrer los puntos: el costo OC se informa en el desglose
+     * pero no suma al total, así que no hace falta la lista de ubicaciones.
+     */
+    public double computeTotalCost(
+            double distance,
+            int days,
+            int nights,
+            double kmCost,
+            double foodCost,
+            double hotelCost
+    ) {
+
         double gas = distance * kmCost;
         double food = foodCost * days;
         double hotel = hotelCost * nights;
 
-        double oc = points.stream()
-                .mapToDouble(p -> p.getOcCount() * CostRules.OC_UNIT_COST)
-                .sum();
-
         return gas + food + hotel; //+ oc
     }
 
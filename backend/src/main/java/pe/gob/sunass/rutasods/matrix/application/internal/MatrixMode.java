@@ -0,0 +1,19 @@
+package pe.gob.sunass.rutasods.matrix.application.internal;
+
+/**
+ * Cuántas celdas de la matriz de planificación se piden al proveedor.
+ */
+public enum MatrixMode {
+
+    /** La matriz completa N×N. */
+    DENSE,
+
+    /**
+     * Solo la fila y columna de la ODS y los pares entre vecinos cercanos; el
+     * resto se estima con haversine (ver SparseTravelMatrix).
+     */
+    SPARSE,
+
+    /** SPARSE desde matrix.sparse.min-points puntos, DENSE por debajo. */
+    AUTO
+}
@@ -0,0 +1,16 @@
+package pe.gob.sunass.rutasods.matrix.application.internal;
+
+/**
+ * Origen de la matriz de distancias / tiempos.
+ */
+public enum MatrixProvider {
+
+    /** Solo OSRM; si falla, falla el cálculo. */
+    OSRM,
+
+    /** Distancia de círculo máximo corregida por factor de ruta (sin red). */
+    HAVERSINE,
+
+    /** OSRM y, si no responde, HAVERSINE. */
+    AUTO
+}
@@ -1,6 +1,7 @@
 package pe.gob.sunass.rutasods.matrix.application.internal;
 
 import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
 
 import java.util.List;
 
@@ -12,8 +13,41 @@ public interface MatrixService {
             double timeFactor
     );
 
+    /**
+     * Igual que {@link #calculateMatrix(List, List, double)} pidiendo un
+     * proveedor concreto; las implementaciones de un solo proveedor lo ignoran.
+     */
+    default MatrixResult calculateMatrix(
+            List<Location> origins,
+            List<Location> destinations,
+            double timeFactor,
+            MatrixProvider provider
+    ) {
+        return calculateMatrix(origins, destinations, timeFactor);
+    }
+
+    /**
+     * Matriz cuadrada de points para el planner, donde el punto 0 es la ODS.
+     * En modo SPARSE solo se piden al proveedor la fila y columna 0 y los
+     * pares entre vecinos cercanos; las implementaciones sin ese modo
+     * devuelven siempre la matriz completa.
+     */
+    default MatrixResult calculatePlanningMatrix(
+            List<Location> points,
+            double timeFactor,
+            MatrixProvider provider,
+            MatrixMode mode
+    ) {
+        return calculateMatrix(points, points, timeFactor, provider);
+    }
+
+    /**
+     * Distancias en km y duraciones en minutos, redondeadas a 2 decimales.
+     * Densas (FlatTravelMatrix) salvo en el modo SPARSE (SparseTravelMatrix).
+     */
     record MatrixResult(
-            double[][] distances,
-            double[][] durations
+            TravelMatrix distances,
+            TravelMatrix durations,
+            MatrixProvider provider   // OSRM o HAVERSINE: el que efectivamente calculó
     ) {}
 }
@@ -0,0 +1,96 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixMode;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.haversine.HaversineMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.sparse.SparseMatrixBuilder;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.List;
+
+/**
+ * MatrixService que inyectan los casos de uso: elige el proveedor pedido y,
+ * en AUTO, cae a la matriz haversine si OSRM falla (caído, lento o con
+ * respuesta inválida), para que la planificación siga funcionando sin red.
+ * Para planes grandes arma además la matriz dispersa ({@link SparseMatrixBuilder}).
+ */
+@Primary
+@Service
+public class FallbackMatrixService implements MatrixService {
+
+    private final OsrmMatrixService osrm;
+    private final HaversineMatrixService haversine;
+    private final SparseMatrixBuilder sparse;
+    private final MatrixProperties props;
+
+    public FallbackMatrixService(
+            OsrmMatrixService osrm,
+            HaversineMatrixService haversine,
+            SparseMatrixBuilder sparse,
+            MatrixProperties props
+    ) {
+        this.osrm = osrm;
+        this.haversine = haversine;
+        this.sparse = sparse;
+        this.props = props;
+    }
+
+    @Override
+    public MatrixResult calculateMatrix(
+            List<Location> origins,
+            List<Location> destinations,
+            double timeFactor
+    ) {
+        return calculateMatrix(origins, destinations, timeFactor, props.getDefaultProvider());
+    }
+
+    @Override
+    public MatrixResult calculateMatrix(
+            List<Location> origins,
+            List<Location> destinations,
+            double timeFactor,
+            MatrixProvider provider
+    ) {
+        if (provider == null) {
+            provider = props.getDefaultProvider();
+        }
+
+        return switch (provider) {
+            case OSRM -> osrm.calculateMatrix(origins, destinations, timeFactor);
+            case HAVERSINE -> haversine.calculateMatrix(origins, destinations, timeFactor);
+            case AUTO -> {
+                try {
+                    yield osrm.calculateMatrix(origins, destinations, timeFactor);
+                } catch (RuntimeException e) {
+                    System.err.println("⚠️ OSRM no disponible, se usa matriz haversine: " + e.getMessage());
+                    yield haversine.calculateMatrix(origins, destinations, timeFactor);
+                }
+            }
+        };
+    }
+
+    @Override
+    public MatrixResult calculatePlanningMatrix(
+            List<Location> points,
+            double timeFactor,
+            MatrixProvider provider,
+            MatrixMode mode
+    ) {
+        if (provider == null) {
+            provider = props.getDefaultProvider();
+        }
+        if (mode == null || mode == MatrixMode.AUTO) {
+            mode = points.size() >= props.getSparse().getMinPoints()
+                    ? MatrixMode.SPARSE
+                    : MatrixMode.DENSE;
+        }
+
+        return mode == MatrixMode.SPARSE
+                ? sparse.build(points, timeFactor, provider)
+                : calculateMatrix(points, points, timeFactor, provider);
+    }
+}
@@ -0,0 +1,47 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "matrix")
+public class MatrixProperties {
+
+    // Proveedor cuando el request no indica uno
+    private MatrixProvider defaultProvider = MatrixProvider.AUTO;
+
+    private Haversine haversine = new Haversine();
+
+    private Sparse sparse = new Sparse();
+
+    /**
+     * Coeficientes de la matriz aproximada: km por carretera = km en línea
+     * recta × roadFactor; minutos = km por carretera / speedKmh × 60.
+     */
+    @Getter
+    @Setter
+    public static class Haversine {
+        private double roadFactor = 1.4;
+        private double speedKmh = 45;
+    }
+
+    /**
+     * Matriz dispersa de planificación (MatrixMode.SPARSE): cada punto mide
+     * contra sus neighbors vecinos más cercanos (y la ODS contra todos).
+     */
+    @Getter
+    @Setter
+    public static class Sparse {
+        // Con AUTO, desde cuántos puntos (ODS incluida) se usa la matriz dispersa
+        private int minPoints = 1500;
+
+        // Vecinos medidos por punto; conviene que supere el searchPoolSize del planner (máx. 20)
+        private int neighbors = 32;
+
+        // Orígenes por consulta a OSRM (sus vecinos comparten casi todas las columnas)
+        private int blockRows = 20;
+    }
+}
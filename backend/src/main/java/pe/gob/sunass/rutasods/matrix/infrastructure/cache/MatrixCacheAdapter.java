@@ -1,4 +1,196 @@
 package pe.gob.sunass.rutasods.matrix.infrastructure.cache;
 
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmProperties;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Cache persistente de la matriz OSRM a nivel de celda: distancia y duración
+ * por par (origen, destino) de coordenadas, en la tabla osrm_matrix_cell del
+ * datasource configurado (H2 en local, PostgreSQL en producción).
+ *
+ * Se guardan los valores crudos de OSRM (metros / segundos); el timeFactor y
+ * el redondeo se aplican después, así una misma celda sirve para cualquier
+ * request. Las coordenadas se normalizan a 6 decimales (~0.1 m).
+ *
+ * Una celda vale osrm.cache-ttl desde su updated_at (la red vial cambia);
+ * vencida, la lectura la ignora y la próxima consulta a OSRM la reescribe.
+ */
+@Component
 public class MatrixCacheAdapter {
+
+    // Claves por lado en cada consulta (límite de parámetros de los IN):
+    // se recorre el rectángulo orígenes × destinos en bloques de este tamaño
+    private static final int KEYS_PER_QUERY = 500;
+
+    private static final String SELECT_SQL =
+            "SELECT origin_key, destination_key, distance_m, duration_s " +
+            "FROM osrm_matrix_cell " +
+            "WHERE profile = :profile AND updated_at >= :since " +
+            "AND origin_key IN (:origins) AND destination_key IN (:destinations)";
+
+    // Upsert en una sola sentencia: la celda vencida (o insertada por otro
+    // cálculo en paralelo) se pisa. MERGE estándar, lo aceptan H2 y PostgreSQL 15+
+    private static final String UPSERT_SQL =
+            "MERGE INTO osrm_matrix_cell c " +
+            "USING (SELECT CAST(:profile AS VARCHAR(32)) AS profile, " +
+            "CAST(:origin AS VARCHAR(32)) AS origin_key, " +
+            "CAST(:destination AS VARCHAR(32)) AS destination_key, " +
+            "CAST(:distance AS DOUBLE PRECISION) AS distance_m, " +
+            "CAST(:duration AS DOUBLE PRECISION) AS duration_s, " +
+            "CAST(:updatedAt AS TIMESTAMP) AS updated_at) v " +
+            "ON c.profile = v.profile AND c.origin_key = v.origin_key " +
+            "AND c.destination_key = v.destination_key " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "distance_m = v.distance_m, duration_s = v.duration_s, updated_at = v.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT " +
+            "(profile, origin_key, destination_key, distance_m, duration_s, updated_at) " +
+            "VALUES (v.profile, v.origin_key, v.destination_key, v.distance_m, v.duration_s, v.updated_at)";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final OsrmProperties props;
+
+    public MatrixCacheAdapter(NamedParameterJdbcTemplate jdbc, OsrmProperties props) {
+        this.jdbc = jdbc;
+        this.props = props;
+    }
+
+    /** Celda recién obtenida de OSRM, lista para guardarse. */
+    public record Cell(
+            String originKey,
+            String destinationKey,
+            double distanceMeters,
+            double durationSeconds
+    ) {}
+
+    /** Clave de cache de una ubicación: "lat,lng" con 6 decimales. */
+    public static String key(Location p) {
+        return String.format(Locale.ROOT, "%.6f,%.6f", p.getLat(), p.getLng());
+    }
+
+    /**
+     * Completa distancesM / durationsS con las celdas que ya están en cache.
+     * Las celdas sin dato no se tocan (el llamador las inicializa en NaN).
+     *
+     * @return cantidad de celdas encontradas
+     */
+    public int lookup(
+            String profile,
+            List<String> originKeys,
+            List<String> destinationKeys,
+            double[][] distancesM,
+            double[][] durationsS
+    ) {
+        Map<String, List<Integer>> rowsByKey = indexByKey(originKeys);
+        Map<String, List<Integer>> colsByKey = indexByKey(destinationKeys);
+
+        List<String> origins = new ArrayList<>(rowsByKey.keySet());
+        List<String> destinations = new ArrayList<>(colsByKey.keySet());
+        Timestamp since = Timestamp.from(oldestValid());
+        int[] hits = {0};
+
+        try {
+            for (int from = 0; from < origins.size(); from += KEYS_PER_QUERY) {
+                List<String> originBatch =
+                        origins.subList(from, Math.min(from + KEYS_PER_QUERY, origins.size()));
+
+                for (int to = 0; to < destinations.size(); to += KEYS_PER_QUERY) {
+                    List<String> destinationBatch =
+                            destinations.subList(to, Math.min(to + KEYS_PER_QUERY, destinations.size()));
+
+                    MapSqlParameterSource params = new MapSqlParameterSource()
+                            .addValue("profile", profile)
+                            .addValue("since", since)
+                            .addValue("origins", originBatch)
+                            .addValue("destinations", destinationBatch);
+
+                    jdbc.query(SELECT_SQL, params, rs -> {
+                        double distance = rs.getDouble("distance_m");
+                        double duration = rs.getDouble("duration_s");
+
+                        for (int i : rowsByKey.get(rs.getString("origin_key"))) {
+                            for (int j : colsByKey.get(rs.getString("destination_key"))) {
+                                distancesM[i][j] = distance;
+                                durationsS[i][j] = duration;
+                                hits[0]++;
+                            }
+                        }
+                    });
+                }
+            }
+        } catch (DataAccessException e) {
+            // Sin cache se sigue consultando OSRM; no se aborta el cálculo
+            System.err.println("⚠️ Cache de matriz no disponible (lectura): " + e.getMessage());
+        }
+
+        return hits[0];
+    }
+
+    /** Guarda celdas nuevas; las que ya existían (vencidas o de otro proceso) se pisan. */
+    public void store(String profile, Collection<Cell> cells) {
+        if (cells.isEmpty()) return;
+
+        // Coordenadas repetidas en el request generan la misma celda más de una vez
+        Map<String, Cell> unique = new LinkedHashMap<>();
+        for (Cell c : cells) {
+            unique.putIfAbsent(c.originKey() + '|' + c.destinationKey(), c);
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        MapSqlParameterSource[] batch = unique.values().stream()
+                .map(c -> params(profile, c, now))
+                .toArray(MapSqlParameterSource[]::new);
+
+        try {
+            jdbc.batchUpdate(UPSERT_SQL, batch);
+        } catch (DuplicateKeyException e) {
+            // Otro cálculo insertó alguna de las celdas entre el ON y el INSERT
+            // (MERGE de PostgreSQL no bloquea): al repetir ya las encuentra
+            try {
+                jdbc.batchUpdate(UPSERT_SQL, batch);
+            } catch (DataAccessException retry) {
+                System.err.println("⚠️ Cache de matriz no disponible (escritura): " + retry.getMessage());
+            }
+        } catch (DataAccessException e) {
+            System.err.println("⚠️ Cache de matriz no disponible (escritura): " + e.getMessage());
+        }
+    }
+
+    // ---------------- helpers -----------------
+
+    /** updated_at mínimo de una celda vigente. */
+    private Instant oldestValid() {
+        Duration ttl = props.getCacheTtl();
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return Instant.EPOCH; // sin vencimiento
+        }
+        return Instant.now().minus(ttl);
+    }
+
+    private static MapSqlParameterSource params(String profile, Cell c, Timestamp now) {
+        return new MapSqlParameterSource()
+                .addValue("profile", profile)
+                .addValue("origin", c.originKey())
+                .addValue("destination", c.destinationKey())
+                .addValue("distance", c.distanceMeters())
+                .addValue("duration", c.durationSeconds())
+                .addValue("updatedAt", now);
+    }
+
+    private static Map<String, List<Integer>> indexByKey(List<String> keys) {
+        Map<String, List<Integer>> index = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            index.computeIfAbsent(keys.get(i), k -> new ArrayList<>(1)).add(i);
+        }
+        return index;
+    }
 }
@@ -0,0 +1,128 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.haversine;
+
+import org.springframework.stereotype.Service;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.MatrixProperties;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.List;
+
+/**
+ * Matriz aproximada sin red: distancia de círculo máximo (haversine) entre
+ * las coordenadas, llevada a km por carretera con un factor de ruta y a
+ * minutos con una velocidad media (ver {@link MatrixProperties.Haversine}).
+ *
+ * Las coordenadas se pasan una vez a arreglos primitivos (radianes y cos de la
+ * latitud), de modo que el bucle interno solo recorre double[] contiguos.
+ * Mismas unidades y redondeo que OSRM: km y minutos × timeFactor, 2 decimales.
+ */
+@Service
+public class HaversineMatrixService implements MatrixService {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final MatrixProperties props;
+
+    public HaversineMatrixService(MatrixProperties props) {
+        this.props = props;
+    }
+
+    @Override
+    public MatrixResult calculateMatrix(
+            List<Location> origins,
+            List<Location> destinations,
+            double timeFactor
+    ) {
+        int n = origins.size();
+        int m = destinations.size();
+
+        double[] originLat = new double[n];
+        double[] originLng = new double[n];
+        double[] originCos = new double[n];
+        toRadians(origins, originLat, originLng, originCos);
+
+        double[] destLat = new double[m];
+        double[] destLng = new double[m];
+        double[] destCos = new double[m];
+        toRadians(destinations, destLat, destLng, destCos);
+
+        double roadFactor = props.getHaversine().getRoadFactor();
+        double minutesPerKm = 60.0 / props.getHaversine().getSpeedKmh() * timeFactor;
+
+        FlatTravelMatrix distancesKm = new FlatTravelMatrix(n, m);
+        FlatTravelMatrix durationsMin = new FlatTravelMatrix(n, m);
+
+        for (int i = 0; i < n; i++) {
+            double lat1 = originLat[i];
+            double lng1 = originLng[i];
+            double cos1 = originCos[i];
+
+            for (int j = 0; j < m; j++) {
+                double sinLat = Math.sin((destLat[j] - lat1) * 0.5);
+                double sinLng = Math.sin((destLng[j] - lng1) * 0.5);
+                double a = sinLat * sinLat + cos1 * destCos[j] * sinLng * sinLng;
+                double km = 2.0 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+
+                double roadKm = km * roadFactor;
+                distancesKm.set(i, j, round2(roadKm));
+                durationsMin.set(i, j, round2(roadKm * minutesPerKm));
+            }
+        }
+
+        return new MatrixResult(distancesKm, durationsMin, MatrixProvider.HAVERSINE);
+    }
+
+    /**
+     * Las mismas cuentas celda por celda, sin armar la matriz: lo que usa la
+     * matriz dispersa para los pares que no se midieron.
+     */
+    public Estimator estimator(List<Location> points, double timeFactor) {
+        return new Estimator(points, props.getHaversine(), timeFactor);
+    }
+
+    /** km y minutos estimados entre dos puntos de la lista (sin redondear). */
+    public static final class Estimator {
+
+        private final double[] lat;
+        private final double[] lng;
+        private final double[] cosLat;
+        private final double roadFactor;
+        private final double minutesPerKm;
+
+        private Estimator(List<Location> points, MatrixProperties.Haversine coefficients, double timeFactor) {
+            int n = points.size();
+            this.lat = new double[n];
+            this.lng = new double[n];
+            this.cosLat = new double[n];
+            toRadians(points, lat, lng, cosLat);
+            this.roadFactor = coefficients.getRoadFactor();
+            this.minutesPerKm = 60.0 / coefficients.getSpeedKmh() * timeFactor;
+        }
+
+        public double km(int from, int to) {
+            double sinLat = Math.sin((lat[to] - lat[from]) * 0.5);
+            double sinLng = Math.sin((lng[to] - lng[from]) * 0.5);
+            double a = sinLat * sinLat + cosLat[from] * cosLat[to] * sinLng * sinLng;
+            return 2.0 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a))) * roadFactor;
+        }
+
+        public double minutes(int from, int to) {
+            return km(from, to) * minutesPerKm;
+        }
+    }
+
+    private static void toRadians(List<Location> points, double[] lat, double[] lng, double[] cosLat) {
+        for (int i = 0; i < lat.length; i++) {
+            Location p = points.get(i);
+            lat[i] = Math.toRadians(p.getLat());
+            lng[i] = Math.toRadians(p.getLng());
+            cosLat[i] = Math.cos(lat[i]);
+        }
+    }
+
+    private static double round2(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+}
@@ -1,8 +1,12 @@
 package pe.gob.sunass.rutasods.matrix.infrastructure.osrm;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
@@ -13,12 +17,32 @@ public class OsrmClient {
     private final WebClient webClient;
     private final OsrmProperties props;
 
-    public OsrmClient(WebClient webClient, OsrmProperties props) {
+    private final MeterRegistry registry;
+    private final Counter retries;
+
+    public OsrmClient(WebClient webClient, OsrmProperties props, MeterRegistry registry) {
         this.webClient = webClient;
         this.props = props;
+        this.registry = registry;
+        this.retries = Counter.builder("rutasods.osrm.retries")
+                .description("Reintentos de consultas /table a OSRM")
+                .register(registry);
     }
 
     public OsrmTableResponse table(String coordinates, int sourcesCount, int destinationsCount) {
+        return tableAsync(coordinates, sourcesCount, destinationsCount).block();
+    }
+
+    /**
+     * Igual que {@link #table} pero sin bloquear. Los reintentos van dentro del
+     * Mono, así que si falla un chunk solo se repite esa consulta. Cada intento
+     * tiene su propio tope (osrm.timeout-seconds): un servidor colgado cuenta
+     * como falla y, agotados los reintentos, AUTO cae a haversine.
+     *
+     * La latencia (rutasods.osrm.chunk) se mide por chunk desde la suscripción
+     * hasta la respuesta final, reintentos incluidos.
+     */
+    public Mono<OsrmTableResponse> tableAsync(String coordinates, int sourcesCount, int destinationsCount) {
         // OSRM table: /table/v1/{profile}/{coords}?annotations=duration,distance
         // coords: "lon,lat;lon,lat;..."
         // sources=0;1;2...
@@ -27,7 +51,7 @@ public class OsrmClient {
         String sources = buildIndexList(0, sourcesCount);
         String destinations = buildIndexList(sourcesCount, sourcesCount + destinationsCount);
 
-        return webClient.get()
+        Mono<OsrmTableResponse> attempt = webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .scheme("https")
                         .host(props.getBaseUrl().replace("https://", "").replace("http://", ""))
@@ -38,11 +62,30 @@ public class OsrmClient {
                         .build())
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
-                .bodyToMono(OsrmTableResponse.class)
-                //.timeout(Duration.ofSeconds(props.getTimeoutSeconds()))
+                .bodyToMono(OsrmTableResponse.class);
+        if (props.getTimeoutSeconds() > 0) {
+            attempt = attempt.timeout(Duration.ofSeconds(props.getTimeoutSeconds()));
+        }
+
+        Mono<OsrmTableResponse> request = attempt
                 .retryWhen(Retry.backoff(2, Duration.ofMillis(400))
-                        .maxBackoff(Duration.ofSeconds(2)))
-                .block();
+                        .maxBackoff(Duration.ofSeconds(2))
+                        .doBeforeRetry(signal -> retries.increment()));
+
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return request
+                    .doOnSuccess(res -> sample.stop(chunkTimer("success")))
+                    .doOnError(e -> sample.stop(chunkTimer("error")));
+        });
+    }
+
+    private Timer chunkTimer(String outcome) {
+        return Timer.builder("rutasods.osrm.chunk")
+                .description("Latencia de una consulta /table a OSRM (con reintentos)")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
     }
 
     private String buildIndexList(int startInclusive, int endExclusive) {
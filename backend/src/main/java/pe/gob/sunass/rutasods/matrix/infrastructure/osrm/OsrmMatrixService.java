@@ -1,10 +1,18 @@
 package pe.gob.sunass.rutasods.matrix.infrastructure.osrm;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
 import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.cache.MatrixCacheAdapter;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
 import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -12,10 +20,30 @@ public class OsrmMatrixService implements MatrixService {
 
     private final OsrmClient osrmClient;
     private final OsrmProperties props;
+    private final MatrixCacheAdapter cache;
 
-    public OsrmMatrixService(OsrmClient osrmClient, OsrmProperties props) {
+    // Celdas de cada matriz según de dónde salieron
+    private final Counter cachedCells;
+    private final Counter fetchedCells;
+
+    public OsrmMatrixService(
+            OsrmClient osrmClient,
+            OsrmProperties props,
+            MatrixCacheAdapter cache,
+            MeterRegistry registry
+    ) {
         this.osrmClient = osrmClient;
         this.props = props;
+        this.cache = cache;
+        this.cachedCells = cellCounter(registry, "cache");
+        this.fetchedCells = cellCounter(registry, "osrm");
+    }
+
+    private static Counter cellCounter(MeterRegistry registry, String source) {
+        return Counter.builder("rutasods.matrix.cells")
+                .description("Celdas de matriz OSRM servidas, por origen")
+                .tag("source", source)
+                .register(registry);
     }
 
     @Override
@@ -23,6 +51,20 @@ public class OsrmMatrixService implements MatrixService {
             List<Location> origins,
             List<Location> destinations,
             double timeFactor
+    ) {
+        return calculateMatrix(origins, destinations, timeFactor, props.getMaxInFlight());
+    }
+
+    /**
+     * Igual que {@link #calculateMatrix(List, List, double)} con otro tope de
+     * consultas a OSRM en vuelo, para quien ya reparte varias matrices en
+     * paralelo y necesita que el total no pase de maxInFlight.
+     */
+    public MatrixResult calculateMatrix(
+            List<Location> origins,
+            List<Location> destinations,
+            double timeFactor,
+            int maxInFlight
     ) {
         // Para tu caso actual: origins == destinations (square matrix).
         // Igual lo dejamos general.
@@ -30,55 +72,217 @@ public class OsrmMatrixService implements MatrixService {
         int n = origins.size();
         int m = destinations.size();
 
-        double[][] distancesKm = new double[n][m];
-        double[][] durationsMin = new double[n][m];
+        // Valores crudos de OSRM (metros / segundos); NaN = celda aún sin dato
+        double[][] distM = new double[n][m];
+        double[][] durSec = new double[n][m];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(distM[i], Double.NaN);
+            Arrays.fill(durSec[i], Double.NaN);
+        }
 
-        // Estrategia: chunkeamos destinos en grupos de chunkSize
-        int chunkSize = props.getChunkSize();
+        List<String> originKeys = origins.stream().map(MatrixCacheAdapter::key).toList();
+        List<String> destinationKeys = destinations.stream().map(MatrixCacheAdapter::key).toList();
 
-        for (int destStart = 0; destStart < m; destStart += chunkSize) {
-            int destEnd = Math.min(destStart + chunkSize, m);
-            List<Location> destChunk = destinations.subList(destStart, destEnd);
+        if (props.isCacheEnabled()) {
+            cachedCells.increment(
+                    cache.lookup(props.getProfile(), originKeys, destinationKeys, distM, durSec));
+        }
 
-            // Construimos lista combinada: [origins..., destChunk...]
-            List<Location> combined = new ArrayList<>(n + destChunk.size());
-            combined.addAll(origins);
-            combined.addAll(destChunk);
+        // Solo se consultan a OSRM las celdas faltantes, en dos rectángulos:
+        //  - filas sin ningún dato (puntos nuevos) × columnas con algún faltante
+        //  - filas con datos parciales × columnas a las que les falta algún
+        //    dato en esas filas (la unión, no las de cada fila por separado)
+        // Así un punto nuevo cuesta 1×N + N×1 celdas y no N×N. Las celdas del
+        // rectángulo que ya venían de cache no se pisan (ver writeChunk).
+        List<Integer> newRows = new ArrayList<>();
+        List<Integer> partialRows = new ArrayList<>();
+        boolean[] missingCol = new boolean[m];
+        boolean[] partialCol = new boolean[m];
 
-            String coords = toOsrmCoordinates(combined);
+        for (int i = 0; i < n; i++) {
+            int missing = 0;
+            for (int j = 0; j < m; j++) {
+                if (Double.isNaN(durSec[i][j])) {
+                    missing++;
+                    missingCol[j] = true;
+                }
+            }
+            if (missing == m && m > 0) {
+                newRows.add(i);
+            } else if (missing > 0) {
+                partialRows.add(i);
+                for (int j = 0; j < m; j++) {
+                    if (Double.isNaN(durSec[i][j])) partialCol[j] = true;
+                }
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        if (!newRows.isEmpty()) {
+            addChunks(chunks, newRows, columns(missingCol));
+        }
+        if (!partialRows.isEmpty()) {
+            addChunks(chunks, partialRows, columns(partialCol));
+        }
+
+        if (!chunks.isEmpty()) {
+            fetchMissing(chunks, maxInFlight, origins, destinations, originKeys, destinationKeys, distM, durSec);
+        }
 
-            OsrmTableResponse res = osrmClient.table(
-                    coords,
-                    n,
-                    destChunk.size()
-            );
+        FlatTravelMatrix distancesKm = new FlatTravelMatrix(n, m);
+        FlatTravelMatrix durationsMin = new FlatTravelMatrix(n, m);
 
-            if (res == null || res.getDurations() == null || res.getDistances() == null) {
-                throw new IllegalStateException("OSRM response inválida (durations/distances null)");
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                // distancia en km
+                double km = distM[i][j] / 1000.0;
+                distancesKm.set(i, j, round2(km));
+
+                // duración en minutos con timeFactor aplicado en backend
+                double minutes = (durSec[i][j] / 60.0) * timeFactor;
+                durationsMin.set(i, j, round2(minutes));
             }
-            if (res.getCode() != null && !"Ok".equalsIgnoreCase(res.getCode())) {
-                throw new IllegalStateException("OSRM error: " + res.getCode() +
-                        (res.getMessage() != null ? " - " + res.getMessage() : ""));
+        }
+
+        return new MatrixResult(distancesKm, durationsMin, MatrixProvider.OSRM);
+    }
+
+    /** Consulta /table (una tesela): filas × columnas (índices en origins / destinations). */
+    private record Chunk(List<Integer> rows, List<Integer> cols) {}
+
+    /**
+     * Teselado 2-D: parte filas y columnas en bloques de sourceBlockSize ×
+     * chunkSize. Si un bloque completo supera maxTableSize coordenadas, ambos
+     * lados se achican en proporción hasta entrar en el límite del servidor.
+     */
+    private void addChunks(List<Chunk> chunks, List<Integer> rows, List<Integer> cols) {
+        int sourceBlock = props.getSourceBlockSize() > 0
+                ? Math.min(props.getSourceBlockSize(), rows.size())
+                : rows.size();
+        int destBlock = props.getChunkSize() > 0
+                ? Math.min(props.getChunkSize(), cols.size())
+                : cols.size();
+
+        int maxTable = props.getMaxTableSize();
+        if (maxTable > 1 && sourceBlock + destBlock > maxTable) {
+            int total = sourceBlock + destBlock;
+            sourceBlock = Math.max(1, (int) ((long) maxTable * sourceBlock / total));
+            destBlock = Math.max(1, maxTable - sourceBlock);
+        }
+
+        for (int srcStart = 0; srcStart < rows.size(); srcStart += sourceBlock) {
+            int srcEnd = Math.min(srcStart + sourceBlock, rows.size());
+            List<Integer> rowBlock = rows.subList(srcStart, srcEnd);
+
+            for (int destStart = 0; destStart < cols.size(); destStart += destBlock) {
+                int destEnd = Math.min(destStart + destBlock, cols.size());
+                chunks.add(new Chunk(rowBlock, cols.subList(destStart, destEnd)));
             }
+        }
+    }
 
-            // res matrices vienen en: durations[sources][destinations], distances[sources][destinations]
-            double[][] durSec = res.getDurations();
-            double[][] distM = res.getDistances();
+    /**
+     * Consulta los chunks en paralelo (hasta maxInFlight a la vez), escribe
+     * cada respuesta en su porción de la matriz apenas llega y guarda las
+     * celdas nuevas en cache. Cada chunk reintenta por su cuenta (ver
+     * {@link OsrmClient#tableAsync}); si uno agota los reintentos falla la matriz.
+     */
+    private void fetchMissing(
+            List<Chunk> chunks,
+            int maxInFlight,
+            List<Location> origins,
+            List<Location> destinations,
+            List<String> originKeys,
+            List<String> destinationKeys,
+            double[][] distM,
+            double[][] durSec
+    ) {
+        List<List<MatrixCacheAdapter.Cell>> fetched = Flux.fromIterable(chunks)
+                .flatMap(chunk -> fetchChunk(chunk, origins, destinations)
+                                .map(res -> writeChunk(chunk, res, originKeys, destinationKeys, distM, durSec)),
+                        Math.max(1, maxInFlight))
+                .collectList()
+                .block();
 
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < destChunk.size(); j++) {
-                    // distancia en km
-                    double km = distM[i][j] / 1000.0;
-                    distancesKm[i][destStart + j] = round2(km);
+        if (fetched != null) {
+            fetchedCells.increment(fetched.stream().mapToInt(List::size).sum());
+        }
 
-                    // duración en minutos con timeFactor aplicado en backend
-                    double minutes = (durSec[i][j] / 60.0) * timeFactor;
-                    durationsMin[i][destStart + j] = round2(minutes);
-                }
+        if (props.isCacheEnabled() && fetched != null) {
+            List<MatrixCacheAdapter.Cell> cells = new ArrayList<>();
+            fetched.forEach(cells::addAll);
+            cache.store(props.getProfile(), cells);
+        }
+    }
+
+    private Mono<OsrmTableResponse> fetchChunk(
+            Chunk chunk,
+            List<Location> origins,
+            List<Location> destinations
+    ) {
+        // Construimos lista combinada: [sources..., destChunk...]
+        List<Location> combined = new ArrayList<>(chunk.rows().size() + chunk.cols().size());
+        chunk.rows().forEach(i -> combined.add(origins.get(i)));
+        chunk.cols().forEach(j -> combined.add(destinations.get(j)));
+
+        String coords = toOsrmCoordinates(combined);
+
+        return osrmClient.tableAsync(
+                coords,
+                chunk.rows().size(),
+                chunk.cols().size()
+        );
+    }
+
+    /** Copia una respuesta en su porción de la matriz; devuelve las celdas nuevas. */
+    private List<MatrixCacheAdapter.Cell> writeChunk(
+            Chunk chunk,
+            OsrmTableResponse res,
+            List<String> originKeys,
+            List<String> destinationKeys,
+            double[][] distM,
+            double[][] durSec
+    ) {
+        if (res == null || res.getDurations() == null || res.getDistances() == null) {
+            throw new IllegalStateException("OSRM response inválida (durations/distances null)");
+        }
+        if (res.getCode() != null && !"Ok".equalsIgnoreCase(res.getCode())) {
+            throw new IllegalStateException("OSRM error: " + res.getCode() +
+                    (res.getMessage() != null ? " - " + res.getMessage() : ""));
+        }
+
+        // res matrices vienen en: durations[sources][destinations], distances[sources][destinations]
+        double[][] chunkDur = res.getDurations();
+        double[][] chunkDist = res.getDistances();
+
+        List<MatrixCacheAdapter.Cell> cells = new ArrayList<>();
+
+        // Los chunks no comparten celdas, así que se escriben sin sincronizar
+        for (int a = 0; a < chunk.rows().size(); a++) {
+            int i = chunk.rows().get(a);
+            for (int b = 0; b < chunk.cols().size(); b++) {
+                int j = chunk.cols().get(b);
+                if (!Double.isNaN(durSec[i][j])) continue; // ya venía de cache
+
+                distM[i][j] = chunkDist[a][b];
+                durSec[i][j] = chunkDur[a][b];
+
+                cells.add(new MatrixCacheAdapter.Cell(
+                        originKeys.get(i),
+                        destinationKeys.get(j),
+                        chunkDist[a][b],
+                        chunkDur[a][b]));
             }
         }
+        return cells;
+    }
 
-        return new MatrixResult(distancesKm, durationsMin);
+    private static List<Integer> columns(boolean[] flags) {
+        List<Integer> cols = new ArrayList<>();
+        for (int j = 0; j < flags.length; j++) {
+            if (flags[j]) cols.add(j);
+        }
+        return cols;
     }
 
     private String toOsrmCoordinates(List<Location> points) {
@@ -4,12 +4,30 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "osrm")
 public class OsrmProperties {
     private String baseUrl;
     private String profile;
+
+    // Bloques de cada consulta /table (teselado 2-D de la matriz):
+    // chunkSize = destinos por consulta, sourceBlockSize = orígenes (0 = todos)
     private int chunkSize;
+    private int sourceBlockSize;
+
+    // Máximo de coordenadas por consulta que acepta el servidor (--max-table-size), 0 = sin límite
+    private int maxTableSize;
     private int timeoutSeconds;
+
+    // Consultas /table simultáneas por matriz
+    private int maxInFlight = 4;
+
+    // Cache persistente de celdas (MatrixCacheAdapter)
+    private boolean cacheEnabled = true;
+
+    // Vigencia de una celda cacheada desde que se midió; 0 = no vence
+    private Duration cacheTtl = Duration.ofDays(30);
 }
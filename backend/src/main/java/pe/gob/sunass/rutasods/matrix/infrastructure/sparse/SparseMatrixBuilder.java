@@ -0,0 +1,208 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.sparse;
+
+import org.springframework.stereotype.Component;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService.MatrixResult;
+import pe.gob.sunass.rutasods.matrix.infrastructure.MatrixProperties;
+import pe.gob.sunass.rutasods.matrix.infrastructure.haversine.HaversineMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmProperties;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.model.SparseTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Arma la matriz dispersa de planificación (ver {@link SparseTravelMatrix}):
+ *  - la ODS (punto 0) contra todos, en ambos sentidos;
+ *  - cada punto contra sus k vecinos más cercanos ({@link SpatialGrid}), y
+ *    el par inverso, para que si j es vecino de i también se mida j → i.
+ *
+ * Con OSRM los orígenes se recorren en orden espacial en bloques de
+ * blockRows: los vecinos de puntos cercanos casi coinciden, así cada bloque
+ * es un rectángulo chico (bloque × unión de sus vecinos) que pasa por
+ * {@link OsrmMatrixService} como cualquier otro, cache incluido. El resto de
+ * los pares se estima con haversine al leerlos. Para N puntos son unas
+ * N · (2 + 2k) celdas en vez de N².
+ *
+ * El paralelismo es entre bloques: cada bloque pide sus teselas de a una,
+ * así el tope osrm.max-in-flight vale para la matriz entera.
+ */
+@Component
+public class SparseMatrixBuilder {
+
+    private final OsrmMatrixService osrm;
+    private final HaversineMatrixService haversine;
+    private final MatrixProperties props;
+    private final OsrmProperties osrmProps;
+
+    public SparseMatrixBuilder(
+            OsrmMatrixService osrm,
+            HaversineMatrixService haversine,
+            MatrixProperties props,
+            OsrmProperties osrmProps
+    ) {
+        this.osrm = osrm;
+        this.haversine = haversine;
+        this.props = props;
+        this.osrmProps = osrmProps;
+    }
+
+    /** @param provider OSRM, HAVERSINE o AUTO (OSRM y, si falla, todo haversine) */
+    public MatrixResult build(List<Location> points, double timeFactor, MatrixProvider provider) {
+        int n = points.size();
+        SpatialGrid grid = new SpatialGrid(points, 1);
+        int[][] columns = measuredColumns(n, grid);
+
+        HaversineMatrixService.Estimator estimator = haversine.estimator(points, timeFactor);
+
+        if (provider == MatrixProvider.HAVERSINE || n < 2) {
+            return estimated(columns, estimator);
+        }
+
+        SparseTravelMatrix distances = new SparseTravelMatrix(columns, estimator::km);
+        SparseTravelMatrix durations = new SparseTravelMatrix(columns, estimator::minutes);
+        try {
+            fetch(points, columns, grid.spatialOrder(), timeFactor, distances, durations);
+            return new MatrixResult(distances, durations, MatrixProvider.OSRM);
+        } catch (RuntimeException e) {
+            if (provider == MatrixProvider.OSRM) throw e;
+            System.err.println("⚠️ OSRM no disponible, se usa matriz haversine: " + e.getMessage());
+            // Matrices nuevas: los bloques que ya estaban en curso siguen
+            // escribiendo en las de OSRM, que se descartan
+            return estimated(columns, estimator);
+        }
+    }
+
+    /** Columnas medidas de cada fila: la 0 contra todos, el resto 0 + vecinos (simétrico). */
+    private int[][] measuredColumns(int n, SpatialGrid grid) {
+        int k = Math.max(0, Math.min(props.getSparse().getNeighbors(), n - 2));
+
+        int[][] nearest = new int[n][];
+        int[] degree = new int[n];
+        nearest[0] = new int[0];
+        for (int i = 1; i < n; i++) {
+            nearest[i] = grid.nearest(i, k);
+            degree[i] += nearest[i].length;
+            for (int j : nearest[i]) degree[j]++;
+        }
+
+        int[][] columns = new int[n][];
+        int[] fill = new int[n];
+        columns[0] = new int[n - 1];
+        for (int j = 1; j < n; j++) columns[0][j - 1] = j;
+        for (int i = 1; i < n; i++) {
+            columns[i] = new int[degree[i] + 1];
+            columns[i][fill[i]++] = 0;
+        }
+        for (int i = 1; i < n; i++) {
+            for (int j : nearest[i]) {
+                columns[i][fill[i]++] = j;
+                columns[j][fill[j]++] = i;
+            }
+        }
+        return columns;
+    }
+
+    /** Matrices con todas las celdas, medidas o no, estimadas con haversine. */
+    private static MatrixResult estimated(int[][] columns, HaversineMatrixService.Estimator estimator) {
+        SparseTravelMatrix distances = new SparseTravelMatrix(columns, estimator::km);
+        SparseTravelMatrix durations = new SparseTravelMatrix(columns, estimator::minutes);
+        for (int i = 0; i < distances.rows(); i++) {
+            for (int j : distances.measuredColumns(i)) {
+                distances.set(i, j, estimator.km(i, j));
+                durations.set(i, j, estimator.minutes(i, j));
+            }
+        }
+        return new MatrixResult(distances, durations, MatrixProvider.HAVERSINE);
+    }
+
+    /** Una consulta rectangular: orígenes × destinos, índices en points. */
+    private record Block(int[] rows, int[] cols) {}
+
+    private void fetch(
+            List<Location> points,
+            int[][] columns,
+            int[] order,
+            double timeFactor,
+            SparseTravelMatrix distances,
+            SparseTravelMatrix durations
+    ) {
+        int n = points.size();
+        int[] all = new int[n - 1];
+        for (int j = 1; j < n; j++) all[j - 1] = j;
+
+        List<Block> blocks = new ArrayList<>();
+        // la ODS contra todos y todos contra la ODS
+        blocks.add(new Block(new int[]{0}, all));
+        blocks.add(new Block(all, new int[]{0}));
+
+        int blockRows = Math.max(1, props.getSparse().getBlockRows());
+        boolean[] inBlock = new boolean[n];
+        for (int start = 0; start < order.length; start += blockRows) {
+            int[] rows = Arrays.copyOfRange(order, start, Math.min(start + blockRows, order.length));
+            int[] cols = neighbourUnion(rows, columns, inBlock);
+            if (cols.length > 0) blocks.add(new Block(rows, cols));
+        }
+
+        // Los bloques no comparten celdas medidas: se escriben sin sincronizar.
+        // Hasta maxInFlight bloques a la vez, cada uno con sus teselas en
+        // serie (ver fetchBlock): en total nunca más de maxInFlight consultas.
+        Flux.fromIterable(blocks)
+                .flatMap(block -> Mono.fromRunnable(
+                                        () -> fetchBlock(block, points, timeFactor, distances, durations))
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        Math.max(1, osrmProps.getMaxInFlight()))
+                .then()
+                .block();
+    }
+
+    /** Columnas medidas (sin la 0) de alguna de las filas del bloque. */
+    private static int[] neighbourUnion(int[] rows, int[][] columns, boolean[] seen) {
+        List<Integer> cols = new ArrayList<>();
+        for (int i : rows) {
+            for (int j : columns[i]) {
+                if (j != 0 && !seen[j]) {
+                    seen[j] = true;
+                    cols.add(j);
+                }
+            }
+        }
+        int[] result = new int[cols.size()];
+        for (int c = 0; c < result.length; c++) {
+            result[c] = cols.get(c);
+            seen[result[c]] = false;
+        }
+        return result;
+    }
+
+    private void fetchBlock(
+            Block block,
+            List<Location> points,
+            double timeFactor,
+            SparseTravelMatrix distances,
+            SparseTravelMatrix durations
+    ) {
+        List<Location> origins = Arrays.stream(block.rows()).mapToObj(points::get).toList();
+        List<Location> destinations = Arrays.stream(block.cols()).mapToObj(points::get).toList();
+        MatrixResult result = osrm.calculateMatrix(origins, destinations, timeFactor, 1);
+
+        TravelMatrix dist = result.distances();
+        TravelMatrix dur = result.durations();
+        for (int a = 0; a < block.rows().length; a++) {
+            int i = block.rows()[a];
+            for (int b = 0; b < block.cols().length; b++) {
+                int j = block.cols()[b];
+                if (!distances.isMeasured(i, j)) continue;
+                distances.set(i, j, dist.get(a, b));
+                durations.set(i, j, dur.get(a, b));
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.sparse;
+
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Grilla uniforme sobre lat/lng para buscar los k puntos más cercanos sin
+ * comparar todos contra todos. Las coordenadas se proyectan a un plano
+ * (x = lng · cos(lat media), y = lat, en grados): a escala de un país la
+ * deformación no cambia qué vecinos quedan primero.
+ *
+ * Cada celda guarda en promedio unos pocos puntos; la búsqueda recorre anillos
+ * de celdas alrededor del punto hasta que el anillo siguiente ya no puede
+ * traer nada más cerca que el k-ésimo encontrado.
+ */
+final class SpatialGrid {
+
+    private static final int POINTS_PER_CELL = 4;
+
+    private final double[] x;
+    private final double[] y;
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cellsX;
+    private final int cellsY;
+
+    // Puntos de cada celda: cellPoints[cellStart[c]..cellStart[c+1])
+    private final int[] cellStart;
+    private final int[] cellPoints;
+    private final int[] cellOf;
+
+    /** Indexa points[first..]; los anteriores (la ODS) no son vecinos de nadie. */
+    SpatialGrid(List<Location> points, int first) {
+        int n = points.size();
+        this.x = new double[n];
+        this.y = new double[n];
+        this.cellOf = new int[n];
+        Arrays.fill(cellOf, -1);
+
+        double latSum = 0;
+        for (int i = first; i < n; i++) latSum += points.get(i).getLat();
+        double cosLat = Math.cos(Math.toRadians(n > first ? latSum / (n - first) : 0));
+
+        double loX = Double.MAX_VALUE, loY = Double.MAX_VALUE;
+        double hiX = -Double.MAX_VALUE, hiY = -Double.MAX_VALUE;
+        for (int i = first; i < n; i++) {
+            x[i] = points.get(i).getLng() * cosLat;
+            y[i] = points.get(i).getLat();
+            loX = Math.min(loX, x[i]);
+            loY = Math.min(loY, y[i]);
+            hiX = Math.max(hiX, x[i]);
+            hiY = Math.max(hiY, y[i]);
+        }
+        int indexed = Math.max(0, n - first);
+        if (indexed == 0) {
+            loX = loY = hiX = hiY = 0;
+        }
+
+        double width = Math.max(hiX - loX, 1e-9);
+        double height = Math.max(hiY - loY, 1e-9);
+        int targetCells = Math.max(1, indexed / POINTS_PER_CELL);
+        double size = Math.sqrt(width * height / targetCells);
+        // puntos casi alineados: que una sola dimensión no dispare la cantidad de celdas
+        size = Math.max(size, Math.max(width, height) / targetCells);
+
+        this.minX = loX;
+        this.minY = loY;
+        this.cellSize = size;
+        this.cellsX = (int) (width / size) + 1;
+        this.cellsY = (int) (height / size) + 1;
+
+        int cells = cellsX * cellsY;
+        int[] counts = new int[cells + 1];
+        for (int i = first; i < n; i++) {
+            cellOf[i] = cell(column(x[i]), row(y[i]));
+            counts[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) counts[c + 1] += counts[c];
+        this.cellStart = counts.clone();
+        this.cellPoints = new int[indexed];
+        int[] fill = Arrays.copyOf(counts, cells);
+        for (int i = first; i < n; i++) {
+            cellPoints[fill[cellOf[i]]++] = i;
+        }
+    }
+
+    /** Los k puntos indexados más cercanos a i (sin i), del más cercano al más lejano. */
+    int[] nearest(int i, int k) {
+        int[] best = new int[k];
+        double[] bestDist = new double[k];
+        int found = 0;
+
+        int cx = column(x[i]);
+        int cy = row(y[i]);
+        int maxRing = Math.max(cellsX, cellsY);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                if (gy < 0 || gy >= cellsY) continue;
+                boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                // en las filas del medio del anillo solo cuentan las dos celdas de los bordes
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int gx = cx - ring; gx <= cx + ring; gx += step) {
+                    if (gx < 0 || gx >= cellsX) continue;
+                    int c = cell(gx, gy);
+                    for (int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+                        int j = cellPoints[p];
+                        if (j == i) continue;
+                        double dx = x[j] - x[i];
+                        double dy = y[j] - y[i];
+                        double d = dx * dx + dy * dy;
+                        if (found == k && d >= bestDist[k - 1]) continue;
+
+                        // inserción ordenada: k es chico
+                        int pos = found < k ? found++ : k - 1;
+                        while (pos > 0 && bestDist[pos - 1] > d) {
+                            bestDist[pos] = bestDist[pos - 1];
+                            best[pos] = best[pos - 1];
+                            pos--;
+                        }
+                        bestDist[pos] = d;
+                        best[pos] = j;
+                    }
+                }
+            }
+            // lo que falta recorrer está al menos a ring celdas de distancia
+            double reach = ring * cellSize;
+            if (found == k && bestDist[k - 1] <= reach * reach) break;
+        }
+        return found == k ? best : Arrays.copyOf(best, found);
+    }
+
+    /**
+     * Los puntos indexados recorriendo la grilla fila por fila en zigzag: puntos
+     * consecutivos quedan cerca y comparten vecinos.
+     */
+    int[] spatialOrder() {
+        int[] order = new int[cellPoints.length];
+        int pos = 0;
+        for (int gy = 0; gy < cellsY; gy++) {
+            for (int k = 0; k < cellsX; k++) {
+                int gx = (gy % 2 == 0) ? k : cellsX - 1 - k;
+                int c = cell(gx, gy);
+                for (int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+                    order[pos++] = cellPoints[p];
+                }
+            }
+        }
+        return order;
+    }
+
+    private int column(double px) {
+        return Math.min(cellsX - 1, (int) ((px - minX) / cellSize));
+    }
+
+    private int row(double py) {
+        return Math.min(cellsY - 1, (int) ((py - minY) / cellSize));
+    }
+
+    private int cell(int gx, int gy) {
+        return gy * cellsX + gx;
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
 import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService;
 import pe.gob.sunass.rutasods.matrix.interfaces.rest.dto.MatrixRequest;
 import pe.gob.sunass.rutasods.matrix.interfaces.rest.dto.MatrixResponse;
@@ -44,6 +45,15 @@ public class MatrixController {
             if (request.getPoints() == null || request.getPoints().isEmpty()) {
                 return ResponseEntity.badRequest().body("At least one point is required");
             }
+
+            MatrixProvider provider = null; // el por defecto de la configuración
+            if (request.getMatrixProvider() != null) {
+                try {
+                    provider = MatrixProvider.valueOf(request.getMatrixProvider().trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body("Invalid matrixProvider: " + request.getMatrixProvider());
+                }
+            }
             
             // 1) Construir ODS como Location
             System.out.println("✅ Construyendo ODS...");
@@ -101,12 +111,13 @@ public class MatrixController {
             MatrixService.MatrixResult result = matrixService.calculateMatrix(
                 allPoints,
                 allPoints,
-                timeFactor
+                timeFactor,
+                provider
             );
             
             System.out.println("✅ Matriz calculada exitosamente");
-            System.out.println("   - Distancias: " + result.distances().length + "x" + result.distances()[0].length);
-            System.out.println("   - Duraciones: " + result.durations().length + "x" + result.durations()[0].length);
+            System.out.println("   - Distancias: " + result.distances().rows() + "x" + result.distances().cols());
+            System.out.println("   - Duraciones: " + result.durations().rows() + "x" + result.durations().cols());
 
             // 5) Preparar labels (nombres de los puntos)
             List<String> labels = allPoints.stream()
@@ -120,6 +131,7 @@ public class MatrixController {
             response.setDistances(result.distances());
             response.setDurations(result.durations());
             response.setLabels(labels);
+            response.setProvider(result.provider().name());
             
             System.out.println("========== MATRIZ CALCULATE SUCCESS ==========");
 
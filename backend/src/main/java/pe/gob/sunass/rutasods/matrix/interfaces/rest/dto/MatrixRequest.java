@@ -17,6 +17,8 @@ public class MatrixRequest {
 
     private Double timeFactor;
 
+    private String matrixProvider;   // "OSRM", "HAVERSINE" o "AUTO"
+
     @Data
     public static class OdsDto {
         @NotNull
@@ -1,13 +1,20 @@
 package pe.gob.sunass.rutasods.matrix.interfaces.rest.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+import pe.gob.sunass.rutasods.shared.interfaces.rest.TravelMatrixSerializer;
 
 import java.util.List;
 
 @Data
 public class MatrixResponse {
     
-    private double[][] distances;
-    private double[][] durations;
+    // Se serializan como double[][]
+    @JsonSerialize(using = TravelMatrixSerializer.class)
+    private TravelMatrix distances;
+    @JsonSerialize(using = TravelMatrixSerializer.class)
+    private TravelMatrix durations;
     private List<String> labels;
+    private String provider;
 }
\ No newline at end of file
@@ -1,13 +1,28 @@
 package pe.gob.sunass.rutasods.optimization.application.internal;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixMode;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
 import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerMetrics;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchMode;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
 import pe.gob.sunass.rutasods.optimization.domain.services.GreedyRoutePlanner;
 import pe.gob.sunass.rutasods.optimization.domain.services.ItineraryCalculator;
 import pe.gob.sunass.rutasods.optimization.domain.services.DistanceEvaluator;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheService;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationSnapshot;
+import pe.gob.sunass.rutasods.optimization.infrastructure.cache.SessionSavedEvent;
+import pe.gob.sunass.rutasods.optimization.infrastructure.trace.SearchTraceStore;
 import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.*;
 import pe.gob.sunass.rutasods.shared.domain.model.*;
 
@@ -17,21 +32,54 @@ import java.util.stream.IntStream;
 import java.time.Instant;
 import java.util.UUID;
 
-import java.util.Arrays;
-
 
 @Service
 public class RunMasterPlanUseCase {
 
+    // Límites de las constraints que puede pedir el cliente
+    private static final int MAX_SEARCH_POOL_SIZE = 20;
+    private static final int MAX_COMBO_SIZE = 12;
+    // BRUTE_FORCE recorre los k! órdenes de cada combinación sin podar
+    private static final int MAX_BRUTE_FORCE_COMBO_SIZE = 8;
+    // Recorridos por iteración greedy en el peor caso, juntando pool y combo
+    // (con los valores por defecto son 911)
+    private static final long MAX_SEARCH_WORK = 10_000_000L;
+    private static final int MAX_IMPROVEMENT_BUDGET_MS = 60_000;
+
     private final MatrixService matrixService;
     private final OptimizationCacheService cacheService;
-
-    public RunMasterPlanUseCase(MatrixService matrixService, OptimizationCacheService cacheService) {
+    private final PlannerMetrics plannerMetrics;
+    private final SearchTraceStore traceStore;
+    private final ApplicationEventPublisher events;
+
+    public RunMasterPlanUseCase(
+            MatrixService matrixService,
+            OptimizationCacheService cacheService,
+            PlannerMetrics plannerMetrics,
+            SearchTraceStore traceStore,
+            ApplicationEventPublisher events
+    ) {
         this.matrixService = matrixService;
         this.cacheService = cacheService;
+        this.plannerMetrics = plannerMetrics;
+        this.traceStore = traceStore;
+        this.events = events;
     }
 
     public OptimizeResponse execute(OptimizeRequest request) {
+        return execute(request, PlanningMonitor.NONE);
+    }
+
+    /**
+     * Igual que {@link #execute(OptimizeRequest)} informando el avance y
+     * consultando la cancelación en el monitor (ver OptimizationExecutor).
+     *
+     * @throws PlanningCancelledException si el monitor pidió cancelar
+     */
+    public OptimizeResponse execute(OptimizeRequest request, PlanningMonitor monitor) {
+
+        // 0) opciones inválidas: 400 antes de calcular la matriz
+        validate(request);
 
         // 1) construir ODS como Location
         Location ods = new Location();
@@ -62,31 +110,22 @@ public class RunMasterPlanUseCase {
         allPoints.add(ods);
         allPoints.addAll(active);
 
-        // 3) matriz OSRM
+        // 3) matriz OSRM (o haversine, según el proveedor pedido); dispersa en planes grandes
         MatrixService.MatrixResult matrix =
-                matrixService.calculateMatrix(
-                        allPoints,
+                matrixService.calculatePlanningMatrix(
                         allPoints,
                         request.getTimeFactor() != null
                                 ? request.getTimeFactor()
-                                : 1.0);
+                                : 1.0,
+                        resolveMatrixProvider(request),
+                        resolveMatrixMode(request));
 
-        double[][] distances =
+        TravelMatrix distances =
                 matrix.distances();
 
-        double[][] durations =
+        TravelMatrix durations =
                 matrix.durations();
 
-        System.out.println("========== MATRIX DISTANCES ==========");
-        for (double[] row : distances) {
-            System.out.println(Arrays.toString(row));
-        }
-
-        System.out.println("========== MATRIX DURATIONS ==========");
-        for (double[] row : durations) {
-            System.out.println(Arrays.toString(row));
-        }
-
         // 4) instanciar dominio
         ItineraryCalculator itineraryCalculator =
                 new ItineraryCalculator();
@@ -94,10 +133,25 @@ public class RunMasterPlanUseCase {
         CostCalculator costCalculator =
                 new CostCalculator();
 
+        PlannerOptions plannerOptions =
+                new PlannerOptions();
+        plannerOptions.setSearchMode(
+                resolveSearchMode(request));
+        // La actividad se asigna apenas se confirma la ruta, así los que siguen
+        // el avance (SSE) ya la reciben completa
+        int actCount = request.getActivityCount() != null ? request.getActivityCount() : 4;
+        String actOption = request.getActivityOption() != null ? request.getActivityOption() : "A";
+        plannerOptions.setMonitor(withActivities(monitor, actCount, actOption));
+        plannerOptions.setMetrics(plannerMetrics);
+        SearchTrace trace = traceStore.newTrace(resolveTraceLevel(request));
+        plannerOptions.setTrace(trace);
+        applyConstraints(request, plannerOptions);
+
         GreedyRoutePlanner planner =
                 new GreedyRoutePlanner(
                         itineraryCalculator,
-                        costCalculator);
+                        costCalculator,
+                        plannerOptions);
 
         // 5) índices activos (1..n)
         List<Integer> activeIdx =
@@ -107,12 +161,7 @@ public class RunMasterPlanUseCase {
                         .toList();
 
         // 6) ejecutar greedy
-        System.out.println(
-                "pcDuration=" + request.getPcDuration() +
-                        " ocDuration=" + request.getOcDuration()
-        );
-
-        List<RouteSegment> routes =
+        RoutePlan plan =
                 planner.planRoutes(
                         allPoints,
                         activeIdx,
@@ -135,20 +184,11 @@ public class RunMasterPlanUseCase {
                                 : 570,
                         (a, b) -> true // isValidConnection stub
                 );
+        List<RouteSegment> routes = plan.getRoutes();
 
         // Asignar actividades a cada ruta
-        int actCount = request.getActivityCount() != null ? request.getActivityCount() : 4;
-        String actOption = request.getActivityOption() != null ? request.getActivityOption() : "A";
-
         for (int i = 0; i < routes.size(); i++) {
-            String activity;
-            if (actCount == 2) {
-                activity = actOption; // "A" o "B" para todas las rutas
-            } else {
-                // 4 actividades: alternancia impar/par (i=0 → A, i=1 → B, i=2 → A, ...)
-                activity = (i % 2 == 0) ? "A" : "B";
-            }
-            routes.get(i).setActivity(activity);
+            routes.get(i).setActivity(activityFor(i, actCount, actOption));
         }
 
 
@@ -216,6 +256,10 @@ public class RunMasterPlanUseCase {
                 );
 
         cacheService.save(sessionId, snapshot);
+        traceStore.save(sessionId, trace, snapshot.matrixNames());
+
+        // los reportes se pre-generan en segundo plano (ver ReportPrerenderer)
+        events.publishEvent(new SessionSavedEvent(sessionId, snapshot));
 
         // 8) mapear response
         OptimizeResponse response =
@@ -244,10 +288,195 @@ public class RunMasterPlanUseCase {
         response.setPointsCovered(
                 active.size());
 
-        System.out.println("ODS = " + request.getOds());
-        System.out.println("Points = " + request.getPoints());
+        response.setMatrixProvider(
+                matrix.provider().name());
 
+        if (plan.getImprovement() != null) {
+            response.setImprovement(
+                    ImprovementDto.fromDomain(plan.getImprovement()));
+        }
 
         return response;
     }
+
+    private static String activityFor(int routeIndex, int actCount, String actOption) {
+        if (actCount == 2) {
+            return actOption; // "A" o "B" para todas las rutas
+        }
+        // 4 actividades: alternancia impar/par (i=0 → A, i=1 → B, i=2 → A, ...)
+        return (routeIndex % 2 == 0) ? "A" : "B";
+    }
+
+    /** Delega en monitor, asignando antes la actividad de cada ruta confirmada. */
+    private static PlanningMonitor withActivities(PlanningMonitor monitor, int actCount, String actOption) {
+        return new PlanningMonitor() {
+            private int routeIndex;
+
+            @Override
+            public boolean isCancelled() {
+                return monitor.isCancelled();
+            }
+
+            @Override
+            public void onPlanningStarted(int totalPoints) {
+                monitor.onPlanningStarted(totalPoints);
+            }
+
+            @Override
+            public void onRouteCompleted(RouteSegment route, int remainingPoints) {
+                route.setActivity(activityFor(routeIndex++, actCount, actOption));
+                monitor.onRouteCompleted(route, remainingPoints);
+            }
+        };
+    }
+
+    /**
+     * Revisa proveedor, modo de matriz, traza y constraints sin calcular nada,
+     * para rechazar el pedido antes de encolarlo (ver OptimizationExecutor).
+     *
+     * @throws ResponseStatusException 400 con el primer valor inválido
+     */
+    public void validate(OptimizeRequest request) {
+        resolveMatrixProvider(request);
+        resolveMatrixMode(request);
+        resolveTraceLevel(request);
+        resolveSearchMode(request);
+        applyConstraints(request, new PlannerOptions());
+    }
+
+    private void applyConstraints(OptimizeRequest request, PlannerOptions options) {
+        OptimizeRequest.ConstraintsDto c = request.getConstraints();
+        if (c == null) return;
+
+        if (c.ordering != null) {
+            try {
+                options.setOrdering(
+                        OrderingStrategy.valueOf(c.ordering.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "ordering inválido: " + c.ordering);
+            }
+        }
+        if (c.searchPoolSize != null) {
+            if (c.searchPoolSize < 1 || c.searchPoolSize > MAX_SEARCH_POOL_SIZE) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "searchPoolSize debe estar entre 1 y " + MAX_SEARCH_POOL_SIZE);
+            }
+            options.setSearchPoolSize(c.searchPoolSize);
+        }
+        if (c.maxComboSize != null) {
+            int max = maxComboSizeFor(options.getOrdering());
+            if (c.maxComboSize < 1 || c.maxComboSize > max) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "maxComboSize debe estar entre 1 y " + max
+                                + " con ordering " + options.getOrdering());
+            }
+            options.setMaxComboSize(c.maxComboSize);
+        }
+        if (c.improvementBudgetMs != null) {
+            if (c.improvementBudgetMs < 0 || c.improvementBudgetMs > MAX_IMPROVEMENT_BUDGET_MS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "improvementBudgetMs debe estar entre 0 y " + MAX_IMPROVEMENT_BUDGET_MS);
+            }
+            options.setImprovementBudgetMillis(c.improvementBudgetMs);
+        }
+
+        // Cada límite por separado no alcanza: 20 vecinos con combos de 8 son
+        // miles de millones de recorridos por iteración
+        long work = searchWork(
+                options.getSearchPoolSize(), options.getMaxComboSize(), options.getOrdering());
+        if (work > MAX_SEARCH_WORK) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "searchPoolSize " + options.getSearchPoolSize()
+                            + " con maxComboSize " + options.getMaxComboSize()
+                            + " y ordering " + options.getOrdering()
+                            + " evalúa hasta " + work + " recorridos por iteración (máximo "
+                            + MAX_SEARCH_WORK + "); reducir alguno de los dos");
+        }
+    }
+
+    /**
+     * Recorridos que evalúa una iteración en el peor caso (sin poda): cada
+     * combinación de k vecinos del pool, k &lt; maxComboSize, con los (k+1)!
+     * órdenes del cluster. Con HELD_KARP cada cluster de m puntos cuesta en
+     * cambio los 2^m·m² pasos del DP (como en ParallelCandidateSearch), así que
+     * los combos grandes se admiten mientras el pool sea chico.
+     */
+    static long searchWork(int poolSize, int maxComboSize, OrderingStrategy ordering) {
+        int maxNeighbors = Math.min(poolSize, maxComboSize - 1);
+        long total = 0;
+        long subsets = 1; // C(poolSize, k)
+        long orders = 1;  // (k+1)!
+        for (int k = 0; k <= maxNeighbors; k++) {
+            if (k > 0) {
+                subsets = subsets * (poolSize - k + 1) / k;
+                orders *= k + 1;
+            }
+            int m = k + 1;
+            long perCluster = ordering == OrderingStrategy.HELD_KARP
+                    ? (1L << m) * m * m
+                    : orders;
+            total += subsets * perCluster;
+        }
+        return total;
+    }
+
+    private static int maxComboSizeFor(OrderingStrategy ordering) {
+        return ordering == OrderingStrategy.BRUTE_FORCE
+                ? MAX_BRUTE_FORCE_COMBO_SIZE
+                : MAX_COMBO_SIZE;
+    }
+
+    private MatrixProvider resolveMatrixProvider(OptimizeRequest request) {
+        if (request.getMatrixProvider() == null) {
+            return null; // el por defecto de la configuración
+        }
+        try {
+            return MatrixProvider.valueOf(
+                    request.getMatrixProvider().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "matrixProvider inválido: " + request.getMatrixProvider());
+        }
+    }
+
+    private MatrixMode resolveMatrixMode(OptimizeRequest request) {
+        if (request.getMatrixMode() == null) {
+            return null; // AUTO según matrix.sparse.min-points
+        }
+        try {
+            return MatrixMode.valueOf(
+                    request.getMatrixMode().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "matrixMode inválido: " + request.getMatrixMode());
+        }
+    }
+
+    private SearchTrace.Level resolveTraceLevel(OptimizeRequest request) {
+        if (request.getTraceLevel() == null) {
+            return null; // el por defecto de la configuración
+        }
+        try {
+            return SearchTrace.Level.valueOf(
+                    request.getTraceLevel().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "traceLevel inválido: " + request.getTraceLevel());
+        }
+    }
+
+    private SearchMode resolveSearchMode(OptimizeRequest request) {
+        if (request.getConstraints() == null
+                || request.getConstraints().searchMode == null) {
+            return SearchMode.SERIAL;
+        }
+        try {
+            return SearchMode.valueOf(
+                    request.getConstraints().searchMode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "searchMode inválido: " + request.getConstraints().searchMode);
+        }
+    }
 }
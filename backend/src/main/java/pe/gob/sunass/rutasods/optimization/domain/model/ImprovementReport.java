@@ -0,0 +1,52 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+import lombok.Getter;
+
+/**
+ * Qué logró la fase de mejora de una corrida (ver RouteImprover). Los costos
+ * son los del modelo para las rutas válidas; las rutas fallback inválidas no
+ * cuentan (igual que en el total del plan).
+ */
+@Getter
+public class ImprovementReport {
+
+    private final long budgetMillis;
+    private final long elapsedMillis;
+
+    private final double initialCost;
+    private final double finalCost;
+
+    private final int routesBefore;
+    private final int routesAfter;
+
+    private final long movesApplied;
+    private final long perturbations;
+    private final int workers;
+
+    public ImprovementReport(
+            long budgetMillis,
+            long elapsedMillis,
+            double initialCost,
+            double finalCost,
+            int routesBefore,
+            int routesAfter,
+            long movesApplied,
+            long perturbations,
+            int workers
+    ) {
+        this.budgetMillis = budgetMillis;
+        this.elapsedMillis = elapsedMillis;
+        this.initialCost = initialCost;
+        this.finalCost = finalCost;
+        this.routesBefore = routesBefore;
+        this.routesAfter = routesAfter;
+        this.movesApplied = movesApplied;
+        this.perturbations = perturbations;
+        this.workers = workers;
+    }
+
+    /** Ahorro del plan mejorado respecto del greedy (≥ 0). */
+    public double getImprovement() {
+        return initialCost - finalCost;
+    }
+}
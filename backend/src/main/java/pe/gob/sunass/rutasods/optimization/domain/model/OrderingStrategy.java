@@ -0,0 +1,25 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+/**
+ * Cómo se ordenan los puntos de un cluster candidato.
+ */
+public enum OrderingStrategy {
+
+    /** Todas las permutaciones (algoritmo de Heap). */
+    BRUTE_FORCE,
+
+    /**
+     * Permutaciones construidas de a un punto, descartando los prefijos cuya
+     * cota inferior ya no puede mejorar al mejor candidato. Mismo resultado
+     * que BRUTE_FORCE con muchas menos simulaciones.
+     */
+    BRANCH_AND_BOUND,
+
+    /**
+     * Programación dinámica de Held-Karp sobre (puntos visitados, último punto),
+     * con un frente acotado de estados de itinerario por celda. Escala a
+     * clusters de 10-12 puntos; al recortar el frente puede elegir un orden
+     * distinto (rara vez peor) que las permutaciones completas.
+     */
+    HELD_KARP
+}
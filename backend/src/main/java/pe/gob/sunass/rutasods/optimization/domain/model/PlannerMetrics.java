@@ -0,0 +1,44 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+/**
+ * Métricas de una corrida del GreedyRoutePlanner (cuánto se buscó y cuánto
+ * tardó). A diferencia de {@link PlanningMonitor}, que sigue una corrida en
+ * particular, una misma instancia acumula todas las corridas de la aplicación.
+ *
+ * Se llama desde el hilo del planner, una vez por iteración greedy, nunca
+ * desde dentro de la búsqueda.
+ */
+public interface PlannerMetrics {
+
+    /** No registra nada. */
+    PlannerMetrics NONE = new PlannerMetrics() {};
+
+    /**
+     * Terminó la búsqueda de candidatos de una iteración greedy. Cada recorrido
+     * evaluado corresponde a una simulación de itinerario completa.
+     *
+     * @param evaluated recorridos completos evaluados (en todas las hojas, si es paralela)
+     * @param pruned    prefijos descartados por cota
+     */
+    default void onSearchCompleted(long evaluated, long pruned) {
+    }
+
+    /**
+     * Igual que {@link #onSearchCompleted(long, long)}, con el memo de clusters
+     * rechazados de la semilla (ver CandidateMemo).
+     *
+     * @param memoHits   clusters que no se buscaron porque ya se sabían rechazados
+     * @param memoMisses clusters que se buscaron con el memo activo para la semilla
+     */
+    default void onSearchCompleted(long evaluated, long pruned, long memoHits, long memoMisses) {
+        onSearchCompleted(evaluated, pruned);
+    }
+
+    /** Terminó la fase de mejora de la corrida (solo si se pidió un budget). */
+    default void onImprovementFinished(ImprovementReport report) {
+    }
+
+    /** planRoutes terminó sin cancelarse ni fallar. */
+    default void onPlanningFinished(int points, PlannerOptions options, long elapsedNanos) {
+    }
+}
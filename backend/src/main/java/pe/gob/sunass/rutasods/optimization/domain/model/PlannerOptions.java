@@ -0,0 +1,42 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import pe.gob.sunass.rutasods.shared.domain.rules.OptimizationRules;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parámetros de ejecución del GreedyRoutePlanner que no forman parte del
+ * modelo de costos (cómo buscar, no qué buscar).
+ */
+@Getter
+@Setter
+public class PlannerOptions {
+
+    private SearchMode searchMode = SearchMode.SERIAL;
+
+    private OrderingStrategy ordering = OrderingStrategy.BRANCH_AND_BOUND;
+
+    private int searchPoolSize = OptimizationRules.SEARCH_POOL_SIZE;
+    private int maxComboSize = OptimizationRules.MAX_COMBO_SIZE;
+
+    // Pool para SearchMode.PARALLEL; si es null se usa ForkJoinPool.commonPool()
+    private ForkJoinPool forkJoinPool;
+
+    // Avance y cancelación de la corrida (jobs asíncronos)
+    private PlanningMonitor monitor = PlanningMonitor.NONE;
+
+    // Métricas de búsqueda y duración (Micrometer en la aplicación)
+    private PlannerMetrics metrics = PlannerMetrics.NONE;
+
+    // Decisiones de la búsqueda para depurar un plan (apagada por defecto)
+    private SearchTrace trace = SearchTrace.OFF;
+
+    // Tiempo de pared para mejorar el plan del greedy (RouteImprover); 0 = sin mejora
+    private long improvementBudgetMillis;
+
+    public static PlannerOptions defaults() {
+        return new PlannerOptions();
+    }
+}
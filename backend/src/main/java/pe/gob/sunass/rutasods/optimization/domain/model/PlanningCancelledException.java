@@ -0,0 +1,9 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+/** La corrida se interrumpió porque {@link PlanningMonitor#isCancelled()} lo pidió. */
+public class PlanningCancelledException extends RuntimeException {
+
+    public PlanningCancelledException() {
+        super("Optimización cancelada");
+    }
+}
@@ -0,0 +1,34 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+/**
+ * Seguimiento de una corrida del GreedyRoutePlanner desde afuera: avance por
+ * ruta y cancelación cooperativa. El planner consulta {@link #isCancelled()}
+ * antes de cada iteración greedy y el motor de búsqueda entre combinaciones;
+ * si devuelve true la corrida termina con {@link PlanningCancelledException}.
+ *
+ * Los métodos se pueden llamar desde hilos del ForkJoinPool (búsqueda
+ * paralela), así que las implementaciones deben ser thread-safe.
+ */
+public interface PlanningMonitor {
+
+    /** No sigue nada ni cancela nunca. */
+    PlanningMonitor NONE = new PlanningMonitor() {};
+
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /** Empieza la búsqueda greedy (la matriz ya está calculada). */
+    default void onPlanningStarted(int totalPoints) {
+    }
+
+    /**
+     * Una ruta quedó confirmada.
+     *
+     * @param remainingPoints puntos que todavía no tienen ruta
+     */
+    default void onRouteCompleted(RouteSegment route, int remainingPoints) {
+    }
+}
@@ -0,0 +1,21 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+import lombok.Getter;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.util.List;
+
+/** Resultado de una corrida de GreedyRoutePlanner.planRoutes. */
+@Getter
+public class RoutePlan {
+
+    private final List<RouteSegment> routes;
+
+    // Fase de mejora (RouteImprover); null si no se pidió (budget 0)
+    private final ImprovementReport improvement;
+
+    public RoutePlan(List<RouteSegment> routes, ImprovementReport improvement) {
+        this.routes = routes;
+        this.improvement = improvement;
+    }
+}
@@ -0,0 +1,13 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+/**
+ * Cómo se evalúan los candidatos de cada iteración greedy.
+ */
+public enum SearchMode {
+
+    /** Un solo hilo (comportamiento histórico). */
+    SERIAL,
+
+    /** Reparte las combinaciones entre los hilos de un ForkJoinPool. */
+    PARALLEL
+}
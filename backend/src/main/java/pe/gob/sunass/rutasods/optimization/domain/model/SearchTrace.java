@@ -0,0 +1,111 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Traza de una corrida del GreedyRoutePlanner: buffer circular acotado con
+ * las decisiones de la búsqueda. Cuando se llena, las entradas nuevas pisan a
+ * las más viejas.
+ *
+ * El planner pregunta {@link #isEnabled(Level)} antes de armar cada entrada,
+ * así que con {@link Level#OFF} no se copia ni se formatea nada. Se puede
+ * escribir desde varias hojas de la búsqueda paralela a la vez.
+ */
+public class SearchTrace {
+
+    /** Qué se registra; cada nivel incluye a los anteriores. */
+    public enum Level {
+        OFF,
+        ROUTES,      // semilla y pool de cada iteración, ruta confirmada
+        BEST,        // + cada vez que cambia el mejor candidato
+        CANDIDATES   // + cada recorrido evaluado (caro: solo para depurar un caso)
+    }
+
+    public enum Kind {
+        SEED,            // path = [semilla, pool...]
+        CANDIDATE,
+        BEST_UPDATE,
+        ROUTE,
+        FALLBACK_ROUTE
+    }
+
+    /**
+     * Una decisión de la búsqueda. path son índices en la lista de puntos del
+     * run (0 = ODS); los valores que no aplican quedan en NaN / -1.
+     */
+    public record Entry(
+            long sequence,
+            Kind kind,
+            int[] path,
+            double km,
+            int days,
+            int nights,
+            double cost,
+            double metric
+    ) {}
+
+    /** Traza apagada: no guarda nada. */
+    public static final SearchTrace OFF = new SearchTrace(Level.OFF, 0);
+
+    private final Level level;
+    private final Entry[] buffer;
+    private long recorded;
+
+    public SearchTrace(Level level, int capacity) {
+        this.level = capacity > 0 ? level : Level.OFF;
+        this.buffer = new Entry[Math.max(0, capacity)];
+    }
+
+    public boolean isEnabled(Level entryLevel) {
+        return level.ordinal() >= entryLevel.ordinal() && level != Level.OFF;
+    }
+
+    public void record(Kind kind, int[] path, int length) {
+        record(kind, path, length, Double.NaN, -1, -1, Double.NaN, Double.NaN);
+    }
+
+    public synchronized void record(
+            Kind kind,
+            int[] path,
+            int length,
+            double km,
+            int days,
+            int nights,
+            double cost,
+            double metric
+    ) {
+        if (buffer.length == 0) return;
+        buffer[(int) (recorded % buffer.length)] = new Entry(
+                recorded, kind, Arrays.copyOf(path, length), km, days, nights, cost, metric);
+        recorded++;
+    }
+
+    /** Las entradas que siguen en el buffer, de la más vieja a la más nueva. */
+    public synchronized List<Entry> entries() {
+        int size = (int) Math.min(recorded, buffer.length);
+        List<Entry> out = new ArrayList<>(size);
+        for (long seq = recorded - size; seq < recorded; seq++) {
+            out.add(buffer[(int) (seq % buffer.length)]);
+        }
+        return out;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    /** Entradas pisadas por falta de lugar. */
+    public synchronized long getDroppedCount() {
+        return Math.max(0, recorded - buffer.length);
+    }
+}
@@ -0,0 +1,130 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Clusters de un run del GreedyRoutePlanner que ya se sabe que no tienen
+ * ningún orden factible, para no volver a buscarlos en la iteración siguiente.
+ *
+ * Un mismo recorrido solo se vuelve a evaluar cuando una iteración no aceptó
+ * ningún candidato: se asigna un punto como ruta fallback y la misma semilla
+ * busca otra vez, casi sobre el mismo pool (típico en sierra y selva). En
+ * esa búsqueda fallida todos los órdenes de todos sus clusters salieron
+ * rechazados, y como el resultado de un recorrido solo depende de sus puntos,
+ * esos clusters se pueden saltar enteros (todas sus máscaras) la próxima vez.
+ *
+ * Solo se guarda lo de la semilla actual: todo cluster incluye a la semilla,
+ * así que cuando cambia lo guardado ya no sirve y se descarta (invalidación
+ * O(1) por iteración). La clave es el conjunto de vecinos (sin la semilla),
+ * ordenado y empaquetado en un long con bitsPerPoint bits por índice; los
+ * conjuntos que no entran en 63 bits no se guardan.
+ *
+ * No aplica a HELD_KARP (sus frentes recortados dependen de la mejor métrica
+ * ya encontrada, así que un cluster rechazado podría no volver a serlo) ni a
+ * pools de más de {@link #MAX_POOL_SIZE} puntos (demasiadas máscaras).
+ *
+ * Lo usa solo el hilo del planner, entre búsquedas.
+ */
+final class CandidateMemo {
+
+    static final int MAX_POOL_SIZE = 12;
+
+    private final int bitsPerPoint;
+    private final int maxNeighbors;
+
+    private final Set<Long> rejected = new HashSet<>();
+    private int seed = -1;
+
+    // consultas desde la última lectura (ver drainHits / drainMisses)
+    private long hits;
+    private long misses;
+
+    private final int[] sortBuffer = new int[Integer.SIZE];
+
+    /** @param points cantidad de puntos del run (ODS incluida) */
+    CandidateMemo(int points) {
+        this.bitsPerPoint = 32 - Integer.numberOfLeadingZeros(Math.max(points - 1, 1));
+        this.maxNeighbors = 63 / bitsPerPoint;
+    }
+
+    /** ¿Se puede usar el memo con esta estrategia y este pool? */
+    static boolean applies(OrderingStrategy ordering, int poolSize) {
+        return ordering != OrderingStrategy.HELD_KARP && poolSize <= MAX_POOL_SIZE;
+    }
+
+    /**
+     * Máscaras de {@code masks} cuyo cluster no se sabe rechazado para seed,
+     * en el mismo orden; null si no hay nada guardado para seed (buscar todo).
+     */
+    int[] pending(int seed, int[] pool, int[] masks) {
+        if (seed != this.seed || rejected.isEmpty()) {
+            return null;
+        }
+        int[] result = new int[masks.length];
+        int count = 0;
+        for (int mask : masks) {
+            long key = key(pool, mask);
+            if (key >= 0 && rejected.contains(key)) {
+                hits++;
+            } else {
+                misses++;
+                result[count++] = mask;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /** La búsqueda de seed sobre estas máscaras no encontró ningún candidato. */
+    void rejectAll(int seed, int[] pool, int[] masks) {
+        if (seed != this.seed) {
+            rejected.clear();
+            this.seed = seed;
+        }
+        for (int mask : masks) {
+            long key = key(pool, mask);
+            if (key >= 0) rejected.add(key);
+        }
+    }
+
+    /** La semilla cambió o quedó asignada: lo guardado ya no sirve. */
+    void forget(int seed) {
+        if (seed == this.seed) {
+            rejected.clear();
+            this.seed = -1;
+        }
+    }
+
+    /** Clusters saltados desde la última lectura (y reinicia el contador). */
+    long drainHits() {
+        long h = hits;
+        hits = 0;
+        return h;
+    }
+
+    /** Clusters buscados con el memo activo desde la última lectura. */
+    long drainMisses() {
+        long m = misses;
+        misses = 0;
+        return m;
+    }
+
+    /** Vecinos de la máscara ordenados por índice y empaquetados; -1 si no entran. */
+    private long key(int[] pool, int mask) {
+        int k = Integer.bitCount(mask);
+        if (k > maxNeighbors) return -1;
+        int n = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            sortBuffer[n++] = pool[Integer.numberOfTrailingZeros(bits)];
+        }
+        Arrays.sort(sortBuffer, 0, n);
+        long key = 0;
+        for (int i = 0; i < n; i++) {
+            key = (key << bitsPerPoint) | sortBuffer[i];
+        }
+        return key;
+    }
+}
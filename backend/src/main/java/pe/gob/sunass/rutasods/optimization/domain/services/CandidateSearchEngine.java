@@ -0,0 +1,495 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+
+/**
+ * Enumera los candidatos de una iteración greedy (semilla + k vecinos del pool,
+ * en todos sus órdenes de visita) directamente sobre buffers int[], sin
+ * materializar listas de combinaciones ni de permutaciones.
+ *
+ *  - Subconjuntos de k vecinos: iteración de Gosper sobre máscaras de bits.
+ *  - Órdenes de visita, según {@link OrderingStrategy}:
+ *      BRUTE_FORCE: algoritmo de Heap (iterativo, un swap por paso).
+ *      BRANCH_AND_BOUND: DFS que extiende el recorrido de a un punto y poda
+ *      los prefijos cuya cota inferior ya supera al mejor candidato.
+ *      HELD_KARP: programación dinámica sobre (visitados, último punto), ver
+ *      {@link HeldKarpOrdering}; propone un único orden por cluster.
+ *
+ * El orden de enumeración no es necesariamente el lexicográfico del
+ * backtracking original, así que los empates de métrica se resuelven con ese
+ * orden (k, combinación, permutación). La poda solo descarta prefijos
+ * estrictamente peores, por lo que BRUTE_FORCE y BRANCH_AND_BOUND eligen el
+ * mismo candidato.
+ *
+ * No es thread-safe: cada hilo debe usar su propia instancia.
+ */
+public class CandidateSearchEngine {
+
+    /** Valor que devuelve el evaluador cuando el candidato se descarta. */
+    public static final double REJECTED = Double.NaN;
+
+    /** Límite de vecinos en el pool (las máscaras se representan en un int). */
+    public static final int MAX_POOL_SIZE = 30;
+
+    // Tolerancia relativa de la poda: la cota se suma en otro orden que la métrica
+    static final double PRUNE_EPSILON = 1e-12;
+
+    private final OrderingStrategy ordering;
+
+    private final int[] cluster;   // [semilla, vecinos de la máscara en orden del pool]
+    private final int[] order;     // posiciones dentro de cluster (estado del algoritmo de Heap)
+    private final int[] counters;  // contadores del algoritmo de Heap
+    private final int[] path;      // [0 (ODS), cluster[order[0]], cluster[order[1]], ...]
+
+    private final int[] bestOrder;
+    private final int[] bestPath;
+
+    private boolean found;
+    private double bestMetric;
+    private int bestK;
+    private int bestMask;
+    private int bestLength;
+
+    private SearchBound sharedBound;
+
+    private PlanningMonitor monitor = PlanningMonitor.NONE;
+
+    private HeldKarpOrdering heldKarp;
+
+    // estadísticas de la última búsqueda
+    private long evaluatedCount;
+    private long prunedCount;
+
+    public CandidateSearchEngine(int maxClusterSize) {
+        this(maxClusterSize, OrderingStrategy.BRUTE_FORCE);
+    }
+
+    public CandidateSearchEngine(int maxClusterSize, OrderingStrategy ordering) {
+        this.ordering = ordering;
+        this.cluster = new int[maxClusterSize];
+        this.order = new int[maxClusterSize];
+        this.counters = new int[maxClusterSize];
+        this.path = new int[maxClusterSize + 1];
+        this.bestOrder = new int[maxClusterSize];
+        this.bestPath = new int[maxClusterSize + 1];
+    }
+
+    /**
+     * Evalúa cada recorrido candidato. El path recibido empieza en la ODS
+     * (índice 0) y solo es válido durante la llamada.
+     */
+    @FunctionalInterface
+    public interface PathScorer {
+
+        /** @return la métrica del candidato, o {@link #REJECTED} si se descarta */
+        double score(int[] path, int length);
+
+        /** Se invoca cada vez que un candidato pasa a ser el mejor. */
+        default void onBestUpdate(int[] path, int length, double metric) {
+        }
+    }
+
+    /**
+     * Evaluador que además permite construir el recorrido de a un punto, para
+     * la estrategia BRANCH_AND_BOUND. Las posiciones se refieren al cluster
+     * recibido en {@link #beginCluster}; cada {@link #push} va seguido de un
+     * {@link #pop}.
+     */
+    public interface IncrementalScorer extends PathScorer {
+
+        void beginCluster(int[] cluster, int size);
+
+        /**
+         * Agrega cluster[position] al final del prefijo.
+         *
+         * @return cota inferior de la métrica de cualquier recorrido que empiece
+         *         con este prefijo, o {@link #REJECTED} si ninguno es factible
+         */
+        double push(int position);
+
+        void pop();
+
+        /** Métrica del recorrido completo actual (path incluye la ODS). */
+        double complete(int[] path, int length);
+    }
+
+    /**
+     * Evaluador para HELD_KARP: además del cluster actual expone el simulador,
+     * cuyos estados guarda y retoma el DP en cualquier orden, y la cota de un
+     * prefijo descrito por sus posiciones visitadas.
+     */
+    public interface LabelScorer extends IncrementalScorer {
+
+        ItinerarySimulator simulator();
+
+        /** km entre dos índices de punto. */
+        double distance(int from, int to);
+
+        /**
+         * Cota inferior de la métrica de los recorridos que empiezan con un
+         * prefijo, o {@link #REJECTED} si ninguno es factible.
+         *
+         * @param used       posiciones del cluster ya visitadas
+         * @param lastNode   último punto del prefijo
+         * @param prefixDist km recorridos desde la ODS
+         * @param day        día en curso del prefijo
+         */
+        double bound(int used, int lastNode, double prefixDist, int day);
+
+        /**
+         * Métrica del recorrido completo cuyo último estado ya está cargado en
+         * el simulador; distanceKm incluye el retorno a la ODS.
+         */
+        double complete(int[] path, int length, double distanceKm);
+    }
+
+    /** Cota compartida con otros motores (búsqueda paralela). */
+    public void setSharedBound(SearchBound sharedBound) {
+        this.sharedBound = sharedBound;
+    }
+
+    /** Cancelación cooperativa: se consulta antes de cada combinación. */
+    public void setMonitor(PlanningMonitor monitor) {
+        this.monitor = monitor != null ? monitor : PlanningMonitor.NONE;
+    }
+
+    /**
+     * Recorre semilla + k vecinos (0 ≤ k ≤ maxNeighbors) tomados de pool[0..poolSize)
+     * en todos sus órdenes.
+     *
+     * @return true si algún candidato fue aceptado por el evaluador
+     */
+    public boolean search(
+            int seed,
+            int[] pool,
+            int poolSize,
+            int maxNeighbors,
+            PathScorer scorer
+    ) {
+        if (poolSize > MAX_POOL_SIZE) {
+            throw new IllegalArgumentException(
+                    "Pool de búsqueda demasiado grande: " + poolSize);
+        }
+        if (maxNeighbors + 1 > cluster.length) {
+            throw new IllegalArgumentException(
+                    "Cluster de " + (maxNeighbors + 1) + " puntos excede la capacidad " + cluster.length);
+        }
+
+        reset();
+
+        int limit = 1 << poolSize;
+
+        for (int k = 0; k <= maxNeighbors; k++) {
+            int mask = (1 << k) - 1;
+            while (mask < limit) {
+                checkCancelled();
+                loadCluster(seed, pool, mask);
+                explore(k, mask, scorer);
+                if (k == 0) break;
+                mask = nextSubset(mask);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Igual que {@link #search(int, int[], int, int, PathScorer)} pero solo sobre
+     * masks[from..to), que deben venir en el orden de {@link #enumerateMasks}.
+     * Permite repartir el espacio de candidatos entre varios motores.
+     */
+    public boolean search(
+            int seed,
+            int[] pool,
+            int[] masks,
+            int from,
+            int to,
+            PathScorer scorer
+    ) {
+        reset();
+
+        for (int i = from; i < to; i++) {
+            int mask = masks[i];
+            int k = Integer.bitCount(mask);
+            if (k + 1 > cluster.length) {
+                throw new IllegalArgumentException(
+                        "Cluster de " + (k + 1) + " puntos excede la capacidad " + cluster.length);
+            }
+            checkCancelled();
+            loadCluster(seed, pool, mask);
+            explore(k, mask, scorer);
+        }
+        return found;
+    }
+
+    /**
+     * Todas las máscaras de 0..maxNeighbors vecinos sobre un pool de poolSize,
+     * en el mismo orden en que las recorre la búsqueda secuencial.
+     */
+    public static int[] enumerateMasks(int poolSize, int maxNeighbors) {
+        if (poolSize > MAX_POOL_SIZE) {
+            throw new IllegalArgumentException(
+                    "Pool de búsqueda demasiado grande: " + poolSize);
+        }
+
+        int count = 0;
+        for (int k = 0; k <= maxNeighbors; k++) {
+            count += binomial(poolSize, k);
+        }
+
+        int[] masks = new int[count];
+        int limit = 1 << poolSize;
+        int n = 0;
+
+        for (int k = 0; k <= maxNeighbors; k++) {
+            int mask = (1 << k) - 1;
+            while (mask < limit) {
+                masks[n++] = mask;
+                if (k == 0) break;
+                mask = nextSubset(mask);
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * ¿El mejor candidato de este motor le gana al de {@code other}?
+     * Compara métrica y, ante empate, el orden legacy; así la reducción de
+     * varios motores da el mismo resultado que una única búsqueda secuencial.
+     */
+    public boolean beats(CandidateSearchEngine other) {
+        if (!found) return false;
+        if (!other.found) return true;
+        if (bestMetric != other.bestMetric) {
+            return bestMetric < other.bestMetric;
+        }
+        return precedes(bestK, bestMask, bestOrder,
+                other.bestK, other.bestMask, other.bestOrder, bestLength - 1);
+    }
+
+    public boolean hasBest() {
+        return found;
+    }
+
+    public double getBestMetric() {
+        return bestMetric;
+    }
+
+    /** Recorrido ganador (empieza en la ODS); válido hasta la siguiente búsqueda. */
+    public int[] getBestPath() {
+        return bestPath;
+    }
+
+    public int getBestLength() {
+        return bestLength;
+    }
+
+    /** Recorridos completos evaluados en la última búsqueda. */
+    public long getEvaluatedCount() {
+        return evaluatedCount;
+    }
+
+    /** Prefijos descartados por cota en la última búsqueda. */
+    public long getPrunedCount() {
+        return prunedCount;
+    }
+
+    // ---------------- helpers -----------------
+
+    private void checkCancelled() {
+        if (monitor.isCancelled()) {
+            throw new PlanningCancelledException();
+        }
+    }
+
+    private void reset() {
+        found = false;
+        bestMetric = Double.POSITIVE_INFINITY;
+        bestLength = 0;
+        evaluatedCount = 0;
+        prunedCount = 0;
+    }
+
+    private void explore(int k, int mask, PathScorer scorer) {
+        switch (ordering) {
+            case BRANCH_AND_BOUND -> {
+                IncrementalScorer incremental = (IncrementalScorer) scorer;
+                incremental.beginCluster(cluster, k + 1);
+                branch(0, 0, k + 1, k, mask, incremental);
+            }
+            case HELD_KARP -> solveHeldKarp(k, mask, (LabelScorer) scorer);
+            default -> permute(k, mask, scorer);
+        }
+    }
+
+    private void solveHeldKarp(int k, int mask, LabelScorer scorer) {
+        if (heldKarp == null) {
+            heldKarp = new HeldKarpOrdering();
+        }
+        int m = k + 1;
+        scorer.beginCluster(cluster, m);
+
+        double metric = heldKarp.solve(cluster, m, scorer, currentLimit(), order, path);
+        evaluatedCount += heldKarp.getCompletedCount();
+        prunedCount += heldKarp.getPrunedCount();
+
+        if (!Double.isNaN(metric)) {
+            offer(metric, m, k, mask, scorer);
+        }
+    }
+
+    /** DFS en orden lexicográfico de posiciones, con poda por cota inferior. */
+    private void branch(int depth, int used, int m, int k, int mask, IncrementalScorer scorer) {
+        if (depth == m) {
+            path[0] = 0;
+            for (int i = 0; i < m; i++) {
+                path[i + 1] = cluster[order[i]];
+            }
+            evaluatedCount++;
+            offer(scorer.complete(path, m + 1), m, k, mask, scorer);
+            return;
+        }
+
+        for (int pos = 0; pos < m; pos++) {
+            int bit = 1 << pos;
+            if ((used & bit) != 0) continue;
+
+            double bound = scorer.push(pos);
+            if (Double.isNaN(bound) || cannotImprove(bound)) {
+                prunedCount++;
+            } else {
+                order[depth] = pos;
+                branch(depth + 1, used | bit, m, k, mask, scorer);
+            }
+            scorer.pop();
+        }
+    }
+
+    private boolean cannotImprove(double bound) {
+        double limit = currentLimit();
+        if (limit == Double.POSITIVE_INFINITY) return false;
+        return bound > limit + Math.abs(limit) * PRUNE_EPSILON;
+    }
+
+    /** Métrica a mejorar: el mejor propio o el compartido, el menor. */
+    private double currentLimit() {
+        double own = found ? bestMetric : Double.POSITIVE_INFINITY;
+        return sharedBound != null ? Math.min(sharedBound.get(), own) : own;
+    }
+
+    private void loadCluster(int seed, int[] pool, int mask) {
+        cluster[0] = seed;
+        int size = 1;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            cluster[size++] = pool[Integer.numberOfTrailingZeros(bits)];
+        }
+    }
+
+    /** Algoritmo de Heap iterativo sobre las posiciones de cluster[0..k]. */
+    private void permute(int k, int mask, PathScorer scorer) {
+        int m = k + 1;
+        for (int i = 0; i < m; i++) {
+            order[i] = i;
+            counters[i] = 0;
+        }
+
+        visit(m, k, mask, scorer);
+
+        int i = 1;
+        while (i < m) {
+            if (counters[i] < i) {
+                if ((i & 1) == 0) {
+                    swap(0, i);
+                } else {
+                    swap(counters[i], i);
+                }
+                visit(m, k, mask, scorer);
+                counters[i]++;
+                i = 1;
+            } else {
+                counters[i] = 0;
+                i++;
+            }
+        }
+    }
+
+    private void visit(int m, int k, int mask, PathScorer scorer) {
+        path[0] = 0;
+        for (int i = 0; i < m; i++) {
+            path[i + 1] = cluster[order[i]];
+        }
+
+        evaluatedCount++;
+        offer(scorer.score(path, m + 1), m, k, mask, scorer);
+    }
+
+    private void offer(double metric, int m, int k, int mask, PathScorer scorer) {
+        if (Double.isNaN(metric)) return;
+
+        if (!found
+                || metric < bestMetric
+                || (metric == bestMetric
+                    && precedes(k, mask, order, bestK, bestMask, bestOrder, m))) {
+
+            found = true;
+            bestMetric = metric;
+            bestK = k;
+            bestMask = mask;
+            bestLength = m + 1;
+            System.arraycopy(order, 0, bestOrder, 0, m);
+            System.arraycopy(path, 0, bestPath, 0, m + 1);
+
+            if (sharedBound != null) {
+                sharedBound.offer(metric);
+            }
+
+            scorer.onBestUpdate(path, m + 1, metric);
+        }
+    }
+
+    /** ¿El candidato (k, mask, order) aparece antes que (otherK, ...) en el orden legacy? */
+    private static boolean precedes(
+            int k, int mask, int[] order,
+            int otherK, int otherMask, int[] otherOrder,
+            int m
+    ) {
+        if (k != otherK) return k < otherK;
+
+        if (mask != otherMask) {
+            // Entre dos subconjuntos del mismo tamaño, el menor lexicográficamente
+            // es el que contiene el menor elemento de la diferencia simétrica.
+            int diff = mask ^ otherMask;
+            return (mask & (diff & -diff)) != 0;
+        }
+
+        for (int i = 0; i < m; i++) {
+            if (order[i] != otherOrder[i]) {
+                return order[i] < otherOrder[i];
+            }
+        }
+        return false;
+    }
+
+    private static int binomial(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        long r = 1;
+        for (int i = 1; i <= k; i++) {
+            r = r * (n - k + i) / i;
+        }
+        return (int) r;
+    }
+
+    /** Siguiente máscara con la misma cantidad de bits (truco de Gosper). */
+    private static int nextSubset(int mask) {
+        int lowest = mask & -mask;
+        int ripple = mask + lowest;
+        return (((ripple ^ mask) >>> 2) / lowest) | ripple;
+    }
+
+    private void swap(int a, int b) {
+        int tmp = order[a];
+        order[a] = order[b];
+        order[b] = tmp;
+    }
+}
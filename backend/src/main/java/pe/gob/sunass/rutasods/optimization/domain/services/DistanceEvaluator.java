@@ -1,12 +1,13 @@
 package pe.gob.sunass.rutasods.optimization.domain.services;
 
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
 import pe.gob.sunass.rutasods.shared.domain.model.Location;
 
 public class DistanceEvaluator {
 
-    private final double[][] distances;
+    private final TravelMatrix distances;
 
-    public DistanceEvaluator(double[][] distances) {
+    public DistanceEvaluator(TravelMatrix distances) {
         this.distances = distances;
     }
 
@@ -20,7 +21,7 @@ public class DistanceEvaluator {
         if (!validator.isValid(p1, p2)) {
             return Double.POSITIVE_INFINITY;
         }
-        return distances[i][j];
+        return distances.get(i, j);
     }
 
     @FunctionalInterface
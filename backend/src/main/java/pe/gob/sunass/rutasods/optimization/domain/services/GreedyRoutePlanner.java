@@ -2,30 +2,50 @@ package pe.gob.sunass.rutasods.optimization.domain.services;
 
 import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
 import pe.gob.sunass.rutasods.optimization.domain.model.CandidateRoute;
+import pe.gob.sunass.rutasods.optimization.domain.model.ImprovementReport;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerMetrics;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchMode;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
 import pe.gob.sunass.rutasods.shared.domain.model.*;
 import pe.gob.sunass.rutasods.shared.domain.rules.OptimizationRules;
 import pe.gob.sunass.rutasods.shared.domain.rules.RoutingRules;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 public class GreedyRoutePlanner {
 
     private final ItineraryCalculator itineraryCalculator;
     private final CostCalculator costCalculator;
+    private final PlannerOptions options;
 
     public GreedyRoutePlanner(
             ItineraryCalculator itineraryCalculator,
             CostCalculator costCalculator
+    ) {
+        this(itineraryCalculator, costCalculator, PlannerOptions.defaults());
+    }
+
+    public GreedyRoutePlanner(
+            ItineraryCalculator itineraryCalculator,
+            CostCalculator costCalculator,
+            PlannerOptions options
     ) {
         this.itineraryCalculator = itineraryCalculator;
         this.costCalculator = costCalculator;
+        this.options = options;
     }
 
-    public List<RouteSegment> planRoutes(
+    public RoutePlan planRoutes(
             List<Location> allPoints,
             List<Integer> activeIndices,
-            double[][] distances,
-            double[][] durations,
+            TravelMatrix distances,
+            TravelMatrix durations,
             int pcDuration,
             int ocDuration,
             double kmCost,
@@ -34,39 +54,106 @@ public class GreedyRoutePlanner {
             DistanceEvaluator.ConnectionValidator validator
     ) {
 
+        long startNanos = System.nanoTime();
+
         DistanceEvaluator evaluator =
                 new DistanceEvaluator(distances);
 
         List<RouteSegment> finalRoutes = new ArrayList<>();
+        // puntos de cada ruta de finalRoutes (sin la ODS), para la fase de mejora
+        List<int[]> routeStops = new ArrayList<>();
+
+        int searchPoolSize = options.getSearchPoolSize();
+        int maxComboSize = options.getMaxComboSize();
+
+        // Pendientes (BitSet) y rankings de vecinos, calculados una vez por run
+        PlannerState state =
+                new PlannerState(
+                        allPoints,
+                        activeIndices,
+                        evaluator,
+                        validator,
+                        searchPoolSize);
+        int[] poolBuffer = new int[Math.max(searchPoolSize, 0)];
+
+        // Clusters sin orden factible de la semilla actual (ver CandidateMemo)
+        CandidateMemo memo = new CandidateMemo(allPoints.size());
+
+        // Datos del itinerario compartidos por todos los evaluadores del run
+        ItinerarySimulator.Model itineraryModel =
+                new ItinerarySimulator.Model(
+                        allPoints,
+                        durations,
+                        pcDuration,
+                        ocDuration);
+
+        Supplier<CandidateScorer> scorers =
+                () -> new CandidateScorer(
+                        allPoints,
+                        itineraryModel,
+                        maxComboSize,
+                        kmCost,
+                        foodCost,
+                        hotelCost,
+                        evaluator,
+                        validator);
+
+        PlanningMonitor monitor = options.getMonitor() != null
+                ? options.getMonitor()
+                : PlanningMonitor.NONE;
+
+        CandidateSearchEngine searchEngine =
+                new CandidateSearchEngine(maxComboSize, options.getOrdering());
+        searchEngine.setMonitor(monitor);
+
+        CandidateScorer scorer = scorers.get();
+
+        // Modo paralelo: cada hoja del fork/join usa su propio evaluador
+        ParallelCandidateSearch parallelSearch =
+                options.getSearchMode() == SearchMode.PARALLEL
+                        ? new ParallelCandidateSearch(
+                                options.getForkJoinPool() != null
+                                        ? options.getForkJoinPool()
+                                        : ForkJoinPool.commonPool(),
+                                maxComboSize,
+                                options.getOrdering(),
+                                scorers)
+                        : null;
+        if (parallelSearch != null) {
+            parallelSearch.setMonitor(monitor);
+        }
+
+        PlannerMetrics metrics = options.getMetrics() != null
+                ? options.getMetrics()
+                : PlannerMetrics.NONE;
 
-        List<Integer> available = new ArrayList<>(activeIndices);
+        SearchTrace trace = trace();
 
         int routeCounter = 1;
 
-        while (!available.isEmpty()) {
+        monitor.onPlanningStarted(state.remaining());
 
-            // A) farthest from ODS
-            int farthest = available.get(0);
-            double maxDist = -1;
-
-            for (int idx : available) {
-                double d = evaluator.getDist(0, idx, allPoints.get(0), allPoints.get(idx), validator);
-                if (d > maxDist && d != Double.POSITIVE_INFINITY) {
-                    maxDist = d;
-                    farthest = idx;
-                }
+        while (!state.isEmpty()) {
+
+            if (monitor.isCancelled()) {
+                throw new PlanningCancelledException();
             }
 
+            // A) farthest from ODS
+            int farthest = state.farthestFromOds();
+
             // Si el viaje es > 240min, forzar que el inicio sea una PC
-            double travelTimeToFarthest = durations[0][farthest];
+            double travelTimeToFarthest = durations.get(0, farthest);
             if (travelTimeToFarthest > 240) {
                 // Buscar la PC más cercana a ese punto 'farthest' para que sea el primer destino
                 int bestPcIdx = farthest;
                 double minToPc = Double.MAX_VALUE;
 
-                for (int idx : available) {
+                for (int pos = 0; pos < state.activeCount(); pos++) {
+                    int idx = state.active(pos);
+                    if (!state.isAvailable(idx)) continue;
                     if (allPoints.get(idx).getCategory() == Location.Category.PC) {
-                        double d = distances[farthest][idx];
+                        double d = distances.get(farthest, idx);
                         if (d < minToPc) {
                             minToPc = d;
                             bestPcIdx = idx;
@@ -76,208 +163,135 @@ public class GreedyRoutePlanner {
                 farthest = bestPcIdx; // Ahora el cluster empezará por esta PC
             }
 
-            // B) neighbors
-            List<Integer> neighbors = new ArrayList<>(available);
-            neighbors.remove(Integer.valueOf(farthest));
+            // B) neighbors: los pendientes más cercanos según el ranking de farthest
+            int[] pool = Arrays.copyOf(
+                    poolBuffer,
+                    state.neighborPool(farthest, poolBuffer));
 
-            final int farthestIdx = farthest;
-
-            neighbors.sort(Comparator.comparingDouble(
-                    i -> evaluator.getDist(
-                            farthestIdx,
-                            i,
-                            allPoints.get(farthestIdx),
-                            allPoints.get(i),
-                            validator)
-            ));
+            int maxNeighborsToAdd =
+                    Math.min(pool.length,
+                            maxComboSize - 1);
+
+            if (trace.isEnabled(SearchTrace.Level.ROUTES)) {
+                int[] seedAndPool = new int[pool.length + 1];
+                seedAndPool[0] = farthest;
+                System.arraycopy(pool, 0, seedAndPool, 1, pool.length);
+                trace.record(SearchTrace.Kind.SEED, seedAndPool, seedAndPool.length);
+            }
 
+            boolean memoApplies =
+                    CandidateMemo.applies(options.getOrdering(), pool.length);
+            int[] masks = memoApplies
+                    ? CandidateSearchEngine.enumerateMasks(pool.length, maxNeighborsToAdd)
+                    : null;
+            // null: no hay clusters rechazados para esta semilla, se busca todo
+            int[] pendingMasks = memoApplies
+                    ? memo.pending(farthest, pool, masks)
+                    : null;
+
+            CandidateSearchEngine winner;
+
+            if (parallelSearch != null) {
+                winner = pendingMasks != null
+                        ? parallelSearch.search(farthest, pool, pendingMasks)
+                        : parallelSearch.search(
+                                farthest,
+                                pool,
+                                pool.length,
+                                maxNeighborsToAdd);
+                metrics.onSearchCompleted(
+                        parallelSearch.getEvaluatedCount(),
+                        parallelSearch.getPrunedCount(),
+                        memo.drainHits(),
+                        memo.drainMisses());
+            } else {
+                if (pendingMasks != null) {
+                    searchEngine.search(
+                            farthest,
+                            pool,
+                            pendingMasks,
+                            0,
+                            pendingMasks.length,
+                            scorer);
+                } else {
+                    searchEngine.search(
+                            farthest,
+                            pool,
+                            pool.length,
+                            maxNeighborsToAdd,
+                            scorer);
+                }
+                winner = searchEngine;
+                metrics.onSearchCompleted(
+                        searchEngine.getEvaluatedCount(),
+                        searchEngine.getPrunedCount(),
+                        memo.drainHits(),
+                        memo.drainMisses());
+            }
 
-            neighbors = neighbors.stream()
-                    .limit(OptimizationRules.SEARCH_POOL_SIZE)
-                    .toList();
+            if (!winner.hasBest() && memoApplies) {
+                // Todos los órdenes de todos los clusters salieron rechazados
+                memo.rejectAll(farthest, pool, masks);
+            } else {
+                memo.forget(farthest);
+            }
 
             CandidateRoute bestCandidate = null;
 
-            int maxNeighborsToAdd =
-                    Math.min(neighbors.size(),
-                            OptimizationRules.MAX_COMBO_SIZE - 1);
-
-            for (int k = 0; k <= maxNeighborsToAdd; k++) {
-
-                List<List<Integer>> combos =
-                        combinations(neighbors, k);
-
-                for (List<Integer> combo : combos) {
-
-                    List<Integer> cluster =
-                            new ArrayList<>();
-                    cluster.add(farthest);
-                    cluster.addAll(combo);
-
-                    List<List<Integer>> perms =
-                            permutations(cluster);
-
-                    for (List<Integer> perm : perms) {
-
-                        List<Integer> path =
-                                new ArrayList<>();
-                        path.add(0);
-                        path.addAll(perm);
-
-                        ItineraryResult itin =
-                                itineraryCalculator.calculate(
-                                        path,
-                                        allPoints,
-                                        durations,
-                                        pcDuration,
-                                        ocDuration);
-
-                        System.out.println(
-                                "\n[ITIN TEST] perm=" + perm +
-                                        " days=" + itin.getNumDays() +
-                                        " nights=" + itin.getNumNights()
-                        );
-
-
-                        if (itin.getNumDays()
-                                > RoutingRules.MAX_ROUTE_DAYS)
-                            continue;
-
-                        double distanceKm =
-                                computePathDistance(
-                                        perm,
-                                        allPoints,
-                                        evaluator,
-                                        validator);
-
-                        /*double distanceKm = distanceMeters /1000.0;*/
-
-                        System.out.println(
-                                "[DIST TEST] perm=" + perm +
-                                        " km=" + String.format("%.2f", distanceKm)
-                        );
-
-
-                        double totalCost =
-                                costCalculator.computeTotalCost(
-                                        distanceKm,
-                                        itin.getNumDays(),
-                                        itin.getNumNights(),
-                                        perm.stream()
-                                                .map(allPoints::get)
-                                                .toList(),
-                                        kmCost,
-                                        foodCost,
-                                        hotelCost);
-
-                        System.out.println(
-                                "[COST TEST] perm=" + perm +
-                                        " days=" + itin.getNumDays() +
-                                        " nights=" + itin.getNumNights() +
-                                        " cost=" + totalCost
-                        );
-
-
-                        // Nueva métrica con factor de penalización por dispersión (ejemplo: +10% por cada 100km)
-                        double dispersionPenalty = 1.0 + (distanceKm / 1000.0);
-                        double metric = (totalCost / perm.size()) * dispersionPenalty;
-
-                        if (bestCandidate == null ||
-                                metric < bestCandidate.getMetric()) {
-
-                            System.out.println(
-                                    "[BEST UPDATE] perm=" + perm +
-                                            " metric=" + metric +
-                                            " cost=" + totalCost +
-                                            " days=" + itin.getNumDays() +
-                                            " nights=" + itin.getNumNights()
-                            );
-
-
-                            CandidateRoute c =
-                                    new CandidateRoute();
-                            c.setPerm(perm);
-                            c.setCost(totalCost);
-                            c.setMetric(metric);
-                            c.setItinerary(itin);
-                            c.setBreakdown(
-                                    costCalculator.breakdown(
-                                            distanceKm,
-                                            itin.getNumDays(),
-                                            itin.getNumNights(),
-                                            perm.stream()
-                                                    .map(allPoints::get)
-                                                    .toList(),
-                                            kmCost,
-                                            foodCost,
-                                            hotelCost));
-
-                            bestCandidate = c;
-                        }
-                    }
-                }
-            }
-
-            if (bestCandidate != null) {
+            if (winner.hasBest()) {
 
-                double routeDistanceKm =
-                        computePathDistance(
-                                bestCandidate.getPerm(),
+                bestCandidate =
+                        buildCandidate(
+                                winner.getBestPath(),
+                                winner.getBestLength(),
+                                winner.getBestMetric(),
                                 allPoints,
+                                durations,
+                                pcDuration,
+                                ocDuration,
+                                kmCost,
+                                foodCost,
+                                hotelCost,
                                 evaluator,
-                                validator
-                        );
-
+                                validator);
+            }
 
+            if (bestCandidate != null) {
 
                 RouteSegment route =
-                        new RouteSegment();
-
-                route.setId((long) routeCounter);
-                route.setName("Ruta " + routeCounter);
-                route.setPoints(
-                        bestCandidate.getPerm()
-                                .stream()
-                                .map(allPoints::get)
-                                .toList());
-
-                route.setLogs(
-                        bestCandidate.getItinerary()
-                                .getLogs());
-
-                route.setTotalCost(
-                        bestCandidate.getCost());
-
-                route.setBreakdown(
-                        bestCandidate.getBreakdown());
-
-                route.setDistance(routeDistanceKm);
-                System.out.println(String.format(
-                        "Ruta %d -> distancia (km) = %.3f",
-                        route.getId(),
-                        routeDistanceKm));
-                route.setDays(bestCandidate.getItinerary().getNumDays());
-                route.setNights(bestCandidate.getItinerary().getNumNights());
-
-                System.out.println(
-                        "\n[FINAL ROUTE] Ruta " + route.getId() +
-                                " perm=" + bestCandidate.getPerm() +
-                                " km=" + (routeDistanceKm) +
-                                " days=" + route.getDays() +
-                                " nights=" + route.getNights() +
-                                " cost=" + route.getTotalCost()
-                );
-
+                        toRoute(
+                                bestCandidate,
+                                routeCounter,
+                                allPoints,
+                                evaluator,
+                                validator);
+
+                if (trace.isEnabled(SearchTrace.Level.ROUTES)) {
+                    trace.record(
+                            SearchTrace.Kind.ROUTE,
+                            winner.getBestPath(),
+                            winner.getBestLength(),
+                            route.getDistance(),
+                            route.getDays(),
+                            route.getNights(),
+                            route.getTotalCost(),
+                            winner.getBestMetric());
+                }
 
                 routeCounter++;
 
                 finalRoutes.add(route);
+                routeStops.add(Arrays.copyOfRange(
+                        winner.getBestPath(), 1, winner.getBestLength()));
 
-                available.removeAll(
+                state.takeAll(
                         bestCandidate.getPerm());
+
+                monitor.onRouteCompleted(route, state.remaining());
             } else {
                 // fallback simple
-                int idx = available.remove(0);
+                int idx = state.first();
+                state.take(idx);
 
                 List<Integer> path =
                         List.of(0, idx);
@@ -292,7 +306,7 @@ public class GreedyRoutePlanner {
 
 
                 double dKm =
-                        (distances[0][idx] * 2);
+                        (distances.get(0, idx) * 2);
                 /*double dKm = dMeters / 1000.0;*/
 
                 RouteSegment r = new RouteSegment();
@@ -302,15 +316,202 @@ public class GreedyRoutePlanner {
                 r.setLogs(itin.getLogs());
                 r.setDistance(dKm);
                 finalRoutes.add(r);
+                routeStops.add(new int[]{idx});
+
+                if (trace.isEnabled(SearchTrace.Level.ROUTES)) {
+                    trace.record(
+                            SearchTrace.Kind.FALLBACK_ROUTE,
+                            new int[]{0, idx},
+                            2,
+                            dKm,
+                            itin.getNumDays(),
+                            itin.getNumNights(),
+                            Double.NaN,
+                            Double.NaN);
+                }
+
+                monitor.onRouteCompleted(r, state.remaining());
             }
         }
 
+        ImprovementReport improvement = null;
+        if (options.getImprovementBudgetMillis() > 0 && !finalRoutes.isEmpty()) {
+            RoutePlan improved =
+                    improve(
+                            finalRoutes,
+                            routeStops,
+                            allPoints,
+                            itineraryModel,
+                            durations,
+                            pcDuration,
+                            ocDuration,
+                            kmCost,
+                            foodCost,
+                            hotelCost,
+                            evaluator,
+                            validator,
+                            monitor);
+            finalRoutes = improved.getRoutes();
+            improvement = improved.getImprovement();
+            metrics.onImprovementFinished(improvement);
+        }
 
-        return finalRoutes;
+        metrics.onPlanningFinished(
+                activeIndices.size(),
+                options,
+                System.nanoTime() - startNanos);
+
+        return new RoutePlan(finalRoutes, improvement);
     }
 
     // ---------------- helpers -----------------
 
+    /**
+     * Corre el {@link RouteImprover} sobre las rutas construidas y las vuelve a
+     * armar. Las rutas válidas se recalculan con el modelo (también las
+     * fallback de un punto alcanzable, que así pasan a tener su costo) y se
+     * numeran de nuevo; las inválidas quedan como estaban.
+     */
+    private RoutePlan improve(
+            List<RouteSegment> routes,
+            List<int[]> routeStops,
+            List<Location> allPoints,
+            ItinerarySimulator.Model itineraryModel,
+            TravelMatrix durations,
+            int pcDuration,
+            int ocDuration,
+            double kmCost,
+            double foodCost,
+            double hotelCost,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator,
+            PlanningMonitor monitor
+    ) {
+        long startNanos = System.nanoTime();
+
+        RouteImprover improver =
+                new RouteImprover(
+                        allPoints,
+                        itineraryModel,
+                        evaluator,
+                        validator,
+                        costCalculator,
+                        options.getMaxComboSize(),
+                        kmCost,
+                        foodCost,
+                        hotelCost);
+
+        RouteImprover.Result result =
+                improver.improve(
+                        routeStops,
+                        options.getImprovementBudgetMillis() * 1_000_000L,
+                        options.getForkJoinPool() != null
+                                ? options.getForkJoinPool()
+                                : ForkJoinPool.commonPool(),
+                        monitor);
+
+        // Las rutas inválidas vuelven como el mismo int[] que se entregó
+        Map<int[], RouteSegment> unchanged = new IdentityHashMap<>();
+        for (int i = 0; i < routes.size(); i++) {
+            unchanged.put(routeStops.get(i), routes.get(i));
+        }
+
+        List<RouteSegment> improved = new ArrayList<>(result.routes().size());
+        int routeCounter = 1;
+        int[] path = new int[options.getMaxComboSize() + 1];
+        for (int[] stops : result.routes()) {
+            RouteSegment original = unchanged.get(stops);
+            if (original != null) {
+                improved.add(original);
+                continue;
+            }
+            path[0] = 0;
+            System.arraycopy(stops, 0, path, 1, stops.length);
+            CandidateRoute candidate =
+                    buildCandidate(
+                            path,
+                            stops.length + 1,
+                            Double.NaN,
+                            allPoints,
+                            durations,
+                            pcDuration,
+                            ocDuration,
+                            kmCost,
+                            foodCost,
+                            hotelCost,
+                            evaluator,
+                            validator);
+            improved.add(
+                    toRoute(
+                            candidate,
+                            routeCounter++,
+                            allPoints,
+                            evaluator,
+                            validator));
+        }
+
+        ImprovementReport report =
+                new ImprovementReport(
+                        options.getImprovementBudgetMillis(),
+                        (System.nanoTime() - startNanos) / 1_000_000L,
+                        result.initialCost(),
+                        result.finalCost(),
+                        routes.size(),
+                        improved.size(),
+                        result.movesApplied(),
+                        result.perturbations(),
+                        result.workers());
+
+        return new RoutePlan(improved, report);
+    }
+
+    private RouteSegment toRoute(
+            CandidateRoute candidate,
+            int routeNumber,
+            List<Location> allPoints,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator
+    ) {
+        double routeDistanceKm =
+                computePathDistance(
+                        candidate.getPerm(),
+                        allPoints,
+                        evaluator,
+                        validator
+                );
+
+        RouteSegment route =
+                new RouteSegment();
+
+        route.setId((long) routeNumber);
+        route.setName("Ruta " + routeNumber);
+        route.setPoints(
+                candidate.getPerm()
+                        .stream()
+                        .map(allPoints::get)
+                        .toList());
+
+        route.setLogs(
+                candidate.getItinerary()
+                        .getLogs());
+
+        route.setTotalCost(
+                candidate.getCost());
+
+        route.setBreakdown(
+                candidate.getBreakdown());
+
+        route.setDistance(routeDistanceKm);
+        route.setDays(candidate.getItinerary().getNumDays());
+        route.setNights(candidate.getItinerary().getNumNights());
+
+        return route;
+    }
+
+    private SearchTrace trace() {
+        return options.getTrace() != null ? options.getTrace() : SearchTrace.OFF;
+    }
+
     private double computePathDistance(
             List<Integer> perm,
             List<Location> allPoints,
@@ -344,63 +545,371 @@ public class GreedyRoutePlanner {
         return d;
     }
 
-    private <T> List<List<T>> combinations(
-            List<T> input,
-            int k
+    private double computePathDistance(
+            int[] path,
+            int length,
+            List<Location> allPoints,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator
     ) {
-        List<List<T>> res = new ArrayList<>();
-        backtrackComb(res, new ArrayList<>(),
-                input, k, 0);
-        return res;
-    }
 
-    private <T> void backtrackComb(
-            List<List<T>> res,
-            List<T> curr,
-            List<T> input,
-            int k,
-            int idx
-    ) {
-        if (curr.size() == k) {
-            res.add(new ArrayList<>(curr));
-            return;
-        }
-        for (int i = idx; i < input.size(); i++) {
-            curr.add(input.get(i));
-            backtrackComb(res, curr,
-                    input, k, i + 1);
-            curr.remove(curr.size() - 1);
+        double d = 0;
+
+        for (int i = 0; i < length - 1; i++) {
+            d += evaluator.getDist(
+                    path[i],
+                    path[i + 1],
+                    allPoints.get(path[i]),
+                    allPoints.get(path[i + 1]),
+                    validator);
         }
+
+        d += evaluator.getDist(
+                path[length - 1],
+                0,
+                allPoints.get(path[length - 1]),
+                allPoints.get(0),
+                validator);
+
+        return d;
     }
 
-    private <T> List<List<T>> permutations(
-            List<T> input
+    /**
+     * Materializa el candidato ganador de una iteración. Solo se invoca una vez
+     * por ruta, así que aquí sí se construyen las listas y el desglose.
+     */
+    private CandidateRoute buildCandidate(
+            int[] path,
+            int length,
+            double metric,
+            List<Location> allPoints,
+            TravelMatrix durations,
+            int pcDuration,
+            int ocDuration,
+            double kmCost,
+            double foodCost,
+            double hotelCost,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator
     ) {
-        List<List<T>> res = new ArrayList<>();
-        permute(res,
-                new ArrayList<>(),
-                input,
-                new boolean[input.size()]);
-        return res;
+
+        List<Integer> perm = new ArrayList<>(length - 1);
+        for (int i = 1; i < length; i++) {
+            perm.add(path[i]);
+        }
+
+        ItineraryResult itin =
+                itineraryCalculator.calculate(
+                        path,
+                        length,
+                        allPoints,
+                        durations,
+                        pcDuration,
+                        ocDuration);
+
+        double distanceKm =
+                computePathDistance(
+                        path,
+                        length,
+                        allPoints,
+                        evaluator,
+                        validator);
+
+        List<Location> points =
+                perm.stream()
+                        .map(allPoints::get)
+                        .toList();
+
+        CandidateRoute c =
+                new CandidateRoute();
+        c.setPerm(perm);
+        c.setCost(
+                costCalculator.computeTotalCost(
+                        distanceKm,
+                        itin.getNumDays(),
+                        itin.getNumNights(),
+                        points,
+                        kmCost,
+                        foodCost,
+                        hotelCost));
+        c.setMetric(metric);
+        c.setItinerary(itin);
+        c.setBreakdown(
+                costCalculator.breakdown(
+                        distanceKm,
+                        itin.getNumDays(),
+                        itin.getNumNights(),
+                        points,
+                        kmCost,
+                        foodCost,
+                        hotelCost));
+
+        return c;
     }
 
-    private <T> void permute(
-            List<List<T>> res,
-            List<T> curr,
-            List<T> input,
-            boolean[] used
-    ) {
-        if (curr.size() == input.size()) {
-            res.add(new ArrayList<>(curr));
-            return;
+    /**
+     * Evalúa cada recorrido que propone el {@link CandidateSearchEngine}
+     * con el mismo modelo día/noche/costo de siempre. Los días y noches salen
+     * de un {@link ItinerarySimulator} (sin asignaciones); el itinerario con
+     * DayLog solo se construye en {@link #buildCandidate}.
+     *
+     * En BRANCH_AND_BOUND el recorrido se arma de a un punto sobre un
+     * {@link ItinerarySimulator}; la cota inferior de un prefijo combina:
+     *  - días: el día en curso del prefijo (los días nunca disminuyen) y
+     *    noches = días - 1, igual que en el itinerario;
+     *  - km: lo recorrido + la arista de entrada más barata de cada punto
+     *    pendiente + el retorno más barato a la ODS.
+     *
+     * En HELD_KARP la misma cota ordena y recorta los frentes del DP.
+     */
+    private class CandidateScorer implements CandidateSearchEngine.LabelScorer {
+
+        private final List<Location> allPoints;
+        private final double kmCost;
+        private final double foodCost;
+        private final double hotelCost;
+        private final DistanceEvaluator evaluator;
+        private final DistanceEvaluator.ConnectionValidator validator;
+
+        // La cota solo es válida si ningún coeficiente de costo es negativo
+        private final boolean boundedCost;
+
+        private final ItinerarySimulator simulator;
+
+        private final SearchTrace trace = trace();
+        private final boolean traceCandidates = trace.isEnabled(SearchTrace.Level.CANDIDATES);
+
+        // estado incremental del cluster actual
+        private final int[] cluster;
+        private final double[] minIn;
+        private final double[] distStack;
+        private final int[] lastStack;
+        private final int[] usedStack;
+        private int size;
+        private int depth;
+        private int used;
+        private int last;
+        private double prefixDist;
+
+        // último candidato evaluado (para la entrada BEST_UPDATE de la traza)
+        private double lastKm;
+        private double lastCost;
+        private int lastDays;
+        private int lastNights;
+
+        CandidateScorer(
+                List<Location> allPoints,
+                ItinerarySimulator.Model itineraryModel,
+                int maxClusterSize,
+                double kmCost,
+                double foodCost,
+                double hotelCost,
+                DistanceEvaluator evaluator,
+                DistanceEvaluator.ConnectionValidator validator
+        ) {
+            this.allPoints = allPoints;
+            this.kmCost = kmCost;
+            this.foodCost = foodCost;
+            this.hotelCost = hotelCost;
+            this.evaluator = evaluator;
+            this.validator = validator;
+            this.boundedCost = kmCost >= 0 && foodCost >= 0 && hotelCost >= 0;
+
+            this.simulator = new ItinerarySimulator(itineraryModel, maxClusterSize);
+            this.cluster = new int[maxClusterSize];
+            this.minIn = new double[maxClusterSize];
+            this.distStack = new double[maxClusterSize + 1];
+            this.lastStack = new int[maxClusterSize + 1];
+            this.usedStack = new int[maxClusterSize + 1];
+        }
+
+        @Override
+        public double score(int[] path, int length) {
+
+            // Solo días/noches: los DayLog se arman una vez, para el ganador
+            simulator.simulate(path, length);
+
+            int days = simulator.getResultDays();
+            int nights = simulator.getResultNights();
+
+            if (days > RoutingRules.MAX_ROUTE_DAYS) {
+                if (traceCandidates) {
+                    trace.record(SearchTrace.Kind.CANDIDATE, path, length,
+                            Double.NaN, days, nights, Double.NaN, CandidateSearchEngine.REJECTED);
+                }
+                return CandidateSearchEngine.REJECTED;
+            }
+
+            double distanceKm =
+                    computePathDistance(
+                            path,
+                            length,
+                            allPoints,
+                            evaluator,
+                            validator);
+
+            return metric(path, length, distanceKm, days, nights);
+        }
+
+        @Override
+        public void beginCluster(int[] clusterPoints, int clusterSize) {
+            System.arraycopy(clusterPoints, 0, cluster, 0, clusterSize);
+            size = clusterSize;
+            depth = 0;
+            used = 0;
+            last = 0;
+            prefixDist = 0;
+
+            simulator.begin(cluster, size);
+
+            // Arista de entrada más barata de cada punto (desde la ODS u otro punto del cluster)
+            for (int i = 0; i < size; i++) {
+                double best = dist(0, cluster[i]);
+                for (int j = 0; j < size; j++) {
+                    if (j != i) {
+                        best = Math.min(best, dist(cluster[j], cluster[i]));
+                    }
+                }
+                minIn[i] = best;
+            }
+        }
+
+        @Override
+        public double push(int position) {
+            distStack[depth] = prefixDist;
+            lastStack[depth] = last;
+            usedStack[depth] = used;
+            depth++;
+
+            int node = cluster[position];
+            prefixDist += dist(last, node);
+            used |= 1 << position;
+            last = node;
+
+            simulator.extend(node);
+
+            return bound(used, last, prefixDist, simulator.getDay());
+        }
+
+        @Override
+        public double bound(int used, int lastNode, double prefixDist, int days) {
+            if (days > RoutingRules.MAX_ROUTE_DAYS) {
+                return CandidateSearchEngine.REJECTED;
+            }
+            if (!boundedCost) {
+                return Double.NEGATIVE_INFINITY;
+            }
+
+            double distLowerBound;
+            if (used == (1 << size) - 1) {
+                distLowerBound = prefixDist + dist(lastNode, 0);
+            } else {
+                double pending = 0;
+                double minReturn = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < size; i++) {
+                    if ((used & (1 << i)) != 0) continue;
+                    pending += minIn[i];
+                    minReturn = Math.min(minReturn, dist(cluster[i], 0));
+                }
+                distLowerBound = prefixDist + pending + minReturn;
+            }
+
+            double costLowerBound =
+                    costCalculator.computeTotalCost(
+                            distLowerBound,
+                            days,
+                            days - 1,
+                            kmCost,
+                            foodCost,
+                            hotelCost);
+
+            return (costLowerBound / size) * (1.0 + (distLowerBound / 1000.0));
+        }
+
+        @Override
+        public void pop() {
+            simulator.undo();
+            depth--;
+            prefixDist = distStack[depth];
+            last = lastStack[depth];
+            used = usedStack[depth];
+        }
+
+        @Override
+        public double complete(int[] path, int length) {
+            return complete(path, length, prefixDist + dist(last, 0));
         }
-        for (int i = 0; i < input.size(); i++) {
-            if (used[i]) continue;
-            used[i] = true;
-            curr.add(input.get(i));
-            permute(res, curr, input, used);
-            curr.remove(curr.size() - 1);
-            used[i] = false;
+
+        @Override
+        public double complete(int[] path, int length, double distanceKm) {
+            simulator.finish();
+
+            int days = simulator.getResultDays();
+            int nights = simulator.getResultNights();
+
+            if (days > RoutingRules.MAX_ROUTE_DAYS) {
+                if (traceCandidates) {
+                    trace.record(SearchTrace.Kind.CANDIDATE, path, length,
+                            Double.NaN, days, nights, Double.NaN, CandidateSearchEngine.REJECTED);
+                }
+                return CandidateSearchEngine.REJECTED;
+            }
+
+            return metric(path, length, distanceKm, days, nights);
+        }
+
+        @Override
+        public ItinerarySimulator simulator() {
+            return simulator;
+        }
+
+        @Override
+        public double distance(int from, int to) {
+            return dist(from, to);
+        }
+
+        @Override
+        public void onBestUpdate(int[] path, int length, double metric) {
+            if (trace.isEnabled(SearchTrace.Level.BEST)) {
+                trace.record(SearchTrace.Kind.BEST_UPDATE, path, length,
+                        lastKm, lastDays, lastNights, lastCost, metric);
+            }
+        }
+
+        private double metric(int[] path, int length, double distanceKm, int days, int nights) {
+
+            double totalCost =
+                    costCalculator.computeTotalCost(
+                            distanceKm,
+                            days,
+                            nights,
+                            kmCost,
+                            foodCost,
+                            hotelCost);
+
+            lastKm = distanceKm;
+            lastCost = totalCost;
+            lastDays = days;
+            lastNights = nights;
+
+            // Nueva métrica con factor de penalización por dispersión (ejemplo: +10% por cada 100km)
+            double dispersionPenalty = 1.0 + (distanceKm / 1000.0);
+            double metric = (totalCost / (length - 1)) * dispersionPenalty;
+
+            if (traceCandidates) {
+                trace.record(SearchTrace.Kind.CANDIDATE, path, length,
+                        distanceKm, days, nights, totalCost, metric);
+            }
+            return metric;
+        }
+
+        private double dist(int from, int to) {
+            return evaluator.getDist(
+                    from,
+                    to,
+                    allPoints.get(from),
+                    allPoints.get(to),
+                    validator);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,271 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+/**
+ * Ordenamiento de un cluster por programación dinámica de Held-Karp.
+ *
+ * Cada celda (máscara de posiciones visitadas, última posición) guarda un
+ * frente de a lo sumo {@link #LABELS_PER_STATE} etiquetas: el estado del
+ * {@link ItinerarySimulator} al llegar a esa celda desde la ODS y los km
+ * recorridos. Una etiqueta se descarta si otra de la misma celda no es peor en
+ * día, minutos del día ni km; si el frente está lleno se conserva la de menor
+ * cota. Las celdas se expanden en orden creciente de máscara, de modo que
+ * cuando una celda se expande su frente ya es definitivo y sirve de padre.
+ *
+ * Los buffers crecen con el mayor cluster visto y se reutilizan. No es
+ * thread-safe.
+ */
+final class HeldKarpOrdering {
+
+    /** Máximo de etiquetas (estados no dominados) por celda. */
+    static final int LABELS_PER_STATE = 4;
+
+    private static final int S = ItinerarySimulator.STATE_SIZE;
+
+    private int capacity;          // cantidad de etiquetas que caben en los buffers
+    private int[] states;          // estado del simulador de cada etiqueta
+    private double[] dists;        // km desde la ODS
+    private double[] keys;         // cota de la etiqueta (para recortar el frente)
+    private int[] parents;         // etiqueta padre, -1 si sale de la ODS
+    private int[] counts;          // etiquetas ocupadas por celda
+
+    private final int[] initial = new int[S];
+    private final int[] scratch = new int[S];
+
+    // órdenes de las etiquetas finales; el de salida se escribe solo con el ganador
+    private int[] candidateOrder = new int[0];
+    private int[] bestOrder = new int[0];
+
+    // estadísticas de la última llamada
+    private long completedCount;
+    private long prunedCount;
+
+    /**
+     * Busca el mejor orden de cluster[0..m), ya cargado en el evaluador con
+     * {@link CandidateSearchEngine.IncrementalScorer#beginCluster}.
+     *
+     * @param limit métrica a mejorar (las etiquetas cuya cota la supera se descartan)
+     * @param order salida: posiciones del mejor orden
+     * @param path  salida: [0 (ODS), cluster[order[0]], ...]
+     * @return la métrica del mejor orden, o {@link CandidateSearchEngine#REJECTED}
+     */
+    double solve(
+            int[] cluster,
+            int m,
+            CandidateSearchEngine.LabelScorer scorer,
+            double limit,
+            int[] order,
+            int[] path
+    ) {
+        completedCount = 0;
+        prunedCount = 0;
+        ensureCapacity(m);
+        if (candidateOrder.length < m) {
+            candidateOrder = new int[m];
+            bestOrder = new int[m];
+        }
+
+        int full = (1 << m) - 1;
+        int cells = (full + 1) * m;
+        for (int c = 0; c < cells; c++) {
+            counts[c] = 0;
+        }
+
+        ItinerarySimulator simulator = scorer.simulator();
+        simulator.saveState(initial, 0);
+
+        // Desde la ODS a cada punto
+        for (int p = 0; p < m; p++) {
+            expand(initial, 0, 0.0, 0, -1, 0, p, cluster, m, scorer, limit);
+        }
+
+        for (int mask = 1; mask < full; mask++) {
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int last = Integer.numberOfTrailingZeros(bits);
+                int cell = mask * m + last;
+                for (int j = 0; j < counts[cell]; j++) {
+                    int label = cell * LABELS_PER_STATE + j;
+                    for (int p = 0; p < m; p++) {
+                        if ((mask & (1 << p)) != 0) continue;
+                        expand(states, label * S, dists[label], mask, label,
+                                cluster[last], p, cluster, m, scorer, limit);
+                    }
+                }
+            }
+        }
+
+        // Cierre: retorno a la ODS desde cada etiqueta completa
+        double bestMetric = CandidateSearchEngine.REJECTED;
+        int bestLabel = -1;
+
+        for (int last = 0; last < m; last++) {
+            int cell = full * m + last;
+            for (int j = 0; j < counts[cell]; j++) {
+                int label = cell * LABELS_PER_STATE + j;
+                buildOrder(label, m, cluster, candidateOrder, path);
+
+                simulator.loadState(states, label * S);
+                double metric = scorer.complete(
+                        path,
+                        m + 1,
+                        dists[label] + scorer.distance(cluster[last], 0));
+                completedCount++;
+
+                if (Double.isNaN(metric)) continue;
+                // Empates: el orden lexicográfico menor, como en las permutaciones
+                if (bestLabel < 0
+                        || metric < bestMetric
+                        || (metric == bestMetric && lexLess(candidateOrder, bestOrder, m))) {
+                    bestMetric = metric;
+                    bestLabel = label;
+                    System.arraycopy(candidateOrder, 0, bestOrder, 0, m);
+                }
+            }
+        }
+
+        if (bestLabel < 0) return CandidateSearchEngine.REJECTED;
+
+        buildOrder(bestLabel, m, cluster, order, path);
+        return bestMetric;
+    }
+
+    /** Etiquetas completas evaluadas en la última llamada. */
+    long getCompletedCount() {
+        return completedCount;
+    }
+
+    /** Etiquetas descartadas por cota o infactibles en la última llamada. */
+    long getPrunedCount() {
+        return prunedCount;
+    }
+
+    // ---------------- helpers -----------------
+
+    /** Extiende la etiqueta (from, fromOffset) con cluster[p] y la inserta en su celda. */
+    private void expand(
+            int[] from,
+            int fromOffset,
+            double fromDist,
+            int mask,
+            int parent,
+            int lastNode,
+            int p,
+            int[] cluster,
+            int m,
+            CandidateSearchEngine.LabelScorer scorer,
+            double limit
+    ) {
+        ItinerarySimulator simulator = scorer.simulator();
+        simulator.loadState(from, fromOffset);
+        simulator.step(cluster[p]);
+        simulator.saveState(scratch, 0);
+
+        int nextMask = mask | (1 << p);
+        double dist = fromDist + scorer.distance(lastNode, cluster[p]);
+
+        double key = scorer.bound(nextMask, cluster[p], dist, simulator.getDay());
+        if (Double.isNaN(key)
+                || (limit != Double.POSITIVE_INFINITY
+                    && key > limit + Math.abs(limit) * CandidateSearchEngine.PRUNE_EPSILON)) {
+            prunedCount++;
+            return;
+        }
+
+        insert(nextMask * m + p, scratch, dist, key, parent);
+    }
+
+    private void insert(int cell, int[] state, double dist, double key, int parent) {
+        int base = cell * LABELS_PER_STATE;
+        int day = ItinerarySimulator.stateDay(state, 0);
+        int time = ItinerarySimulator.stateTime(state, 0);
+
+        int n = counts[cell];
+        for (int j = 0; j < n; j++) {
+            int other = (base + j) * S;
+            if (ItinerarySimulator.stateDay(states, other) <= day
+                    && ItinerarySimulator.stateTime(states, other) <= time
+                    && dists[base + j] <= dist) {
+                prunedCount++;
+                return;
+            }
+        }
+
+        // Compacta el frente quitando las etiquetas que la nueva domina
+        int kept = 0;
+        for (int j = 0; j < n; j++) {
+            int other = (base + j) * S;
+            boolean dominated =
+                    day <= ItinerarySimulator.stateDay(states, other)
+                            && time <= ItinerarySimulator.stateTime(states, other)
+                            && dist <= dists[base + j];
+            if (dominated) {
+                prunedCount++;
+                continue;
+            }
+            if (kept != j) copy(base + j, base + kept);
+            kept++;
+        }
+        n = kept;
+
+        int slot;
+        if (n < LABELS_PER_STATE) {
+            slot = n++;
+        } else {
+            // Frente lleno: reemplaza la etiqueta de mayor cota si la nueva es mejor
+            int worst = 0;
+            for (int j = 1; j < n; j++) {
+                if (keys[base + j] > keys[base + worst]) worst = j;
+            }
+            prunedCount++;
+            if (!(key < keys[base + worst])) {
+                counts[cell] = n;
+                return;
+            }
+            slot = worst;
+        }
+
+        int label = base + slot;
+        System.arraycopy(state, 0, states, label * S, S);
+        dists[label] = dist;
+        keys[label] = key;
+        parents[label] = parent;
+        counts[cell] = n;
+    }
+
+    private static boolean lexLess(int[] a, int[] b, int m) {
+        for (int i = 0; i < m; i++) {
+            if (a[i] != b[i]) return a[i] < b[i];
+        }
+        return false;
+    }
+
+    private void copy(int from, int to) {
+        System.arraycopy(states, from * S, states, to * S, S);
+        dists[to] = dists[from];
+        keys[to] = keys[from];
+        parents[to] = parents[from];
+    }
+
+    /** Reconstruye el orden siguiendo los padres desde la etiqueta final. */
+    private void buildOrder(int label, int m, int[] cluster, int[] order, int[] path) {
+        for (int i = m - 1; i >= 0; i--) {
+            order[i] = (label / LABELS_PER_STATE) % m;
+            label = parents[label];
+        }
+        path[0] = 0;
+        for (int i = 0; i < m; i++) {
+            path[i + 1] = cluster[order[i]];
+        }
+    }
+
+    private void ensureCapacity(int m) {
+        int needed = (1 << m) * m * LABELS_PER_STATE;
+        if (needed <= capacity) return;
+
+        capacity = needed;
+        states = new int[needed * S];
+        dists = new double[needed];
+        keys = new double[needed];
+        parents = new int[needed];
+        counts = new int[(1 << m) * m];
+    }
+}
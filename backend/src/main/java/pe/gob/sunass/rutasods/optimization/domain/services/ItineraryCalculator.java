@@ -8,6 +8,10 @@ import java.util.*;
 /**
  * Calcula el itinerario día a día para una ruta dada.
  *
+ * Construye los DayLog completos, así que solo se usa para la ruta ganadora;
+ * para rankear candidatos está {@link ItinerarySimulator}, que aplica las
+ * mismas reglas sobre estado primitivo.
+ *
  * REGLAS DE PERNOCTE:
  *  - Solo se puede pernoctar en un punto de categoría PC.
  *  - NO se puede pernoctar en la ODS (índice 0, origen/retorno final).
@@ -19,7 +23,26 @@ public class ItineraryCalculator {
     public ItineraryResult calculate(
             List<Integer> pathIndices,
             List<Location> allPoints,
-            double[][] timeMatrix,
+            TravelMatrix timeMatrix,
+            int pcDuration,
+            int ocDuration
+    ) {
+        int[] path = new int[pathIndices.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = pathIndices.get(i);
+        }
+        return calculate(path, path.length, allPoints, timeMatrix, pcDuration, ocDuration);
+    }
+
+    /**
+     * Variante sobre un buffer int[]: solo se leen las primeras {@code length}
+     * posiciones de {@code pathIndices}, que empiezan en la ODS (índice 0).
+     */
+    public ItineraryResult calculate(
+            int[] pathIndices,
+            int length,
+            List<Location> allPoints,
+            TravelMatrix timeMatrix,
             int pcDuration,
             int ocDuration
     ) {
@@ -27,18 +50,17 @@ public class ItineraryCalculator {
         int currentDay = 1;
         int currentTime = 0;
 
-        int currentLocIdx = pathIndices.get(0); // siempre es el ODS (índice 0)
+        int currentLocIdx = pathIndices[0]; // siempre es el ODS (índice 0)
         int nights = 0;
 
         List<DayLog> logs = new ArrayList<>();
 
         DayLog currentLog = startNewDay(currentDay, allPoints.get(currentLocIdx).getName());
 
-        List<Integer> activitiesIndices = pathIndices.subList(1, pathIndices.size());
-
-        for (Integer targetIdx : activitiesIndices) {
+        for (int step = 1; step < length; step++) {
+            int targetIdx = pathIndices[step];
             Location targetPoint = allPoints.get(targetIdx);
-            int travelTime = (int) timeMatrix[currentLocIdx][targetIdx];
+            int travelTime = timeMatrix.getInt(currentLocIdx, targetIdx);
 
             // ── 1. ¿El viaje al siguiente punto desborda la jornada? ──────────────
             if (currentTime > 0 && (currentTime + travelTime) > RoutingRules.MAX_WORK_DAY) {
@@ -49,10 +71,10 @@ public class ItineraryCalculator {
                         || currentLocIdx == 0) {
                     // Ubicación actual es OC (o, por seguridad, ODS): buscar PC para pernoctar
                     Integer pcIdx = findNearestPcForOvernight(
-                            allPoints, pathIndices, currentLocIdx, timeMatrix);
+                            allPoints, pathIndices, length, currentLocIdx, timeMatrix);
 
                     if (pcIdx != null) {
-                        int travelToPc = (int) timeMatrix[currentLocIdx][pcIdx];
+                        int travelToPc = timeMatrix.getInt(currentLocIdx, pcIdx);
                         currentTime += travelToPc;
                         currentLog.setTravelMinutes(currentLog.getTravelMinutes() + travelToPc);
 
@@ -69,7 +91,7 @@ public class ItineraryCalculator {
                         currentLog = startNewDay(currentDay, allPoints.get(pcIdx).getName());
 
                         // Viajar de vuelta al punto OC donde estábamos
-                        int travelBackToOc = (int) timeMatrix[pcIdx][currentLocIdx];
+                        int travelBackToOc = timeMatrix.getInt(pcIdx, currentLocIdx);
                         currentTime += travelBackToOc;
                         currentLog.setTravelMinutes(currentLog.getTravelMinutes() + travelBackToOc);
 
@@ -109,22 +131,21 @@ public class ItineraryCalculator {
             int baseDuration = (targetPoint.getCategory() == Location.Category.OC)
                     ? ocDuration : pcDuration;
 
-            List<Integer> tasks = new ArrayList<>();
-            tasks.add(baseDuration);
-            for (int k = 1; k < targetPoint.getOcCount(); k++) {
-                tasks.add(ocDuration);
-            }
+            // Una tarea base + (ocCount - 1) tareas de OC adicionales
+            int taskCount = Math.max(1, targetPoint.getOcCount());
+
+            for (int task = 0; task < taskCount; task++) {
+                int taskDuration = task == 0 ? baseDuration : ocDuration;
 
-            for (Integer taskDuration : tasks) {
                 if (currentTime + taskDuration > RoutingRules.MAX_WORK_DAY) {
 
                     if (targetPoint.getCategory() == Location.Category.OC) {
                         // Punto objetivo es OC → buscar PC para pernoctar
                         Integer pcIdx = findNearestPcForOvernight(
-                                allPoints, pathIndices, currentLocIdx, timeMatrix);
+                                allPoints, pathIndices, length, currentLocIdx, timeMatrix);
 
                         if (pcIdx != null) {
-                            int travelToPc = (int) timeMatrix[currentLocIdx][pcIdx];
+                            int travelToPc = timeMatrix.getInt(currentLocIdx, pcIdx);
                             currentTime += travelToPc;
                             currentLog.setTravelMinutes(currentLog.getTravelMinutes() + travelToPc);
 
@@ -139,7 +160,7 @@ public class ItineraryCalculator {
 
                             currentLog = startNewDay(currentDay, allPoints.get(pcIdx).getName());
 
-                            int travelFromPcToOc = (int) timeMatrix[pcIdx][targetIdx];
+                            int travelFromPcToOc = timeMatrix.getInt(pcIdx, targetIdx);
                             currentTime += travelFromPcToOc;
                             currentLog.setTravelMinutes(currentLog.getTravelMinutes() + travelFromPcToOc);
 
@@ -186,8 +207,8 @@ public class ItineraryCalculator {
         // Si el retorno excede MAX_TOTAL_DAY, hay que pernoctar en una PC
         // y retornar al día siguiente.
         //
-        int originIdx = pathIndices.get(0); // índice 0 = ODS
-        int returnTime = (int) timeMatrix[currentLocIdx][originIdx];
+        int originIdx = pathIndices[0]; // índice 0 = ODS
+        int returnTime = timeMatrix.getInt(currentLocIdx, originIdx);
 
         if (currentTime + returnTime > RoutingRules.MAX_TOTAL_DAY) {
 
@@ -198,10 +219,10 @@ public class ItineraryCalculator {
                 // Estamos en OC (o en la propia ODS, situación anómala):
                 // buscar PC para pernoctar antes del retorno.
                 Integer pcIdx = findNearestPcForOvernight(
-                        allPoints, pathIndices, currentLocIdx, timeMatrix);
+                        allPoints, pathIndices, length, currentLocIdx, timeMatrix);
 
                 if (pcIdx != null) {
-                    int travelToPc = (int) timeMatrix[currentLocIdx][pcIdx];
+                    int travelToPc = timeMatrix.getInt(currentLocIdx, pcIdx);
                     currentTime += travelToPc;
                     currentLog.setTravelMinutes(currentLog.getTravelMinutes() + travelToPc);
 
@@ -217,7 +238,7 @@ public class ItineraryCalculator {
                     // Nuevo día desde la PC; recalcular tiempo de retorno a ODS
                     currentLog = startNewDay(currentDay, allPoints.get(pcIdx).getName());
                     currentLocIdx = pcIdx;
-                    returnTime = (int) timeMatrix[pcIdx][originIdx];
+                    returnTime = timeMatrix.getInt(pcIdx, originIdx);
 
                 } else {
                     // Sin PC → cerrar día en OC (excepción inevitable)
@@ -230,7 +251,7 @@ public class ItineraryCalculator {
                     currentDay++;
                     currentTime = 0;
                     currentLog = startNewDay(currentDay, allPoints.get(currentLocIdx).getName());
-                    returnTime = (int) timeMatrix[currentLocIdx][originIdx];
+                    returnTime = timeMatrix.getInt(currentLocIdx, originIdx);
                 }
 
             } else {
@@ -295,6 +316,8 @@ public class ItineraryCalculator {
      *
      * Estrategia en dos pasos:
      *   1. Buscar entre los índices del path actual (excluyendo ODS = índice 0).
+     *      Los empates se resuelven por el menor índice, de modo que el
+     *      resultado no depende del orden de visita (ver ItinerarySimulator).
      *   2. Si no hay ninguna, buscar en TODOS los puntos del sistema
      *      (también excluyendo ODS = índice 0).
      *
@@ -302,21 +325,24 @@ public class ItineraryCalculator {
      */
     private Integer findNearestPcForOvernight(
             List<Location> allPoints,
-            List<Integer> pathIndices,
+            int[] pathIndices,
+            int length,
             int currentLocationIdx,
-            double[][] distanceMatrix
+            TravelMatrix distanceMatrix
     ) {
         Integer nearestPcIdx = null;
         double minDistance = Double.MAX_VALUE;
 
         // ── Paso 1: buscar en los puntos del path (sin ODS) ─────────────────
-        for (int idx : pathIndices) {
+        for (int i = 0; i < length; i++) {
+            int idx = pathIndices[i];
             if (idx == 0) continue; // ODS excluida explícitamente
             Location point = allPoints.get(idx);
             if (point.getCategory() != Location.Category.PC) continue;
 
-            double dist = distanceMatrix[currentLocationIdx][idx];
-            if (dist < minDistance) {
+            double dist = distanceMatrix.get(currentLocationIdx, idx);
+            if (dist < minDistance
+                    || (dist == minDistance && nearestPcIdx != null && idx < nearestPcIdx)) {
                 minDistance = dist;
                 nearestPcIdx = idx;
             }
@@ -330,10 +356,10 @@ public class ItineraryCalculator {
             if (point.getCategory() != Location.Category.PC) continue;
 
             // Verificar que la fila/columna exista en la matriz
-            if (currentLocationIdx >= distanceMatrix.length
-                    || idx >= distanceMatrix[currentLocationIdx].length) continue;
+            if (currentLocationIdx >= distanceMatrix.rows()
+                    || idx >= distanceMatrix.cols()) continue;
 
-            double dist = distanceMatrix[currentLocationIdx][idx];
+            double dist = distanceMatrix.get(currentLocationIdx, idx);
             if (dist < minDistance) {
                 minDistance = dist;
                 nearestPcIdx = idx;
@@ -367,8 +393,9 @@ public class ItineraryCalculator {
     private Integer findNearestPcWithinRadius(int currentLocationIdx,
                                               List<Location> allPoints,
                                               List<Integer> pathIndices,
-                                              double[][] distanceMatrix) {
-        return findNearestPcForOvernight(allPoints, pathIndices,
+                                              TravelMatrix distanceMatrix) {
+        int[] path = pathIndices.stream().mapToInt(Integer::intValue).toArray();
+        return findNearestPcForOvernight(allPoints, path, path.length,
                 currentLocationIdx, distanceMatrix);
     }
 }
\ No newline at end of file
@@ -0,0 +1,323 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.rules.RoutingRules;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Réplica de {@link ItineraryCalculator} con estado primitivo: solo calcula
+ * días, noches y minutos, sin construir DayLog ni listas.
+ *
+ * El recorrido se arma de a un punto ({@link #extend}) y se puede deshacer
+ * ({@link #undo}), así que un prefijo ya simulado se reutiliza para todas sus
+ * continuaciones. Con {@link #saveState}/{@link #loadState} un prefijo también
+ * se puede guardar y retomar fuera de la pila. Las reglas de pernocte son las mismas del calculador: la PC
+ * de pernocte se busca primero en el cluster del recorrido y, si no hay, en
+ * todos los puntos.
+ *
+ * No es thread-safe; el {@link Model} sí se puede compartir entre hilos.
+ */
+public class ItinerarySimulator {
+
+    /** Cantidad de ints que ocupa un estado guardado con {@link #saveState}. */
+    public static final int STATE_SIZE = 6;
+
+    private final Model model;
+
+    private final int[] cluster;
+    private int clusterSize;
+
+    private final int[] stack;
+    private int depth;
+
+    // estado del prefijo actual
+    private int day;
+    private int time;
+    private int loc;
+    private int nights;
+    private int travel;
+    private int work;
+
+    // resultado de finish()
+    private int resultDays;
+    private int resultNights;
+    private int resultMinutes;
+
+    public ItinerarySimulator(Model model, int maxStops) {
+        this.model = model;
+        this.cluster = new int[maxStops];
+        this.stack = new int[(maxStops + 1) * STATE_SIZE];
+    }
+
+    /**
+     * Datos del run que no cambian entre candidatos. Inmutable salvo el cache
+     * de PC global, que se completa de forma perezosa e idempotente.
+     */
+    public static final class Model {
+
+        private final TravelMatrix timeMatrix;
+        private final boolean[] oc;
+        private final boolean[] pc;
+        private final int[] ocCount;
+        private final int pcDuration;
+        private final int ocDuration;
+
+        // PC más cercana entre todos los puntos (-2 = aún no calculada, -1 = no hay)
+        private final int[] globalPc;
+
+        public Model(
+                List<Location> allPoints,
+                TravelMatrix timeMatrix,
+                int pcDuration,
+                int ocDuration
+        ) {
+            int n = allPoints.size();
+            this.timeMatrix = timeMatrix;
+            this.pcDuration = pcDuration;
+            this.ocDuration = ocDuration;
+            this.oc = new boolean[n];
+            this.pc = new boolean[n];
+            this.ocCount = new int[n];
+            for (int i = 0; i < n; i++) {
+                Location p = allPoints.get(i);
+                oc[i] = p.getCategory() == Location.Category.OC;
+                pc[i] = p.getCategory() == Location.Category.PC;
+                ocCount[i] = p.getOcCount();
+            }
+            this.globalPc = new int[n];
+            Arrays.fill(globalPc, -2);
+        }
+
+        int travel(int from, int to) {
+            return timeMatrix.getInt(from, to);
+        }
+
+        int globalNearestPc(int from) {
+            int cached = globalPc[from];
+            if (cached != -2) return cached;
+
+            int nearest = -1;
+            double min = Double.MAX_VALUE;
+            for (int idx = 1; idx < pc.length; idx++) {
+                if (!pc[idx]) continue;
+                if (from >= timeMatrix.rows() || idx >= timeMatrix.cols()) continue;
+                double d = timeMatrix.get(from, idx);
+                if (d < min) {
+                    min = d;
+                    nearest = idx;
+                }
+            }
+            globalPc[from] = nearest;
+            return nearest;
+        }
+    }
+
+    /** Inicia un recorrido desde la ODS para los puntos de cluster[0..m). */
+    public void begin(int[] clusterPoints, int m) {
+        System.arraycopy(clusterPoints, 0, cluster, 0, m);
+        clusterSize = m;
+        depth = 0;
+
+        day = 1;
+        time = 0;
+        loc = 0;
+        nights = 0;
+        travel = 0;
+        work = 0;
+    }
+
+    /** Simula el recorrido completo path[0..length) (path[0] = ODS). */
+    public void simulate(int[] path, int length) {
+        begin(path, 0);
+        // el cluster son los puntos del path sin la ODS
+        System.arraycopy(path, 1, cluster, 0, length - 1);
+        clusterSize = length - 1;
+        for (int i = 1; i < length; i++) {
+            extend(path[i]);
+        }
+        finish();
+    }
+
+    /** Agrega un punto al final del prefijo (guardando el estado anterior). */
+    public void extend(int target) {
+        saveState(stack, depth * STATE_SIZE);
+        depth++;
+        step(target);
+    }
+
+    /** Deshace el último {@link #extend}. */
+    public void undo() {
+        depth--;
+        loadState(stack, depth * STATE_SIZE);
+    }
+
+    /** Copia el estado del prefijo actual en buf[offset..offset + STATE_SIZE). */
+    public void saveState(int[] buf, int offset) {
+        buf[offset] = day;
+        buf[offset + 1] = time;
+        buf[offset + 2] = loc;
+        buf[offset + 3] = nights;
+        buf[offset + 4] = travel;
+        buf[offset + 5] = work;
+    }
+
+    /** Retoma un prefijo guardado con {@link #saveState} (mismo cluster). */
+    public void loadState(int[] buf, int offset) {
+        day = buf[offset];
+        time = buf[offset + 1];
+        loc = buf[offset + 2];
+        nights = buf[offset + 3];
+        travel = buf[offset + 4];
+        work = buf[offset + 5];
+    }
+
+    /** Día en curso de un estado guardado. */
+    public static int stateDay(int[] buf, int offset) {
+        return buf[offset];
+    }
+
+    /** Minutos ya usados del día en curso de un estado guardado. */
+    public static int stateTime(int[] buf, int offset) {
+        return buf[offset + 1];
+    }
+
+    /** Agrega un punto al final del prefijo sin guardar el estado anterior. */
+    public void step(int target) {
+        int travelTime = model.travel(loc, target);
+
+        // 1. ¿El viaje al siguiente punto desborda la jornada?
+        if (time > 0 && time + travelTime > RoutingRules.MAX_WORK_DAY) {
+            if (model.oc[loc] || loc == 0) {
+                int pcIdx = nearestPc(loc);
+                if (pcIdx >= 0) {
+                    addTravel(model.travel(loc, pcIdx));
+                    closeDay();
+                    addTravel(model.travel(pcIdx, loc));
+                } else {
+                    closeDay();
+                }
+            } else {
+                closeDay();
+            }
+        }
+
+        // 2. Viaje al punto objetivo
+        addTravel(travelTime);
+        loc = target;
+
+        // 3. Tareas en el punto objetivo
+        int base0 = model.oc[target] ? model.ocDuration : model.pcDuration;
+        int tasks = Math.max(1, model.ocCount[target]);
+        for (int t = 0; t < tasks; t++) {
+            int taskDuration = t == 0 ? base0 : model.ocDuration;
+
+            if (time + taskDuration > RoutingRules.MAX_WORK_DAY) {
+                if (model.oc[target]) {
+                    int pcIdx = nearestPc(loc);
+                    if (pcIdx >= 0) {
+                        addTravel(model.travel(loc, pcIdx));
+                        closeDay();
+                        addTravel(model.travel(pcIdx, target));
+                    } else {
+                        closeDay();
+                    }
+                } else {
+                    closeDay();
+                }
+            }
+
+            time += taskDuration;
+            work += taskDuration;
+        }
+    }
+
+    /**
+     * Calcula el retorno a la ODS desde el prefijo actual sin modificarlo.
+     * El resultado queda en {@link #getResultDays()} y afines.
+     */
+    public void finish() {
+        int d = day;
+        int tm = time;
+        int n = nights;
+        int tr = travel;
+        int at = loc;
+
+        int returnTime = model.travel(at, 0);
+
+        if (tm + returnTime > RoutingRules.MAX_TOTAL_DAY) {
+            if (model.oc[at] || at == 0) {
+                int pcIdx = nearestPc(at);
+                if (pcIdx >= 0) {
+                    int toPc = model.travel(at, pcIdx);
+                    tr += toPc;
+                    at = pcIdx;
+                    returnTime = model.travel(pcIdx, 0);
+                }
+            }
+            n++;
+            d++;
+            tm = 0;
+        }
+
+        tm += returnTime;
+        tr += returnTime;
+
+        resultDays = d;
+        resultNights = n;
+        resultMinutes = tr + work;
+    }
+
+    /** Día en curso del prefijo: cota inferior de los días del recorrido completo. */
+    public int getDay() {
+        return day;
+    }
+
+    public int getResultDays() {
+        return resultDays;
+    }
+
+    public int getResultNights() {
+        return resultNights;
+    }
+
+    /** Minutos de viaje + trabajo del recorrido completo. */
+    public int getResultMinutes() {
+        return resultMinutes;
+    }
+
+    // ---------------- helpers -----------------
+
+    private void addTravel(int minutes) {
+        time += minutes;
+        travel += minutes;
+    }
+
+    private void closeDay() {
+        nights++;
+        day++;
+        time = 0;
+    }
+
+    /**
+     * PC de pernocte más cercana: primero entre los puntos del cluster (sin ODS),
+     * con empates resueltos por el menor índice, y si no hay ninguna entre todos.
+     */
+    private int nearestPc(int from) {
+        int nearest = -1;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < clusterSize; i++) {
+            int idx = cluster[i];
+            if (idx == 0 || !model.pc[idx]) continue;
+            double d = model.timeMatrix.get(from, idx);
+            if (d < min || (d == min && idx < nearest)) {
+                min = d;
+                nearest = idx;
+            }
+        }
+        if (nearest >= 0) return nearest;
+        return model.globalNearestPc(from);
+    }
+}
@@ -0,0 +1,166 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Evalúa en paralelo los candidatos de una iteración greedy.
+ *
+ * Las combinaciones (máscaras) se reparten entre tareas fork/join según su peso
+ * ((k+1)! órdenes cada una, o 2^(k+1)·(k+1)² pasos del DP con HELD_KARP); cada hoja usa su propio {@link CandidateSearchEngine}
+ * y su propio evaluador. La reducción usa {@link CandidateSearchEngine#beats},
+ * que desempata por el orden de enumeración, así que la ruta elegida es la misma
+ * que en la búsqueda secuencial.
+ */
+public class ParallelCandidateSearch {
+
+    // Cantidad de recorridos por debajo de la cual no conviene seguir dividiendo
+    private static final int LEAF_WEIGHT = 48;
+
+    private final ForkJoinPool pool;
+    private final int maxClusterSize;
+    private final OrderingStrategy ordering;
+    private final Supplier<? extends CandidateSearchEngine.PathScorer> scorerFactory;
+
+    private PlanningMonitor monitor = PlanningMonitor.NONE;
+
+    // Totales de la última búsqueda, sumando todas las hojas
+    private final LongAdder evaluatedCount = new LongAdder();
+    private final LongAdder prunedCount = new LongAdder();
+
+    public ParallelCandidateSearch(
+            ForkJoinPool pool,
+            int maxClusterSize,
+            OrderingStrategy ordering,
+            Supplier<? extends CandidateSearchEngine.PathScorer> scorerFactory
+    ) {
+        this.pool = pool;
+        this.maxClusterSize = maxClusterSize;
+        this.ordering = ordering;
+        this.scorerFactory = scorerFactory;
+    }
+
+    /** Cancelación cooperativa, compartida por todas las hojas. */
+    public void setMonitor(PlanningMonitor monitor) {
+        this.monitor = monitor != null ? monitor : PlanningMonitor.NONE;
+    }
+
+    /**
+     * @return el motor que contiene al mejor candidato (puede no tener ninguno,
+     *         ver {@link CandidateSearchEngine#hasBest()})
+     */
+    public CandidateSearchEngine search(
+            int seed,
+            int[] neighborPool,
+            int poolSize,
+            int maxNeighbors
+    ) {
+        return search(
+                seed,
+                neighborPool,
+                CandidateSearchEngine.enumerateMasks(poolSize, maxNeighbors));
+    }
+
+    /**
+     * Igual que {@link #search(int, int[], int, int)} pero solo sobre las
+     * máscaras dadas, en el orden de {@link CandidateSearchEngine#enumerateMasks}.
+     */
+    public CandidateSearchEngine search(
+            int seed,
+            int[] neighborPool,
+            int[] masks
+    ) {
+        long[] prefixWeight = new long[masks.length + 1];
+        for (int i = 0; i < masks.length; i++) {
+            prefixWeight[i + 1] = prefixWeight[i] + weight(Integer.bitCount(masks[i]) + 1);
+        }
+
+        // La poda de cada hoja también usa lo que ya encontraron las demás
+        SearchBound bound = new SearchBound();
+
+        evaluatedCount.reset();
+        prunedCount.reset();
+
+        return pool.invoke(new Slice(seed, neighborPool, masks, prefixWeight, bound, 0, masks.length));
+    }
+
+    /** Recorridos completos evaluados en la última búsqueda, en todas las hojas. */
+    public long getEvaluatedCount() {
+        return evaluatedCount.sum();
+    }
+
+    /** Prefijos descartados por cota en la última búsqueda, en todas las hojas. */
+    public long getPrunedCount() {
+        return prunedCount.sum();
+    }
+
+    /** Trabajo aproximado de ordenar un cluster de m puntos. */
+    private long weight(int m) {
+        if (ordering == OrderingStrategy.HELD_KARP) {
+            return (1L << m) * m * m;
+        }
+        return factorial(m);
+    }
+
+    private static long factorial(int n) {
+        long r = 1;
+        for (int i = 2; i <= n; i++) r *= i;
+        return r;
+    }
+
+    private final class Slice extends RecursiveTask<CandidateSearchEngine> {
+
+        private final int seed;
+        private final int[] neighborPool;
+        private final int[] masks;
+        private final long[] prefixWeight;
+        private final SearchBound bound;
+        private final int from;
+        private final int to;
+
+        Slice(int seed, int[] neighborPool, int[] masks, long[] prefixWeight,
+              SearchBound bound, int from, int to) {
+            this.seed = seed;
+            this.neighborPool = neighborPool;
+            this.masks = masks;
+            this.prefixWeight = prefixWeight;
+            this.bound = bound;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CandidateSearchEngine compute() {
+            long weight = prefixWeight[to] - prefixWeight[from];
+
+            if (to - from <= 1 || weight <= LEAF_WEIGHT) {
+                CandidateSearchEngine engine = new CandidateSearchEngine(maxClusterSize, ordering);
+                engine.setSharedBound(bound);
+                engine.setMonitor(monitor);
+                engine.search(seed, neighborPool, masks, from, to, scorerFactory.get());
+                evaluatedCount.add(engine.getEvaluatedCount());
+                prunedCount.add(engine.getPrunedCount());
+                return engine;
+            }
+
+            // Partir por la mitad del peso, no de la cantidad de máscaras
+            long half = prefixWeight[from] + weight / 2;
+            int mid = from + 1;
+            while (mid < to - 1 && prefixWeight[mid] < half) mid++;
+
+            Slice left = new Slice(seed, neighborPool, masks, prefixWeight, bound, from, mid);
+            Slice right = new Slice(seed, neighborPool, masks, prefixWeight, bound, mid, to);
+
+            left.fork();
+            CandidateSearchEngine rightBest = right.compute();
+            CandidateSearchEngine leftBest = left.join();
+
+            return rightBest.beats(leftBest) ? rightBest : leftBest;
+        }
+    }
+}
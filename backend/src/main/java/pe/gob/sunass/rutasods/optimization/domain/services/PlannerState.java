@@ -0,0 +1,277 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Puntos pendientes de un run del GreedyRoutePlanner y los rankings que
+ * necesita cada iteración, calculados una sola vez por run:
+ *  - los puntos ordenados de más lejano a más cercano a la ODS (al inicio);
+ *  - por cada punto, sus vecinos más cercanos (hasta {@link #rankingDepth})
+ *    según el DistanceEvaluator, la primera vez que el punto es semilla
+ *    (la mayoría de los puntos nunca lo es).
+ *
+ * La disponibilidad va en un BitSet, así el pool de una semilla sale de
+ * recorrer su ranking saltando los ya asignados (O(pool) en vez de ordenar
+ * todos los pendientes en cada iteración).
+ *
+ * Los empates se resuelven por la posición en activeIndices, igual que el
+ * sort estable sobre la lista de pendientes que reemplaza: el plan resultante
+ * es el mismo.
+ */
+final class PlannerState {
+
+    // Vecinos guardados por punto, en múltiplos del pool (mínimo MIN_DEPTH)
+    private static final int DEPTH_PER_POOL = 8;
+    private static final int MIN_DEPTH = 64;
+
+    private final List<Location> allPoints;
+    private final DistanceEvaluator evaluator;
+    private final DistanceEvaluator.ConnectionValidator validator;
+
+    // activeIndices en su orden original y la posición de cada índice
+    private final int[] order;
+    private final int[] positionOf;
+
+    private final BitSet available;
+    private int remaining;
+    private int firstCursor;
+
+    // ranking[idx]: vecinos de idx de más cercano a más lejano (posiciones)
+    private final int[][] ranking;
+    private final int rankingDepth;
+    private final double[] rowBuffer;
+    private final int[] heapBuffer;
+
+    // posiciones con distancia finita a la ODS, de la más lejana a la más cercana
+    private final int[] farthestOrder;
+    private int farthestCursor;
+
+    PlannerState(
+            List<Location> allPoints,
+            List<Integer> activeIndices,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator,
+            int poolSize
+    ) {
+        this.allPoints = allPoints;
+        this.evaluator = evaluator;
+        this.validator = validator;
+
+        int n = activeIndices.size();
+        this.order = new int[n];
+        this.positionOf = new int[allPoints.size()];
+        this.available = new BitSet(n);
+        for (int pos = 0; pos < n; pos++) {
+            order[pos] = activeIndices.get(pos);
+            positionOf[order[pos]] = pos;
+        }
+        available.set(0, n);
+        this.remaining = n;
+
+        this.rankingDepth = Math.min(
+                Math.max(poolSize * DEPTH_PER_POOL, MIN_DEPTH),
+                Math.max(n - 1, 0));
+        this.ranking = new int[allPoints.size()][];
+        this.rowBuffer = new double[n];
+        this.heapBuffer = new int[rankingDepth];
+
+        this.farthestOrder = farthestFromOdsOrder();
+    }
+
+    boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    int remaining() {
+        return remaining;
+    }
+
+    /** Cantidad de puntos activos (pendientes o no) y el de la posición pos. */
+    int activeCount() {
+        return order.length;
+    }
+
+    int active(int pos) {
+        return order[pos];
+    }
+
+    boolean isAvailable(int idx) {
+        return available.get(positionOf[idx]);
+    }
+
+    /**
+     * Pendiente más lejano a la ODS; si ninguno tiene distancia finita, el
+     * primero pendiente.
+     */
+    int farthestFromOds() {
+        while (farthestCursor < farthestOrder.length
+                && !available.get(farthestOrder[farthestCursor])) {
+            farthestCursor++;
+        }
+        if (farthestCursor < farthestOrder.length) {
+            return order[farthestOrder[farthestCursor]];
+        }
+        return first();
+    }
+
+    /** Primer pendiente en el orden de activeIndices. */
+    int first() {
+        firstCursor = available.nextSetBit(firstCursor);
+        return order[firstCursor];
+    }
+
+    /**
+     * Escribe en out los pendientes más cercanos a seed (sin seed), hasta
+     * out.length, y devuelve cuántos escribió.
+     */
+    int neighborPool(int seed, int[] out) {
+        int[] seedRanking = ranking(seed);
+        int count = 0;
+        for (int pos : seedRanking) {
+            if (count == out.length) return count;
+            if (available.get(pos)) {
+                out[count++] = order[pos];
+            }
+        }
+        // El ranking se agotó: solo si estaba truncado puede haber más pendientes
+        int othersPending = remaining - (isAvailable(seed) ? 1 : 0);
+        if (count == out.length || count == othersPending
+                || seedRanking.length == order.length - 1) {
+            return count;
+        }
+        return fullPool(seed, out);
+    }
+
+    void take(int idx) {
+        int pos = positionOf[idx];
+        if (available.get(pos)) {
+            available.clear(pos);
+            remaining--;
+        }
+    }
+
+    void takeAll(List<Integer> indices) {
+        for (int idx : indices) {
+            take(idx);
+        }
+    }
+
+    // ---------------- helpers -----------------
+
+    private double dist(int from, int to) {
+        return evaluator.getDist(
+                from,
+                to,
+                allPoints.get(from),
+                allPoints.get(to),
+                validator);
+    }
+
+    private int[] ranking(int seed) {
+        int[] r = ranking[seed];
+        if (r == null) {
+            for (int pos = 0; pos < order.length; pos++) {
+                rowBuffer[pos] = dist(seed, order[pos]);
+            }
+            r = nearest(rowBuffer, positionOf[seed], heapBuffer);
+            ranking[seed] = r;
+        }
+        return r;
+    }
+
+    /** Orden del ranking: distancia (como Double.compare) y luego posición. */
+    private static boolean closer(double[] d, int a, int b) {
+        int c = Double.compare(d[a], d[b]);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    /**
+     * Las rankingDepth posiciones más cercanas (sin self), ordenadas. Usa un
+     * heap de máximos acotado: O(n log depth) por punto.
+     */
+    private int[] nearest(double[] d, int self, int[] heap) {
+        int size = 0;
+        for (int pos = 0; pos < d.length; pos++) {
+            if (pos == self) continue;
+            if (size < heap.length) {
+                heap[size] = pos;
+                siftUp(heap, size++, d);
+            } else if (size > 0 && closer(d, pos, heap[0])) {
+                heap[0] = pos;
+                siftDown(heap, size, d);
+            }
+        }
+        int[] sorted = new int[size];
+        while (size > 0) {
+            sorted[size - 1] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size, d);
+        }
+        return sorted;
+    }
+
+    private static void siftUp(int[] heap, int i, double[] d) {
+        int value = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!closer(d, heap[parent], value)) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, double[] d) {
+        int i = 0;
+        int value = heap[0];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && closer(d, heap[child], heap[child + 1])) child++;
+            if (!closer(d, value, heap[child])) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) heap[i] = value;
+    }
+
+    private int[] farthestFromOdsOrder() {
+        int n = order.length;
+        double[] d = new double[n];
+        List<Integer> finite = new ArrayList<>(n);
+        for (int pos = 0; pos < n; pos++) {
+            d[pos] = dist(0, order[pos]);
+            // mismo filtro que el recorrido original (d > -1 descarta NaN)
+            if (d[pos] > -1 && d[pos] != Double.POSITIVE_INFINITY) {
+                finite.add(pos);
+            }
+        }
+        // sort estable: entre empates gana el primero de activeIndices
+        finite.sort((a, b) -> Double.compare(d[b], d[a]));
+        return finite.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Caso raro (ranking truncado y agotado): ordena todos los pendientes. */
+    private int fullPool(int seed, int[] out) {
+        int seedPos = positionOf[seed];
+        double[] d = new double[order.length];
+        List<Integer> pending = new ArrayList<>(remaining);
+        for (int pos = available.nextSetBit(0); pos >= 0; pos = available.nextSetBit(pos + 1)) {
+            if (pos == seedPos) continue;
+            d[pos] = dist(seed, order[pos]);
+            pending.add(pos);
+        }
+        pending.sort(Comparator.comparingDouble(pos -> d[pos]));
+
+        int count = Math.min(out.length, pending.size());
+        for (int i = 0; i < count; i++) {
+            out[i] = order[pending.get(i)];
+        }
+        return count;
+    }
+}
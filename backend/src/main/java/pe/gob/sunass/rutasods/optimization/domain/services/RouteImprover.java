@@ -0,0 +1,662 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.rules.RoutingRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Fase de mejora posterior al greedy: búsqueda local sobre el plan completo,
+ * con el mismo modelo de itinerario y costo, hasta agotar un presupuesto de
+ * tiempo de pared.
+ *
+ * Movimientos:
+ *  - dentro de una ruta: 2-opt (invertir un tramo) y or-opt (mover un tramo
+ *    de 1 a 3 puntos a otra posición);
+ *  - entre rutas: relocate (mover un punto), or-opt (mover un tramo de 2-3),
+ *    swap (intercambiar dos puntos) y 2-opt* (intercambiar las colas).
+ * Entre rutas solo se prueban movimientos hacia las rutas de los
+ * {@link #NEIGHBORS} puntos más cercanos de cada punto; vaciar una ruta la
+ * elimina, así se absorben las rutas de un solo punto.
+ *
+ * La evaluación es por delta: un movimiento solo vuelve a simular las rutas
+ * que toca (días y noches no son aditivos, así que la ruta se simula entera,
+ * pero son a lo sumo maxStops puntos). Una ruta es válida si entra en
+ * maxStops puntos, no pasa de {@link RoutingRules#MAX_ROUTE_DAYS} y todas sus
+ * conexiones son válidas. Las rutas que ya eran inválidas al empezar (fallback
+ * de un punto inalcanzable) no se tocan.
+ *
+ * Cada worker corre una búsqueda local iterada (descenso con primera mejora,
+ * perturbación aleatoria y vuelta al mejor) con su propia semilla; al vencer
+ * el plazo se devuelve el mejor plan de todos. Los workers solo comparten el
+ * plazo y la cancelación.
+ */
+public class RouteImprover {
+
+    /** Puntos cercanos por punto para los movimientos entre rutas. */
+    static final int NEIGHBORS = 8;
+
+    // Tramo más largo que mueve or-opt
+    private static final int MAX_SEGMENT = 3;
+
+    // Movimientos aleatorios por perturbación
+    private static final int PERTURBATION_MOVES = 3;
+
+    // Mejora mínima (relativa al costo de las rutas tocadas) para aplicar un movimiento
+    private static final double EPSILON = 1e-9;
+
+    private final List<Location> allPoints;
+    private final ItinerarySimulator.Model itineraryModel;
+    private final DistanceEvaluator evaluator;
+    private final DistanceEvaluator.ConnectionValidator validator;
+    private final CostCalculator costCalculator;
+    private final int maxStops;
+    private final double kmCost;
+    private final double foodCost;
+    private final double hotelCost;
+
+    public RouteImprover(
+            List<Location> allPoints,
+            ItinerarySimulator.Model itineraryModel,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator,
+            CostCalculator costCalculator,
+            int maxStops,
+            double kmCost,
+            double foodCost,
+            double hotelCost
+    ) {
+        this.allPoints = allPoints;
+        this.itineraryModel = itineraryModel;
+        this.evaluator = evaluator;
+        this.validator = validator;
+        this.costCalculator = costCalculator;
+        this.maxStops = maxStops;
+        this.kmCost = kmCost;
+        this.foodCost = foodCost;
+        this.hotelCost = hotelCost;
+    }
+
+    /**
+     * Resultado de {@link #improve}: las rutas (sin la ODS) del mejor plan y
+     * cuánto costaban antes y después según el modelo. Las rutas que el modelo
+     * no puede evaluar vuelven como el mismo int[] recibido.
+     */
+    public record Result(
+            List<int[]> routes,
+            double initialCost,
+            double finalCost,
+            long movesApplied,
+            long perturbations,
+            int workers
+    ) {
+    }
+
+    /**
+     * Mejora el plan hasta budgetNanos desde ahora.
+     *
+     * @param routes puntos de cada ruta en orden de visita, sin la ODS
+     * @throws PlanningCancelledException si el monitor pide cancelar
+     */
+    public Result improve(
+            List<int[]> routes,
+            long budgetNanos,
+            ForkJoinPool pool,
+            PlanningMonitor monitor
+    ) {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        RouteEvaluator initialEvaluator = new RouteEvaluator();
+        Solution initial = new Solution(routes, allPoints.size(), initialEvaluator);
+        double initialCost = initial.totalCost();
+
+        int[][] near = nearestPoints(initial, deadline, monitor);
+        if (near == null) {
+            return new Result(routes, initialCost, initialCost, 0, 0, 0);
+        }
+
+        int workers = Math.max(1, pool.getParallelism());
+        List<ForkJoinTask<Worker>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            Worker worker = new Worker(initial.copy(), near, deadline, monitor, w + 1L);
+            tasks.add(pool.submit(worker::run));
+        }
+
+        Worker best = null;
+        long moves = 0;
+        long perturbations = 0;
+        for (ForkJoinTask<Worker> task : tasks) {
+            Worker worker = task.join();
+            moves += worker.moves;
+            perturbations += worker.perturbations;
+            if (best == null || worker.best.totalCost() < best.best.totalCost()) {
+                best = worker;
+            }
+        }
+
+        if (monitor.isCancelled()) {
+            throw new PlanningCancelledException();
+        }
+
+        Solution solution = best.best;
+        return new Result(
+                solution.routes(),
+                initialCost,
+                solution.totalCost(),
+                moves,
+                perturbations,
+                workers);
+    }
+
+    // ---------------- helpers -----------------
+
+    private double dist(int from, int to) {
+        return evaluator.getDist(
+                from,
+                to,
+                allPoints.get(from),
+                allPoints.get(to),
+                validator);
+    }
+
+    /**
+     * Los {@link #NEIGHBORS} puntos del plan más cercanos a cada punto del plan
+     * (por índice de punto); null si se venció el plazo mientras se calculaban.
+     */
+    private int[][] nearestPoints(Solution solution, long deadline, PlanningMonitor monitor) {
+        int[] planned = solution.plannedPoints();
+        int[][] near = new int[allPoints.size()][];
+        int k = Math.min(NEIGHBORS, planned.length - 1);
+
+        double[] bestDist = new double[Math.max(k, 0)];
+        int[] bestIdx = new int[Math.max(k, 0)];
+
+        for (int p : planned) {
+            if (monitor.isCancelled()) {
+                throw new PlanningCancelledException();
+            }
+            if (System.nanoTime() > deadline) {
+                return null;
+            }
+            int size = 0;
+            for (int q : planned) {
+                if (q == p) continue;
+                double d = dist(p, q);
+                if (d == Double.POSITIVE_INFINITY || Double.isNaN(d)) continue;
+                if (size == k && (k == 0 || d >= bestDist[k - 1])) continue;
+                // inserción ordenada en la lista corta
+                int i = size < k ? size++ : k - 1;
+                while (i > 0 && bestDist[i - 1] > d) {
+                    bestDist[i] = bestDist[i - 1];
+                    bestIdx[i] = bestIdx[i - 1];
+                    i--;
+                }
+                bestDist[i] = d;
+                bestIdx[i] = q;
+            }
+            near[p] = Arrays.copyOf(bestIdx, size);
+        }
+        return near;
+    }
+
+    /** Costo de una ruta con el modelo del planner. No es thread-safe. */
+    private final class RouteEvaluator {
+
+        private final ItinerarySimulator simulator =
+                new ItinerarySimulator(itineraryModel, maxStops);
+        private final int[] path = new int[maxStops + 1];
+
+        /** Costo de stops[0..length) desde y hacia la ODS; NaN si la ruta no es válida. */
+        double cost(int[] stops, int length) {
+            if (length == 0) return 0;
+            if (length > maxStops) return Double.NaN;
+
+            path[0] = 0;
+            System.arraycopy(stops, 0, path, 1, length);
+
+            double km = dist(0, stops[0]);
+            for (int i = 0; i < length - 1; i++) {
+                km += dist(stops[i], stops[i + 1]);
+            }
+            km += dist(stops[length - 1], 0);
+            if (km == Double.POSITIVE_INFINITY || Double.isNaN(km)) return Double.NaN;
+
+            simulator.simulate(path, length + 1);
+            int days = simulator.getResultDays();
+            if (days > RoutingRules.MAX_ROUTE_DAYS) return Double.NaN;
+
+            return costCalculator.computeTotalCost(
+                    km,
+                    days,
+                    simulator.getResultNights(),
+                    kmCost,
+                    foodCost,
+                    hotelCost);
+        }
+    }
+
+    /**
+     * Plan en curso de un worker: rutas de tamaño fijo (maxStops) con su
+     * costo cacheado y la ruta/posición de cada punto.
+     */
+    private final class Solution {
+
+        private final int[][] stops;
+        private final int[] length;
+        private final double[] cost;
+        // rutas inválidas desde el inicio: no se modifican ni cuentan en el costo
+        private final boolean[] frozen;
+        private final int[][] frozenStops;
+
+        private final int[] routeOf;
+        private final int[] posOf;
+
+        Solution(List<int[]> routes, int points, RouteEvaluator eval) {
+            int n = routes.size();
+            this.stops = new int[n][maxStops];
+            this.length = new int[n];
+            this.cost = new double[n];
+            this.frozen = new boolean[n];
+            this.frozenStops = new int[n][];
+            this.routeOf = new int[points];
+            this.posOf = new int[points];
+            Arrays.fill(routeOf, -1);
+
+            for (int r = 0; r < n; r++) {
+                int[] route = routes.get(r);
+                double c = eval.cost(route, route.length);
+                if (Double.isNaN(c)) {
+                    frozen[r] = true;
+                    // el mismo arreglo: el llamador reconoce así las rutas que no tocamos
+                    frozenStops[r] = route;
+                    continue;
+                }
+                System.arraycopy(route, 0, stops[r], 0, route.length);
+                length[r] = route.length;
+                cost[r] = c;
+                index(r);
+            }
+        }
+
+        private Solution(Solution other) {
+            int n = other.stops.length;
+            this.stops = new int[n][];
+            for (int r = 0; r < n; r++) {
+                stops[r] = other.stops[r].clone();
+            }
+            this.length = other.length.clone();
+            this.cost = other.cost.clone();
+            this.frozen = other.frozen;
+            this.frozenStops = other.frozenStops;
+            this.routeOf = other.routeOf.clone();
+            this.posOf = other.posOf.clone();
+        }
+
+        Solution copy() {
+            return new Solution(this);
+        }
+
+        void copyFrom(Solution other) {
+            for (int r = 0; r < stops.length; r++) {
+                System.arraycopy(other.stops[r], 0, stops[r], 0, maxStops);
+            }
+            System.arraycopy(other.length, 0, length, 0, length.length);
+            System.arraycopy(other.cost, 0, cost, 0, cost.length);
+            System.arraycopy(other.routeOf, 0, routeOf, 0, routeOf.length);
+            System.arraycopy(other.posOf, 0, posOf, 0, posOf.length);
+        }
+
+        double totalCost() {
+            double total = 0;
+            for (double c : cost) total += c;
+            return total;
+        }
+
+        /** Puntos de las rutas modificables. */
+        int[] plannedPoints() {
+            int count = 0;
+            for (int len : length) count += len;
+            int[] points = new int[count];
+            int i = 0;
+            for (int r = 0; r < stops.length; r++) {
+                for (int s = 0; s < length[r]; s++) {
+                    points[i++] = stops[r][s];
+                }
+            }
+            return points;
+        }
+
+        /** Rutas no vacías en el orden original (las congeladas tal cual). */
+        List<int[]> routes() {
+            List<int[]> routes = new ArrayList<>(stops.length);
+            for (int r = 0; r < stops.length; r++) {
+                if (frozen[r]) {
+                    routes.add(frozenStops[r]);
+                } else if (length[r] > 0) {
+                    routes.add(Arrays.copyOf(stops[r], length[r]));
+                }
+            }
+            return routes;
+        }
+
+        /** Reemplaza la ruta r por seq[0..len) con su costo ya calculado. */
+        void set(int r, int[] seq, int len, double c) {
+            System.arraycopy(seq, 0, stops[r], 0, len);
+            length[r] = len;
+            cost[r] = c;
+            index(r);
+        }
+
+        private void index(int r) {
+            for (int s = 0; s < length[r]; s++) {
+                routeOf[stops[r][s]] = r;
+                posOf[stops[r][s]] = s;
+            }
+        }
+    }
+
+    /** Búsqueda local iterada de un hilo sobre su propia copia del plan. */
+    private final class Worker {
+
+        private final Solution current;
+        private final Solution best;
+        private final int[][] near;
+        private final long deadline;
+        private final PlanningMonitor monitor;
+        private final Random random;
+
+        private final RouteEvaluator eval = new RouteEvaluator();
+
+        // buffers de las rutas candidatas de un movimiento
+        private final int[] a = new int[2 * maxStops];
+        private final int[] b = new int[2 * maxStops];
+
+        private long moves;
+        private long perturbations;
+
+        Worker(Solution start, int[][] near, long deadline, PlanningMonitor monitor, long seed) {
+            this.current = start;
+            this.best = start.copy();
+            this.near = near;
+            this.deadline = deadline;
+            this.monitor = monitor;
+            this.random = new Random(seed);
+        }
+
+        Worker run() {
+            int[] order = current.plannedPoints();
+            while (!expired()) {
+                descend(order);
+                if (current.totalCost() < best.totalCost()) {
+                    best.copyFrom(current);
+                } else {
+                    current.copyFrom(best);
+                }
+                if (expired()) break;
+                perturb(order);
+                perturbations++;
+            }
+            return this;
+        }
+
+        private boolean expired() {
+            return System.nanoTime() > deadline || monitor.isCancelled();
+        }
+
+        /** Primera mejora, punto por punto en orden aleatorio, hasta un óptimo local. */
+        private void descend(int[] order) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                shuffle(order);
+                for (int p : order) {
+                    if (expired()) return;
+                    if (improveIntra(current.routeOf[p]) || improveInter(p)) {
+                        moves++;
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        // ---------- dentro de una ruta ----------
+
+        private boolean improveIntra(int r) {
+            int len = current.length[r];
+            if (len < 2) return false;
+            int[] route = current.stops[r];
+            double old = current.cost[r];
+
+            // 2-opt: invertir route[i..j]
+            for (int i = 0; i < len - 1; i++) {
+                for (int j = i + 1; j < len; j++) {
+                    System.arraycopy(route, 0, a, 0, len);
+                    reverse(a, i, j);
+                    if (tryOne(r, a, len, old)) return true;
+                }
+            }
+
+            // or-opt: mover route[i..i+s) a otra posición
+            for (int s = 1; s <= Math.min(MAX_SEGMENT, len - 1); s++) {
+                for (int i = 0; i + s <= len; i++) {
+                    for (int to = 0; to <= len - s; to++) {
+                        if (to == i) continue;
+                        moveSegment(route, len, i, s, to, a, b);
+                        if (tryOne(r, a, len, old)) return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean tryOne(int r, int[] seq, int len, double old) {
+            double c = eval.cost(seq, len);
+            if (Double.isNaN(c) || !improves(c, old)) return false;
+            current.set(r, seq, len, c);
+            return true;
+        }
+
+        // ---------- entre rutas ----------
+
+        private boolean improveInter(int p) {
+            int r1 = current.routeOf[p];
+            int[] nearP = near[p];
+            if (nearP == null) return false;
+
+            for (int q : nearP) {
+                int r2 = current.routeOf[q];
+                if (r2 == r1 || r2 < 0) continue;
+                if (relocate(r1, current.posOf[p], r2, current.posOf[q])
+                        || swap(r1, current.posOf[p], r2, current.posOf[q])
+                        || twoOptStar(r1, current.posOf[p], r2, current.posOf[q])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Tramo r1[i..i+s) (s = 1..3) antes o después de r2[j]. */
+        private boolean relocate(int r1, int i, int r2, int j) {
+            int len1 = current.length[r1];
+            int len2 = current.length[r2];
+            double old = current.cost[r1] + current.cost[r2];
+
+            for (int s = 1; s <= MAX_SEGMENT && i + s <= len1; s++) {
+                if (len2 + s > maxStops) break;
+
+                // r1 sin el tramo
+                int la = 0;
+                for (int x = 0; x < len1; x++) {
+                    if (x < i || x >= i + s) a[la++] = current.stops[r1][x];
+                }
+                double c1 = eval.cost(a, la);
+                // la ruta destino no puede costar menos que cero
+                if (Double.isNaN(c1) || c1 >= old) continue;
+
+                for (int at = j; at <= j + 1; at++) {
+                    int lb = 0;
+                    for (int x = 0; x < at; x++) b[lb++] = current.stops[r2][x];
+                    for (int x = i; x < i + s; x++) b[lb++] = current.stops[r1][x];
+                    for (int x = at; x < len2; x++) b[lb++] = current.stops[r2][x];
+
+                    double c2 = eval.cost(b, lb);
+                    if (Double.isNaN(c2) || !improves(c1 + c2, old)) continue;
+
+                    current.set(r1, a, la, c1);
+                    current.set(r2, b, lb, c2);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean swap(int r1, int i, int r2, int j) {
+            int len1 = current.length[r1];
+            int len2 = current.length[r2];
+            double old = current.cost[r1] + current.cost[r2];
+
+            System.arraycopy(current.stops[r1], 0, a, 0, len1);
+            System.arraycopy(current.stops[r2], 0, b, 0, len2);
+            int tmp = a[i];
+            a[i] = b[j];
+            b[j] = tmp;
+
+            double c1 = eval.cost(a, len1);
+            if (Double.isNaN(c1) || c1 >= old) return false;
+            double c2 = eval.cost(b, len2);
+            if (Double.isNaN(c2) || !improves(c1 + c2, old)) return false;
+
+            current.set(r1, a, len1, c1);
+            current.set(r2, b, len2, c2);
+            return true;
+        }
+
+        /** r1[0..i] + r2[j+1..] y r2[0..j] + r1[i+1..]. */
+        private boolean twoOptStar(int r1, int i, int r2, int j) {
+            int len1 = current.length[r1];
+            int len2 = current.length[r2];
+            int la = (i + 1) + (len2 - j - 1);
+            int lb = (j + 1) + (len1 - i - 1);
+            if (la > maxStops || lb > maxStops) return false;
+            if (i == len1 - 1 && j == len2 - 1) return false; // no cambia nada
+
+            double old = current.cost[r1] + current.cost[r2];
+
+            System.arraycopy(current.stops[r1], 0, a, 0, i + 1);
+            System.arraycopy(current.stops[r2], j + 1, a, i + 1, len2 - j - 1);
+            System.arraycopy(current.stops[r2], 0, b, 0, j + 1);
+            System.arraycopy(current.stops[r1], i + 1, b, j + 1, len1 - i - 1);
+
+            double c1 = eval.cost(a, la);
+            if (Double.isNaN(c1) || c1 >= old) return false;
+            double c2 = eval.cost(b, lb);
+            if (Double.isNaN(c2) || !improves(c1 + c2, old)) return false;
+
+            current.set(r1, a, la, c1);
+            current.set(r2, b, lb, c2);
+            return true;
+        }
+
+        // ---------- perturbación ----------
+
+        /** Algunos relocate o swap válidos al azar, sin mirar el costo. */
+        private void perturb(int[] order) {
+            for (int m = 0, tries = 0; m < PERTURBATION_MOVES && tries < 20 * PERTURBATION_MOVES; tries++) {
+                int p = order[random.nextInt(order.length)];
+                int[] nearP = near[p];
+                if (nearP == null || nearP.length == 0) continue;
+                int q = nearP[random.nextInt(nearP.length)];
+                int r1 = current.routeOf[p];
+                int r2 = current.routeOf[q];
+                if (r1 == r2) continue;
+                if (random.nextBoolean() ? forceRelocate(r1, current.posOf[p], r2, current.posOf[q])
+                        : forceSwap(r1, current.posOf[p], r2, current.posOf[q])) {
+                    m++;
+                }
+            }
+        }
+
+        private boolean forceRelocate(int r1, int i, int r2, int j) {
+            int len1 = current.length[r1];
+            int len2 = current.length[r2];
+            if (len2 + 1 > maxStops) return false;
+
+            int la = 0;
+            for (int x = 0; x < len1; x++) {
+                if (x != i) a[la++] = current.stops[r1][x];
+            }
+            int lb = 0;
+            for (int x = 0; x <= j; x++) b[lb++] = current.stops[r2][x];
+            b[lb++] = current.stops[r1][i];
+            for (int x = j + 1; x < len2; x++) b[lb++] = current.stops[r2][x];
+
+            double c1 = eval.cost(a, la);
+            double c2 = eval.cost(b, lb);
+            if (Double.isNaN(c1) || Double.isNaN(c2)) return false;
+            current.set(r1, a, la, c1);
+            current.set(r2, b, lb, c2);
+            return true;
+        }
+
+        private boolean forceSwap(int r1, int i, int r2, int j) {
+            int len1 = current.length[r1];
+            int len2 = current.length[r2];
+            System.arraycopy(current.stops[r1], 0, a, 0, len1);
+            System.arraycopy(current.stops[r2], 0, b, 0, len2);
+            int tmp = a[i];
+            a[i] = b[j];
+            b[j] = tmp;
+
+            double c1 = eval.cost(a, len1);
+            double c2 = eval.cost(b, len2);
+            if (Double.isNaN(c1) || Double.isNaN(c2)) return false;
+            current.set(r1, a, len1, c1);
+            current.set(r2, b, len2, c2);
+            return true;
+        }
+
+        private void shuffle(int[] values) {
+            for (int i = values.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+        }
+    }
+
+    private static boolean improves(double candidate, double old) {
+        return candidate < old - EPSILON * Math.max(1.0, Math.abs(old));
+    }
+
+    private static void reverse(int[] values, int from, int to) {
+        while (from < to) {
+            int tmp = values[from];
+            values[from++] = values[to];
+            values[to--] = tmp;
+        }
+    }
+
+    /**
+     * route[0..len) con el tramo [i, i+s) movido para que empiece en to;
+     * rest es un buffer auxiliar.
+     */
+    private static void moveSegment(int[] route, int len, int i, int s, int to, int[] out, int[] rest) {
+        int n = 0;
+        for (int x = 0; x < len; x++) {
+            if (x < i || x >= i + s) rest[n++] = route[x];
+        }
+        int o = 0;
+        for (int x = 0; x < to; x++) out[o++] = rest[x];
+        for (int x = i; x < i + s; x++) out[o++] = route[x];
+        for (int x = to; x < n; x++) out[o++] = rest[x];
+    }
+}
@@ -0,0 +1,28 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mejor métrica conocida, compartida entre los motores de una búsqueda paralela
+ * para que cada uno pode también con lo que encontraron los demás.
+ */
+public class SearchBound {
+
+    private final AtomicLong bits =
+            new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+
+    public double get() {
+        return Double.longBitsToDouble(bits.get());
+    }
+
+    /** Baja la cota si {@code metric} la mejora. */
+    public void offer(double metric) {
+        long current = bits.get();
+        while (metric < Double.longBitsToDouble(current)) {
+            if (bits.compareAndSet(current, Double.doubleToLongBits(metric))) {
+                return;
+            }
+            current = bits.get();
+        }
+    }
+}
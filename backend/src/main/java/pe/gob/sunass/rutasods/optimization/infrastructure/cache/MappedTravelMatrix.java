@@ -0,0 +1,51 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+
+import java.nio.FloatBuffer;
+
+/**
+ * {@link TravelMatrix} sobre un bloque float32 fila por fila de un archivo
+ * mapeado en memoria ({@link SnapshotSpillStore}). Los valores se guardaron
+ * redondeados a 2 decimales, así que al leerlos se vuelven a redondear para
+ * devolver el mismo double que tenía la matriz original.
+ *
+ * Solo usa lecturas absolutas del buffer: se puede compartir entre hilos.
+ */
+final class MappedTravelMatrix implements TravelMatrix {
+
+    private final FloatBuffer values;
+    private final int rows;
+    private final int cols;
+
+    MappedTravelMatrix(FloatBuffer values, int rows, int cols) {
+        this.values = values;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public double get(int from, int to) {
+        if (from < 0 || from >= rows || to < 0 || to >= cols) {
+            throw new IndexOutOfBoundsException("(" + from + ", " + to + ") fuera de " + rows + "x" + cols);
+        }
+        float v = values.get(from * cols + to);
+        if (!Float.isFinite(v)) return v;
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    @Override
+    public long heapBytes() {
+        return 64; // solo el objeto y la vista del buffer
+    }
+}
@@ -0,0 +1,34 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "optimization.cache")
+public class OptimizationCacheProperties {
+
+    // Presupuesto de memoria estimada para todos los snapshots
+    private long maxBytes = 512L * 1024 * 1024;
+
+    // Una sesión sin accesos durante este tiempo (desde createdAt o su último uso) se descarta
+    private Duration idleTtl = Duration.ofHours(6);
+
+    // Frecuencia de la limpieza de sesiones vencidas
+    private Duration sweepInterval = Duration.ofMinutes(5);
+
+    // Copia en disco de cada sesión (ver SnapshotSpillStore)
+    private boolean spillEnabled = true;
+
+    private Path spillDir = Path.of(System.getProperty("java.io.tmpdir"), "rutas-ods", "sessions");
+
+    // Una sesión en disco sin accesos durante este tiempo se borra
+    private Duration spillRetention = Duration.ofDays(7);
+
+    // Tope del directorio de spill; al pasarlo se borran las sesiones usadas hace más tiempo (0 = sin tope)
+    private long maxSpillBytes = 2L * 1024 * 1024 * 1024;
+}
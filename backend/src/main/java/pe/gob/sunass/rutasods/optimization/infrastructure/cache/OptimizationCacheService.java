@@ -1,37 +1,298 @@
 package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Sesiones de optimización en memoria, con límites:
+ *  - presupuesto de bytes (estimados con {@link SnapshotSizeEstimator});
+ *    al superarlo se descartan las sesiones usadas hace más tiempo (LRU);
+ *  - TTL por inactividad: una sesión vence si no se usa durante idleTtl,
+ *    contando desde su createdAt o desde el último acceso.
+ *
+ * Con el spill habilitado, una sesión que sale de memoria (por LRU o por TTL)
+ * se escribe en disco ({@link SnapshotSpillStore}) en un hilo aparte; hasta
+ * que termina de escribirse se sigue sirviendo desde spilling. Después se
+ * vuelve a cargar desde disco, con las matrices mapeadas, mientras no pase
+ * spillRetention sin usarse ni la saque el tope maxSpillBytes. Al apagar la
+ * aplicación se escriben las que quedaban en memoria, para que sobrevivan al
+ * reinicio. Una sesión que no está en ninguno de los dos responde 404 en
+ * {@link #getOrThrow}.
+ */
 @Service
 public class OptimizationCacheService {
 
-    private final Map<String, OptimizationSnapshot> cache =
-            new ConcurrentHashMap<>();
+    // Escrituras a disco pendientes; con la cola llena la sesión expulsada se pierde
+    private static final int SPILL_QUEUE_CAPACITY = 64;
+    private static final int SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final OptimizationCacheProperties props;
+    private final SnapshotSpillStore spillStore;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<String, Entry> cache =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    // Sesiones que salieron de memoria y se están escribiendo en disco
+    private final Map<String, OptimizationSnapshot> spilling = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor spillPool;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong diskLoads = new AtomicLong();
+
+    public OptimizationCacheService(OptimizationCacheProperties props, SnapshotSpillStore spillStore) {
+        this.props = props;
+        this.spillStore = spillStore;
+        this.spillPool = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SPILL_QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "session-spill");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    private static final class Entry {
+        final OptimizationSnapshot snapshot;
+        final long bytes;
+        Instant lastAccess;
+
+        Entry(OptimizationSnapshot snapshot, long bytes, Instant lastAccess) {
+            this.snapshot = snapshot;
+            this.bytes = bytes;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /** Contadores y ocupación actuales. */
+    public record Stats(
+            int entries,
+            long bytes,
+            long maxBytes,
+            long hits,
+            long misses,
+            long evictions,
+            long expirations,
+            long diskLoads
+    ) {}
 
     public void save(String sessionId,
                      OptimizationSnapshot snapshot) {
-        cache.put(sessionId, snapshot);
+        Instant createdAt = snapshot.createdAt() != null ? snapshot.createdAt() : Instant.now();
+        put(sessionId, snapshot, createdAt);
     }
 
     public OptimizationSnapshot get(String sessionId) {
-        return cache.get(sessionId);
+        OptimizationSnapshot snapshot = getFromMemory(sessionId);
+        if (snapshot != null) return snapshot;
+
+        snapshot = spilling.get(sessionId);
+        if (snapshot != null) {
+            put(sessionId, snapshot, Instant.now());
+            return snapshot;
+        }
+
+        snapshot = spillStore.load(sessionId);
+        if (snapshot == null) return null;
+
+        diskLoads.incrementAndGet();
+        put(sessionId, snapshot, Instant.now());
+        return snapshot;
     }
 
     public void evict(String sessionId) {
-        cache.remove(sessionId);
+        synchronized (cache) {
+            remove(sessionId);
+        }
+        spilling.remove(sessionId);
+        spillStore.delete(sessionId);
+        // por si había una escritura en cola: el hilo de spill las hace en orden
+        execute(() -> spillStore.delete(sessionId));
     }
 
     public OptimizationSnapshot getOrThrow(String sessionId) {
-        OptimizationSnapshot snapshot = get(sessionId); // como lo tengas implementado
+        OptimizationSnapshot snapshot = get(sessionId);
         if (snapshot == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Session not found: " + sessionId);
         }
         return snapshot;
     }
 
+    public Stats stats() {
+        synchronized (cache) {
+            return new Stats(
+                    cache.size(),
+                    totalBytes,
+                    props.getMaxBytes(),
+                    hits.get(),
+                    misses.get(),
+                    evictions.get(),
+                    expirations.get(),
+                    diskLoads.get());
+        }
+    }
+
+    /**
+     * Descarta de memoria las sesiones vencidas aunque nadie las vuelva a pedir,
+     * y borra del disco las que superaron spillRetention.
+     */
+    @Scheduled(fixedDelayString = "${optimization.cache.sweep-interval:PT5M}")
+    public void sweepExpired() {
+        Instant now = Instant.now();
+        Map<String, OptimizationSnapshot> expired = new LinkedHashMap<>();
+        synchronized (cache) {
+            Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                Entry entry = e.getValue();
+                if (isExpired(entry, now)) {
+                    it.remove();
+                    totalBytes -= entry.bytes;
+                    expirations.incrementAndGet();
+                    expired.put(e.getKey(), entry.snapshot);
+                }
+            }
+        }
+        expired.forEach(this::spillLater);
+        spillStore.deleteOlderThan(now.minus(props.getSpillRetention()));
+    }
+
+    /** Pasa a disco las sesiones que siguen en memoria, para que sobrevivan al reinicio. */
+    @PreDestroy
+    public void shutdown() {
+        spillPool.shutdown();
+        try {
+            spillPool.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Map<String, OptimizationSnapshot> remaining = new LinkedHashMap<>();
+        synchronized (cache) {
+            cache.forEach((id, entry) -> remaining.put(id, entry.snapshot));
+        }
+        remaining.forEach(spillStore::spill);
+    }
+
+    // ---------------- helpers -----------------
+
+    private void put(String sessionId, OptimizationSnapshot snapshot, Instant lastAccess) {
+        long bytes = SnapshotSizeEstimator.estimate(snapshot);
+
+        Map<String, OptimizationSnapshot> evicted;
+        synchronized (cache) {
+            Entry previous = cache.put(sessionId, new Entry(snapshot, bytes, lastAccess));
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            totalBytes += bytes;
+            evicted = evictOverBudget(sessionId);
+        }
+        // Fuera del lock, y escritas en otro hilo: el request no espera al disco
+        evicted.forEach(this::spillLater);
+    }
+
+    private OptimizationSnapshot getFromMemory(String sessionId) {
+        Instant now = Instant.now();
+        Entry expired = null;
+        synchronized (cache) {
+            Entry entry = cache.get(sessionId);
+            if (entry != null && isExpired(entry, now)) {
+                remove(sessionId);
+                expirations.incrementAndGet();
+                expired = entry;
+                entry = null;
+            }
+            if (entry != null) {
+                entry.lastAccess = now;
+                hits.incrementAndGet();
+                return entry.snapshot;
+            }
+            misses.incrementAndGet();
+        }
+        // Vencida: pasa a disco como cualquier otra que sale de memoria
+        if (expired != null) {
+            spillLater(sessionId, expired.snapshot);
+        }
+        return null;
+    }
+
+    private boolean isExpired(Entry entry, Instant now) {
+        return entry.lastAccess.plus(props.getIdleTtl()).isBefore(now);
+    }
+
+    /**
+     * LRU hasta entrar en el presupuesto; la sesión recién guardada se conserva.
+     *
+     * @return las sesiones expulsadas, para pasarlas a disco
+     */
+    private Map<String, OptimizationSnapshot> evictOverBudget(String keep) {
+        Map<String, OptimizationSnapshot> evicted = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+        while (totalBytes > props.getMaxBytes() && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep)) continue;
+            it.remove();
+            totalBytes -= eldest.getValue().bytes;
+            evictions.incrementAndGet();
+            evicted.put(eldest.getKey(), eldest.getValue().snapshot);
+        }
+        return evicted;
+    }
+
+    /** Escribe en disco, en el hilo de spill, una sesión que salió de memoria. */
+    private void spillLater(String sessionId, OptimizationSnapshot snapshot) {
+        if (!spillStore.canSpill(sessionId, snapshot)) return;
+
+        spilling.put(sessionId, snapshot);
+        boolean queued = execute(() -> {
+            try {
+                spillStore.spill(sessionId, snapshot);
+            } finally {
+                spilling.remove(sessionId, snapshot);
+            }
+        });
+        if (!queued) {
+            spilling.remove(sessionId, snapshot);
+        }
+    }
+
+    private boolean execute(Runnable task) {
+        try {
+            spillPool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false; // cola llena o apagando
+        }
+    }
+
+    private void remove(String sessionId) {
+        Entry removed = cache.remove(sessionId);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
 }
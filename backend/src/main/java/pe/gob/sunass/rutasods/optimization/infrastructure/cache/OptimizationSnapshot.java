@@ -1,6 +1,7 @@
 package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
 
 import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
 
 import java.time.Instant;
 import java.util.List;
@@ -9,8 +10,9 @@ public record OptimizationSnapshot(
 
         List<RouteSegment> routes,
 
-        double[][] distanceMatrix,
-        double[][] durationMatrix,
+        // en el heap recién calculadas, o mapeadas desde disco (SnapshotSpillStore)
+        TravelMatrix distanceMatrix,
+        TravelMatrix durationMatrix,
 
         List<String> matrixNames,
 
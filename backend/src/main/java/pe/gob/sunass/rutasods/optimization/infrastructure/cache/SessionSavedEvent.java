@@ -0,0 +1,7 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+/**
+ * Se publica apenas una sesión queda guardada en {@link OptimizationCacheService}.
+ * Los listeners corren en el hilo de la optimización: deben solo encolar.
+ */
+public record SessionSavedEvent(String sessionId, OptimizationSnapshot snapshot) {}
@@ -0,0 +1,76 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import pe.gob.sunass.rutasods.shared.domain.model.DayLog;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+
+import java.util.List;
+
+/**
+ * Estimación (aproximada, por exceso) de los bytes de heap que retiene un
+ * {@link OptimizationSnapshot}: las dos matrices dominan (salvo que estén
+ * mapeadas desde disco); rutas y DayLog se cuentan con tamaños de objeto
+ * típicos de una JVM de 64 bits.
+ */
+final class SnapshotSizeEstimator {
+
+    private static final int OBJECT = 16;
+    private static final int REF = 8;
+    private static final int ARRAY = 16;
+    private static final int LIST_ENTRY = 48;     // nodo/celda de lista o mapa
+    private static final int LOCATION = 96;       // Location sin sus strings
+
+    private SnapshotSizeEstimator() {
+    }
+
+    static long estimate(OptimizationSnapshot s) {
+        long bytes = OBJECT + 12L * REF;
+
+        bytes += matrix(s.distanceMatrix());
+        bytes += matrix(s.durationMatrix());
+        bytes += strings(s.matrixNames());
+
+        if (s.routes() != null) {
+            for (RouteSegment r : s.routes()) {
+                bytes += route(r);
+            }
+        }
+        return bytes;
+    }
+
+    private static long matrix(TravelMatrix m) {
+        return m == null ? 0 : m.heapBytes();
+    }
+
+    private static long route(RouteSegment r) {
+        long bytes = OBJECT + 12L * REF + string(r.getName()) + OBJECT + 4L * Double.BYTES;
+
+        if (r.getPoints() != null) {
+            bytes += (long) r.getPoints().size() * (LOCATION + LIST_ENTRY + 64);
+        }
+        if (r.getLogs() != null) {
+            for (DayLog log : r.getLogs()) {
+                bytes += OBJECT + 10L * REF + LIST_ENTRY;
+                bytes += string(log.getStartLocation()) + string(log.getFinalLocation()) + string(log.getNote());
+                bytes += strings(log.getActivityPoints());
+                if (log.getActivityOcCounts() != null) {
+                    bytes += (long) log.getActivityOcCounts().size() * (LIST_ENTRY + OBJECT);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long strings(List<String> values) {
+        if (values == null) return 0;
+        long bytes = ARRAY;
+        for (String v : values) {
+            bytes += REF + string(v);
+        }
+        return bytes;
+    }
+
+    private static long string(String s) {
+        return s == null ? 0 : OBJECT + ARRAY + s.length() * 2L;
+    }
+}
@@ -0,0 +1,352 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+import pe.gob.sunass.rutasods.shared.domain.model.SparseTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Copia en disco de los snapshots de optimización, un archivo por sesión
+ * ({sessionId}.snap en optimization.cache.spill-dir), para que el PDF y los
+ * Excel se puedan pedir después de que la sesión salió de memoria o de un
+ * reinicio. Es un cache: no se hace fsync, y el directorio se mantiene bajo
+ * maxSpillBytes borrando primero los archivos usados hace más tiempo.
+ *
+ * Formato (little-endian):
+ * <pre>
+ *  0  int   magic "RODS"
+ *  4  int   versión
+ *  8  int   filas
+ * 12  int   columnas
+ * 16  long  offset de los metadatos
+ * 24  int   largo de los metadatos
+ * 28  int   (reservado)
+ * 32  float distancias[filas * columnas]   fila por fila
+ *  …  float duraciones[filas * columnas]
+ *  …  metadatos en JSON UTF-8 (rutas, nombres, costos, duraciones, timeFactor)
+ * </pre>
+ * Las matrices se leen mapeadas en memoria ({@link MappedTravelMatrix}): no se
+ * vuelven a armar en el heap. El mapeo sigue siendo válido aunque el archivo se
+ * borre después (en Linux); el espacio se libera cuando el GC suelta el buffer.
+ */
+@Component
+public class SnapshotSpillStore {
+
+    private static final int MAGIC = 0x524F4453; // "RODS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final String SUFFIX = ".snap";
+
+    // Los ids llegan por la URL: nada de separadores ni "..".
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final OptimizationCacheProperties props;
+    private final ObjectMapper objectMapper;
+
+    public SnapshotSpillStore(OptimizationCacheProperties props, ObjectMapper objectMapper) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Todo lo del snapshot que no son las matrices. */
+    record Metadata(
+            List<RouteSegment> routes,
+            List<String> matrixNames,
+            double kmCost,
+            double foodCost,
+            double hotelCost,
+            int pcDuration,
+            int ocDuration,
+            double timeFactor,
+            Instant createdAt
+    ) {}
+
+    public boolean isEnabled() {
+        return props.isSpillEnabled();
+    }
+
+    /** ¿Este snapshot se puede pasar a disco? */
+    public boolean canSpill(String sessionId, OptimizationSnapshot snapshot) {
+        // La matriz dispersa ocupa poco en el heap y acá se escribiría densa (N²)
+        return isEnabled()
+                && isValidId(sessionId)
+                && !(snapshot.distanceMatrix() instanceof SparseTravelMatrix);
+    }
+
+    /**
+     * Escribe el snapshot en disco y, si el directorio pasa de maxSpillBytes,
+     * borra los archivos usados hace más tiempo.
+     *
+     * @return false si no se pudo (o no corresponde) escribirlo
+     */
+    public boolean spill(String sessionId, OptimizationSnapshot snapshot) {
+        if (!canSpill(sessionId, snapshot)) return false;
+
+        Path file = fileOf(sessionId);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            write(tmp, snapshot);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ No se pudo guardar la sesión " + sessionId + " en disco: " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // se limpia en el próximo barrido
+            }
+            return false;
+        }
+        enforceBudget(file);
+        return true;
+    }
+
+    /** @return el snapshot guardado, o null si no existe o no se puede leer */
+    public OptimizationSnapshot load(String sessionId) {
+        if (!isEnabled() || !isValidId(sessionId)) return null;
+
+        Path file = fileOf(sessionId);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            OptimizationSnapshot snapshot = read(file);
+            // La retención en disco cuenta desde el último uso
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Sesión " + sessionId + " ilegible en disco: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void delete(String sessionId) {
+        if (!isEnabled() || !isValidId(sessionId)) return;
+        try {
+            Files.deleteIfExists(fileOf(sessionId));
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo borrar la sesión " + sessionId + " del disco: " + e.getMessage());
+        }
+    }
+
+    /** Borra los archivos sin uso desde antes de cutoff. @return cantidad borrada */
+    public int deleteOlderThan(Instant cutoff) {
+        Path dir = props.getSpillDir();
+        if (!isEnabled() || dir == null || !Files.isDirectory(dir)) return 0;
+
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                if (!name.endsWith(SUFFIX) && !name.endsWith(SUFFIX + ".tmp")) continue;
+                try {
+                    if (Files.getLastModifiedTime(f).toInstant().isBefore(cutoff)) {
+                        Files.deleteIfExists(f);
+                        deleted++;
+                    }
+                } catch (IOException ignored) {
+                    // otro proceso lo borró o lo está escribiendo
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo limpiar " + dir + ": " + e.getMessage());
+        }
+        return deleted;
+    }
+
+    /**
+     * Borra los .snap usados hace más tiempo hasta que el directorio entre en
+     * maxSpillBytes; keep (el recién escrito) se borra solo si no entra ni solo.
+     */
+    private void enforceBudget(Path keep) {
+        long max = props.getMaxSpillBytes();
+        if (max <= 0) return;
+
+        record SpillFile(Path path, long bytes, FileTime lastUsed) {}
+        List<SpillFile> files = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> list = Files.list(keep.getParent())) {
+            for (Path f : (Iterable<Path>) list::iterator) {
+                if (!f.getFileName().toString().endsWith(SUFFIX)) continue;
+                try {
+                    long bytes = Files.size(f);
+                    files.add(new SpillFile(f, bytes, Files.getLastModifiedTime(f)));
+                    total += bytes;
+                } catch (IOException ignored) {
+                    // borrado mientras se listaba
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo revisar " + keep.getParent() + ": " + e.getMessage());
+            return;
+        }
+        if (total <= max) return;
+
+        files.sort(Comparator.comparing(SpillFile::lastUsed));
+        for (SpillFile f : files) {
+            if (total <= max) return;
+            if (f.path().equals(keep)) continue;
+            try {
+                Files.deleteIfExists(f.path());
+                total -= f.bytes();
+            } catch (IOException ignored) {
+                // se reintenta en el próximo spill
+            }
+        }
+        if (total > max) {
+            // ni solo entra en el presupuesto
+            try {
+                Files.deleteIfExists(keep);
+            } catch (IOException ignored) {
+                // se borra en el próximo barrido
+            }
+        }
+    }
+
+    // ---------------- helpers -----------------
+
+    private static boolean isValidId(String sessionId) {
+        return sessionId != null && SESSION_ID.matcher(sessionId).matches();
+    }
+
+    private Path fileOf(String sessionId) {
+        return props.getSpillDir().resolve(sessionId + SUFFIX);
+    }
+
+    private void write(Path file, OptimizationSnapshot s) throws IOException {
+        TravelMatrix dist = s.distanceMatrix();
+        TravelMatrix dur = s.durationMatrix();
+        int rows = dist.rows();
+        int cols = dist.cols();
+        if (dur.rows() != rows || dur.cols() != cols) {
+            throw new IllegalArgumentException("matrices de distinto tamaño");
+        }
+
+        byte[] metadata = objectMapper.writeValueAsBytes(new Metadata(
+                s.routes(),
+                s.matrixNames(),
+                s.kmCost(),
+                s.foodCost(),
+                s.hotelCost(),
+                s.pcDuration(),
+                s.ocDuration(),
+                s.timeFactor(),
+                s.createdAt()));
+
+        long matrixBytes = (long) rows * cols * Float.BYTES;
+        long metadataOffset = HEADER_BYTES + 2 * matrixBytes;
+
+        try (FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(rows)
+                    .putInt(cols)
+                    .putLong(metadataOffset)
+                    .putInt(metadata.length)
+                    .putInt(0)
+                    .flip();
+            writeFully(ch, header);
+
+            // Una fila a la vez: no se arma otra copia completa de la matriz
+            ByteBuffer row = ByteBuffer.allocateDirect(Math.max(1, cols) * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            writeMatrix(ch, dist, row);
+            writeMatrix(ch, dur, row);
+
+            writeFully(ch, ByteBuffer.wrap(metadata));
+        }
+    }
+
+    private static void writeMatrix(FileChannel ch, TravelMatrix m, ByteBuffer row) throws IOException {
+        for (int i = 0; i < m.rows(); i++) {
+            row.clear();
+            for (int j = 0; j < m.cols(); j++) {
+                row.putFloat((float) m.get(i, j));
+            }
+            row.flip();
+            writeFully(ch, row);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    private OptimizationSnapshot read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) throw new IOException("no es un snapshot");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("versión no soportada: " + version);
+            int rows = header.getInt();
+            int cols = header.getInt();
+            long metadataOffset = header.getLong();
+            int metadataLength = header.getInt();
+
+            long matrixBytes = (long) rows * cols * Float.BYTES;
+            if (rows < 0 || cols < 0
+                    || metadataOffset != HEADER_BYTES + 2 * matrixBytes
+                    || metadataOffset + metadataLength != ch.size()) {
+                throw new IOException("archivo truncado o corrupto");
+            }
+
+            TravelMatrix dist = map(ch, HEADER_BYTES, matrixBytes, rows, cols);
+            TravelMatrix dur = map(ch, HEADER_BYTES + matrixBytes, matrixBytes, rows, cols);
+
+            ByteBuffer metadataBuf = ByteBuffer.allocate(metadataLength);
+            readFully(ch, metadataBuf, metadataOffset);
+            Metadata m = objectMapper.readValue(metadataBuf.array(), Metadata.class);
+
+            return new OptimizationSnapshot(
+                    m.routes(),
+                    dist,
+                    dur,
+                    m.matrixNames(),
+                    m.kmCost(),
+                    m.foodCost(),
+                    m.hotelCost(),
+                    m.pcDuration(),
+                    m.ocDuration(),
+                    m.timeFactor(),
+                    m.createdAt());
+        }
+    }
+
+    private static TravelMatrix map(FileChannel ch, long offset, long bytes, int rows, int cols)
+            throws IOException {
+        FloatBuffer values = ch.map(FileChannel.MapMode.READ_ONLY, offset, bytes)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        return new MappedTravelMatrix(values, rows, cols);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) throw new IOException("fin de archivo inesperado");
+        }
+    }
+}
@@ -1,4 +1,173 @@
 package pe.gob.sunass.rutasods.optimization.infrastructure.executor;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import pe.gob.sunass.rutasods.optimization.application.internal.RunMasterPlanUseCase;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeRequest;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeResponse;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta optimizaciones en segundo plano con un pool acotado: a lo sumo
+ * maxConcurrentJobs corriendo y queueCapacity esperando; más allá el submit
+ * responde 503. El hilo del servlet valida el pedido (400 sin encolar), lo
+ * encola y devuelve el id del job.
+ *
+ * El resultado queda en el job (y la sesión, como siempre, en
+ * OptimizationCacheService a través de {@link RunMasterPlanUseCase}). La
+ * cancelación es cooperativa: el planner la consulta entre iteraciones y entre
+ * combinaciones; el cálculo de la matriz en curso no se interrumpe.
+ */
+@Component
 public class OptimizationExecutor {
+
+    private final RunMasterPlanUseCase runMasterPlanUseCase;
+    private final OptimizationExecutorProperties props;
+
+    private final ThreadPoolExecutor pool;
+    private final Map<String, OptimizationJob> jobs = new ConcurrentHashMap<>();
+
+    public OptimizationExecutor(
+            RunMasterPlanUseCase runMasterPlanUseCase,
+            OptimizationExecutorProperties props
+    ) {
+        this.runMasterPlanUseCase = runMasterPlanUseCase;
+        this.props = props;
+
+        int threads = Math.max(1, props.getMaxConcurrentJobs());
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, props.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "optimization-job-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Encola la optimización. @return el job (estado QUEUED)
+     *
+     * @throws ResponseStatusException 400 si el pedido es inválido (no se
+     *         encola), 503 si el pool y la cola están llenos
+     */
+    public OptimizationJob submit(OptimizeRequest request) {
+        return submit(request, OptimizationJobListener.NONE);
+    }
+
+    /** Igual que {@link #submit(OptimizeRequest)} avisando cada evento a listener. */
+    public OptimizationJob submit(OptimizeRequest request, OptimizationJobListener listener) {
+        runMasterPlanUseCase.validate(request);
+
+        OptimizationJob job = new OptimizationJob(UUID.randomUUID().toString(), listener);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(pool.submit(() -> run(job, request)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Demasiadas optimizaciones en curso, intente más tarde");
+        }
+        // Solo los jobs aceptados se avisan; run() espera este aviso, así
+        // onQueued sigue siendo el primer evento
+        job.notifyQueued();
+        return job;
+    }
+
+    /** @throws ResponseStatusException 404 si el job no existe o ya se olvidó */
+    public OptimizationJob getOrThrow(String jobId) {
+        OptimizationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Resultado de un job terminado.
+     *
+     * @throws ResponseStatusException 409 si todavía no terminó o no terminó bien
+     */
+    public OptimizeResponse getResultOrThrow(String jobId) {
+        OptimizationJob job = getOrThrow(jobId);
+        return switch (job.getState()) {
+            case SUCCEEDED -> job.getResult();
+            case FAILED -> throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "El job falló: " + job.getError());
+            case CANCELLED -> throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "El job fue cancelado");
+            default -> throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "El job todavía no terminó (" + job.getState() + ")");
+        };
+    }
+
+    /**
+     * Pide cancelar. Un job en cola queda CANCELLED al instante y se saca de
+     * la cola; uno que ya corre sigue RUNNING hasta que el planner ve el
+     * pedido y run() lo termina.
+     */
+    public OptimizationJob cancel(String jobId) {
+        OptimizationJob job = getOrThrow(jobId);
+        if (job.getState().isFinished()) return job;
+
+        job.requestCancel();
+        if (job.cancelIfQueued()) {
+            Future<?> future = job.getFuture();
+            if (future instanceof Runnable task) {
+                pool.remove(task); // libera el lugar en la cola
+            }
+        }
+        return job;
+    }
+
+    /** Olvida los jobs terminados hace más de jobRetention. */
+    @Scheduled(fixedDelayString = "${optimization.cache.sweep-interval:PT5M}")
+    public void sweepFinished() {
+        Instant cutoff = Instant.now().minus(props.getJobRetention());
+        jobs.values().removeIf(job ->
+                job.getState().isFinished()
+                        && job.getFinishedAt() != null
+                        && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // ---------------- helpers -----------------
+
+    private void run(OptimizationJob job, OptimizeRequest request) {
+        job.awaitQueuedNotified();
+        if (!job.markRunning()) {
+            return; // se canceló mientras esperaba en la cola
+        }
+        if (job.isCancelRequested()) {
+            job.markCancelled();
+            return;
+        }
+        try {
+            job.markSucceeded(runMasterPlanUseCase.execute(request, job));
+        } catch (PlanningCancelledException e) {
+            job.markCancelled();
+        } catch (ResponseStatusException e) {
+            job.markFailed(e.getReason());
+        } catch (RuntimeException e) {
+            System.err.println("❌ Job " + job.getId() + " falló: " + e);
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
 }
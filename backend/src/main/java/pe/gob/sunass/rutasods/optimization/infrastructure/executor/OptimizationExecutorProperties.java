@@ -0,0 +1,22 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.executor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "optimization.executor")
+public class OptimizationExecutorProperties {
+
+    // Optimizaciones corriendo a la vez (cada una puede usar además el ForkJoinPool)
+    private int maxConcurrentJobs = 2;
+
+    // Jobs esperando turno; con la cola llena el submit responde 503
+    private int queueCapacity = 16;
+
+    // Un job terminado se olvida después de este tiempo (la sesión sigue en el cache)
+    private Duration jobRetention = Duration.ofHours(1);
+}
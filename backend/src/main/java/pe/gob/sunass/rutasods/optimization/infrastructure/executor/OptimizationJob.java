@@ -0,0 +1,247 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.executor;
+
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeResponse;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Una optimización enviada a {@link OptimizationExecutor}. El hilo del job
+ * actualiza el avance a través de {@link PlanningMonitor}; los demás hilos
+ * solo leen (campos volatile), salvo {@link #requestCancel()} y
+ * {@link #cancelIfQueued()}.
+ *
+ * Los cambios de estado son compare-and-set: QUEUED pasa a RUNNING (el hilo
+ * del job) o a CANCELLED (quien cancela), nunca a los dos; una vez que
+ * corre, solo el hilo del job lo termina. Un estado final no cambia más y
+ * onFinished se avisa una sola vez.
+ */
+public class OptimizationJob implements PlanningMonitor {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /** Etapa dentro de RUNNING. */
+    public enum Phase {
+        MATRIX, PLANNING
+    }
+
+    private final String id;
+    private final Instant submittedAt;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private volatile Phase phase;
+    private volatile boolean cancelRequested;
+
+    private volatile int totalPoints;
+    private volatile int remainingPoints;
+    private volatile int routesCompleted;
+
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    private volatile OptimizeResponse result;
+    private volatile String error;
+
+    private volatile Future<?> future;
+
+    // Se abre cuando submit ya avisó onQueued
+    private final CountDownLatch queuedNotified = new CountDownLatch(1);
+
+    private final OptimizationJobListener listener;
+
+    OptimizationJob(String id, OptimizationJobListener listener) {
+        this.id = id;
+        this.submittedAt = Instant.now();
+        this.listener = listener != null ? listener : OptimizationJobListener.NONE;
+    }
+
+    // ---------------- PlanningMonitor -----------------
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    @Override
+    public void onPlanningStarted(int totalPoints) {
+        this.totalPoints = totalPoints;
+        this.remainingPoints = totalPoints;
+        this.phase = Phase.PLANNING;
+        notify(() -> listener.onPlanningStarted(this));
+    }
+
+    @Override
+    public void onRouteCompleted(RouteSegment route, int remainingPoints) {
+        this.remainingPoints = remainingPoints;
+        this.routesCompleted++; // solo lo escribe el hilo del job
+        notify(() -> listener.onRouteCompleted(this, route));
+    }
+
+    // ---------------- transiciones (OptimizationExecutor) -----------------
+
+    /** @return false si el job ya no estaba en cola (se canceló antes de correr) */
+    boolean markRunning() {
+        if (!state.compareAndSet(State.QUEUED, State.RUNNING)) {
+            return false;
+        }
+        startedAt = Instant.now();
+        phase = Phase.MATRIX;
+        return true;
+    }
+
+    void markSucceeded(OptimizeResponse response) {
+        result = response;
+        remainingPoints = 0;
+        finish(State.SUCCEEDED);
+    }
+
+    void markFailed(String message) {
+        error = message;
+        finish(State.FAILED);
+    }
+
+    void markCancelled() {
+        finish(State.CANCELLED);
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    /**
+     * Cancela el job si todavía no empezó a correr.
+     *
+     * @return false si ya estaba corriendo o terminado (en ese caso lo
+     *         termina su hilo, al ver {@link #isCancelled()})
+     */
+    boolean cancelIfQueued() {
+        if (!state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+            return false;
+        }
+        finished();
+        return true;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    void notifyQueued() {
+        try {
+            notify(() -> listener.onQueued(this));
+        } finally {
+            queuedNotified.countDown();
+        }
+    }
+
+    /**
+     * Espera a que submit avise onQueued (el hilo del job puede arrancar
+     * antes). Si se interrumpe sigue igual, con la marca de interrupción.
+     */
+    void awaitQueuedNotified() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queuedNotified.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /** Pasa al estado final salvo que ya esté en uno (idempotente). */
+    private void finish(State finalState) {
+        State current;
+        do {
+            current = state.get();
+            if (current.isFinished()) return;
+        } while (!state.compareAndSet(current, finalState));
+        finished();
+    }
+
+    private void finished() {
+        finishedAt = Instant.now();
+        notify(() -> listener.onFinished(this));
+    }
+
+    private void notify(Runnable event) {
+        try {
+            event.run();
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Listener del job " + id + " falló: " + e);
+        }
+    }
+
+    // ---------------- lectura -----------------
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public int getTotalPoints() {
+        return totalPoints;
+    }
+
+    public int getRemainingPoints() {
+        return remainingPoints;
+    }
+
+    public int getRoutesCompleted() {
+        return routesCompleted;
+    }
+
+    /** Fracción de puntos ya asignados a una ruta (0 mientras se calcula la matriz). */
+    public double getProgress() {
+        if (state.get() == State.SUCCEEDED) return 1.0;
+        int total = totalPoints;
+        return total > 0 ? (double) (total - remainingPoints) / total : 0.0;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public OptimizeResponse getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
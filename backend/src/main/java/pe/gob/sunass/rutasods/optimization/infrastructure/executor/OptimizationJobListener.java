@@ -0,0 +1,32 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.executor;
+
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+/**
+ * Eventos de un {@link OptimizationJob}, en el orden en que ocurren. Salvo
+ * {@link #onQueued} y el {@link #onFinished} de un job cancelado en cola
+ * (hilo de quien cancela), se llaman desde el hilo del job; una excepción
+ * del listener se registra y no afecta a la optimización.
+ */
+public interface OptimizationJobListener {
+
+    OptimizationJobListener NONE = new OptimizationJobListener() {};
+
+    /**
+     * El job pasó la validación y ya está en la cola (todavía en el hilo del
+     * submit). Un pedido inválido o rechazado por cola llena no avisa nada.
+     */
+    default void onQueued(OptimizationJob job) {
+    }
+
+    default void onPlanningStarted(OptimizationJob job) {
+    }
+
+    /** Ruta confirmada; el avance del job ya está actualizado. */
+    default void onRouteCompleted(OptimizationJob job, RouteSegment route) {
+    }
+
+    /** SUCCEEDED, FAILED o CANCELLED; se llama una sola vez por job. */
+    default void onFinished(OptimizationJob job) {
+    }
+}
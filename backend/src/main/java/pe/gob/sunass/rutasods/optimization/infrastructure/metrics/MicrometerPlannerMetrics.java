@@ -0,0 +1,107 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import pe.gob.sunass.rutasods.optimization.domain.model.ImprovementReport;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerMetrics;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas del planner en Micrometer (expuestas en /actuator/prometheus):
+ *  - rutasods.planner.candidates.evaluated / .pruned: por iteración greedy
+ *  - rutasods.planner.simulations: simulaciones de itinerario (rate() = por segundo)
+ *  - rutasods.planner.memo: clusters consultados en el memo de rechazados, por
+ *    resultado (hit = no se buscó); hit rate = hit / (hit + miss)
+ *  - rutasods.planner.duration: planRoutes completo, por tamaño de instancia
+ *  - rutasods.planner.improvement.savings / .moves: fase de mejora, por corrida
+ */
+@Component
+public class MicrometerPlannerMetrics implements PlannerMetrics {
+
+    // Tramos de cantidad de puntos: el tag no puede ser el número exacto
+    private static final int[] POINT_BUCKETS = {50, 100, 200, 500};
+
+    private final MeterRegistry registry;
+
+    private final DistributionSummary evaluated;
+    private final DistributionSummary pruned;
+    private final Counter simulations;
+    private final Counter memoHits;
+    private final Counter memoMisses;
+    private final DistributionSummary improvementSavings;
+    private final Counter improvementMoves;
+
+    public MicrometerPlannerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        this.evaluated = DistributionSummary.builder("rutasods.planner.candidates.evaluated")
+                .description("Recorridos completos evaluados por iteración greedy")
+                .register(registry);
+        this.pruned = DistributionSummary.builder("rutasods.planner.candidates.pruned")
+                .description("Prefijos descartados por cota por iteración greedy")
+                .register(registry);
+        this.simulations = Counter.builder("rutasods.planner.simulations")
+                .description("Simulaciones de itinerario completas")
+                .register(registry);
+        this.memoHits = memoCounter(registry, "hit");
+        this.memoMisses = memoCounter(registry, "miss");
+        this.improvementSavings = DistributionSummary.builder("rutasods.planner.improvement.savings")
+                .description("Ahorro de la fase de mejora sobre el plan greedy, por corrida")
+                .register(registry);
+        this.improvementMoves = Counter.builder("rutasods.planner.improvement.moves")
+                .description("Movimientos aplicados por la fase de mejora")
+                .register(registry);
+    }
+
+    @Override
+    public void onSearchCompleted(long evaluatedCount, long prunedCount) {
+        evaluated.record(evaluatedCount);
+        pruned.record(prunedCount);
+        // cada recorrido evaluado es exactamente una simulación (score / complete)
+        simulations.increment(evaluatedCount);
+    }
+
+    @Override
+    public void onSearchCompleted(long evaluatedCount, long prunedCount, long hits, long misses) {
+        onSearchCompleted(evaluatedCount, prunedCount);
+        memoHits.increment(hits);
+        memoMisses.increment(misses);
+    }
+
+    @Override
+    public void onImprovementFinished(ImprovementReport report) {
+        improvementSavings.record(report.getImprovement());
+        improvementMoves.increment(report.getMovesApplied());
+    }
+
+    @Override
+    public void onPlanningFinished(int points, PlannerOptions options, long elapsedNanos) {
+        Timer.builder("rutasods.planner.duration")
+                .description("Tiempo de pared de planRoutes")
+                .tag("points", pointBucket(points))
+                .tag("ordering", options.getOrdering().name())
+                .tag("mode", options.getSearchMode().name())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Counter memoCounter(MeterRegistry registry, String result) {
+        return Counter.builder("rutasods.planner.memo")
+                .description("Clusters consultados en el memo de rechazados del run")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    static String pointBucket(int points) {
+        for (int limit : POINT_BUCKETS) {
+            if (points <= limit) return "<=" + limit;
+        }
+        return ">" + POINT_BUCKETS[POINT_BUCKETS.length - 1];
+    }
+}
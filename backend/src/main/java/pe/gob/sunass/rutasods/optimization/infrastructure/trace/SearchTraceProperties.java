@@ -0,0 +1,21 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.trace;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "optimization.trace")
+public class SearchTraceProperties {
+
+    // Nivel por defecto; un request puede pedir otro con traceLevel
+    private SearchTrace.Level level = SearchTrace.Level.OFF;
+
+    // Entradas por sesión (buffer circular: se pisan las más viejas)
+    private int capacity = 2000;
+
+    // Sesiones con traza que se conservan en memoria (LRU)
+    private int maxSessions = 32;
+}
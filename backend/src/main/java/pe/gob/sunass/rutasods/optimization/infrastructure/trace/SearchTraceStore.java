@@ -0,0 +1,68 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.trace;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trazas de búsqueda de las últimas sesiones, solo en memoria. Son para
+ * depurar, así que no se copian a disco como los snapshots: al reiniciar o
+ * al pasar de maxSessions se pierden las más viejas.
+ */
+@Component
+public class SearchTraceStore {
+
+    /** Traza de una sesión con los nombres de sus puntos (índice 0 = ODS). */
+    public record StoredTrace(SearchTrace trace, List<String> pointNames) {}
+
+    private final SearchTraceProperties props;
+    private final Map<String, StoredTrace> traces;
+
+    public SearchTraceStore(SearchTraceProperties props) {
+        this.props = props;
+        this.traces = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredTrace> eldest) {
+                return size() > Math.max(1, props.getMaxSessions());
+            }
+        };
+    }
+
+    /**
+     * Traza nueva para una corrida: el nivel pedido en el request o, si es
+     * null, el de la configuración.
+     */
+    public SearchTrace newTrace(SearchTrace.Level requested) {
+        SearchTrace.Level level = requested != null ? requested : props.getLevel();
+        return level == SearchTrace.Level.OFF
+                ? SearchTrace.OFF
+                : new SearchTrace(level, props.getCapacity());
+    }
+
+    /** Las trazas apagadas no se guardan. */
+    public void save(String sessionId, SearchTrace trace, List<String> pointNames) {
+        if (trace.getLevel() == SearchTrace.Level.OFF) return;
+        synchronized (traces) {
+            traces.put(sessionId, new StoredTrace(trace, pointNames));
+        }
+    }
+
+    /** 404 si la sesión no tuvo traza o ya se descartó. */
+    public StoredTrace getOrThrow(String sessionId) {
+        StoredTrace stored;
+        synchronized (traces) {
+            stored = traces.get(sessionId);
+        }
+        if (stored == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "No hay traza para la sesión " + sessionId
+                            + " (traza apagada o descartada)");
+        }
+        return stored;
+    }
+}
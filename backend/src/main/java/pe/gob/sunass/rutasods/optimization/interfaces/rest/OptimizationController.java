@@ -1,30 +1,81 @@
 package pe.gob.sunass.rutasods.optimization.interfaces.rest;
 
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import pe.gob.sunass.rutasods.optimization.application.internal.RunMasterPlanUseCase;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheService;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationSnapshot;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationExecutor;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationJob;
+import pe.gob.sunass.rutasods.optimization.infrastructure.trace.SearchTraceStore;
 import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.*;
 
 @RestController
 @RequestMapping("/api/optimize")
 public class OptimizationController {
 
+    // Tope del stream SSE; al vencer se cancela el job
+    private static final long STREAM_TIMEOUT_MS = 30L * 60 * 1000;
+
     private final RunMasterPlanUseCase runMasterPlanUseCase;
     private final OptimizationCacheService cacheService;
+    private final OptimizationExecutor optimizationExecutor;
+    private final SearchTraceStore traceStore;
 
-    public OptimizationController(RunMasterPlanUseCase runMasterPlanUseCase, OptimizationCacheService cacheService) {
+    public OptimizationController(
+            RunMasterPlanUseCase runMasterPlanUseCase,
+            OptimizationCacheService cacheService,
+            OptimizationExecutor optimizationExecutor,
+            SearchTraceStore traceStore) {
         this.runMasterPlanUseCase = runMasterPlanUseCase;
         this.cacheService = cacheService;
+        this.optimizationExecutor = optimizationExecutor;
+        this.traceStore = traceStore;
     }
 
+    /** Síncrono: ocupa el hilo hasta terminar. Para planes chicos. */
     @PostMapping
     public OptimizeResponse optimize(@Valid @RequestBody OptimizeRequest request) {
-        System.out.println("REQUEST POINTS = " + request.getPoints());
         return runMasterPlanUseCase.execute(request);
     }
 
+    /** Asíncrono: encola la optimización y responde 202 con el id del job. */
+    @PostMapping("/jobs")
+    public ResponseEntity<OptimizationJobDto> submitJob(@Valid @RequestBody OptimizeRequest request) {
+        OptimizationJob job = optimizationExecutor.submit(request);
+        return ResponseEntity.accepted().body(OptimizationJobDto.fromJob(job));
+    }
+
+    /**
+     * Asíncrono con avance en vivo (SSE): cada ruta se publica apenas el
+     * planner la confirma, ver {@link OptimizationStreamListener}.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@Valid @RequestBody OptimizeRequest request) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        optimizationExecutor.submit(request, new OptimizationStreamListener(emitter, optimizationExecutor));
+        return emitter;
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public OptimizationJobDto getJob(@PathVariable String jobId) {
+        return OptimizationJobDto.fromJob(optimizationExecutor.getOrThrow(jobId));
+    }
+
+    /** 409 mientras el job no haya terminado bien. */
+    @GetMapping("/jobs/{jobId}/result")
+    public OptimizeResponse getJobResult(@PathVariable String jobId) {
+        return optimizationExecutor.getResultOrThrow(jobId);
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public OptimizationJobDto cancelJob(@PathVariable String jobId) {
+        return OptimizationJobDto.fromJob(optimizationExecutor.cancel(jobId));
+    }
+
     @GetMapping("/{sessionId}/matrix")
     public MatrixDto getMatrix(@PathVariable String sessionId) {
         OptimizationSnapshot snapshot = cacheService.getOrThrow(sessionId);
@@ -35,4 +86,13 @@ public class OptimizationController {
                 snapshot.matrixNames()
         );
     }
+
+    /**
+     * Decisiones de la búsqueda de la sesión (semillas, mejores candidatos,
+     * rutas). 404 si la corrida fue sin traza; ver traceLevel en el request.
+     */
+    @GetMapping("/{sessionId}/trace")
+    public SearchTraceDto getTrace(@PathVariable String sessionId) {
+        return SearchTraceDto.from(sessionId, traceStore.getOrThrow(sessionId));
+    }
 }
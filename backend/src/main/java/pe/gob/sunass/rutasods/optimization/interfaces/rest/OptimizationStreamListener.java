@@ -0,0 +1,113 @@
+package pe.gob.sunass.rutasods.optimization.interfaces.rest;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationExecutor;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationJob;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationJobListener;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizationJobDto;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.RouteSegmentDto;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.RouteStreamEventDto;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Publica por SSE el avance de un job de optimización:
+ *  - job:      el job recién encolado (id para cancelar o consultar);
+ *  - planning: la matriz está lista y empieza el greedy (totalPoints);
+ *  - route:    cada ruta confirmada con los totales acumulados;
+ *  - complete: el OptimizeResponse final (con sessionId);
+ *  - failed / cancelled: fin sin resultado.
+ * Si el cliente se desconecta el job se cancela.
+ */
+class OptimizationStreamListener implements OptimizationJobListener {
+
+    private final SseEmitter emitter;
+    private final OptimizationExecutor executor;
+
+    // Acumulados: solo los toca el hilo del job
+    private double totalSystemCost;
+    private double totalDistance;
+    private int totalNights;
+    private int totalDays;
+
+    private volatile String jobId;
+    private volatile boolean closed;
+
+    OptimizationStreamListener(SseEmitter emitter, OptimizationExecutor executor) {
+        this.emitter = emitter;
+        this.executor = executor;
+
+        emitter.onCompletion(this::clientGone);
+        emitter.onTimeout(this::clientGone);
+        emitter.onError(e -> clientGone());
+    }
+
+    @Override
+    public void onQueued(OptimizationJob job) {
+        jobId = job.getId();
+        send("job", OptimizationJobDto.fromJob(job));
+    }
+
+    @Override
+    public void onPlanningStarted(OptimizationJob job) {
+        send("planning", Map.of("totalPoints", job.getTotalPoints()));
+    }
+
+    @Override
+    public void onRouteCompleted(OptimizationJob job, RouteSegment route) {
+        totalSystemCost += route.getTotalCost();
+        totalDistance += route.getDistance();
+        totalNights += route.getNights();
+        totalDays += route.getDays();
+
+        RouteStreamEventDto event = new RouteStreamEventDto();
+        event.setRoute(RouteSegmentDto.fromDomain(route));
+        event.setRoutesCompleted(job.getRoutesCompleted());
+        event.setRemainingPoints(job.getRemainingPoints());
+        event.setTotalPoints(job.getTotalPoints());
+        event.setProgress(job.getProgress());
+        event.setTotalSystemCost(totalSystemCost);
+        event.setTotalDistance(totalDistance);
+        event.setTotalNights(totalNights);
+        event.setTotalDays(totalDays);
+        send("route", event);
+    }
+
+    @Override
+    public void onFinished(OptimizationJob job) {
+        switch (job.getState()) {
+            case SUCCEEDED -> send("complete", job.getResult());
+            case CANCELLED -> send("cancelled", OptimizationJobDto.fromJob(job));
+            default -> send("failed", OptimizationJobDto.fromJob(job));
+        }
+        closed = true;
+        emitter.complete();
+    }
+
+    // ---------------- helpers -----------------
+
+    private void send(String name, Object data) {
+        if (closed) return;
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // el cliente cerró la conexión
+            clientGone();
+        }
+    }
+
+    private void clientGone() {
+        if (closed) return;
+        closed = true;
+        String id = jobId;
+        if (id != null) {
+            try {
+                executor.cancel(id);
+            } catch (RuntimeException ignored) {
+                // el job ya no existe
+            }
+        }
+    }
+}
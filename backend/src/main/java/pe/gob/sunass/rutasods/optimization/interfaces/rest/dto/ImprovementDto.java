@@ -0,0 +1,46 @@
+package pe.gob.sunass.rutasods.optimization.interfaces.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import pe.gob.sunass.rutasods.optimization.domain.model.ImprovementReport;
+
+/** Resultado de la fase de mejora (constraints.improvementBudgetMs > 0). */
+@Getter
+@Setter
+public class ImprovementDto {
+
+    private long budgetMs;
+    private long elapsedMs;
+
+    // costo de las rutas válidas antes y después de mejorar
+    private double initialCost;
+    private double finalCost;
+    private double improvement;
+
+    private int routesBefore;
+    private int routesAfter;
+
+    private long movesApplied;
+    private long perturbations;
+    private int workers;
+
+    public static ImprovementDto fromDomain(
+            ImprovementReport r) {
+
+        ImprovementDto dto =
+                new ImprovementDto();
+
+        dto.setBudgetMs(r.getBudgetMillis());
+        dto.setElapsedMs(r.getElapsedMillis());
+        dto.setInitialCost(r.getInitialCost());
+        dto.setFinalCost(r.getFinalCost());
+        dto.setImprovement(r.getImprovement());
+        dto.setRoutesBefore(r.getRoutesBefore());
+        dto.setRoutesAfter(r.getRoutesAfter());
+        dto.setMovesApplied(r.getMovesApplied());
+        dto.setPerturbations(r.getPerturbations());
+        dto.setWorkers(r.getWorkers());
+
+        return dto;
+    }
+}
@@ -1,19 +1,26 @@
 package pe.gob.sunass.rutasods.optimization.interfaces.rest.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+import pe.gob.sunass.rutasods.shared.interfaces.rest.TravelMatrixSerializer;
+
 import java.util.List;
 
 
 public class MatrixDto {
 
-    private double[][] distances;
-    private double[][] durations;
+    // Se serializan como double[][]; pueden venir mapeadas desde disco
+    @JsonSerialize(using = TravelMatrixSerializer.class)
+    private TravelMatrix distances;
+    @JsonSerialize(using = TravelMatrixSerializer.class)
+    private TravelMatrix durations;
     private List<String> labels;
 
     public MatrixDto() {}
 
     public MatrixDto(
-            double[][] distances,
-            double[][] durations,
+            TravelMatrix distances,
+            TravelMatrix durations,
             List<String> labels
     ) {
         this.distances = distances;
@@ -21,19 +28,19 @@ public class MatrixDto {
         this.labels = labels;
     }
 
-    public double[][] getDistances() {
+    public TravelMatrix getDistances() {
         return distances;
     }
 
-    public void setDistances(double[][] distances) {
+    public void setDistances(TravelMatrix distances) {
         this.distances = distances;
     }
 
-    public double[][] getDurations() {
+    public TravelMatrix getDurations() {
         return durations;
     }
 
-    public void setDurations(double[][] durations) {
+    public void setDurations(TravelMatrix durations) {
         this.durations = durations;
     }
 
@@ -45,4 +52,3 @@ public class MatrixDto {
         this.labels = labels;
     }
 }
-
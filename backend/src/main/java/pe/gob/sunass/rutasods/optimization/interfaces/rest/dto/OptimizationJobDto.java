@@ -0,0 +1,55 @@
+package pe.gob.sunass.rutasods.optimization.interfaces.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationJob;
+
+import java.time.Instant;
+
+/** Estado de un job de optimización asíncrono (sin las rutas, ver /result). */
+@Getter
+@Setter
+public class OptimizationJobDto {
+
+    private String jobId;
+
+    // QUEUED | RUNNING | SUCCEEDED | FAILED | CANCELLED
+    private String state;
+
+    // MATRIX | PLANNING mientras corre
+    private String phase;
+
+    private boolean cancelRequested;
+
+    private int totalPoints;
+    private int remainingPoints;
+    private int routesCompleted;
+    private double progress;
+
+    // Sesión para /matrix y los reportes, cuando terminó bien
+    private String sessionId;
+
+    private String error;
+
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    public static OptimizationJobDto fromJob(OptimizationJob job) {
+        OptimizationJobDto dto = new OptimizationJobDto();
+        dto.setJobId(job.getId());
+        dto.setState(job.getState().name());
+        dto.setPhase(job.getPhase() != null ? job.getPhase().name() : null);
+        dto.setCancelRequested(job.isCancelRequested());
+        dto.setTotalPoints(job.getTotalPoints());
+        dto.setRemainingPoints(job.getRemainingPoints());
+        dto.setRoutesCompleted(job.getRoutesCompleted());
+        dto.setProgress(job.getProgress());
+        dto.setSessionId(job.getResult() != null ? job.getResult().getSessionId() : null);
+        dto.setError(job.getError());
+        dto.setSubmittedAt(job.getSubmittedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+}
@@ -25,11 +25,17 @@ public class OptimizeRequest {
 
     private Double timeFactor;
 
+    private String matrixProvider;   // "OSRM", "HAVERSINE" o "AUTO" (por defecto, ver matrix.default-provider)
+
+    private String matrixMode;       // "DENSE", "SPARSE" o "AUTO" (por defecto: SPARSE desde matrix.sparse.min-points)
+
     private ConstraintsDto constraints;
 
     private Integer activityCount;   // 2 o 4
     private String activityOption;   // "A" o "B" (solo aplica cuando activityCount = 2)
 
+    private String traceLevel;       // "OFF", "ROUTES", "BEST" o "CANDIDATES"; null = optimization.trace.level
+
     // ✅ Clases internas con campos PÚBLICOS para compatibilidad con código existente
     @NoArgsConstructor
     @AllArgsConstructor
@@ -51,6 +57,9 @@ public class OptimizeRequest {
     public static class ConstraintsDto {
         public Integer maxRouteDays;
         public Integer searchPoolSize;
-        public Integer maxComboSize;
+        public Integer maxComboSize;     // hasta 12 (8 con ordering BRUTE_FORCE), acotado junto con searchPoolSize
+        public String searchMode;        // "SERIAL" (por defecto) o "PARALLEL"
+        public String ordering;          // "BRANCH_AND_BOUND" (por defecto), "BRUTE_FORCE" o "HELD_KARP"
+        public Integer improvementBudgetMs; // tiempo para mejorar el plan greedy; 0 (por defecto) = sin mejora
     }
 }
\ No newline at end of file
@@ -20,5 +20,11 @@ public class OptimizeResponse {
 
     private String sessionId;
 
+    // Proveedor que calculó la matriz (HAVERSINE = aproximada, p. ej. por caída de OSRM)
+    private String matrixProvider;
+
+    // Fase de mejora del plan greedy; null si no se pidió
+    private ImprovementDto improvement;
+
     // getters/setters
 }
@@ -0,0 +1,23 @@
+package pe.gob.sunass.rutasods.optimization.interfaces.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/** Evento "route" del stream SSE: la ruta recién confirmada y los acumulados. */
+@Getter
+@Setter
+public class RouteStreamEventDto {
+
+    private RouteSegmentDto route;
+
+    private int routesCompleted;
+    private int remainingPoints;
+    private int totalPoints;
+    private double progress;
+
+    // Totales de las rutas emitidas hasta ahora
+    private double totalSystemCost;
+    private double totalDistance;
+    private int totalNights;
+    private int totalDays;
+}
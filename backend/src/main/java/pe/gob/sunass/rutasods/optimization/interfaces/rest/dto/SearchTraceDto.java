@@ -0,0 +1,83 @@
+package pe.gob.sunass.rutasods.optimization.interfaces.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
+import pe.gob.sunass.rutasods.optimization.infrastructure.trace.SearchTraceStore;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Traza de búsqueda de una sesión (GET /api/optimize/{sessionId}/trace). */
+@Getter
+@Setter
+public class SearchTraceDto {
+
+    private String sessionId;
+
+    // ROUTES | BEST | CANDIDATES
+    private String level;
+
+    private int capacity;
+    private long recorded;
+    private long dropped;   // las más viejas, pisadas al llenarse el buffer
+
+    private List<EntryDto> entries;
+
+    @Getter
+    @Setter
+    public static class EntryDto {
+        private long sequence;
+
+        // SEED | CANDIDATE | BEST_UPDATE | ROUTE | FALLBACK_ROUTE
+        private String kind;
+
+        // SEED: [semilla, pool...]; el resto: recorrido desde la ODS (índice 0)
+        private int[] path;
+        private List<String> names;
+
+        // null cuando no aplica (p. ej. candidato rechazado por días)
+        private Double km;
+        private Integer days;
+        private Integer nights;
+        private Double cost;
+        private Double metric;
+        private boolean rejected;
+    }
+
+    public static SearchTraceDto from(String sessionId, SearchTraceStore.StoredTrace stored) {
+        SearchTrace trace = stored.trace();
+
+        SearchTraceDto dto = new SearchTraceDto();
+        dto.setSessionId(sessionId);
+        dto.setLevel(trace.getLevel().name());
+        dto.setCapacity(trace.getCapacity());
+        dto.setRecorded(trace.getRecordedCount());
+        dto.setDropped(trace.getDroppedCount());
+        dto.setEntries(trace.entries().stream()
+                .map(e -> toEntry(e, stored.pointNames()))
+                .toList());
+        return dto;
+    }
+
+    private static EntryDto toEntry(SearchTrace.Entry e, List<String> names) {
+        EntryDto dto = new EntryDto();
+        dto.setSequence(e.sequence());
+        dto.setKind(e.kind().name());
+        dto.setPath(e.path());
+        dto.setNames(Arrays.stream(e.path())
+                .mapToObj(i -> i < names.size() ? names.get(i) : String.valueOf(i))
+                .toList());
+        dto.setKm(orNull(e.km()));
+        dto.setDays(e.days() >= 0 ? e.days() : null);
+        dto.setNights(e.nights() >= 0 ? e.nights() : null);
+        dto.setCost(orNull(e.cost()));
+        dto.setMetric(orNull(e.metric()));
+        dto.setRejected(e.kind() == SearchTrace.Kind.CANDIDATE && Double.isNaN(e.metric()));
+        return dto;
+    }
+
+    private static Double orNull(double v) {
+        return Double.isNaN(v) ? null : v;
+    }
+}
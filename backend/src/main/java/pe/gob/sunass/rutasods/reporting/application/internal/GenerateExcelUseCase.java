@@ -1,44 +1,73 @@
 package pe.gob.sunass.rutasods.reporting.application.internal;
 
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pe.gob.sunass.rutasods.reporting.infrastructure.excel.ExcelGenerator;
+import pe.gob.sunass.rutasods.reporting.infrastructure.cache.ReportArtifactCache;
+import pe.gob.sunass.rutasods.reporting.infrastructure.metrics.ReportMetrics;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheService;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationSnapshot;
 
+import java.io.IOException;
+
 @Service
 public class GenerateExcelUseCase {
 
     private final ExcelGenerator excelGenerator;
     private final OptimizationCacheService cacheService;
+    private final ReportMetrics reportMetrics;
+    private final ReportArtifactCache artifactCache;
 
     public GenerateExcelUseCase(
             ExcelGenerator excelGenerator,
-            OptimizationCacheService cacheService
+            OptimizationCacheService cacheService,
+            ReportMetrics reportMetrics,
+            ReportArtifactCache artifactCache
     ) {
         this.excelGenerator = excelGenerator;
         this.cacheService = cacheService;
+        this.reportMetrics = reportMetrics;
+        this.artifactCache = artifactCache;
     }
 
-    public byte[] generate(String sessionId) {
+    /**
+     * Devuelve el Excel guardado si ya se generó; si no, busca la sesión ahora
+     * (404 antes de empezar la respuesta) y lo prepara para escribirse directo
+     * en la respuesta HTTP.
+     */
+    public ReportDownload generate(String sessionId) {
+        ReportArtifactCache.Key key = key(sessionId);
+        ReportArtifactCache.Artifact cached = artifactCache.get(key);
+        if (cached != null) return ReportDownload.cached(cached);
 
+        // 404 si la sesión no existe o ya fue descartada del cache
         OptimizationSnapshot snapshot =
-                cacheService.get(sessionId);
-
-        if (snapshot == null) {
-            throw new IllegalStateException(
-                    "Optimization session expired or not found"
-            );
-        }
-
-        return excelGenerator.generatePlanMasterExcel(
-                snapshot.routes(),
-                snapshot.distanceMatrix(),
-                snapshot.matrixNames(),
-                snapshot.kmCost(),
-                snapshot.foodCost(),
-                snapshot.hotelCost(),
-                snapshot.pcDuration(),
-                snapshot.ocDuration()
-        );
+                cacheService.getOrThrow(sessionId);
+
+        return ReportDownload.rendering(artifactCache.capture(key, render(snapshot)));
+    }
+
+    /** Genera y guarda el Excel de una sesión recién guardada (ya corre en segundo plano). */
+    public void prerender(String sessionId, OptimizationSnapshot snapshot) throws IOException {
+        artifactCache.prerender(key(sessionId), render(snapshot));
+    }
+
+    private static ReportArtifactCache.Key key(String sessionId) {
+        return new ReportArtifactCache.Key(sessionId, "plan-maestro", "xlsx", ExcelGenerator.TEMPLATE_VERSION);
+    }
+
+    private StreamingResponseBody render(OptimizationSnapshot snapshot) {
+        return reportMetrics.record("plan-maestro", "xlsx", out ->
+                excelGenerator.writePlanMasterExcel(
+                        snapshot.routes(),
+                        snapshot.distanceMatrix(),
+                        snapshot.matrixNames(),
+                        snapshot.kmCost(),
+                        snapshot.foodCost(),
+                        snapshot.hotelCost(),
+                        snapshot.pcDuration(),
+                        snapshot.ocDuration(),
+                        out
+                ));
     }
-}
\ No newline at end of file
+}
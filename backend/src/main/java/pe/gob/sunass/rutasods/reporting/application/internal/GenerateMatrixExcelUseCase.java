@@ -1,38 +1,76 @@
 package pe.gob.sunass.rutasods.reporting.application.internal;
 
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pe.gob.sunass.rutasods.reporting.infrastructure.excel.MatrixExcelGenerator;
+import pe.gob.sunass.rutasods.reporting.infrastructure.cache.ReportArtifactCache;
+import pe.gob.sunass.rutasods.reporting.infrastructure.metrics.ReportMetrics;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheService;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationSnapshot;
+import pe.gob.sunass.rutasods.shared.domain.model.SparseTravelMatrix;
+
+import java.io.IOException;
 
 @Service
 public class GenerateMatrixExcelUseCase {
 
     private final MatrixExcelGenerator matrixExcelGenerator;
     private final OptimizationCacheService cacheService;
+    private final ReportMetrics reportMetrics;
+    private final ReportArtifactCache artifactCache;
 
     public GenerateMatrixExcelUseCase(
             MatrixExcelGenerator matrixExcelGenerator,
-            OptimizationCacheService cacheService
+            OptimizationCacheService cacheService,
+            ReportMetrics reportMetrics,
+            ReportArtifactCache artifactCache
     ) {
         this.matrixExcelGenerator = matrixExcelGenerator;
         this.cacheService = cacheService;
+        this.reportMetrics = reportMetrics;
+        this.artifactCache = artifactCache;
     }
 
     /**
-     * Genera el Excel de la matriz de distancias y tiempos desde la sesión cacheada
+     * Genera el Excel de la matriz de distancias y tiempos desde la sesión
+     * cacheada, o lo devuelve del cache de reportes si ya se generó
      * @param sessionId ID de la sesión de optimización
-     * @return Bytes del Excel generado
+     * @return Excel para escribirse directo en la respuesta (la sesión ya se
+     *         buscó: el 404 sale antes de empezar a escribir)
      */
-    public byte[] execute(String sessionId) {
+    public ReportDownload execute(String sessionId) {
+        ReportArtifactCache.Key key = key(sessionId);
+        ReportArtifactCache.Artifact cached = artifactCache.get(key);
+        if (cached != null) return ReportDownload.cached(cached);
+
         // Obtener snapshot desde el cache
         OptimizationSnapshot snapshot = cacheService.getOrThrow(sessionId);
 
-        // Generar Excel con la matriz
-        return matrixExcelGenerator.generateMatrixExcel(
-                snapshot.distanceMatrix(),
-                snapshot.durationMatrix(),
-                snapshot.matrixNames()
-        );
+        return ReportDownload.rendering(artifactCache.capture(key, render(snapshot)));
+    }
+
+    /**
+     * Genera y guarda el Excel de una sesión recién guardada (ya corre en
+     * segundo plano). Con matriz dispersa (planes de miles de puntos) el
+     * Excel sería N×N, casi todo estimado: ese solo se genera si se pide.
+     */
+    public void prerender(String sessionId, OptimizationSnapshot snapshot) throws IOException {
+        if (snapshot.distanceMatrix() instanceof SparseTravelMatrix) return;
+        artifactCache.prerender(key(sessionId), render(snapshot));
+    }
+
+    private static ReportArtifactCache.Key key(String sessionId) {
+        return new ReportArtifactCache.Key(sessionId, "matriz", "xlsx", MatrixExcelGenerator.TEMPLATE_VERSION);
+    }
+
+    private StreamingResponseBody render(OptimizationSnapshot snapshot) {
+        // Escribir Excel con la matriz
+        return reportMetrics.record("matriz", "xlsx", out ->
+                matrixExcelGenerator.writeMatrixExcel(
+                        snapshot.distanceMatrix(),
+                        snapshot.durationMatrix(),
+                        snapshot.matrixNames(),
+                        out
+                ));
     }
-}
\ No newline at end of file
+}
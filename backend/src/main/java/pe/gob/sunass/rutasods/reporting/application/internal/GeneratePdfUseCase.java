@@ -1,37 +1,77 @@
 package pe.gob.sunass.rutasods.reporting.application.internal;
 
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pe.gob.sunass.rutasods.reporting.infrastructure.cache.ReportArtifactCache;
+import pe.gob.sunass.rutasods.reporting.infrastructure.metrics.ReportMetrics;
 import pe.gob.sunass.rutasods.reporting.infrastructure.pdf.PdfGenerator;
+import pe.gob.sunass.rutasods.reporting.infrastructure.pdf.PdfRenderContext;
+import pe.gob.sunass.rutasods.reporting.infrastructure.pdf.PdfRenderExecutor;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheService;
 import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationSnapshot;
 import pe.gob.sunass.rutasods.shared.domain.model.MasterPlanResult;
 
+import java.io.IOException;
+
 @Service
 public class GeneratePdfUseCase {
 
     private final PdfGenerator pdfGenerator;
     private final OptimizationCacheService cacheService;
+    private final ReportMetrics reportMetrics;
+    private final PdfRenderExecutor renderExecutor;
+    private final ReportArtifactCache artifactCache;
 
-    public GeneratePdfUseCase(PdfGenerator pdfGenerator, OptimizationCacheService cacheService) {
+    public GeneratePdfUseCase(
+            PdfGenerator pdfGenerator,
+            OptimizationCacheService cacheService,
+            ReportMetrics reportMetrics,
+            PdfRenderExecutor renderExecutor,
+            ReportArtifactCache artifactCache
+    ) {
         this.pdfGenerator = pdfGenerator;
         this.cacheService = cacheService;
+        this.reportMetrics = reportMetrics;
+        this.renderExecutor = renderExecutor;
+        this.artifactCache = artifactCache;
     }
 
     /**
-     * Genera el PDF del plan maestro desde la sesión cacheada
+     * Prepara el PDF del plan maestro desde la sesión cacheada. Si ya se
+     * generó antes sale del cache de reportes, sin tocar la sesión ni el pool.
+     * Si no, la sesión se busca acá (404 antes de empezar la respuesta) y el
+     * documento se arma en el pool de render al escribir la respuesta.
      * @param sessionId ID de la sesión de optimización
-     * @return Bytes del PDF generado
+     * @return PDF listo para escribirse en la respuesta
      */
-    public byte[] execute(String sessionId) {
+    public ReportDownload execute(String sessionId) {
+        ReportArtifactCache.Key key = key(sessionId);
+        ReportArtifactCache.Artifact cached = artifactCache.get(key);
+        if (cached != null) return ReportDownload.cached(cached);
+
         // Obtener snapshot desde el cache
         OptimizationSnapshot snapshot = cacheService.getOrThrow(sessionId);
 
+        // Si el pre-render está en curso capture lo espera, sin ocupar el pool
+        StreamingResponseBody body = renderExecutor.bounded(render(snapshot));
+        return ReportDownload.rendering(artifactCache.capture(key, body));
+    }
+
+    /** Genera y guarda el PDF de una sesión recién guardada (ya corre en segundo plano). */
+    public void prerender(String sessionId, OptimizationSnapshot snapshot) throws IOException {
+        artifactCache.prerender(key(sessionId), render(snapshot));
+    }
+
+    private static ReportArtifactCache.Key key(String sessionId) {
+        return new ReportArtifactCache.Key(sessionId, "plan-maestro", "pdf", PdfGenerator.TEMPLATE_VERSION);
+    }
+
+    private StreamingResponseBody render(OptimizationSnapshot snapshot) {
         // Construir MasterPlanResult desde el snapshot
         MasterPlanResult result = buildMasterPlanResult(snapshot);
 
         // 🔥 GENERAR PDF CON CONFIGURACIÓN (incluyendo timeFactor)
-        return pdfGenerator.generateMasterPlanPdf(
-                result,
+        PdfRenderContext ctx = new PdfRenderContext(
                 snapshot.kmCost(),
                 snapshot.foodCost(),
                 snapshot.hotelCost(),
@@ -39,6 +79,10 @@ public class GeneratePdfUseCase {
                 snapshot.ocDuration(),
                 snapshot.timeFactor()
         );
+
+        // la métrica mide el render, no la espera en la cola
+        return reportMetrics.record("plan-maestro", "pdf",
+                out -> pdfGenerator.writeMasterPlanPdf(result, ctx, out));
     }
 
     /**
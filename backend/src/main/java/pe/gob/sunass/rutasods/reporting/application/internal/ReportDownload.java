@@ -0,0 +1,37 @@
+package pe.gob.sunass.rutasods.reporting.application.internal;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pe.gob.sunass.rutasods.reporting.infrastructure.cache.ReportArtifactCache;
+
+/**
+ * Reporte listo para la respuesta. Si salió del cache trae su ETag y su
+ * tamaño; si se va a generar no hay ninguno de los dos (etag null,
+ * contentLength -1) y el archivo queda guardado para la próxima descarga.
+ */
+public record ReportDownload(StreamingResponseBody body, String etag, long contentLength) {
+
+    static ReportDownload cached(ReportArtifactCache.Artifact artifact) {
+        byte[] content = artifact.content();
+        return new ReportDownload(out -> out.write(content), artifact.etag(), content.length);
+    }
+
+    static ReportDownload rendering(StreamingResponseBody body) {
+        return new ReportDownload(body, null, -1);
+    }
+
+    /**
+     * Si la cabecera If-None-Match ya incluye este archivo. Se compara como
+     * pide la RFC 9110 para If-None-Match: ignorando el prefijo W/.
+     */
+    public boolean isNotModified(String ifNoneMatch) {
+        if (etag == null || ifNoneMatch == null) return false;
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+}
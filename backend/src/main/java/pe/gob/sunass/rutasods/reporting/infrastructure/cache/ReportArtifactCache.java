@@ -0,0 +1,251 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reportes ya generados, por sesión, reporte, formato y versión de plantilla,
+ * con un presupuesto de bytes (LRU). Una sesión no cambia después de
+ * guardarse, así que el archivo de una clave sirve mientras no cambie la
+ * plantilla; por eso la versión va en la clave.
+ *
+ * Una clave se genera una sola vez a la vez: quien llega mientras otro la
+ * está generando (una descarga o el pre-render) espera ese resultado en vez
+ * de empezar otro.
+ *
+ * El ETag es fuerte: el SHA-256 del contenido guardado. Un archivo que se
+ * vuelve a generar tras salir del cache puede diferir en bytes (fecha de
+ * creación del PDF/XLSX) y entonces lleva otro ETag.
+ */
+@Component
+public class ReportArtifactCache {
+
+    /** @param templateVersion versión del generador (ver TEMPLATE_VERSION de cada uno) */
+    public record Key(String sessionId, String report, String format, int templateVersion) {}
+
+    /** @param etag entre comillas, listo para la cabecera */
+    public record Artifact(byte[] content, String etag) {}
+
+    private final ReportCacheProperties props;
+    private final MeterRegistry registry;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<Key, Artifact> cache =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    // Renders en curso; se completan con el archivo, o con null si no se guardó
+    private final Map<Key, CompletableFuture<Artifact>> inFlight = new ConcurrentHashMap<>();
+
+    public ReportArtifactCache(ReportCacheProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.registry = registry;
+        Gauge.builder("rutasods.report.cache.bytes", this, ReportArtifactCache::bytes)
+                .description("Bytes de reportes guardados")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /** @return el archivo guardado o null */
+    public Artifact get(Key key) {
+        return props.isEnabled() ? get(key, true) : null;
+    }
+
+    /**
+     * Envuelve body para que, además de escribir la respuesta, guarde una
+     * copia del archivo si termina bien y no supera maxArtifactBytes. Si al
+     * empezar a escribir ya hay un render de la misma clave en curso, espera
+     * ese y escribe su archivo; body solo corre si aquel no llegó a guardarse.
+     */
+    public StreamingResponseBody capture(Key key, StreamingResponseBody body) {
+        if (!props.isEnabled()) return body;
+
+        return out -> {
+            CompletableFuture<Artifact> mine = new CompletableFuture<>();
+            CompletableFuture<Artifact> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                Artifact artifact = await(running);
+                if (artifact != null) {
+                    out.write(artifact.content());
+                } else {
+                    body.writeTo(out);
+                }
+                return;
+            }
+            Artifact stored = releaseIfStored(key, mine);
+            if (stored != null) {
+                out.write(stored.content());
+                return;
+            }
+            renderAndStore(key, body, out, mine);
+        };
+    }
+
+    /**
+     * Genera y guarda el archivo sin respuesta de por medio (pre-render), salvo
+     * que ya esté guardado o generándose.
+     */
+    public void prerender(Key key, StreamingResponseBody body) throws IOException {
+        if (!props.isEnabled()) return;
+
+        CompletableFuture<Artifact> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, mine) != null) return;
+        if (releaseIfStored(key, mine) != null) return;
+        renderAndStore(key, body, OutputStream.nullOutputStream(), mine);
+    }
+
+    public long bytes() {
+        synchronized (cache) {
+            return totalBytes;
+        }
+    }
+
+    // ---------------- helpers -----------------
+
+    private Artifact get(Key key, boolean count) {
+        Artifact artifact;
+        synchronized (cache) {
+            artifact = cache.get(key);
+        }
+        if (count) lookups(key, artifact != null ? "hit" : "miss").increment();
+        return artifact;
+    }
+
+    /**
+     * Con la clave ya tomada: si otro render la guardó entre la consulta y la
+     * toma, la suelta y devuelve ese archivo.
+     */
+    private Artifact releaseIfStored(Key key, CompletableFuture<Artifact> mine) {
+        Artifact stored = get(key, false);
+        if (stored != null) {
+            inFlight.remove(key, mine);
+            mine.complete(stored);
+        }
+        return stored;
+    }
+
+    private void renderAndStore(
+            Key key,
+            StreamingResponseBody body,
+            OutputStream out,
+            CompletableFuture<Artifact> mine
+    ) throws IOException {
+        Artifact artifact = null;
+        try {
+            CapturingOutputStream capturing = new CapturingOutputStream(out, props.getMaxArtifactBytes());
+            body.writeTo(capturing);
+            byte[] content = capturing.content();
+            if (content != null) {
+                artifact = new Artifact(content, etag(content));
+                put(key, artifact);
+            }
+        } finally {
+            // primero fuera del mapa: quien llegue después ya lo encuentra guardado
+            inFlight.remove(key, mine);
+            mine.complete(artifact);
+        }
+    }
+
+    private static Artifact await(CompletableFuture<Artifact> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Espera del reporte interrumpida");
+        } catch (ExecutionException e) {
+            // renderAndStore nunca completa con excepción
+            return null;
+        }
+    }
+
+    private void put(Key key, Artifact artifact) {
+        synchronized (cache) {
+            Artifact previous = cache.put(key, artifact);
+            if (previous != null) {
+                totalBytes -= previous.content().length;
+            }
+            totalBytes += artifact.content().length;
+
+            Iterator<Map.Entry<Key, Artifact>> it = cache.entrySet().iterator();
+            while (totalBytes > props.getMaxBytes() && it.hasNext()) {
+                Map.Entry<Key, Artifact> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                it.remove();
+                totalBytes -= eldest.getValue().content().length;
+            }
+        }
+    }
+
+    private Counter lookups(Key key, String result) {
+        return Counter.builder("rutasods.report.cache")
+                .description("Consultas al cache de reportes generados")
+                .tag("report", key.report())
+                .tag("format", key.format())
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static String etag(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + HexFormat.of().formatHex(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /** Copia lo escrito hasta limit bytes; pasado el límite deja de copiar. */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (fits(1)) copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (fits(len)) copy.write(b, off, len);
+        }
+
+        private boolean fits(int len) {
+            if (copy != null && copy.size() + (long) len > limit) {
+                copy = null;
+            }
+            return copy != null;
+        }
+
+        /** @return lo escrito, o null si superó el límite */
+        byte[] content() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+    }
+}
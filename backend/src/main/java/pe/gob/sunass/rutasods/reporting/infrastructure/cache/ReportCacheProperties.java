@@ -0,0 +1,19 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "reporting.cache")
+public class ReportCacheProperties {
+
+    private boolean enabled = true;
+
+    // Presupuesto de memoria para todos los archivos guardados
+    private long maxBytes = 64L * 1024 * 1024;
+
+    // Un archivo más grande se entrega igual pero no se guarda
+    private long maxArtifactBytes = 8L * 1024 * 1024;
+}
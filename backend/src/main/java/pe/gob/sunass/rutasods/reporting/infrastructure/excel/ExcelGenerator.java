@@ -1,48 +1,61 @@
 package pe.gob.sunass.rutasods.reporting.infrastructure.excel;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
 import org.springframework.stereotype.Service;
 import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
 import pe.gob.sunass.rutasods.shared.domain.model.DayLog;
 import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ExcelGenerator {
 
-    public byte[] generatePlanMasterExcel(
+    // Subir al cambiar el contenido o el formato del reporte: invalida los
+    // archivos ya generados (ver ReportArtifactCache)
+    public static final int TEMPLATE_VERSION = 1;
+
+    private static final String[] COLUMNS = {
+            "Ruta", "Día", "Ubigeo", "Evento",
+            "Detalle", "Actividad 1", "Actividad 2",
+            "Duración (min)", "Costo Estimado (S/.)"
+    };
+
+    /**
+     * Escribe el Excel del plan maestro directamente en out, fila por fila
+     * (ver {@link StreamingWorkbook}).
+     */
+    public void writePlanMasterExcel(
             List<RouteSegment> routes,
-            double[][] distanceMatrix,
+            TravelMatrix distanceMatrix,
             List<String> matrixNames,
             double kmCost,
             double foodCost,
             double hotelCost,
             int pcDuration,
-            int ocDuration
-    ) {
+            int ocDuration,
+            OutputStream out
+    ) throws IOException {
 
-        try (Workbook wb = new XSSFWorkbook();
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        try (StreamingWorkbook wb = new StreamingWorkbook()) {
 
-            Sheet sheet = wb.createSheet("Plan Maestro");
+            StreamingWorkbook.SheetWriter sheet = wb.createSheet("Plan Maestro", COLUMNS.length);
 
-            int rowIdx = 0;
+            // índice de cada punto en la matriz (el primero, como indexOf)
+            Map<String, Integer> matrixIndex = new HashMap<>();
+            for (int i = 0; i < matrixNames.size(); i++) {
+                matrixIndex.putIfAbsent(matrixNames.get(i), i);
+            }
 
             // Header
-            Row header = sheet.createRow(rowIdx++);
-            String[] cols = {
-                    "Ruta", "Día", "Ubigeo", "Evento",
-                    "Detalle", "Actividad 1", "Actividad 2",
-                    "Duración (min)", "Costo Estimado (S/.)"
-            };
-
-
-
-            for (int i = 0; i < cols.length; i++) {
-                header.createCell(i).setCellValue(cols[i]);
+            Row header = sheet.nextRow();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                sheet.text(header, i, COLUMNS[i], null);
             }
 
             // Data
@@ -73,11 +86,11 @@ public class ExcelGenerator {
                         if (!pName.equals(currentLoc)) {
                             double dist = findDistance(
                                     currentLoc, pName,
-                                    matrixNames, distanceMatrix);
+                                    matrixIndex, distanceMatrix);
 
                             double gasCost = dist * kmCost;
 
-                            rowIdx = addRow(sheet, rowIdx,
+                            addRow(sheet,
                                     r.getName(),
                                     log.getDay(),
                                     "-",
@@ -122,7 +135,7 @@ public class ExcelGenerator {
                             actividad2 = "Cuota Familiar";
                         }
 
-                        rowIdx = addRow(sheet, rowIdx,
+                        addRow(sheet,
                                 r.getName(),
                                 log.getDay(),
                                 ubigeo,
@@ -140,7 +153,7 @@ public class ExcelGenerator {
 
                         for (int k = 1; k < ocDone; k++) {
 
-                            rowIdx = addRow(sheet, rowIdx,
+                            addRow(sheet,
                                     r.getName(),
                                     log.getDay(),
                                     ubigeo,
@@ -157,7 +170,7 @@ public class ExcelGenerator {
                         double dist = findDistance(
                                 currentLoc,
                                 "ODS (Base)",
-                                matrixNames,
+                                matrixIndex,
                                 distanceMatrix);
 
                         double gasCost = dist * kmCost;
@@ -168,7 +181,7 @@ public class ExcelGenerator {
                         int returnTime = totalTravelMinutes - (avgTravelTime * (travelSegments));
                         returnTime = Math.max(0, returnTime); // No permitir negativos
 
-                        rowIdx = addRow(sheet, rowIdx,
+                        addRow(sheet,
                                 r.getName(),
                                 log.getDay(),
                                 "-",
@@ -178,7 +191,7 @@ public class ExcelGenerator {
                                 String.valueOf(returnTime), // 🔥 TIEMPO DE RETORNO
                                 gasCost);
 
-                        rowIdx = addRow(sheet, rowIdx,
+                        addRow(sheet,
                                 r.getName(),
                                 log.getDay(),
                                 "-",
@@ -196,12 +209,12 @@ public class ExcelGenerator {
                             double dist = findDistance(
                                     currentLoc,
                                     log.getFinalLocation(),
-                                    matrixNames,
+                                    matrixIndex,
                                     distanceMatrix);
 
                             double gasCost = dist * kmCost;
 
-                            rowIdx = addRow(sheet, rowIdx,
+                            addRow(sheet,
                                     r.getName(),
                                     log.getDay(),
                                     "-",
@@ -217,7 +230,7 @@ public class ExcelGenerator {
 
                         double dailyCost = foodCost + hotelCost;
 
-                        rowIdx = addRow(sheet, rowIdx,
+                        addRow(sheet,
                                 r.getName(),
                                 log.getDay(),
                                 "-",
@@ -229,26 +242,17 @@ public class ExcelGenerator {
                     }
                 }
 
-                rowIdx++; // blank line between routes
-            }
-
-            for (int i = 0; i < cols.length; i++) {
-                sheet.autoSizeColumn(i);
+                sheet.skipRow(); // blank line between routes
             }
 
-            wb.write(out);
-            return out.toByteArray();
-
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating Excel", e);
+            wb.write(out, sheet);
         }
     }
 
     // ================= helpers =================
 
-    private int addRow(
-            Sheet sheet,
-            int rowIdx,
+    private void addRow(
+            StreamingWorkbook.SheetWriter sheet,
             String route,
             int day,
             String ubigeo,
@@ -257,12 +261,11 @@ public class ExcelGenerator {
             String duration,
             double cost
     ) {
-        return addRow(sheet, rowIdx, route, day, ubigeo, event, detail, "", "", duration, cost);
+        addRow(sheet, route, day, ubigeo, event, detail, "", "", duration, cost);
     }
 
-    private int addRow(
-            Sheet sheet,
-            int rowIdx,
+    private void addRow(
+            StreamingWorkbook.SheetWriter sheet,
             String route,
             int day,
             String ubigeo,
@@ -274,37 +277,33 @@ public class ExcelGenerator {
             double cost
     ) {
 
-        Row row = sheet.createRow(rowIdx++);
-
-        row.createCell(0).setCellValue(route);
-        row.createCell(1).setCellValue(day);
-        row.createCell(2).setCellValue(ubigeo);
-        row.createCell(3).setCellValue(event);
-        row.createCell(4).setCellValue(detail);
-        row.createCell(5).setCellValue(actividad1);  // Actividad 1
-        row.createCell(6).setCellValue(actividad2);  // Actividad 2
-        row.createCell(7).setCellValue(duration);
-
-        Cell c = row.createCell(8);
-        c.setCellValue(cost);
-
-        return rowIdx;
+        Row row = sheet.nextRow();
+
+        sheet.text(row, 0, route, null);
+        sheet.number(row, 1, day, null);
+        sheet.text(row, 2, ubigeo, null);
+        sheet.text(row, 3, event, null);
+        sheet.text(row, 4, detail, null);
+        sheet.text(row, 5, actividad1, null);  // Actividad 1
+        sheet.text(row, 6, actividad2, null);  // Actividad 2
+        sheet.text(row, 7, duration, null);
+        sheet.number(row, 8, cost, null);
     }
 
     private double findDistance(
             String from,
             String to,
-            List<String> names,
-            double[][] matrix
+            Map<String, Integer> index,
+            TravelMatrix matrix
     ) {
 
         if (to.equals("ODS (Retorno)")) to = "ODS (Base)";
 
-        int i1 = names.indexOf(from);
-        int i2 = names.indexOf(to);
+        Integer i1 = index.get(from);
+        Integer i2 = index.get(to);
 
-        if (i1 >= 0 && i2 >= 0) {
-            return matrix[i1][i2];
+        if (i1 != null && i2 != null) {
+            return matrix.get(i1, i2);
         }
         return 0;
     }
@@ -1,144 +1,88 @@
 package pe.gob.sunass.rutasods.reporting.infrastructure.excel;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
 import org.springframework.stereotype.Service;
+import pe.gob.sunass.rutasods.reporting.infrastructure.excel.StreamingWorkbook.Style;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @Service
 public class MatrixExcelGenerator {
 
-    public byte[] generateMatrixExcel(
-            double[][] distanceMatrix,
-            double[][] durationMatrix,
-            List<String> pointNames
-    ) {
+    // Subir al cambiar el contenido o el formato del reporte: invalida los
+    // archivos ya generados (ver ReportArtifactCache)
+    public static final int TEMPLATE_VERSION = 1;
+
+    /**
+     * Escribe el Excel de distancias y tiempos directamente en out, sin
+     * armar el libro completo en memoria (ver {@link StreamingWorkbook}).
+     */
+    public void writeMatrixExcel(
+            TravelMatrix distanceMatrix,
+            TravelMatrix durationMatrix,
+            List<String> pointNames,
+            OutputStream out
+    ) throws IOException {
 
-        try (Workbook wb = new XSSFWorkbook();
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        try (StreamingWorkbook wb = new StreamingWorkbook()) {
 
             // ==================== HOJA 1: MATRIZ DE DISTANCIAS ====================
-            Sheet distSheet = wb.createSheet("Distancias (km)");
-            createMatrixSheet(distSheet, distanceMatrix, pointNames, "Distancias en Kilómetros", "km");
+            StreamingWorkbook.SheetWriter distSheet =
+                    wb.createSheet("Distancias (km)", pointNames.size() + 1);
+            writeMatrixSheet(distSheet, distanceMatrix, pointNames, "Distancias en Kilómetros", "km");
 
             // ==================== HOJA 2: MATRIZ DE TIEMPOS ====================
-            Sheet timeSheet = wb.createSheet("Tiempos (min)");
-            createMatrixSheet(timeSheet, durationMatrix, pointNames, "Tiempos en Minutos", "min");
+            StreamingWorkbook.SheetWriter timeSheet =
+                    wb.createSheet("Tiempos (min)", pointNames.size() + 1);
+            writeMatrixSheet(timeSheet, durationMatrix, pointNames, "Tiempos en Minutos", "min");
 
-            wb.write(out);
-            return out.toByteArray();
-
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating Matrix Excel", e);
+            wb.write(out, distSheet, timeSheet);
         }
     }
 
-    private void createMatrixSheet(
-            Sheet sheet,
-            double[][] matrix,
+    private void writeMatrixSheet(
+            StreamingWorkbook.SheetWriter sheet,
+            TravelMatrix matrix,
             List<String> pointNames,
             String title,
             String unit
     ) {
-        int rowIdx = 0;
-
-        // Estilos
-        CellStyle headerStyle = sheet.getWorkbook().createCellStyle();
-        Font headerFont = sheet.getWorkbook().createFont();
-        headerFont.setBold(true);
-        headerFont.setColor(IndexedColors.WHITE.getIndex());
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        headerStyle.setAlignment(HorizontalAlignment.CENTER);
-        headerStyle.setBorderBottom(BorderStyle.THIN);
-        headerStyle.setBorderTop(BorderStyle.THIN);
-        headerStyle.setBorderLeft(BorderStyle.THIN);
-        headerStyle.setBorderRight(BorderStyle.THIN);
-
-        CellStyle titleStyle = sheet.getWorkbook().createCellStyle();
-        Font titleFont = sheet.getWorkbook().createFont();
-        titleFont.setBold(true);
-        titleFont.setFontHeightInPoints((short) 14);
-        titleStyle.setFont(titleFont);
-
-        CellStyle dataStyle = sheet.getWorkbook().createCellStyle();
-        dataStyle.setAlignment(HorizontalAlignment.CENTER);
-        dataStyle.setBorderBottom(BorderStyle.THIN);
-        dataStyle.setBorderTop(BorderStyle.THIN);
-        dataStyle.setBorderLeft(BorderStyle.THIN);
-        dataStyle.setBorderRight(BorderStyle.THIN);
-
-        CellStyle labelStyle = sheet.getWorkbook().createCellStyle();
-        Font labelFont = sheet.getWorkbook().createFont();
-        labelFont.setBold(true);
-        labelStyle.setFont(labelFont);
-        labelStyle.setBorderBottom(BorderStyle.THIN);
-        labelStyle.setBorderTop(BorderStyle.THIN);
-        labelStyle.setBorderLeft(BorderStyle.THIN);
-        labelStyle.setBorderRight(BorderStyle.THIN);
-
         // Título
-        Row titleRow = sheet.createRow(rowIdx++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue(title);
-        titleCell.setCellStyle(titleStyle);
-        rowIdx++; // Línea en blanco
+        Row titleRow = sheet.nextRow();
+        sheet.text(titleRow, 0, title, Style.TITLE);
+        sheet.skipRow(); // Línea en blanco
 
         // Header: Nombres de puntos como columnas
-        Row headerRow = sheet.createRow(rowIdx++);
-        Cell cornerCell = headerRow.createCell(0);
-        cornerCell.setCellValue("Desde \\ Hasta");
-        cornerCell.setCellStyle(headerStyle);
+        Row headerRow = sheet.nextRow();
+        sheet.text(headerRow, 0, "Desde \\ Hasta", Style.HEADER);
 
         for (int i = 0; i < pointNames.size(); i++) {
-            Cell cell = headerRow.createCell(i + 1);
-            cell.setCellValue(pointNames.get(i));
-            cell.setCellStyle(headerStyle);
+            sheet.text(headerRow, i + 1, pointNames.get(i), Style.HEADER);
         }
 
         // Data: Matriz
         for (int i = 0; i < pointNames.size(); i++) {
-            Row row = sheet.createRow(rowIdx++);
+            Row row = sheet.nextRow();
 
             // Celda de etiqueta de fila (nombre del punto origen)
-            Cell labelCell = row.createCell(0);
-            labelCell.setCellValue(pointNames.get(i));
-            labelCell.setCellStyle(labelStyle);
+            sheet.text(row, 0, pointNames.get(i), Style.LABEL);
 
             // Celdas de datos
             for (int j = 0; j < pointNames.size(); j++) {
-                Cell dataCell = row.createCell(j + 1);
-
                 if (i == j) {
                     // Diagonal principal: vacía o "-"
-                    dataCell.setCellValue("-");
+                    sheet.text(row, j + 1, "-", Style.DATA);
                 } else {
-                    dataCell.setCellValue(matrix[i][j]);
+                    sheet.number(row, j + 1, matrix.get(i, j), Style.DATA);
                 }
-
-                dataCell.setCellStyle(dataStyle);
             }
         }
 
-        // Auto-size columnas
-        for (int i = 0; i <= pointNames.size(); i++) {
-            sheet.autoSizeColumn(i);
-        }
-
         // Nota al final
-        rowIdx++; // Línea en blanco
-        Row noteRow = sheet.createRow(rowIdx);
-        Cell noteCell = noteRow.createCell(0);
-        noteCell.setCellValue("Unidad: " + unit);
-
-        CellStyle noteStyle = sheet.getWorkbook().createCellStyle();
-        Font noteFont = sheet.getWorkbook().createFont();
-        noteFont.setItalic(true);
-        noteFont.setColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        noteStyle.setFont(noteFont);
-        noteCell.setCellStyle(noteStyle);
+        sheet.skipRow(); // Línea en blanco
+        sheet.note(sheet.nextRow(), 0, "Unidad: " + unit);
     }
-}
\ No newline at end of file
+}
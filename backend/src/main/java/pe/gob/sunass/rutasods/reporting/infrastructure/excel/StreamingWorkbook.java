@@ -0,0 +1,187 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.excel;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Libro SXSSF de los reportes: solo {@link #ROW_WINDOW} filas por hoja viven
+ * en memoria, el resto se baja a un temporal comprimido a medida que se
+ * escribe. Por eso las filas se escriben de arriba hacia abajo y una vez.
+ *
+ * Los estilos se crean una sola vez por libro y se comparten entre hojas, y
+ * el ancho de cada columna se calcula con lo escrito (autoSizeColumn necesita
+ * todas las filas en memoria).
+ */
+final class StreamingWorkbook implements AutoCloseable {
+
+    static final int ROW_WINDOW = 100;
+
+    // Límite de Excel para el ancho de columna, en caracteres
+    private static final int MAX_COLUMN_CHARS = 255;
+
+    enum Style {
+        TITLE,
+        HEADER,
+        LABEL,
+        DATA,
+        NOTE
+    }
+
+    private final SXSSFWorkbook wb;
+    private final Map<Style, CellStyle> styles = new EnumMap<>(Style.class);
+
+    StreamingWorkbook() {
+        this.wb = new SXSSFWorkbook(ROW_WINDOW);
+        this.wb.setCompressTempFiles(true);
+    }
+
+    SheetWriter createSheet(String name, int columns) {
+        return new SheetWriter(wb.createSheet(name), columns);
+    }
+
+    /** Aplica los anchos calculados y escribe el libro; no cierra el stream. */
+    void write(OutputStream out, SheetWriter... sheets) throws IOException {
+        for (SheetWriter sheet : sheets) {
+            sheet.applyWidths();
+        }
+        wb.write(out);
+    }
+
+    /** Borra los temporales de las hojas. */
+    @Override
+    public void close() throws IOException {
+        wb.dispose();
+        wb.close();
+    }
+
+    CellStyle style(Style style) {
+        return styles.computeIfAbsent(style, this::createStyle);
+    }
+
+    private CellStyle createStyle(Style style) {
+        CellStyle cs = wb.createCellStyle();
+        switch (style) {
+            case TITLE -> {
+                Font font = wb.createFont();
+                font.setBold(true);
+                font.setFontHeightInPoints((short) 14);
+                cs.setFont(font);
+            }
+            case HEADER -> {
+                Font font = wb.createFont();
+                font.setBold(true);
+                font.setColor(IndexedColors.WHITE.getIndex());
+                cs.setFont(font);
+                cs.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
+                cs.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+                cs.setAlignment(HorizontalAlignment.CENTER);
+                thinBorders(cs);
+            }
+            case LABEL -> {
+                Font font = wb.createFont();
+                font.setBold(true);
+                cs.setFont(font);
+                thinBorders(cs);
+            }
+            case DATA -> {
+                cs.setAlignment(HorizontalAlignment.CENTER);
+                thinBorders(cs);
+            }
+            case NOTE -> {
+                Font font = wb.createFont();
+                font.setItalic(true);
+                font.setColor(IndexedColors.GREY_50_PERCENT.getIndex());
+                cs.setFont(font);
+            }
+        }
+        return cs;
+    }
+
+    private static void thinBorders(CellStyle cs) {
+        cs.setBorderBottom(BorderStyle.THIN);
+        cs.setBorderTop(BorderStyle.THIN);
+        cs.setBorderLeft(BorderStyle.THIN);
+        cs.setBorderRight(BorderStyle.THIN);
+    }
+
+    /**
+     * Escribe una hoja fila por fila llevando el ancho máximo (en caracteres)
+     * de cada columna.
+     */
+    final class SheetWriter {
+
+        private final SXSSFSheet sheet;
+        private final int[] widths;
+        private int rowIdx;
+
+        private SheetWriter(SXSSFSheet sheet, int columns) {
+            this.sheet = sheet;
+            this.widths = new int[columns];
+        }
+
+        Row nextRow() {
+            return sheet.createRow(rowIdx++);
+        }
+
+        void skipRow() {
+            rowIdx++;
+        }
+
+        void text(Row row, int col, String value, Style style) {
+            Cell cell = row.createCell(col);
+            cell.setCellValue(value);
+            if (style != null) cell.setCellStyle(style(style));
+            track(col, value.length(), style);
+        }
+
+        void number(Row row, int col, double value, Style style) {
+            Cell cell = row.createCell(col);
+            cell.setCellValue(value);
+            if (style != null) cell.setCellStyle(style(style));
+            track(col, numberChars(value), style);
+        }
+
+        /** Celda que no cuenta para el ancho de la columna (notas al pie). */
+        void note(Row row, int col, String value) {
+            Cell cell = row.createCell(col);
+            cell.setCellValue(value);
+            cell.setCellStyle(style(Style.NOTE));
+        }
+
+        private void track(int col, int chars, Style style) {
+            if (col >= widths.length) return;
+            // negrita y título ocupan más que el texto normal
+            if (style == Style.TITLE) {
+                chars = chars * 6 / 5;
+            } else if (style == Style.HEADER || style == Style.LABEL) {
+                chars++;
+            }
+            if (chars > widths[col]) widths[col] = chars;
+        }
+
+        private void applyWidths() {
+            for (int col = 0; col < widths.length; col++) {
+                if (widths[col] == 0) continue;
+                int chars = Math.min(widths[col] + 1, MAX_COLUMN_CHARS);
+                sheet.setColumnWidth(col, chars * 256);
+            }
+        }
+    }
+
+    /**
+     * Caracteres que ocupa un número con el formato General de Excel: enteros
+     * sin decimales y como mucho 11 caracteres en total.
+     */
+    private static int numberChars(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e11) {
+            return Long.toString((long) value).length();
+        }
+        return Math.min(11, Double.toString(value).length());
+    }
+}
@@ -0,0 +1,108 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/**
+ * Tiempo de generación (rutasods.report.duration) y tamaño
+ * (rutasods.report.size, en bytes) de cada reporte, por reporte y formato.
+ */
+@Component
+public class ReportMetrics {
+
+    private final MeterRegistry registry;
+
+    public ReportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Genera el reporte midiendo tiempo y bytes. Si la generación falla solo se
+     * registra el tiempo, con outcome=error.
+     *
+     * @param report nombre del reporte (plan-maestro, matriz)
+     * @param format formato del archivo (xlsx, pdf)
+     */
+    public byte[] record(String report, String format, Supplier<byte[]> generator) {
+        Timer.Sample sample = Timer.start(registry);
+        byte[] content;
+        try {
+            content = generator.get();
+        } catch (RuntimeException e) {
+            sample.stop(timer(report, format, "error"));
+            throw e;
+        }
+        sample.stop(timer(report, format, "success"));
+
+        size(report, format).record(content.length);
+
+        return content;
+    }
+
+    /**
+     * Igual que {@link #record(String, String, Supplier)} para un reporte que
+     * se escribe directo en la respuesta: mide hasta el último byte escrito.
+     */
+    public StreamingResponseBody record(String report, String format, StreamingResponseBody body) {
+        return out -> {
+            CountingOutputStream counting = new CountingOutputStream(out);
+            Timer.Sample sample = Timer.start(registry);
+            try {
+                body.writeTo(counting);
+            } catch (IOException | RuntimeException e) {
+                sample.stop(timer(report, format, "error"));
+                throw e;
+            }
+            sample.stop(timer(report, format, "success"));
+            size(report, format).record(counting.count);
+        };
+    }
+
+    private DistributionSummary size(String report, String format) {
+        return DistributionSummary.builder("rutasods.report.size")
+                .description("Tamaño del reporte generado")
+                .baseUnit("bytes")
+                .tag("report", report)
+                .tag("format", format)
+                .register(registry);
+    }
+
+    private Timer timer(String report, String format, String outcome) {
+        return Timer.builder("rutasods.report.duration")
+                .description("Tiempo de generación del reporte")
+                .tag("report", report)
+                .tag("format", format)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -10,12 +10,18 @@ import pe.gob.sunass.rutasods.shared.domain.model.Location;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
-import java.text.DecimalFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.stream.Stream;
 
 @Component
 public class PdfGenerator {
 
+    // Subir al cambiar el contenido o el formato del reporte: invalida los
+    // archivos ya generados (ver ReportArtifactCache)
+    public static final int TEMPLATE_VERSION = 1;
+
     // Colores Sunass
     private static final Color SUNASS_BLUE = new Color(0, 85, 150);
     private static final Color SUNASS_LIGHT = new Color(0, 159, 227);
@@ -40,45 +46,32 @@ public class PdfGenerator {
     private static final Font CONFIG_LABEL_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8, SLATE_700);
     private static final Font CONFIG_VALUE_FONT = FontFactory.getFont(FontFactory.HELVETICA, 8, SLATE_600);
 
-    private static final DecimalFormat MONEY_FORMAT = new DecimalFormat("S/ #,##0.00");
-    private static final DecimalFormat NUMBER_FORMAT = new DecimalFormat("#,##0.00");
-
-    // 🔥 NUEVOS CAMPOS PARA ALMACENAR CONFIGURACIÓN
-    private double kmCost;
-    private double foodCost;
-    private double hotelCost;
-    private int pcDuration;
-    private int ocDuration;
-    private double timeFactor;
-
+    /** Render sin sesión, con los parámetros por defecto. */
     public byte[] generateMasterPlanPdf(MasterPlanResult result) {
-        // Usar valores por defecto si no se han configurado
-        return generateMasterPlanPdf(result, 1.0, 180.0, 570.0, 180, 180, 1.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeMasterPlanPdf(result, PdfRenderContext.defaults(), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
     }
 
     /**
-     * 🔥 NUEVO MÉTODO CON PARÁMETROS DE CONFIGURACIÓN
+     * Escribe el informe en out a medida que se arma cada página, sin cerrar
+     * el stream. El generador no guarda estado: todo lo del render va en ctx,
+     * así que puede usarse desde varios hilos a la vez.
      */
-    public byte[] generateMasterPlanPdf(
+    public void writeMasterPlanPdf(
             MasterPlanResult result,
-            double kmCost,
-            double foodCost,
-            double hotelCost,
-            int pcDuration,
-            int ocDuration,
-            double timeFactor
-    ) {
-        // Guardar configuración para usar en el reporte
-        this.kmCost = kmCost;
-        this.foodCost = foodCost;
-        this.hotelCost = hotelCost;
-        this.pcDuration = pcDuration;
-        this.ocDuration = ocDuration;
-        this.timeFactor = timeFactor;
-
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PdfRenderContext ctx,
+            OutputStream out
+    ) throws IOException {
+        try {
             Document document = new Document(PageSize.A4, 30, 30, 30, 30);
             PdfWriter writer = PdfWriter.getInstance(document, out);
+            // el stream es de la respuesta: lo cierra quien lo abrió
+            writer.setCloseStream(false);
 
             // Header/Footer personalizado
             writer.setPageEvent(new PdfPageEventHelper() {
@@ -102,21 +95,24 @@ public class PdfGenerator {
             document.add(new Chunk("\n"));
 
             // 🔥 ==================== CONFIGURACIÓN UTILIZADA ====================
-            addConfigurationSection(document);
+            addConfigurationSection(document, ctx);
             document.add(new Chunk("\n"));
 
             // ==================== MÉTRICAS PRINCIPALES ====================
-            addMetricsSection(document, result);
+            addMetricsSection(document, result, ctx);
             document.add(new Chunk("\n"));
 
             // ==================== DETALLES POR RUTA ====================
-            addRoutesSection(document, result);
+            addRoutesSection(document, result, ctx);
 
             document.close();
-            return out.toByteArray();
 
-        } catch (Exception e) {
+        } catch (DocumentException e) {
             throw new RuntimeException("Error al generar el reporte PDF", e);
+        } catch (ExceptionConverter e) {
+            // OpenPDF envuelve los IOException del stream al escribir una página
+            if (e.getException() instanceof IOException io) throw io;
+            throw e;
         }
     }
 
@@ -147,7 +143,7 @@ public class PdfGenerator {
     /**
      * 🔥 NUEVA SECCIÓN: CONFIGURACIÓN UTILIZADA
      */
-    private void addConfigurationSection(Document document) throws DocumentException {
+    private void addConfigurationSection(Document document, PdfRenderContext ctx) throws DocumentException {
         // Título de la sección
         Paragraph configTitle = new Paragraph("Parámetros de Configuración", SUBTITLE_FONT);
         configTitle.setSpacingBefore(5);
@@ -161,19 +157,19 @@ public class PdfGenerator {
         configTable.setWidths(new float[]{1.5f, 1f, 1.5f, 1f});
 
         // Fila 1: Costos
-        addConfigCell(configTable, "Costo por Kilómetro:", MONEY_FORMAT.format(kmCost));
-        addConfigCell(configTable, "Costo Alimentación:", MONEY_FORMAT.format(foodCost));
+        addConfigCell(configTable, "Costo por Kilómetro:", ctx.money(ctx.getKmCost()));
+        addConfigCell(configTable, "Costo Alimentación:", ctx.money(ctx.getFoodCost()));
 
         // Fila 2: Duraciones
-        addConfigCell(configTable, "Duración Supervisión PC:", pcDuration + " minutos (" + (pcDuration/60.0) + " hrs)");
-        addConfigCell(configTable, "Duración Gestión OC:", ocDuration + " minutos (" + (ocDuration/60.0) + " hrs)");
+        addConfigCell(configTable, "Duración Supervisión PC:", ctx.getPcDuration() + " minutos (" + (ctx.getPcDuration()/60.0) + " hrs)");
+        addConfigCell(configTable, "Duración Gestión OC:", ctx.getOcDuration() + " minutos (" + (ctx.getOcDuration()/60.0) + " hrs)");
 
         // Fila 3: Hospedaje y Jornada
-        addConfigCell(configTable, "Costo Hospedaje:", MONEY_FORMAT.format(hotelCost));
+        addConfigCell(configTable, "Costo Hospedaje:", ctx.money(ctx.getHotelCost()));
         addConfigCell(configTable, "Jornada Máxima:", "540 min (9 hrs)");
 
         // 🔥 Fila 4: Time Factor y Límite Extendido
-        addConfigCell(configTable, "Factor de Tiempo:", String.format("%.2fx", timeFactor));
+        addConfigCell(configTable, "Factor de Tiempo:", String.format("%.2fx", ctx.getTimeFactor()));
         addConfigCell(configTable, "Límite Extendido (Retorno):", "660 min (11 hrs)");
 
         document.add(configTable);
@@ -181,7 +177,7 @@ public class PdfGenerator {
         // Nota informativa
         Paragraph note = new Paragraph(
                 "Nota: Estos parámetros fueron utilizados para calcular los costos, tiempos y configuración de las rutas presentadas en este informe. " +
-                        "El Factor de Tiempo (" + String.format("%.2fx", timeFactor) + ") se aplicó a todos los tiempos de viaje calculados.",
+                        "El Factor de Tiempo (" + String.format("%.2fx", ctx.getTimeFactor()) + ") se aplicó a todos los tiempos de viaje calculados.",
                 FontFactory.getFont(FontFactory.HELVETICA, 7, SLATE_400)
         );
         note.setAlignment(Element.ALIGN_JUSTIFIED);
@@ -220,7 +216,7 @@ public class PdfGenerator {
         table.addCell(valueCell);
     }
 
-    private void addMetricsSection(Document document, MasterPlanResult result) throws DocumentException {
+    private void addMetricsSection(Document document, MasterPlanResult result, PdfRenderContext ctx) throws DocumentException {
         // Calcular métricas adicionales
         int pcCount = result.getRoutes().stream()
                 .mapToInt(r -> (int) r.getPoints().stream()
@@ -239,7 +235,7 @@ public class PdfGenerator {
 
         // Fila 1
         addMetricCard(metricsTable, "Costo Total Sistema",
-                MONEY_FORMAT.format(result.getTotalSystemCost()),
+                ctx.money(result.getTotalSystemCost()),
                 result.getPointsCovered() + " puntos", SUNASS_BLUE);
         addMetricCard(metricsTable, "Rutas Generadas",
                 String.valueOf(result.getRoutes().size()),
@@ -253,7 +249,7 @@ public class PdfGenerator {
                 String.valueOf(ocCount),
                 "Cubiertos", PURPLE_600);
         addMetricCard(metricsTable, "Distancia Total",
-                NUMBER_FORMAT.format(result.getTotalDistance()) + " km",
+                ctx.number(result.getTotalDistance()) + " km",
                 "", SLATE_700);
         addMetricCard(metricsTable, "Total Noches",
                 String.valueOf(result.getTotalNights()),
@@ -291,7 +287,7 @@ public class PdfGenerator {
         table.addCell(card);
     }
 
-    private void addRoutesSection(Document document, MasterPlanResult result) throws DocumentException {
+    private void addRoutesSection(Document document, MasterPlanResult result, PdfRenderContext ctx) throws DocumentException {
         int routeIndex = 1;
 
         for (RouteSegment route : result.getRoutes()) {
@@ -307,7 +303,7 @@ public class PdfGenerator {
                             route.getDays(),
                             route.getNights(),
                             route.getDistance(),
-                            MONEY_FORMAT.format(route.getTotalCost())),
+                            ctx.money(route.getTotalCost())),
                     BOLD_FONT
             );
             routeInfo.setSpacingAfter(8);
@@ -411,10 +407,10 @@ public class PdfGenerator {
 
             Paragraph costs = new Paragraph(
                     String.format("Combustible: %s | Alimentación: %s | Alojamiento: %s | OC: %s",
-                            MONEY_FORMAT.format(route.getBreakdown().getGas()),
-                            MONEY_FORMAT.format(route.getBreakdown().getFood()),
-                            MONEY_FORMAT.format(route.getBreakdown().getHotel()),
-                            MONEY_FORMAT.format(route.getBreakdown().getOc())
+                            ctx.money(route.getBreakdown().getGas()),
+                            ctx.money(route.getBreakdown().getFood()),
+                            ctx.money(route.getBreakdown().getHotel()),
+                            ctx.money(route.getBreakdown().getOc())
                     ),
                     NORMAL_FONT
             );
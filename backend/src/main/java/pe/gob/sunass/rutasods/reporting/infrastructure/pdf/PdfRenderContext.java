@@ -0,0 +1,58 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.pdf;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.text.DecimalFormat;
+
+/**
+ * Todo lo que un render del PDF necesita además del resultado: los parámetros
+ * de la sesión para la sección de configuración y los formatos numéricos.
+ *
+ * Se crea uno por render y no se comparte entre hilos (DecimalFormat no es
+ * thread-safe), así {@link PdfGenerator} queda sin estado.
+ */
+@Getter
+public final class PdfRenderContext {
+
+    private final double kmCost;
+    private final double foodCost;
+    private final double hotelCost;
+    private final int pcDuration;
+    private final int ocDuration;
+    private final double timeFactor;
+
+    @Getter(AccessLevel.NONE)
+    private final DecimalFormat moneyFormat = new DecimalFormat("S/ #,##0.00");
+    @Getter(AccessLevel.NONE)
+    private final DecimalFormat numberFormat = new DecimalFormat("#,##0.00");
+
+    public PdfRenderContext(
+            double kmCost,
+            double foodCost,
+            double hotelCost,
+            int pcDuration,
+            int ocDuration,
+            double timeFactor
+    ) {
+        this.kmCost = kmCost;
+        this.foodCost = foodCost;
+        this.hotelCost = hotelCost;
+        this.pcDuration = pcDuration;
+        this.ocDuration = ocDuration;
+        this.timeFactor = timeFactor;
+    }
+
+    /** Valores por defecto del frontend, para un resultado sin sesión. */
+    public static PdfRenderContext defaults() {
+        return new PdfRenderContext(1.0, 180.0, 570.0, 180, 180, 1.0);
+    }
+
+    String money(double value) {
+        return moneyFormat.format(value);
+    }
+
+    String number(double value) {
+        return numberFormat.format(value);
+    }
+}
@@ -0,0 +1,82 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.pdf;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool acotado para los renders de PDF: a lo sumo maxConcurrentRenders
+ * documentos armándose y queueCapacity descargas esperando; más allá la
+ * descarga responde 503 en vez de acumular documentos en memoria.
+ *
+ * El hilo async de la respuesta solo espera: el render corre en el pool y
+ * escribe directo en el stream de la respuesta.
+ */
+@Component
+public class PdfRenderExecutor {
+
+    private final ThreadPoolExecutor pool;
+
+    public PdfRenderExecutor(PdfRenderProperties props) {
+        int threads = Math.max(1, props.getMaxConcurrentRenders());
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, props.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "pdf-render-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Envuelve body para que se ejecute en el pool.
+     *
+     * @throws ResponseStatusException 503 (al escribir la respuesta) si la cola está llena
+     */
+    public StreamingResponseBody bounded(StreamingResponseBody body) {
+        return out -> {
+            Future<?> render;
+            try {
+                render = pool.submit(() -> {
+                    body.writeTo(out);
+                    return null;
+                });
+            } catch (RejectedExecutionException e) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Demasiados PDF generándose, intente más tarde");
+            }
+
+            try {
+                render.get();
+            } catch (InterruptedException e) {
+                // la respuesta expiró o se abortó: el render ya no tiene a quién escribir
+                render.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Render de PDF interrumpido");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) throw io;
+                if (cause instanceof RuntimeException re) throw re;
+                if (cause instanceof Error err) throw err;
+                throw new IllegalStateException(cause);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
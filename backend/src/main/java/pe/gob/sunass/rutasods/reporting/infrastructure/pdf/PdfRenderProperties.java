@@ -0,0 +1,17 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.pdf;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "reporting.pdf")
+public class PdfRenderProperties {
+
+    // PDFs renderizándose a la vez (cada uno mantiene su documento en memoria)
+    private int maxConcurrentRenders = 2;
+
+    // Descargas esperando turno; con la cola llena la descarga responde 503
+    private int queueCapacity = 16;
+}
@@ -0,0 +1,17 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.prerender;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "reporting.prerender")
+public class ReportPrerenderProperties {
+
+    // Generar los tres reportes apenas se guarda una sesión (requiere reporting.cache)
+    private boolean enabled = true;
+
+    // Reportes esperando turno; con la cola llena se descartan (la descarga los genera)
+    private int queueCapacity = 48;
+}
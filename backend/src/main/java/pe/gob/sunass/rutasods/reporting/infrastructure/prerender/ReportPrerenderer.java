@@ -0,0 +1,95 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.prerender;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.gob.sunass.rutasods.optimization.infrastructure.cache.SessionSavedEvent;
+import pe.gob.sunass.rutasods.reporting.application.internal.GenerateExcelUseCase;
+import pe.gob.sunass.rutasods.reporting.application.internal.GenerateMatrixExcelUseCase;
+import pe.gob.sunass.rutasods.reporting.application.internal.GeneratePdfUseCase;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genera el PDF y los dos Excel de cada sesión nueva en segundo plano y los
+ * deja en el cache de reportes, para que la primera descarga ya no espere.
+ *
+ * Un solo hilo de prioridad mínima: los renders van de a uno y ceden la CPU a
+ * las optimizaciones. Una descarga que llega mientras su reporte se está
+ * generando espera ese render (ver ReportArtifactCache#capture); si el
+ * reporte todavía estaba en la cola, la descarga lo genera y el pre-render
+ * después lo encuentra guardado y no hace nada.
+ */
+@Component
+public class ReportPrerenderer {
+
+    private final ReportPrerenderProperties props;
+    private final GeneratePdfUseCase generatePdfUseCase;
+    private final GenerateExcelUseCase generateExcelUseCase;
+    private final GenerateMatrixExcelUseCase generateMatrixExcelUseCase;
+
+    private final ThreadPoolExecutor pool;
+
+    public ReportPrerenderer(
+            ReportPrerenderProperties props,
+            GeneratePdfUseCase generatePdfUseCase,
+            GenerateExcelUseCase generateExcelUseCase,
+            GenerateMatrixExcelUseCase generateMatrixExcelUseCase
+    ) {
+        this.props = props;
+        this.generatePdfUseCase = generatePdfUseCase;
+        this.generateExcelUseCase = generateExcelUseCase;
+        this.generateMatrixExcelUseCase = generateMatrixExcelUseCase;
+
+        this.pool = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, props.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "report-prerender");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    @EventListener
+    public void onSessionSaved(SessionSavedEvent event) {
+        if (!props.isEnabled()) return;
+
+        String sessionId = event.sessionId();
+        submit(sessionId, "PDF", () -> generatePdfUseCase.prerender(sessionId, event.snapshot()));
+        submit(sessionId, "Excel", () -> generateExcelUseCase.prerender(sessionId, event.snapshot()));
+        submit(sessionId, "matriz", () -> generateMatrixExcelUseCase.prerender(sessionId, event.snapshot()));
+    }
+
+    private void submit(String sessionId, String report, PrerenderTask task) {
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    System.err.println("⚠️ No se pudo pre-generar " + report + " de la sesión "
+                            + sessionId + ": " + e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // cola llena: la primera descarga lo generará
+        }
+    }
+
+    @FunctionalInterface
+    private interface PrerenderTask {
+        void run() throws Exception;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
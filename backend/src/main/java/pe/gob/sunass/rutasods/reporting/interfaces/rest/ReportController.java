@@ -1,13 +1,16 @@
 package pe.gob.sunass.rutasods.reporting.interfaces.rest;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pe.gob.sunass.rutasods.reporting.application.internal.GenerateExcelUseCase;
 import pe.gob.sunass.rutasods.reporting.application.internal.GeneratePdfUseCase;
 import pe.gob.sunass.rutasods.reporting.application.internal.GenerateMatrixExcelUseCase;
+import pe.gob.sunass.rutasods.reporting.application.internal.ReportDownload;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -27,34 +30,67 @@ public class ReportController {
     }
 
     @GetMapping("/matriz/excel/{sessionId}")
-    public ResponseEntity<byte[]> downloadMatrixExcel(@PathVariable String sessionId) {
-        byte[] file = generateMatrixExcelUseCase.execute(sessionId);
+    public ResponseEntity<StreamingResponseBody> downloadMatrixExcel(
+            @PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ReportDownload file = generateMatrixExcelUseCase.execute(sessionId);
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=matriz_rutas.xlsx")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(file);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=matriz_rutas.xlsx");
+
+        return respond(file, headers, ifNoneMatch);
     }
 
     @GetMapping("/plan-maestro/excel/{sessionId}")
-    public ResponseEntity<byte[]> downloadExcel(@PathVariable String sessionId) {
-        byte[] file = generateExcelUseCase.generate(sessionId);
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=plan_maestro_detallado.xlsx")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(file);
+    public ResponseEntity<StreamingResponseBody> downloadExcel(
+            @PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ReportDownload file = generateExcelUseCase.generate(sessionId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=plan_maestro_detallado.xlsx");
+
+        return respond(file, headers, ifNoneMatch);
     }
 
     @GetMapping("/plan-maestro/pdf/{sessionId}")
-    public ResponseEntity<byte[]> downloadPdf(@PathVariable String sessionId) {
-        byte[] pdfContent = generatePdfUseCase.execute(sessionId);
+    public ResponseEntity<StreamingResponseBody> downloadPdf(
+            @PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ReportDownload pdfContent = generatePdfUseCase.execute(sessionId);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", "plan_maestro.pdf");
 
-        return new ResponseEntity<>(pdfContent, headers, HttpStatus.OK);
+        return respond(pdfContent, headers, ifNoneMatch);
+    }
+
+    /**
+     * 304 si el cliente ya tiene este archivo (If-None-Match con el mismo
+     * ETag); si no, el archivo. Con ETag se pide revalidar en cada uso
+     * (no-cache) para no servir un reporte de otra versión de plantilla.
+     */
+    private ResponseEntity<StreamingResponseBody> respond(
+            ReportDownload report,
+            HttpHeaders headers,
+            String ifNoneMatch) {
+        if (report.etag() != null) {
+            headers.setETag(report.etag());
+            headers.setCacheControl(CacheControl.noCache().cachePrivate());
+            if (report.isNotModified(ifNoneMatch)) {
+                HttpHeaders notModified = new HttpHeaders();
+                notModified.setETag(report.etag());
+                notModified.setCacheControl(headers.getCacheControl());
+                return new ResponseEntity<>(notModified, HttpStatus.NOT_MODIFIED);
+            }
+        }
+        if (report.contentLength() >= 0) {
+            headers.setContentLength(report.contentLength());
+        }
+        return new ResponseEntity<>(report.body(), headers, HttpStatus.OK);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package pe.gob.sunass.rutasods.shared.domain.model;
+
+import java.util.Objects;
+
+/**
+ * Matriz de viaje en un solo int[] fila por fila, con cada valor en
+ * centésimas (km × 100 o minutos × 100). Como las matrices ya salen
+ * redondeadas a 2 decimales, la codificación es exacta:
+ * {@code get(i, j)} devuelve el mismo double que round2 y ocupa la mitad que
+ * un double[][], sin un objeto por fila.
+ *
+ * Se llena con {@link #set} al construirla y después se trata como inmutable
+ * (se puede leer desde varios hilos). Una celda sin dato (NaN) se guarda como
+ * {@link #MISSING}.
+ */
+public final class FlatTravelMatrix implements TravelMatrix {
+
+    /** Centésimas de una celda sin dato. */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private final int rows;
+    private final int cols;
+    private final int[] centi;
+
+    public FlatTravelMatrix(int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("tamaño de matriz inválido: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.centi = new int[rows * cols];
+    }
+
+    /** Copia cualquier {@link TravelMatrix} (redondeando a 2 decimales). */
+    public static FlatTravelMatrix copyOf(TravelMatrix m) {
+        if (m instanceof FlatTravelMatrix flat) return flat;
+        FlatTravelMatrix copy = new FlatTravelMatrix(m.rows(), m.cols());
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.cols(); j++) {
+                copy.set(i, j, m.get(i, j));
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    /** Posición de la celda en el arreglo plano (valida ambos índices). */
+    public int index(int from, int to) {
+        return Objects.checkIndex(from, rows) * cols + Objects.checkIndex(to, cols);
+    }
+
+    @Override
+    public double get(int from, int to) {
+        return decode(centi[index(from, to)]);
+    }
+
+    /** El valor en centésimas, o {@link #MISSING}. */
+    public int getCenti(int from, int to) {
+        return centi[index(from, to)];
+    }
+
+    @Override
+    public int getInt(int from, int to) {
+        int c = centi[index(from, to)];
+        return c == MISSING ? 0 : c / 100;
+    }
+
+    /** Guarda el valor redondeado a 2 decimales. */
+    public void set(int from, int to, double value) {
+        centi[index(from, to)] = encode(value);
+    }
+
+    @Override
+    public long heapBytes() {
+        return 32 + (long) centi.length * Integer.BYTES;
+    }
+
+    public static int encode(double value) {
+        if (Double.isNaN(value)) return MISSING;
+        long c = Math.round(value * 100.0);
+        // MISSING queda reservado: los extremos se saturan un paso antes
+        return (int) Math.max(MISSING + 1L, Math.min(Integer.MAX_VALUE, c));
+    }
+
+    public static double decode(int centi) {
+        return centi == MISSING ? Double.NaN : centi / 100.0;
+    }
+}
@@ -0,0 +1,159 @@
+package pe.gob.sunass.rutasods.shared.domain.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Matriz de viaje cuadrada donde solo algunas celdas tienen valor medido
+ * (típicamente la fila y la columna de la ODS y los pares entre vecinos
+ * cercanos); el resto se pide a un {@link CellEstimator} al leerla. Sirve
+ * para planes con miles de puntos, donde la matriz densa no entra en memoria
+ * ni se justifica pedirla entera al proveedor.
+ *
+ * Las celdas medidas van fila por fila (CSR): las columnas de cada fila
+ * ordenadas en {@code cols[rowStart[i]..rowStart[i+1])} y su valor en
+ * centésimas en la misma posición de {@code centi}, con la misma codificación
+ * que {@link FlatTravelMatrix}. Las estimaciones también se redondean a 2
+ * decimales, así una celda devuelve el mismo valor medida o estimada.
+ *
+ * Se llena con {@link #set} al construirla y después se trata como inmutable
+ * (se puede leer desde varios hilos).
+ */
+public final class SparseTravelMatrix implements TravelMatrix {
+
+    /** Valor de una celda sin medir, en las mismas unidades que la matriz. */
+    @FunctionalInterface
+    public interface CellEstimator {
+        double estimate(int from, int to);
+    }
+
+    private final int size;
+    private final int[] rowStart;
+    private final int[] cols;
+    private final int[] centi;
+    private final CellEstimator estimator;
+
+    /**
+     * @param columns columnas medidas de cada fila (se copian, ordenan y
+     *                depuran); las celdas arrancan sin dato hasta {@link #set}
+     */
+    public SparseTravelMatrix(int[][] columns, CellEstimator estimator) {
+        this.size = columns.length;
+        this.estimator = Objects.requireNonNull(estimator, "estimator");
+        this.rowStart = new int[size + 1];
+
+        int[][] sorted = new int[size][];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            int[] row = columns[i].clone();
+            Arrays.sort(row);
+            int distinct = 0;
+            for (int k = 0; k < row.length; k++) {
+                Objects.checkIndex(row[k], size);
+                if (distinct == 0 || row[distinct - 1] != row[k]) {
+                    row[distinct++] = row[k];
+                }
+            }
+            sorted[i] = distinct == row.length ? row : Arrays.copyOf(row, distinct);
+            total += distinct;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("demasiadas celdas medidas: " + total);
+        }
+
+        this.cols = new int[(int) total];
+        this.centi = new int[(int) total];
+        Arrays.fill(centi, FlatTravelMatrix.MISSING);
+
+        int pos = 0;
+        for (int i = 0; i < size; i++) {
+            rowStart[i] = pos;
+            System.arraycopy(sorted[i], 0, cols, pos, sorted[i].length);
+            pos += sorted[i].length;
+        }
+        rowStart[size] = pos;
+    }
+
+    @Override
+    public int rows() {
+        return size;
+    }
+
+    @Override
+    public int cols() {
+        return size;
+    }
+
+    /** Copia de las columnas medidas de la fila, ordenadas. */
+    public int[] measuredColumns(int row) {
+        Objects.checkIndex(row, size);
+        return Arrays.copyOfRange(cols, rowStart[row], rowStart[row + 1]);
+    }
+
+    /** Si la celda es una de las medidas (tenga o no valor todavía). */
+    public boolean isMeasured(int from, int to) {
+        return position(from, to) >= 0;
+    }
+
+    /** Cantidad de celdas medidas. */
+    public int measuredCells() {
+        return cols.length;
+    }
+
+    @Override
+    public double get(int from, int to) {
+        int pos = position(from, to);
+        if (pos >= 0) {
+            int c = centi[pos];
+            if (c != FlatTravelMatrix.MISSING) return FlatTravelMatrix.decode(c);
+        }
+        return estimate(from, to);
+    }
+
+    @Override
+    public int getInt(int from, int to) {
+        int pos = position(from, to);
+        if (pos >= 0) {
+            int c = centi[pos];
+            if (c != FlatTravelMatrix.MISSING) return c / 100;
+        }
+        double v = estimate(from, to);
+        return Double.isNaN(v) ? 0 : (int) v;
+    }
+
+    /**
+     * Guarda el valor medido, redondeado a 2 decimales.
+     *
+     * @throws IllegalArgumentException si la celda no es de las medidas
+     */
+    public void set(int from, int to, double value) {
+        int pos = position(from, to);
+        if (pos < 0) {
+            throw new IllegalArgumentException("celda no medida: (" + from + ", " + to + ")");
+        }
+        centi[pos] = FlatTravelMatrix.encode(value);
+    }
+
+    /** Solo los arreglos de celdas medidas (las coordenadas del estimador son 3 double por punto). */
+    @Override
+    public long heapBytes() {
+        return 64
+                + (long) rowStart.length * Integer.BYTES
+                + (long) cols.length * Integer.BYTES
+                + (long) centi.length * Integer.BYTES;
+    }
+
+    private double estimate(int from, int to) {
+        if (from == to) return 0.0;
+        return FlatTravelMatrix.decode(FlatTravelMatrix.encode(estimator.estimate(from, to)));
+    }
+
+    /** Posición de la celda en cols/centi, o negativo si no es de las medidas. */
+    private int position(int from, int to) {
+        Objects.checkIndex(from, size);
+        Objects.checkIndex(to, size);
+        int start = rowStart[from];
+        int pos = Arrays.binarySearch(cols, start, rowStart[from + 1], to);
+        return pos >= 0 ? pos : -1;
+    }
+}
@@ -0,0 +1,27 @@
+package pe.gob.sunass.rutasods.shared.domain.model;
+
+/**
+ * Matriz de viaje (km o minutos) de solo lectura, indexada por
+ * [origen][destino] como las que arma el módulo de matriz.
+ *
+ * Los datos pueden vivir en el heap ({@link FlatTravelMatrix}) o fuera de él
+ * (un archivo mapeado en memoria), así que quien la lee no debe asumir un
+ * double[][] detrás.
+ */
+public interface TravelMatrix {
+
+    int rows();
+
+    int cols();
+
+    double get(int from, int to);
+
+    /** Parte entera del valor, como el (int) de un double (0 si no hay dato). */
+    default int getInt(int from, int to) {
+        double v = get(from, to);
+        return Double.isNaN(v) ? 0 : (int) v;
+    }
+
+    /** Bytes de heap que retiene la matriz (0 si los datos están fuera del heap). */
+    long heapBytes();
+}
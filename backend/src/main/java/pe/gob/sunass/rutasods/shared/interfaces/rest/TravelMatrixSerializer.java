@@ -0,0 +1,36 @@
+package pe.gob.sunass.rutasods.shared.interfaces.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import pe.gob.sunass.rutasods.shared.domain.model.TravelMatrix;
+
+import java.io.IOException;
+
+/**
+ * Escribe una {@link TravelMatrix} como arreglo de filas ([[...], [...]]), el
+ * mismo JSON que un double[][], celda por celda y sin copiarla al heap.
+ */
+public class TravelMatrixSerializer extends StdSerializer<TravelMatrix> {
+
+    public TravelMatrixSerializer() {
+        super(TravelMatrix.class);
+    }
+
+    @Override
+    public void serialize(TravelMatrix matrix, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        int rows = matrix.rows();
+        int cols = matrix.cols();
+
+        gen.writeStartArray(matrix, rows);
+        for (int i = 0; i < rows; i++) {
+            gen.writeStartArray(null, cols);
+            for (int j = 0; j < cols; j++) {
+                gen.writeNumber(matrix.get(i, j));
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,11 @@
+-- Cache persistente de celdas de la matriz OSRM (ver MatrixCacheAdapter).
+-- Valores crudos de OSRM: metros y segundos, sin timeFactor ni redondeo.
+CREATE TABLE IF NOT EXISTS osrm_matrix_cell (
+    profile          VARCHAR(32)      NOT NULL,
+    origin_key       VARCHAR(32)      NOT NULL,
+    destination_key  VARCHAR(32)      NOT NULL,
+    distance_m       DOUBLE PRECISION NOT NULL,
+    duration_s       DOUBLE PRECISION NOT NULL,
+    updated_at       TIMESTAMP        NOT NULL,
+    PRIMARY KEY (profile, origin_key, destination_key)
+);
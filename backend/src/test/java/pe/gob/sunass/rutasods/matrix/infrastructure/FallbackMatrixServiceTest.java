@@ -0,0 +1,117 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixMode;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService.MatrixResult;
+import pe.gob.sunass.rutasods.matrix.infrastructure.haversine.HaversineMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.sparse.SparseMatrixBuilder;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FallbackMatrixServiceTest {
+
+    private final List<Location> points = List.of(new Location(), new Location());
+
+    private OsrmMatrixService osrm;
+    private HaversineMatrixService haversine;
+    private SparseMatrixBuilder sparse;
+    private MatrixProperties props;
+    private FallbackMatrixService service;
+
+    private final MatrixResult osrmResult =
+            new MatrixResult(new FlatTravelMatrix(2, 2), new FlatTravelMatrix(2, 2), MatrixProvider.OSRM);
+    private final MatrixResult haversineResult =
+            new MatrixResult(new FlatTravelMatrix(2, 2), new FlatTravelMatrix(2, 2), MatrixProvider.HAVERSINE);
+
+    @BeforeEach
+    void setUp() {
+        osrm = mock(OsrmMatrixService.class);
+        haversine = mock(HaversineMatrixService.class);
+        sparse = mock(SparseMatrixBuilder.class);
+        props = new MatrixProperties();
+        service = new FallbackMatrixService(osrm, haversine, sparse, props);
+        when(haversine.calculateMatrix(anyList(), anyList(), anyDouble())).thenReturn(haversineResult);
+    }
+
+    @Test
+    void autoUsesOsrmWhenItAnswers() {
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble())).thenReturn(osrmResult);
+
+        assertSame(osrmResult, service.calculateMatrix(points, points, 1.0, MatrixProvider.AUTO));
+        verifyNoInteractions(haversine);
+    }
+
+    @Test
+    void autoFallsBackToHaversineWhenOsrmFails() {
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble()))
+                .thenThrow(new IllegalStateException("OSRM error: 503"));
+
+        MatrixResult result = service.calculateMatrix(points, points, 1.0, MatrixProvider.AUTO);
+
+        assertSame(haversineResult, result);
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+    }
+
+    @Test
+    void explicitOsrmDoesNotFallBack() {
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble()))
+                .thenThrow(new IllegalStateException("OSRM error: 503"));
+
+        assertThrows(IllegalStateException.class,
+                () -> service.calculateMatrix(points, points, 1.0, MatrixProvider.OSRM));
+        verifyNoInteractions(haversine);
+    }
+
+    @Test
+    void explicitHaversineNeverCallsOsrm() {
+        assertSame(haversineResult, service.calculateMatrix(points, points, 1.0, MatrixProvider.HAVERSINE));
+        verifyNoInteractions(osrm);
+    }
+
+    @Test
+    void missingProviderUsesConfiguredDefault() {
+        props.setDefaultProvider(MatrixProvider.HAVERSINE);
+
+        assertSame(haversineResult, service.calculateMatrix(points, points, 1.0, null));
+        assertSame(haversineResult, service.calculateMatrix(points, points, 1.0));
+        verifyNoInteractions(osrm);
+    }
+
+    @Test
+    void autoModeUsesSparseFromMinPoints() {
+        MatrixResult sparseResult = osrmResult;
+        when(sparse.build(anyList(), anyDouble(), any())).thenReturn(sparseResult);
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble())).thenReturn(osrmResult);
+
+        props.getSparse().setMinPoints(3);
+        service.calculatePlanningMatrix(points, 1.0, MatrixProvider.AUTO, MatrixMode.AUTO);
+        verifyNoInteractions(sparse);
+        verify(osrm).calculateMatrix(points, points, 1.0);
+
+        props.getSparse().setMinPoints(2);
+        assertSame(sparseResult, service.calculatePlanningMatrix(points, 1.0, MatrixProvider.AUTO, null));
+        verify(sparse).build(points, 1.0, MatrixProvider.AUTO);
+    }
+
+    @Test
+    void explicitModeIgnoresMinPoints() {
+        props.setDefaultProvider(MatrixProvider.HAVERSINE);
+        props.getSparse().setMinPoints(1000);
+
+        service.calculatePlanningMatrix(points, 1.5, null, MatrixMode.SPARSE);
+        verify(sparse).build(points, 1.5, MatrixProvider.HAVERSINE);
+
+        props.getSparse().setMinPoints(1);
+        assertSame(haversineResult, service.calculatePlanningMatrix(points, 1.5, null, MatrixMode.DENSE));
+        verifyNoMoreInteractions(sparse);
+    }
+}
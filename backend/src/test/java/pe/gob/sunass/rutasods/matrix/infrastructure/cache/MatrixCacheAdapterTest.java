@@ -0,0 +1,128 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.cache;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class MatrixCacheAdapterTest {
+
+    private NamedParameterJdbcTemplate jdbc;
+    private OsrmProperties props;
+    private MatrixCacheAdapter cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        props = new OsrmProperties();
+        props.setCacheTtl(Duration.ofDays(30));
+        jdbc = spy(new NamedParameterJdbcTemplate(dataSource("")));
+        cache = new MatrixCacheAdapter(jdbc, props);
+    }
+
+    @Test
+    void storeUpsertsNewAndExistingCellsInOneBatch() {
+        cache.store("driving", List.of(new MatrixCacheAdapter.Cell("a", "b", 1000, 60)));
+        clearInvocations(jdbc);
+
+        cache.store("driving", List.of(
+                new MatrixCacheAdapter.Cell("a", "b", 1100, 66),
+                new MatrixCacheAdapter.Cell("a", "c", 2000, 120),
+                new MatrixCacheAdapter.Cell("a", "c", 2000, 120)));
+
+        verify(jdbc, times(1)).batchUpdate(anyString(), any(SqlParameterSource[].class));
+        verify(jdbc, never()).update(anyString(), any(SqlParameterSource.class));
+        double[][] dist = nan(1, 2);
+        assertEquals(2, cache.lookup("driving", List.of("a"), List.of("b", "c"), dist, nan(1, 2)));
+        assertArrayEquals(new double[]{1100, 2000}, dist[0]);
+    }
+
+    @Test
+    void upsertAlsoRunsInPostgresMode() throws Exception {
+        MatrixCacheAdapter pg = new MatrixCacheAdapter(
+                new NamedParameterJdbcTemplate(dataSource(";MODE=PostgreSQL")), props);
+
+        pg.store("driving", List.of(new MatrixCacheAdapter.Cell("a", "b", 1000, 60)));
+        pg.store("driving", List.of(new MatrixCacheAdapter.Cell("a", "b", 1500, 90)));
+
+        double[][] dist = nan(1, 1);
+        assertEquals(1, pg.lookup("driving", List.of("a"), List.of("b"), dist, nan(1, 1)));
+        assertEquals(1500, dist[0][0]);
+    }
+
+    @Test
+    void lookupReadsOnlyTheRequestedRectangle() {
+        cache.store("driving", List.of(
+                new MatrixCacheAdapter.Cell("a", "b", 1000, 60),
+                new MatrixCacheAdapter.Cell("a", "c", 2000, 120),
+                new MatrixCacheAdapter.Cell("a", "d", 3000, 180)));
+
+        double[][] dist = nan(1, 2);
+        double[][] dur = nan(1, 2);
+        int hits = cache.lookup("driving", List.of("a"), List.of("c", "x"), dist, dur);
+
+        assertEquals(1, hits);
+        assertEquals(2000, dist[0][0]);
+        assertEquals(120, dur[0][0]);
+        assertTrue(Double.isNaN(dist[0][1]));
+    }
+
+    @Test
+    void expiredCellsAreIgnoredAndRefreshedOnStore() {
+        cache.store("driving", List.of(new MatrixCacheAdapter.Cell("a", "b", 1000, 60)));
+        jdbc.getJdbcTemplate().update(
+                "UPDATE osrm_matrix_cell SET updated_at = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(31))));
+
+        double[][] dist = nan(1, 1);
+        assertEquals(0, cache.lookup("driving", List.of("a"), List.of("b"), dist, nan(1, 1)));
+
+        cache.store("driving", List.of(new MatrixCacheAdapter.Cell("a", "b", 1500, 90)));
+
+        assertEquals(1, cache.lookup("driving", List.of("a"), List.of("b"), dist, nan(1, 1)));
+        assertEquals(1500, dist[0][0]);
+    }
+
+    @Test
+    void zeroTtlNeverExpires() {
+        props.setCacheTtl(Duration.ZERO);
+        cache.store("driving", List.of(new MatrixCacheAdapter.Cell("a", "b", 1000, 60)));
+        jdbc.getJdbcTemplate().update(
+                "UPDATE osrm_matrix_cell SET updated_at = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(3650))));
+
+        assertEquals(1, cache.lookup("driving", List.of("a"), List.of("b"), nan(1, 1), nan(1, 1)));
+    }
+
+    private static DataSource dataSource(String options) throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1" + options);
+        try (Connection c = ds.getConnection()) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("schema.sql"));
+        }
+        return ds;
+    }
+
+    private static double[][] nan(int rows, int cols) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m) Arrays.fill(row, Double.NaN);
+        return m;
+    }
+}
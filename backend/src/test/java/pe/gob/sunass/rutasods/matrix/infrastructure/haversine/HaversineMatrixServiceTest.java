@@ -0,0 +1,57 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.haversine;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService.MatrixResult;
+import pe.gob.sunass.rutasods.matrix.infrastructure.MatrixProperties;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HaversineMatrixServiceTest {
+
+    // Un grado de latitud sobre la esfera de radio medio
+    private static final double KM_PER_DEGREE = 6371.0088 * Math.PI / 180;
+
+    @Test
+    void appliesRoadFactorSpeedAndTimeFactor() {
+        MatrixProperties props = new MatrixProperties();
+        props.getHaversine().setRoadFactor(1.4);
+        props.getHaversine().setSpeedKmh(45);
+        List<Location> points = List.of(point(-12, -77), point(-13, -77), point(-12, -76));
+
+        MatrixResult result = new HaversineMatrixService(props).calculateMatrix(points, points, 1.5);
+
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+        double roadKm = KM_PER_DEGREE * 1.4;
+        assertEquals(roadKm, result.distances().get(0, 1), 0.006);
+        assertEquals(roadKm / 45 * 60 * 1.5, result.durations().get(0, 1), 0.006);
+        // un grado de longitud se acorta con el coseno de la latitud
+        assertEquals(roadKm * Math.cos(Math.toRadians(12)), result.distances().get(0, 2), 0.05);
+    }
+
+    @Test
+    void symmetricWithZeroDiagonal() {
+        List<Location> points = List.of(point(-12.05, -77.04), point(-16.4, -71.53), point(-3.74, -73.25));
+
+        MatrixResult result = new HaversineMatrixService(new MatrixProperties()).calculateMatrix(points, points, 1.0);
+
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(0, result.distances().get(i, i));
+            assertEquals(0, result.durations().get(i, i));
+            for (int j = 0; j < points.size(); j++) {
+                assertEquals(result.distances().get(i, j), result.distances().get(j, i));
+                assertEquals(result.durations().get(i, j), result.durations().get(j, i));
+            }
+        }
+    }
+
+    private static Location point(double lat, double lng) {
+        Location p = new Location();
+        p.setLat(lat);
+        p.setLng(lng);
+        return p;
+    }
+}
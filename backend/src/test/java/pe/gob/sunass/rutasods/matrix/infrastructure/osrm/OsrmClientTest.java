@@ -0,0 +1,96 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.osrm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService.MatrixResult;
+import pe.gob.sunass.rutasods.matrix.infrastructure.FallbackMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.MatrixProperties;
+import pe.gob.sunass.rutasods.matrix.infrastructure.cache.MatrixCacheAdapter;
+import pe.gob.sunass.rutasods.matrix.infrastructure.haversine.HaversineMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.sparse.SparseMatrixBuilder;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OsrmClientTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OsrmProperties props = new OsrmProperties();
+    private final MatrixProperties matrixProps = new MatrixProperties();
+
+    // Intentos que llegaron al "servidor"
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final List<Location> points = List.of(location(-12.05, -77.04), location(-12.10, -77.00));
+
+    @BeforeEach
+    void setUp() {
+        props.setBaseUrl("https://osrm.test");
+        props.setProfile("driving");
+        props.setChunkSize(40);
+        props.setTimeoutSeconds(1);
+        props.setCacheEnabled(false);
+    }
+
+    @Test
+    void autoFallsBackToHaversineWhenOsrmHangs() {
+        FallbackMatrixService service = fallbackService(client(request -> {
+            attempts.incrementAndGet();
+            return Mono.never();
+        }));
+
+        // sin tope por intento la consulta no termina nunca
+        MatrixResult result = assertTimeoutPreemptively(Duration.ofSeconds(15),
+                () -> service.calculateMatrix(points, points, 1.0, MatrixProvider.AUTO));
+
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+        // un intento y dos reintentos, cada uno cortado a 1 s
+        assertEquals(3, attempts.get());
+        assertEquals(2, registry.get("rutasods.osrm.retries").counter().count());
+    }
+
+    @Test
+    void autoFallsBackToHaversineOnServerErrors() {
+        FallbackMatrixService service = fallbackService(client(request -> {
+            attempts.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }));
+
+        MatrixResult result = service.calculateMatrix(points, points, 1.0, MatrixProvider.AUTO);
+
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+        assertEquals(3, attempts.get());
+        assertTrue(result.distances().get(0, 1) > 0);
+    }
+
+    // ---------------- helpers -----------------
+
+    private OsrmClient client(ExchangeFunction server) {
+        return new OsrmClient(WebClient.builder().exchangeFunction(server).build(), props, registry);
+    }
+
+    private FallbackMatrixService fallbackService(OsrmClient client) {
+        OsrmMatrixService osrm = new OsrmMatrixService(client, props, mock(MatrixCacheAdapter.class), registry);
+        HaversineMatrixService haversine = new HaversineMatrixService(matrixProps);
+        return new FallbackMatrixService(osrm, haversine, mock(SparseMatrixBuilder.class), matrixProps);
+    }
+
+    private static Location location(double lat, double lng) {
+        Location p = new Location();
+        p.setLat(lat);
+        p.setLng(lng);
+        return p;
+    }
+}
@@ -0,0 +1,208 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.osrm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService.MatrixResult;
+import pe.gob.sunass.rutasods.matrix.infrastructure.cache.MatrixCacheAdapter;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OsrmMatrixServiceTest {
+
+    private static final double TIME_FACTOR = 1.5;
+
+    private OsrmClient client;
+    private MatrixCacheAdapter cache;
+    private OsrmProperties props;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // Tamaño (orígenes, destinos) de cada consulta /table
+    private final List<int[]> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        client = mock(OsrmClient.class);
+        cache = mock(MatrixCacheAdapter.class);
+        props = new OsrmProperties();
+        props.setProfile("driving");
+        props.setCacheEnabled(false);
+
+        // Cada celda vale según las coordenadas: lat del origen * 1000 + lat del destino.
+        // Las respuestas tardan distinto, para que lleguen desordenadas.
+        when(client.tableAsync(anyString(), anyInt(), anyInt())).thenAnswer(inv -> {
+            String[] coords = inv.<String>getArgument(0).split(";");
+            int sources = inv.getArgument(1);
+            int destinations = inv.getArgument(2);
+            requests.add(new int[]{sources, destinations});
+
+            double[][] dur = new double[sources][destinations];
+            double[][] dist = new double[sources][destinations];
+            for (int a = 0; a < sources; a++) {
+                for (int b = 0; b < destinations; b++) {
+                    double value = lat(coords[a]) * 1000 + lat(coords[sources + b]);
+                    dur[a][b] = value;
+                    dist[a][b] = value;
+                }
+            }
+            OsrmTableResponse res = new OsrmTableResponse();
+            res.setCode("Ok");
+            res.setDurations(dur);
+            res.setDistances(dist);
+
+            long delay = 5 + (long) (lat(coords[sources]) % 4) * 10;
+            return Mono.delay(Duration.ofMillis(delay))
+                    .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    // antes de entregar la respuesta: después flatMap ya puede pedir otra
+                    .map(t -> {
+                        inFlight.decrementAndGet();
+                        return res;
+                    });
+        });
+    }
+
+    private OsrmMatrixService service() {
+        return new OsrmMatrixService(client, props, cache, registry);
+    }
+
+    @Test
+    void chunksRunConcurrentlyUpToMaxInFlight() {
+        props.setChunkSize(2);
+        props.setMaxInFlight(3);
+
+        MatrixResult result = service().calculateMatrix(locations(0, 4), locations(100, 13), TIME_FACTOR);
+
+        assertEquals(7, requests.size());
+        assertEquals(3, maxInFlight.get());
+        assertCells(result, 4, 13, 0, 100);
+    }
+
+    @Test
+    void singleInFlightFetchesOneChunkAtATime() {
+        props.setChunkSize(3);
+        props.setMaxInFlight(1);
+
+        MatrixResult result = service().calculateMatrix(locations(0, 5), locations(0, 5), TIME_FACTOR);
+
+        assertEquals(1, maxInFlight.get());
+        assertCells(result, 5, 5, 0, 0);
+    }
+
+    @Test
+    void tilesRespectMaxTableSizeAndFillEveryCell() {
+        props.setChunkSize(10);
+        props.setSourceBlockSize(8);
+        props.setMaxTableSize(12);
+        List<Location> origins = locations(0, 23);
+        List<Location> destinations = locations(100, 17);
+
+        MatrixResult result = service().calculateMatrix(origins, destinations, TIME_FACTOR);
+
+        for (int[] request : requests) {
+            assertTrue(request[0] + request[1] <= 12, Arrays.toString(request));
+        }
+        assertEquals(23 * 17, requests.stream().mapToInt(r -> r[0] * r[1]).sum(), "cada celda se pide una vez");
+        assertCells(result, 23, 17, 0, 100);
+    }
+
+    @Test
+    void blockSizesSplitBothSides() {
+        props.setChunkSize(5);
+        props.setSourceBlockSize(4);
+
+        service().calculateMatrix(locations(0, 9), locations(0, 9), TIME_FACTOR);
+
+        // 3 bloques de orígenes (4, 4, 1) × 2 de destinos (5, 4)
+        assertEquals(6, requests.size());
+        assertTrue(requests.stream().allMatch(r -> r[0] <= 4 && r[1] <= 5));
+    }
+
+    @Test
+    void failedChunkFailsTheMatrix() {
+        props.setChunkSize(2);
+        OsrmTableResponse error = new OsrmTableResponse();
+        error.setCode("TooBig");
+        error.setDurations(new double[0][0]);
+        error.setDistances(new double[0][0]);
+        doReturn(Mono.just(error)).when(client).tableAsync(anyString(), anyInt(), anyInt());
+
+        List<Location> points = locations(0, 4);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service().calculateMatrix(points, points, TIME_FACTOR));
+        assertTrue(e.getMessage().contains("TooBig"));
+    }
+
+    @Test
+    void onlyMissingCellsAreFetchedAndStored() {
+        props.setCacheEnabled(true);
+        props.setChunkSize(50);
+        int n = 6;
+        // En cache: todo salvo la fila y la columna del último punto
+        when(cache.lookup(anyString(), anyList(), anyList(), any(), any())).thenAnswer(inv -> {
+            double[][] dist = inv.getArgument(3);
+            double[][] dur = inv.getArgument(4);
+            for (int i = 0; i < n - 1; i++) {
+                for (int j = 0; j < n - 1; j++) {
+                    dist[i][j] = i * 1000 + j;
+                    dur[i][j] = i * 1000 + j;
+                }
+            }
+            return (n - 1) * (n - 1);
+        });
+
+        MatrixResult result = service().calculateMatrix(locations(0, n), locations(0, n), TIME_FACTOR);
+
+        // Fila nueva × todas las columnas + filas parciales × la columna nueva
+        assertEquals(n + (n - 1), requests.stream().mapToInt(r -> r[0] * r[1]).sum());
+        assertCells(result, n, n, 0, 0);
+        verify(cache).store(eq("driving"), argThat(cells -> cells.size() == 2 * n - 1));
+        assertEquals((n - 1) * (n - 1), cells("cache"));
+        assertEquals(2 * n - 1, cells("osrm"));
+    }
+
+    // ---------------- helpers -----------------
+
+    private double cells(String source) {
+        return registry.get("rutasods.matrix.cells").tag("source", source).counter().count();
+    }
+
+    private static void assertCells(MatrixResult result, int rows, int cols, int rowLat, int colLat) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                double raw = (rowLat + i) * 1000.0 + (colLat + j);
+                assertEquals(raw / 1000.0, result.distances().get(i, j), 0.006, "dist " + i + "," + j);
+                assertEquals(raw / 60.0 * TIME_FACTOR, result.durations().get(i, j), 0.006, "dur " + i + "," + j);
+            }
+        }
+    }
+
+    /** Puntos con lat = firstLat, firstLat + 1, ... */
+    private static List<Location> locations(int firstLat, int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Location p = new Location();
+            p.setName("P" + i);
+            p.setLat(firstLat + i);
+            p.setLng(-77);
+            return p;
+        }).toList();
+    }
+
+    private static double lat(String coordinate) {
+        return Double.parseDouble(coordinate.split(",")[1]);
+    }
+}
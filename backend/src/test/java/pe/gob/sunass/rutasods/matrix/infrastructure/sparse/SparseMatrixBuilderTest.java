@@ -0,0 +1,204 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.sparse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService.MatrixResult;
+import pe.gob.sunass.rutasods.matrix.infrastructure.MatrixProperties;
+import pe.gob.sunass.rutasods.matrix.infrastructure.haversine.HaversineMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmMatrixService;
+import pe.gob.sunass.rutasods.matrix.infrastructure.osrm.OsrmProperties;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.model.SparseTravelMatrix;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.Mockito.*;
+
+class SparseMatrixBuilderTest {
+
+    private static final double TIME_FACTOR = 1.5;
+    private static final int NEIGHBORS = 6;
+
+    private final MatrixProperties props = new MatrixProperties();
+    private final OsrmProperties osrmProps = new OsrmProperties();
+    private final HaversineMatrixService haversine = new HaversineMatrixService(props);
+    private OsrmMatrixService osrm;
+    private SparseMatrixBuilder builder;
+
+    private List<Location> points;
+    private final Map<Location, Integer> indexOf = new IdentityHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        props.getSparse().setNeighbors(NEIGHBORS);
+        props.getSparse().setBlockRows(7);
+        osrmProps.setMaxInFlight(3);
+        osrm = mock(OsrmMatrixService.class);
+        builder = new SparseMatrixBuilder(osrm, haversine, props, osrmProps);
+
+        Random random = new Random(21);
+        points = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Location p = new Location();
+            p.setLat(-18 + random.nextDouble() * 18);
+            p.setLng(-81 + random.nextDouble() * 13);
+            points.add(p);
+            indexOf.put(p, i);
+        }
+    }
+
+    @Test
+    void osrmCellsMatchTheDenseMatrixAndTheRestIsEstimated() {
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble(), anyInt())).thenAnswer(inv -> fakeOsrm(inv.getArgument(0), inv.getArgument(1)));
+
+        MatrixResult result = builder.build(points, TIME_FACTOR, MatrixProvider.OSRM);
+
+        assertEquals(MatrixProvider.OSRM, result.provider());
+        SparseTravelMatrix distances = (SparseTravelMatrix) result.distances();
+        SparseTravelMatrix durations = (SparseTravelMatrix) result.durations();
+        MatrixResult estimated = haversine.calculateMatrix(points, points, TIME_FACTOR);
+        int n = points.size();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (distances.isMeasured(i, j)) {
+                    assertEquals(fakeKm(i, j), distances.get(i, j), i + "," + j);
+                    assertEquals(2 * fakeKm(i, j), durations.get(i, j), i + "," + j);
+                } else {
+                    assertEquals(estimated.distances().get(i, j), distances.get(i, j), 0.011, i + "," + j);
+                    assertEquals(estimated.durations().get(i, j), durations.get(i, j), 0.011, i + "," + j);
+                }
+            }
+        }
+        assertMeasuredLayout(distances);
+        assertTrue(distances.measuredCells() < n * n / 4);
+        // los bloques van en paralelo, pero cada uno pide sus teselas de a una
+        verify(osrm, never()).calculateMatrix(anyList(), anyList(), anyDouble(), intThat(c -> c != 1));
+    }
+
+    @Test
+    void haversineProviderEstimatesEveryCellWithoutOsrm() {
+        MatrixResult result = builder.build(points, TIME_FACTOR, MatrixProvider.HAVERSINE);
+
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+        assertMatchesHaversine(result);
+        assertMeasuredLayout((SparseTravelMatrix) result.distances());
+        verifyNoInteractions(osrm);
+    }
+
+    @Test
+    void autoFallsBackToHaversineWhenOsrmFails() {
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble(), anyInt()))
+                .thenThrow(new IllegalStateException("OSRM error: 503"));
+
+        MatrixResult result = builder.build(points, TIME_FACTOR, MatrixProvider.AUTO);
+
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+        assertMatchesHaversine(result);
+    }
+
+    @Test
+    void blocksStillInFlightDoNotOverwriteTheFallback() throws Exception {
+        // El primer bloque falla cuando ya hay otros dos en curso; esos
+        // terminan después de que build() devolvió la matriz haversine
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch othersStarted = new CountDownLatch(2);
+        CountDownLatch othersAnswered = new CountDownLatch(2);
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble(), anyInt())).thenAnswer(inv -> {
+            if (calls.incrementAndGet() == 1) {
+                othersStarted.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("OSRM error: 503");
+            }
+            othersStarted.countDown();
+            // al fallar el otro bloque se interrumpe el hilo; la respuesta llega igual
+            sleepUninterruptibly(200);
+            MatrixResult answer = fakeOsrm(inv.getArgument(0), inv.getArgument(1));
+            othersAnswered.countDown();
+            return answer;
+        });
+
+        MatrixResult result = builder.build(points, TIME_FACTOR, MatrixProvider.AUTO);
+        assertEquals(MatrixProvider.HAVERSINE, result.provider());
+
+        assertTrue(othersAnswered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100); // lo que tarda fetchBlock en copiar la respuesta
+        assertMatchesHaversine(result);
+    }
+
+    @Test
+    void explicitOsrmDoesNotFallBack() {
+        when(osrm.calculateMatrix(anyList(), anyList(), anyDouble(), anyInt()))
+                .thenThrow(new IllegalStateException("OSRM error: 503"));
+
+        assertThrows(IllegalStateException.class, () -> builder.build(points, TIME_FACTOR, MatrixProvider.OSRM));
+    }
+
+    // ---------------- helpers -----------------
+
+    /** La ODS contra todos en ambos sentidos; cada punto con sus vecinos, de ida y de vuelta. */
+    private void assertMeasuredLayout(SparseTravelMatrix m) {
+        int n = m.rows();
+        for (int i = 1; i < n; i++) {
+            assertTrue(m.isMeasured(0, i));
+            assertTrue(m.isMeasured(i, 0));
+            int[] cols = m.measuredColumns(i);
+            assertTrue(cols.length >= NEIGHBORS + 1, "vecinos de " + i);
+            for (int j : cols) {
+                assertTrue(m.isMeasured(j, i), i + " -> " + j + " sin el inverso");
+            }
+        }
+    }
+
+    private void assertMatchesHaversine(MatrixResult result) {
+        MatrixResult dense = haversine.calculateMatrix(points, points, TIME_FACTOR);
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = 0; j < points.size(); j++) {
+                assertEquals(dense.distances().get(i, j), result.distances().get(i, j), 0.011, i + "," + j);
+                assertEquals(dense.durations().get(i, j), result.durations().get(i, j), 0.011, i + "," + j);
+            }
+        }
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        boolean interrupted = false;
+        for (long left; (left = until - System.nanoTime()) > 0; ) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(left);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private MatrixResult fakeOsrm(List<Location> origins, List<Location> destinations) {
+        FlatTravelMatrix dist = new FlatTravelMatrix(origins.size(), destinations.size());
+        FlatTravelMatrix dur = new FlatTravelMatrix(origins.size(), destinations.size());
+        for (int a = 0; a < origins.size(); a++) {
+            for (int b = 0; b < destinations.size(); b++) {
+                double km = fakeKm(indexOf.get(origins.get(a)), indexOf.get(destinations.get(b)));
+                dist.set(a, b, km);
+                dur.set(a, b, 2 * km);
+            }
+        }
+        return new MatrixResult(dist, dur, MatrixProvider.OSRM);
+    }
+
+    private static double fakeKm(int from, int to) {
+        return from == to ? 0 : 5000 + from * 100 + to + 0.25;
+    }
+}
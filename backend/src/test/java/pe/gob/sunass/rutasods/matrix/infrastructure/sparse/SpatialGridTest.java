@@ -0,0 +1,132 @@
+package pe.gob.sunass.rutasods.matrix.infrastructure.sparse;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    @Test
+    void nearestMatchesBruteForceOnUniformPoints() {
+        Random random = new Random(11);
+        List<Location> points = new ArrayList<>();
+        points.add(point(-12.05, -77.04)); // ODS
+        for (int i = 0; i < 400; i++) {
+            points.add(point(-18 + random.nextDouble() * 18, -81 + random.nextDouble() * 13));
+        }
+
+        assertMatchesBruteForce(points, 1, 8, 32);
+    }
+
+    @Test
+    void nearestMatchesBruteForceOnClusteredPoints() {
+        // ciudades densas y puntos aislados: el k-ésimo vecino suele caer varios anillos afuera
+        Random random = new Random(5);
+        List<Location> points = new ArrayList<>();
+        points.add(point(-12.05, -77.04));
+        double[][] centers = {{-12.0, -77.0}, {-16.4, -71.5}, {-3.7, -73.2}};
+        for (double[] c : centers) {
+            for (int i = 0; i < 120; i++) {
+                points.add(point(c[0] + random.nextGaussian() * 0.05, c[1] + random.nextGaussian() * 0.05));
+            }
+        }
+        for (int i = 0; i < 15; i++) {
+            points.add(point(-18 + random.nextDouble() * 18, -81 + random.nextDouble() * 13));
+        }
+
+        assertMatchesBruteForce(points, 1, 5, 20, 60);
+    }
+
+    @Test
+    void nearestMatchesBruteForceOnAlignedPoints() {
+        Random random = new Random(3);
+        List<Location> points = new ArrayList<>();
+        points.add(point(0, 0));
+        for (int i = 0; i < 200; i++) {
+            points.add(point(-10, -80 + random.nextDouble() * 10));
+        }
+
+        assertMatchesBruteForce(points, 4, 16);
+    }
+
+    @Test
+    void neverReturnsTheOdsNorThePointItself() {
+        List<Location> points = List.of(point(0, 0), point(0, 0.1), point(0, 0.2), point(0, 0.3));
+        SpatialGrid grid = new SpatialGrid(points, 1);
+
+        assertArrayEquals(new int[]{2, 3}, grid.nearest(1, 2));
+        // k mayor que los puntos indexados: devuelve los que hay
+        assertArrayEquals(new int[]{2, 1}, grid.nearest(3, 10));
+    }
+
+    @Test
+    void spatialOrderWalksRowsInZigZag() {
+        // 2 x 2 celdas: fila de abajo (lat 0) de izquierda a derecha, la de arriba (lat 3) al revés
+        List<Location> points = List.of(
+                point(-20, -70),                                                  // ODS
+                point(0, 0), point(0, 1), point(0, 2), point(0, 3),               // 1..4
+                point(3, 0), point(3, 1), point(3, 2), point(3, 3));              // 5..8
+
+        int[] order = new SpatialGrid(points, 1).spatialOrder();
+
+        assertArrayEquals(new int[]{1, 2, 3, 4, 8, 5, 6, 7}, order);
+    }
+
+    @Test
+    void spatialOrderVisitsEveryIndexedPointOnce() {
+        Random random = new Random(9);
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            points.add(point(-18 + random.nextDouble() * 18, -81 + random.nextDouble() * 13));
+        }
+
+        int[] order = new SpatialGrid(points, 1).spatialOrder();
+
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(IntStream.range(1, points.size()).toArray(), sorted);
+    }
+
+    // ---------------- helpers -----------------
+
+    private static void assertMatchesBruteForce(List<Location> points, int... ks) {
+        SpatialGrid grid = new SpatialGrid(points, 1);
+        double cosLat = Math.cos(Math.toRadians(
+                points.stream().skip(1).mapToDouble(Location::getLat).average().orElse(0)));
+
+        for (int k : ks) {
+            for (int i = 1; i < points.size(); i++) {
+                int from = i;
+                int[] expected = IntStream.range(1, points.size())
+                        .filter(j -> j != from)
+                        .boxed()
+                        .sorted(Comparator.comparingDouble(j -> planeDistance(points, cosLat, from, j)))
+                        .limit(k)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                assertArrayEquals(expected, grid.nearest(i, k), "punto " + i + ", k = " + k);
+            }
+        }
+    }
+
+    private static double planeDistance(List<Location> points, double cosLat, int a, int b) {
+        double dx = (points.get(a).getLng() - points.get(b).getLng()) * cosLat;
+        double dy = points.get(a).getLat() - points.get(b).getLat();
+        return dx * dx + dy * dy;
+    }
+
+    private static Location point(double lat, double lng) {
+        Location p = new Location();
+        p.setLat(lat);
+        p.setLng(lng);
+        return p;
+    }
+}
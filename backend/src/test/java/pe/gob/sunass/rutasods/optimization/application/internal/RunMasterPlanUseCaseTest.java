@@ -0,0 +1,105 @@
+package pe.gob.sunass.rutasods.optimization.application.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixProvider;
+import pe.gob.sunass.rutasods.matrix.application.internal.MatrixService;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerMetrics;
+import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationCacheService;
+import pe.gob.sunass.rutasods.optimization.infrastructure.trace.SearchTraceStore;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeRequest;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RunMasterPlanUseCaseTest {
+
+    private static final long MAX_SEARCH_WORK = 10_000_000L;
+
+    private MatrixService matrixService;
+    private RunMasterPlanUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        matrixService = mock(MatrixService.class);
+        when(matrixService.calculatePlanningMatrix(anyList(), anyDouble(), any(), any()))
+                .thenReturn(new MatrixService.MatrixResult(
+                        new FlatTravelMatrix(1, 1), new FlatTravelMatrix(1, 1), MatrixProvider.HAVERSINE));
+        useCase = new RunMasterPlanUseCase(
+                matrixService,
+                mock(OptimizationCacheService.class),
+                PlannerMetrics.NONE,
+                mock(SearchTraceStore.class),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void searchWorkCountsEveryOrderOfEveryCombination() {
+        // valores por defecto: k = 0..4 vecinos de 5
+        assertEquals(1 + 5 * 2 + 10 * 6 + 10 * 24 + 5 * 120, RunMasterPlanUseCase.searchWork(5, 5, BRANCH_AND_BOUND));
+        // un pool más chico que el combo limita los vecinos
+        assertEquals(1 + 2 * 2 + 6, RunMasterPlanUseCase.searchWork(2, 12, BRUTE_FORCE));
+        assertEquals(2, RunMasterPlanUseCase.searchWork(20, 1, HELD_KARP));
+    }
+
+    @Test
+    void heldKarpAllowsLargeCombosOnlyWithSmallPools() {
+        // 2^m·m² por cluster en vez de m!: combos de 12 con hasta 10 vecinos
+        assertTrue(RunMasterPlanUseCase.searchWork(10, 12, HELD_KARP) <= MAX_SEARCH_WORK);
+        assertTrue(RunMasterPlanUseCase.searchWork(11, 12, HELD_KARP) > MAX_SEARCH_WORK);
+        assertTrue(RunMasterPlanUseCase.searchWork(10, 12, BRANCH_AND_BOUND) > MAX_SEARCH_WORK);
+
+        OptimizeRequest request = request(new OptimizeRequest.ConstraintsDto());
+        request.getConstraints().ordering = "held_karp";
+        request.getConstraints().searchPoolSize = 11;
+        request.getConstraints().maxComboSize = 12;
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> useCase.execute(request));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertTrue(e.getReason().contains("y ordering HELD_KARP"), e.getReason());
+    }
+
+    @Test
+    void poolAndComboThatAreValidAloneAreRejectedTogether() {
+        OptimizeRequest request = request(new OptimizeRequest.ConstraintsDto());
+        request.getConstraints().searchPoolSize = 20;
+        request.getConstraints().maxComboSize = 8;
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> useCase.execute(request));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertTrue(e.getReason().contains("searchPoolSize 20 con maxComboSize 8"), e.getReason());
+    }
+
+    @Test
+    void validateRejectsBadValuesWithoutComputingTheMatrix() {
+        OptimizeRequest badOrdering = request(new OptimizeRequest.ConstraintsDto());
+        badOrdering.getConstraints().ordering = "fastest";
+        OptimizeRequest badProvider = request(null);
+        badProvider.setMatrixProvider("google");
+
+        for (OptimizeRequest request : List.of(badOrdering, badProvider)) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> useCase.validate(request));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+        assertThrows(ResponseStatusException.class, () -> useCase.execute(badOrdering));
+        verifyNoInteractions(matrixService);
+
+        useCase.validate(request(null));
+    }
+
+    private static OptimizeRequest request(OptimizeRequest.ConstraintsDto constraints) {
+        OptimizeRequest request = new OptimizeRequest();
+        request.setOds(new OptimizeRequest.OdsDto(-12.0, -77.0));
+        request.setPoints(List.of());
+        request.setConstraints(constraints);
+        return request;
+    }
+}
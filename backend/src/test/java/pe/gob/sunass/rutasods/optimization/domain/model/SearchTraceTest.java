@@ -0,0 +1,58 @@
+package pe.gob.sunass.rutasods.optimization.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTraceTest {
+
+    @Test
+    void eachLevelIncludesThePreviousOnes() {
+        SearchTrace trace = new SearchTrace(SearchTrace.Level.BEST, 10);
+
+        assertTrue(trace.isEnabled(SearchTrace.Level.ROUTES));
+        assertTrue(trace.isEnabled(SearchTrace.Level.BEST));
+        assertFalse(trace.isEnabled(SearchTrace.Level.CANDIDATES));
+        assertFalse(SearchTrace.OFF.isEnabled(SearchTrace.Level.OFF));
+        assertFalse(SearchTrace.OFF.isEnabled(SearchTrace.Level.ROUTES));
+    }
+
+    @Test
+    void withoutCapacityTheTraceIsOff() {
+        SearchTrace trace = new SearchTrace(SearchTrace.Level.CANDIDATES, 0);
+
+        assertEquals(SearchTrace.Level.OFF, trace.getLevel());
+        trace.record(SearchTrace.Kind.SEED, new int[]{1, 2}, 2);
+        assertTrue(trace.entries().isEmpty());
+    }
+
+    @Test
+    void fullBufferKeepsTheNewestEntriesInOrder() {
+        SearchTrace trace = new SearchTrace(SearchTrace.Level.ROUTES, 3);
+        for (int i = 0; i < 5; i++) {
+            trace.record(SearchTrace.Kind.ROUTE, new int[]{0, i, 99}, 2, i, 1, 0, 10.0 * i, Double.NaN);
+        }
+
+        List<SearchTrace.Entry> entries = trace.entries();
+        assertEquals(List.of(2L, 3L, 4L), entries.stream().map(SearchTrace.Entry::sequence).toList());
+        assertArrayEquals(new int[]{0, 4}, entries.get(2).path());
+        assertEquals(40.0, entries.get(2).cost());
+        assertEquals(5, trace.getRecordedCount());
+        assertEquals(2, trace.getDroppedCount());
+    }
+
+    @Test
+    void entriesCopyThePath() {
+        SearchTrace trace = new SearchTrace(SearchTrace.Level.ROUTES, 4);
+        int[] path = {0, 3, 5};
+
+        trace.record(SearchTrace.Kind.SEED, path, path.length);
+        path[1] = 7;
+
+        assertArrayEquals(new int[]{0, 3, 5}, trace.entries().get(0).path());
+        assertTrue(Double.isNaN(trace.entries().get(0).km()));
+        assertEquals(-1, trace.entries().get(0).days());
+    }
+}
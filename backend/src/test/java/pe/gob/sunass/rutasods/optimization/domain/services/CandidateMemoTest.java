@@ -0,0 +1,110 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerMetrics;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockConstruction;
+
+class CandidateMemoTest {
+
+    private static final int[] POOL = {7, 3, 12, 5};
+
+    @Test
+    void nothingPendingUntilSeedRejectsSomething() {
+        CandidateMemo memo = new CandidateMemo(20);
+        int[] masks = CandidateSearchEngine.enumerateMasks(POOL.length, 3);
+
+        assertNull(memo.pending(9, POOL, masks));
+
+        memo.rejectAll(9, POOL, new int[]{0b0001, 0b0011});
+
+        assertArrayEquals(without(masks, 0b0001, 0b0011), memo.pending(9, POOL, masks));
+        assertEquals(2, memo.drainHits());
+        assertEquals(masks.length - 2, memo.drainMisses());
+        assertEquals(0, memo.drainHits());
+    }
+
+    @Test
+    void clustersAreKeyedByPointsNotPoolPositions() {
+        CandidateMemo memo = new CandidateMemo(20);
+        memo.rejectAll(9, POOL, new int[]{0b0011}); // {7, 3}
+
+        // mismo cluster {3, 7} en otras posiciones de otro pool
+        int[] otherPool = {3, 11, 7};
+        int[] pending = memo.pending(9, otherPool, new int[]{0b001, 0b101, 0b011});
+
+        assertArrayEquals(new int[]{0b001, 0b011}, pending);
+    }
+
+    @Test
+    void anotherSeedOrForgetDropsEverything() {
+        CandidateMemo memo = new CandidateMemo(20);
+        int[] masks = {0, 0b1, 0b10};
+        memo.rejectAll(9, POOL, masks);
+
+        assertNull(memo.pending(4, POOL, masks));
+
+        memo.forget(4); // otra semilla: no toca lo guardado
+        assertArrayEquals(new int[0], memo.pending(9, POOL, masks));
+
+        memo.rejectAll(4, POOL, new int[]{0b1});
+        assertNull(memo.pending(9, POOL, masks));
+
+        memo.forget(4);
+        assertNull(memo.pending(4, POOL, masks));
+    }
+
+    @Test
+    void notUsedForHeldKarpOrLargePools() {
+        assertTrue(CandidateMemo.applies(OrderingStrategy.BRUTE_FORCE, 5));
+        assertTrue(CandidateMemo.applies(OrderingStrategy.BRANCH_AND_BOUND, CandidateMemo.MAX_POOL_SIZE));
+        assertFalse(CandidateMemo.applies(OrderingStrategy.HELD_KARP, 5));
+        assertFalse(CandidateMemo.applies(OrderingStrategy.BRUTE_FORCE, CandidateMemo.MAX_POOL_SIZE + 1));
+    }
+
+    @Test
+    void plannerProducesSamePlanWithAndWithoutMemo() {
+        for (OrderingStrategy ordering : new OrderingStrategy[]{
+                OrderingStrategy.BRUTE_FORCE, OrderingStrategy.BRANCH_AND_BOUND}) {
+            for (long seed = 1; seed <= 3; seed++) {
+                PlannerFixtures f = PlannerFixtures.random(16, seed).withOverloadedPoints(2);
+
+                AtomicLong hits = new AtomicLong();
+                PlannerOptions options = PlannerOptions.defaults();
+                options.setOrdering(ordering);
+                options.setMetrics(new PlannerMetrics() {
+                    @Override
+                    public void onSearchCompleted(long evaluated, long pruned, long memoHits, long memoMisses) {
+                        hits.addAndGet(memoHits);
+                    }
+                });
+                RoutePlan withMemo = f.plan(options);
+
+                RoutePlan withoutMemo;
+                // un memo mock no guarda nada: pending() devuelve null y se busca todo
+                try (MockedConstruction<CandidateMemo> ignored = mockConstruction(CandidateMemo.class)) {
+                    options.setMetrics(PlannerMetrics.NONE);
+                    withoutMemo = f.plan(options);
+                }
+
+                assertTrue(hits.get() > 0, "el escenario debe reusar clusters rechazados");
+                assertEquals(PlannerFixtures.stops(withoutMemo), PlannerFixtures.stops(withMemo));
+                assertEquals(PlannerFixtures.totalCost(withoutMemo), PlannerFixtures.totalCost(withMemo), 1e-6);
+            }
+        }
+    }
+
+    private static int[] without(int[] masks, int... removed) {
+        return Arrays.stream(masks)
+                .filter(m -> Arrays.stream(removed).noneMatch(r -> r == m))
+                .toArray();
+    }
+}
@@ -0,0 +1,170 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara la enumeración Gosper + Heap con el backtracking original
+ * (combinaciones lexicográficas, luego permutaciones lexicográficas, y se
+ * queda con el primero ante empate).
+ */
+class CandidateSearchEngineTest {
+
+    private static final int MAX_NEIGHBORS = 4;
+
+    /** Métrica con muchos empates y algunos candidatos descartados. */
+    private static final CandidateSearchEngine.PathScorer TIE_HEAVY = (path, length) -> {
+        if (length > 3 && path[1] % 3 == 0) return CandidateSearchEngine.REJECTED;
+        double metric = 0;
+        for (int i = 1; i < length; i++) {
+            metric += Math.abs(path[i] - path[i - 1]) % 4;
+        }
+        return metric / length;
+    };
+
+    @Test
+    void bruteForceMatchesLegacyEnumeration() {
+        Random random = new Random(42);
+        for (int run = 0; run < 40; run++) {
+            int poolSize = 1 + random.nextInt(6);
+            int[] pool = distinctPoints(random, poolSize);
+            int seed = 1 + random.nextInt(30);
+
+            CandidateSearchEngine engine = new CandidateSearchEngine(MAX_NEIGHBORS + 1);
+            boolean found = engine.search(seed, pool, poolSize, MAX_NEIGHBORS, TIE_HEAVY);
+
+            Legacy legacy = new Legacy(TIE_HEAVY);
+            legacy.search(seed, pool, poolSize, MAX_NEIGHBORS);
+
+            assertEquals(legacy.best != null, found);
+            if (found) {
+                assertArrayEquals(legacy.best, bestPath(engine), "pool " + Arrays.toString(pool));
+                assertEquals(legacy.bestMetric, engine.getBestMetric());
+            }
+        }
+    }
+
+    @Test
+    void allTiedKeepsFirstLegacyCandidate() {
+        int[] pool = {5, 2, 9};
+        CandidateSearchEngine engine = new CandidateSearchEngine(4);
+
+        engine.search(7, pool, 3, 3, (path, length) -> length < 3 ? CandidateSearchEngine.REJECTED : 1.0);
+
+        // primer candidato de 1 vecino: [semilla, pool[0]]
+        assertArrayEquals(new int[]{0, 7, 5}, bestPath(engine));
+    }
+
+    @Test
+    void tieWithinSubsetPrefersLexicographicOrder() {
+        int[] pool = {4, 8};
+        CandidateSearchEngine engine = new CandidateSearchEngine(3);
+
+        // Solo cuentan los clusters completos; todos sus órdenes empatan
+        engine.search(1, pool, 2, 2, (path, length) -> length == 4 ? 0.0 : CandidateSearchEngine.REJECTED);
+
+        assertArrayEquals(new int[]{0, 1, 4, 8}, bestPath(engine));
+        assertEquals(1 + 2 * 2 + 6, engine.getEvaluatedCount()); // k = 0, 1 y 2 vecinos
+    }
+
+    @Test
+    void parallelSearchMatchesSequential() {
+        Random random = new Random(7);
+        ForkJoinPool forkJoin = new ForkJoinPool(4);
+        try {
+            for (int run = 0; run < 20; run++) {
+                int poolSize = 4 + random.nextInt(5);
+                int[] pool = distinctPoints(random, poolSize);
+                int seed = 1 + random.nextInt(30);
+
+                CandidateSearchEngine serial = new CandidateSearchEngine(MAX_NEIGHBORS + 1);
+                serial.search(seed, pool, poolSize, MAX_NEIGHBORS, TIE_HEAVY);
+
+                CandidateSearchEngine parallel = new ParallelCandidateSearch(
+                        forkJoin, MAX_NEIGHBORS + 1, OrderingStrategy.BRUTE_FORCE, () -> TIE_HEAVY)
+                        .search(seed, pool, poolSize, MAX_NEIGHBORS);
+
+                assertEquals(serial.hasBest(), parallel.hasBest());
+                if (serial.hasBest()) {
+                    assertArrayEquals(bestPath(serial), bestPath(parallel));
+                }
+            }
+        } finally {
+            forkJoin.shutdown();
+        }
+    }
+
+    @Test
+    void enumerateMasksFollowsSearchOrder() {
+        int[] masks = CandidateSearchEngine.enumerateMasks(4, 2);
+
+        assertArrayEquals(new int[]{0, 0b1, 0b10, 0b100, 0b1000,
+                0b11, 0b101, 0b110, 0b1001, 0b1010, 0b1100}, masks);
+    }
+
+    // ---------------- helpers -----------------
+
+    private static int[] bestPath(CandidateSearchEngine engine) {
+        return Arrays.copyOf(engine.getBestPath(), engine.getBestLength());
+    }
+
+    private static int[] distinctPoints(Random random, int size) {
+        return random.ints(1, 40).distinct().limit(size).toArray();
+    }
+
+    /** Backtracking original del planner, como referencia. */
+    private static final class Legacy {
+
+        private final CandidateSearchEngine.PathScorer scorer;
+        private int[] best;
+        private double bestMetric = Double.POSITIVE_INFINITY;
+
+        Legacy(CandidateSearchEngine.PathScorer scorer) {
+            this.scorer = scorer;
+        }
+
+        void search(int seed, int[] pool, int poolSize, int maxNeighbors) {
+            for (int k = 0; k <= maxNeighbors && k <= poolSize; k++) {
+                combinations(seed, pool, poolSize, k, 0, new int[k], 0);
+            }
+        }
+
+        private void combinations(int seed, int[] pool, int poolSize, int k, int start, int[] combo, int depth) {
+            if (depth == k) {
+                int[] cluster = new int[k + 1];
+                cluster[0] = seed;
+                System.arraycopy(combo, 0, cluster, 1, k);
+                permutations(cluster, new int[k + 2], new boolean[k + 1], 0);
+                return;
+            }
+            for (int i = start; i < poolSize; i++) {
+                combo[depth] = pool[i];
+                combinations(seed, pool, poolSize, k, i + 1, combo, depth + 1);
+            }
+        }
+
+        private void permutations(int[] cluster, int[] path, boolean[] used, int depth) {
+            if (depth == cluster.length) {
+                double metric = scorer.score(path, path.length);
+                if (!Double.isNaN(metric) && metric < bestMetric) {
+                    bestMetric = metric;
+                    best = path.clone();
+                }
+                return;
+            }
+            for (int i = 0; i < cluster.length; i++) {
+                if (used[i]) continue;
+                used[i] = true;
+                path[depth + 1] = cluster[i];
+                permutations(cluster, path, used, depth + 1);
+                used[i] = false;
+            }
+        }
+    }
+}
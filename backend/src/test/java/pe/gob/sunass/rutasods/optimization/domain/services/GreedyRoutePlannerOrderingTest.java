@@ -0,0 +1,119 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerMetrics;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchMode;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GreedyRoutePlannerOrderingTest {
+
+    private static PlannerOptions options(OrderingStrategy ordering) {
+        PlannerOptions options = PlannerOptions.defaults();
+        options.setOrdering(ordering);
+        return options;
+    }
+
+    @Test
+    void branchAndBoundPlansLikeBruteForce() {
+        for (long seed = 1; seed <= 6; seed++) {
+            PlannerFixtures f = PlannerFixtures.random(16, seed);
+
+            RoutePlan bruteForce = f.plan(options(OrderingStrategy.BRUTE_FORCE));
+            RoutePlan branchAndBound = f.plan(options(OrderingStrategy.BRANCH_AND_BOUND));
+
+            assertEquals(PlannerFixtures.stops(bruteForce), PlannerFixtures.stops(branchAndBound), "seed " + seed);
+            assertEquals(PlannerFixtures.totalCost(bruteForce), PlannerFixtures.totalCost(branchAndBound), 1e-6);
+        }
+    }
+
+    /**
+     * HELD_KARP guarda pocas etiquetas por estado, así que no garantiza el
+     * óptimo; en estos escenarios llega al mismo costo que BRUTE_FORCE.
+     */
+    @Test
+    void heldKarpPlansCostLikeBruteForce() {
+        for (long seed = 1; seed <= 6; seed++) {
+            PlannerFixtures f = PlannerFixtures.random(16, seed);
+
+            RoutePlan bruteForce = f.plan(options(OrderingStrategy.BRUTE_FORCE));
+            RoutePlan heldKarp = f.plan(options(OrderingStrategy.HELD_KARP));
+
+            assertEquals(PlannerFixtures.totalCost(bruteForce), PlannerFixtures.totalCost(heldKarp), 1e-6, "seed " + seed);
+        }
+    }
+
+    /** BRUTE_FORCE no poda: la búsqueda paralela debe sumar lo mismo que la secuencial. */
+    @Test
+    void parallelSearchReportsTheCountsOfAllLeaves() {
+        PlannerFixtures f = PlannerFixtures.random(16, 2);
+
+        RecordingMetrics serial = new RecordingMetrics();
+        PlannerOptions serialOptions = options(OrderingStrategy.BRUTE_FORCE);
+        serialOptions.setMetrics(serial);
+        f.plan(serialOptions);
+
+        RecordingMetrics parallel = new RecordingMetrics();
+        PlannerOptions parallelOptions = options(OrderingStrategy.BRUTE_FORCE);
+        parallelOptions.setSearchMode(SearchMode.PARALLEL);
+        parallelOptions.setMetrics(parallel);
+        f.plan(parallelOptions);
+
+        assertFalse(serial.evaluated.isEmpty());
+        assertEquals(serial.evaluated, parallel.evaluated);
+        assertEquals(1, serial.finished);
+        assertEquals(1, parallel.finished);
+    }
+
+    @Test
+    void routesTraceRecordsEverySeedAndRoute() {
+        PlannerFixtures f = PlannerFixtures.random(16, 4);
+        PlannerOptions options = options(OrderingStrategy.BRANCH_AND_BOUND);
+        SearchTrace trace = new SearchTrace(SearchTrace.Level.ROUTES, 1000);
+        options.setTrace(trace);
+
+        List<RouteSegment> plan = f.plan(options).getRoutes();
+
+        List<SearchTrace.Entry> entries = trace.entries();
+        assertTrue(entries.stream().allMatch(e -> e.kind() == SearchTrace.Kind.SEED
+                || e.kind() == SearchTrace.Kind.ROUTE
+                || e.kind() == SearchTrace.Kind.FALLBACK_ROUTE));
+        List<SearchTrace.Entry> routes = entries.stream().filter(e -> e.kind() != SearchTrace.Kind.SEED).toList();
+        assertEquals(plan.size(), routes.size());
+
+        // en el mismo orden que el plan, con la ODS al inicio del recorrido
+        for (int r = 0; r < plan.size(); r++) {
+            RouteSegment route = plan.get(r);
+            SearchTrace.Entry entry = routes.get(r);
+            assertEquals(route.getPoints().size() + 1, entry.path().length);
+            assertEquals(route.getDistance(), entry.km(), 1e-6);
+            if (entry.kind() == SearchTrace.Kind.ROUTE) {
+                assertEquals(route.getTotalCost(), entry.cost(), 1e-6);
+            }
+        }
+    }
+
+    private static final class RecordingMetrics implements PlannerMetrics {
+
+        final List<Long> evaluated = new ArrayList<>();
+        int finished;
+
+        @Override
+        public void onSearchCompleted(long evaluatedCount, long prunedCount) {
+            evaluated.add(evaluatedCount);
+        }
+
+        @Override
+        public void onPlanningFinished(int points, PlannerOptions options, long elapsedNanos) {
+            finished++;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.shared.domain.model.DayLog;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.ItineraryResult;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItineraryCalculatorTest {
+
+    private static final int PC = 180;
+    private static final int OC = 120;
+
+    @Test
+    void tasksOfOneOcFitInADay() {
+        List<Location> points = List.of(point("ODS", Location.Category.PC, 0), point("A", Location.Category.OC, 3));
+        FlatTravelMatrix durations = matrix(new double[][]{{0, 30}, {30, 0}});
+
+        ItineraryResult result = new ItineraryCalculator().calculate(new int[]{0, 1}, 2, points, durations, PC, OC);
+
+        assertEquals(1, result.getNumDays());
+        assertEquals(0, result.getNumNights());
+        assertEquals(60, travel(result));
+        assertEquals(3 * OC, work(result));
+    }
+
+    @Test
+    void tasksPastTheWorkDayOvernightAtNearestPc() {
+        List<Location> points = List.of(
+                point("ODS", Location.Category.PC, 0),
+                point("A", Location.Category.OC, 5),
+                point("B", Location.Category.PC, 0));
+        FlatTravelMatrix durations = matrix(new double[][]{
+                {0, 30, 40},
+                {30, 0, 10},
+                {40, 10, 0}});
+
+        ItineraryResult result = new ItineraryCalculator().calculate(new int[]{0, 1}, 2, points, durations, PC, OC);
+
+        // la quinta tarea no entra en la jornada: ida y vuelta a B para dormir
+        assertEquals(2, result.getNumDays());
+        assertEquals(1, result.getNumNights());
+        assertEquals(30 + 10 + 10 + 30, travel(result));
+        assertEquals(5 * OC, work(result));
+    }
+
+    @Test
+    void bruteForceRoutesKeepTheirCalculatedItinerary() {
+        for (long seed = 1; seed <= 4; seed++) {
+            PlannerFixtures f = PlannerFixtures.random(14, seed);
+            PlannerOptions options = PlannerOptions.defaults();
+            options.setOrdering(OrderingStrategy.BRUTE_FORCE);
+
+            for (RouteSegment route : f.plan(options).getRoutes()) {
+                List<Integer> path = new ArrayList<>();
+                path.add(0);
+                route.getPoints().forEach(p -> path.add(f.points.indexOf(p)));
+
+                ItineraryResult expected = new ItineraryCalculator().calculate(
+                        path, f.points, f.durations, PlannerFixtures.PC_DURATION, PlannerFixtures.OC_DURATION);
+
+                assertEquals(expected.getNumDays(), route.getDays(), route.getName());
+                assertEquals(expected.getNumNights(), route.getNights(), route.getName());
+            }
+        }
+    }
+
+    private static Location point(String name, Location.Category category, int ocCount) {
+        Location p = new Location();
+        p.setName(name);
+        p.setCategory(category);
+        p.setOcCount(ocCount);
+        return p;
+    }
+
+    private static FlatTravelMatrix matrix(double[][] values) {
+        FlatTravelMatrix m = new FlatTravelMatrix(values.length, values.length);
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < values.length; j++) {
+                m.set(i, j, values[i][j]);
+            }
+        }
+        return m;
+    }
+
+    private static int travel(ItineraryResult result) {
+        return result.getLogs().stream().mapToInt(DayLog::getTravelMinutes).sum();
+    }
+
+    private static int work(ItineraryResult result) {
+        return result.getLogs().stream().mapToInt(DayLog::getWorkMinutes).sum();
+    }
+}
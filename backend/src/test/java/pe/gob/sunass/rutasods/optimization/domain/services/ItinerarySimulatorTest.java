@@ -0,0 +1,84 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.shared.domain.model.DayLog;
+import pe.gob.sunass.rutasods.shared.domain.model.ItineraryResult;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItinerarySimulatorTest {
+
+    @Test
+    void matchesItineraryCalculatorOnRandomPaths() {
+        ItineraryCalculator calculator = new ItineraryCalculator();
+        int multiDay = 0;
+
+        for (long seed = 1; seed <= 8; seed++) {
+            PlannerFixtures f = PlannerFixtures.random(14, seed);
+            ItinerarySimulator simulator = new ItinerarySimulator(
+                    new ItinerarySimulator.Model(
+                            f.points, f.durations, PlannerFixtures.PC_DURATION, PlannerFixtures.OC_DURATION),
+                    f.points.size());
+            Random random = new Random(seed);
+
+            for (int run = 0; run < 50; run++) {
+                int[] path = randomPath(random, f.points.size(), 1 + random.nextInt(6));
+
+                ItineraryResult expected = calculator.calculate(
+                        path, path.length, f.points, f.durations,
+                        PlannerFixtures.PC_DURATION, PlannerFixtures.OC_DURATION);
+                simulator.simulate(path, path.length);
+
+                String label = Arrays.toString(path);
+                assertEquals(expected.getNumDays(), simulator.getResultDays(), label);
+                assertEquals(expected.getNumNights(), simulator.getResultNights(), label);
+                assertEquals(minutes(expected), simulator.getResultMinutes(), label);
+                if (expected.getNumDays() > 1) multiDay++;
+            }
+        }
+        assertTrue(multiDay > 0, "los escenarios deben incluir pernoctes");
+    }
+
+    @Test
+    void undoRestoresThePrefix() {
+        PlannerFixtures f = PlannerFixtures.random(10, 3);
+        ItinerarySimulator simulator = new ItinerarySimulator(
+                new ItinerarySimulator.Model(
+                        f.points, f.durations, PlannerFixtures.PC_DURATION, PlannerFixtures.OC_DURATION),
+                f.points.size());
+        int[] path = {0, 4, 2, 7};
+
+        simulator.simulate(path, path.length);
+        int days = simulator.getResultDays();
+        int minutes = simulator.getResultMinutes();
+
+        simulator.begin(new int[]{4, 2, 7}, 3);
+        simulator.extend(4);
+        simulator.extend(2);
+        simulator.extend(9);
+        simulator.undo();
+        simulator.extend(7);
+        simulator.finish();
+
+        assertEquals(days, simulator.getResultDays());
+        assertEquals(minutes, simulator.getResultMinutes());
+    }
+
+    private static int minutes(ItineraryResult result) {
+        int total = 0;
+        for (DayLog log : result.getLogs()) {
+            total += log.getTravelMinutes() + log.getWorkMinutes();
+        }
+        return total;
+    }
+
+    private static int[] randomPath(Random random, int size, int stops) {
+        int[] points = random.ints(1, size).distinct().limit(stops).toArray();
+        int[] path = new int[points.length + 1];
+        System.arraycopy(points, 0, path, 1, points.length);
+        return path;
+    }
+}
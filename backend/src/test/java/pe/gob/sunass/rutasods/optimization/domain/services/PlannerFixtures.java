@@ -0,0 +1,113 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Escenarios sintéticos para los tests del planner: la ODS en el índice 0 y
+ * puntos PC/OC dispersos, con distancias euclídeas (km) y duraciones
+ * proporcionales, de modo que aparezcan rutas de varios días.
+ */
+final class PlannerFixtures {
+
+    static final int PC_DURATION = 180;
+    static final int OC_DURATION = 120;
+    static final double KM_COST = 1.2;
+    static final double FOOD_COST = 180;
+    static final double HOTEL_COST = 570;
+
+    final List<Location> points = new ArrayList<>();
+    final FlatTravelMatrix distances;
+    final FlatTravelMatrix durations;
+
+    private PlannerFixtures(int size, long seed, double spreadKm) {
+        Random random = new Random(seed);
+        double[] x = new double[size];
+        double[] y = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            Location p = new Location();
+            p.setId((long) i);
+            p.setName(i == 0 ? "ODS" : "P" + i);
+            p.setActive(true);
+            if (i > 0) {
+                x[i] = (random.nextDouble() - 0.5) * spreadKm;
+                y[i] = (random.nextDouble() - 0.5) * spreadKm;
+                boolean pc = random.nextInt(3) == 0;
+                p.setCategory(pc ? Location.Category.PC : Location.Category.OC);
+                p.setOcCount(pc ? 0 : 1 + random.nextInt(3));
+            } else {
+                p.setCategory(Location.Category.PC);
+            }
+            points.add(p);
+        }
+
+        distances = new FlatTravelMatrix(size, size);
+        durations = new FlatTravelMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                double km = Math.hypot(x[i] - x[j], y[i] - y[j]);
+                distances.set(i, j, Math.round(km * 100) / 100.0);
+                durations.set(i, j, Math.round(km * 1.5));
+            }
+        }
+    }
+
+    static PlannerFixtures random(int size, long seed) {
+        return new PlannerFixtures(size, seed, 240);
+    }
+
+    /**
+     * Convierte los últimos count puntos en OC con tantas tareas que ningún
+     * recorrido que los incluya entra en MAX_ROUTE_DAYS, y los aleja de la
+     * ODS para que sean las primeras semillas.
+     */
+    PlannerFixtures withOverloadedPoints(int count) {
+        for (int idx = points.size() - count; idx < points.size(); idx++) {
+            Location p = points.get(idx);
+            p.setCategory(Location.Category.OC);
+            p.setOcCount(25);
+            distances.set(0, idx, 5000 + idx);
+            distances.set(idx, 0, 5000 + idx);
+        }
+        return this;
+    }
+
+    List<Integer> activeIndices() {
+        return IntStream.range(1, points.size()).boxed().toList();
+    }
+
+    RoutePlan plan(PlannerOptions options) {
+        return new GreedyRoutePlanner(new ItineraryCalculator(), new CostCalculator(), options)
+                .planRoutes(
+                        points,
+                        activeIndices(),
+                        distances,
+                        durations,
+                        PC_DURATION,
+                        OC_DURATION,
+                        KM_COST,
+                        FOOD_COST,
+                        HOTEL_COST,
+                        (a, b) -> true);
+    }
+
+    static double totalCost(RoutePlan plan) {
+        return plan.getRoutes().stream().mapToDouble(r -> r.getTotalCost()).sum();
+    }
+
+    /** Nombres de los puntos de cada ruta, en orden de visita. */
+    static List<List<String>> stops(RoutePlan plan) {
+        return plan.getRoutes().stream()
+                .map(r -> r.getPoints().stream().map(Location::getName).toList())
+                .toList();
+    }
+}
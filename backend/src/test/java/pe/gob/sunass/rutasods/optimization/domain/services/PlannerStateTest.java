@@ -0,0 +1,122 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PlannerState contra lo que reemplaza: ordenar (sort estable) la lista de
+ * pendientes en cada iteración.
+ */
+class PlannerStateTest {
+
+    private static final int POOL_SIZE = 5;
+
+    @Test
+    void matchesStableSortOfPendingPoints() {
+        for (long seed = 1; seed <= 5; seed++) {
+            // más de MIN_DEPTH puntos, para pasar también por el ranking truncado
+            check(new Random(seed), 130);
+        }
+    }
+
+    @Test
+    void smallRunsMatchToo() {
+        for (long seed = 1; seed <= 20; seed++) {
+            check(new Random(seed), 3 + (int) seed);
+        }
+    }
+
+    private static void check(Random random, int size) {
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Location p = new Location();
+            p.setName("P" + i);
+            p.setUbigeo(i % 7 == 3 ? "aislado" : "zona");
+            points.add(p);
+        }
+
+        // Distancias enteras de un rango chico: muchos empates
+        FlatTravelMatrix distances = new FlatTravelMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                distances.set(i, j, i == j ? 0 : 1 + random.nextInt(6));
+            }
+        }
+        // Los "aislados" no conectan entre sí (distancia infinita)
+        DistanceEvaluator.ConnectionValidator validator =
+                (a, b) -> a == b || !("aislado".equals(a.getUbigeo()) && "aislado".equals(b.getUbigeo()));
+        DistanceEvaluator evaluator = new DistanceEvaluator(distances);
+
+        List<Integer> active = new ArrayList<>(IntStream.range(1, size).boxed().toList());
+        Collections.shuffle(active, random);
+
+        PlannerState state = new PlannerState(points, active, evaluator, validator, POOL_SIZE);
+        List<Integer> pending = new ArrayList<>(active);
+        int[] pool = new int[POOL_SIZE];
+
+        while (!pending.isEmpty()) {
+            int farthest = state.farthestFromOds();
+            assertEquals(referenceFarthest(pending, points, evaluator, validator), farthest);
+
+            int count = state.neighborPool(farthest, pool);
+            List<Integer> expected = referencePool(farthest, pending, points, evaluator, validator);
+            assertEquals(expected, Arrays.stream(pool, 0, count).boxed().toList(),
+                    "semilla " + farthest + " con " + pending.size() + " pendientes");
+
+            // asigna parte del pool y casi siempre la semilla; si la semilla
+            // queda pendiente vuelve a buscar y agota su ranking
+            List<Integer> taken = new ArrayList<>();
+            if (count == 0 || random.nextInt(4) > 0) taken.add(farthest);
+            for (int i = 0; i < count; i++) {
+                if (random.nextBoolean()) taken.add(pool[i]);
+            }
+            state.takeAll(taken);
+            pending.removeAll(taken);
+            assertEquals(pending.size(), state.remaining());
+        }
+        assertTrue(state.isEmpty());
+    }
+
+    private static int referenceFarthest(
+            List<Integer> pending,
+            List<Location> points,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator
+    ) {
+        int best = -1;
+        double bestDist = -1;
+        for (int idx : pending) {
+            double d = evaluator.getDist(0, idx, points.get(0), points.get(idx), validator);
+            if (d > bestDist && d != Double.POSITIVE_INFINITY) {
+                bestDist = d;
+                best = idx;
+            }
+        }
+        return best >= 0 ? best : pending.get(0);
+    }
+
+    private static List<Integer> referencePool(
+            int seed,
+            List<Integer> pending,
+            List<Location> points,
+            DistanceEvaluator evaluator,
+            DistanceEvaluator.ConnectionValidator validator
+    ) {
+        List<Integer> others = new ArrayList<>(pending);
+        others.remove(Integer.valueOf(seed));
+        others.sort(Comparator.comparingDouble(
+                idx -> evaluator.getDist(seed, idx, points.get(seed), points.get(idx), validator)));
+        return others.subList(0, Math.min(POOL_SIZE, others.size()));
+    }
+}
@@ -0,0 +1,174 @@
+package pe.gob.sunass.rutasods.optimization.domain.services;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.costing.domain.CostCalculator;
+import pe.gob.sunass.rutasods.optimization.domain.model.ImprovementReport;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.optimization.domain.model.RoutePlan;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+import pe.gob.sunass.rutasods.shared.domain.rules.RoutingRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteImproverTest {
+
+    private static final int MAX_STOPS = 5;
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    void improvedPlanIsValidAndNeverCostsMore() {
+        ForkJoinPool forkJoin = new ForkJoinPool(2);
+        try {
+            for (long seed = 1; seed <= 3; seed++) {
+                PlannerFixtures f = PlannerFixtures.random(16, seed);
+                // plan de partida: una ruta por punto
+                List<int[]> singletons = new ArrayList<>();
+                for (int idx : f.activeIndices()) {
+                    singletons.add(new int[]{idx});
+                }
+
+                RouteImprover.Result result = improver(f).improve(singletons, BUDGET_NANOS, forkJoin, PlanningMonitor.NONE);
+
+                assertTrue(result.finalCost() <= result.initialCost(), "seed " + seed);
+                assertTrue(result.routes().size() < singletons.size(), "debe juntar rutas de un punto");
+                assertEachPointOnce(f, result.routes());
+                assertRoutesFeasible(f, result.routes());
+            }
+        } finally {
+            forkJoin.shutdown();
+        }
+    }
+
+    @Test
+    void cancellationStopsTheSearch() {
+        PlannerFixtures f = PlannerFixtures.random(10, 1);
+        List<int[]> routes = f.activeIndices().stream().map(idx -> new int[]{idx}).toList();
+        PlanningMonitor cancelled = new PlanningMonitor() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        };
+        ForkJoinPool forkJoin = new ForkJoinPool(1);
+        try {
+            assertThrows(PlanningCancelledException.class,
+                    () -> improver(f).improve(routes, BUDGET_NANOS, forkJoin, cancelled));
+        } finally {
+            forkJoin.shutdown();
+        }
+    }
+
+    @Test
+    void planRoutesWithBudgetReturnsReport() {
+        PlannerFixtures f = PlannerFixtures.random(16, 4);
+
+        RoutePlan greedy = f.plan(PlannerOptions.defaults());
+        PlannerOptions options = PlannerOptions.defaults();
+        options.setImprovementBudgetMillis(200);
+        RoutePlan improved = f.plan(options);
+
+        assertNull(greedy.getImprovement());
+        ImprovementReport report = improved.getImprovement();
+        assertNotNull(report);
+        assertEquals(200, report.getBudgetMillis());
+        assertEquals(greedy.getRoutes().size(), report.getRoutesBefore());
+        assertEquals(improved.getRoutes().size(), report.getRoutesAfter());
+        assertTrue(report.getImprovement() >= 0);
+        assertTrue(PlannerFixtures.totalCost(improved) <= PlannerFixtures.totalCost(greedy) + 1e-6);
+        assertEquals(
+                greedy.getRoutes().stream().mapToInt(r -> r.getPoints().size()).sum(),
+                improved.getRoutes().stream().mapToInt(r -> r.getPoints().size()).sum());
+    }
+
+    @Test
+    void infeasibleRoutesComeBackAsTheSameArray() {
+        PlannerFixtures f = PlannerFixtures.random(16, 5).withOverloadedPoints(2);
+        List<int[]> routes = f.activeIndices().stream().map(idx -> new int[]{idx}).toList();
+        int[] overloaded = routes.get(routes.size() - 1);
+
+        ForkJoinPool forkJoin = new ForkJoinPool(2);
+        try {
+            RouteImprover.Result result = improver(f).improve(routes, BUDGET_NANOS, forkJoin, PlanningMonitor.NONE);
+
+            assertTrue(result.routes().stream().anyMatch(r -> r == overloaded));
+            assertEachPointOnce(f, result.routes());
+        } finally {
+            forkJoin.shutdown();
+        }
+    }
+
+    @Test
+    void plannerKeepsTheGreedySegmentOfFallbackRoutes() {
+        PlannerFixtures f = PlannerFixtures.random(16, 5).withOverloadedPoints(2);
+        List<RouteSegment> greedyRoutes = new ArrayList<>();
+        PlannerOptions options = PlannerOptions.defaults();
+        options.setImprovementBudgetMillis(200);
+        options.setMonitor(new PlanningMonitor() {
+            @Override
+            public void onRouteCompleted(RouteSegment route, int remainingPoints) {
+                greedyRoutes.add(route);
+            }
+        });
+
+        RoutePlan plan = f.plan(options);
+
+        // las rutas de un punto sobrecargado no se pueden mejorar: vuelve el mismo segmento
+        List<RouteSegment> fallback = greedyRoutes.stream()
+                .filter(r -> r.getPoints().size() == 1 && r.getPoints().get(0).getOcCount() == 25)
+                .toList();
+        assertEquals(2, fallback.size());
+        for (RouteSegment route : fallback) {
+            assertTrue(plan.getRoutes().stream().anyMatch(r -> r == route), route.getName());
+        }
+    }
+
+    // ---------------- helpers -----------------
+
+    private static RouteImprover improver(PlannerFixtures f) {
+        return new RouteImprover(
+                f.points,
+                model(f),
+                new DistanceEvaluator(f.distances),
+                (a, b) -> true,
+                new CostCalculator(),
+                MAX_STOPS,
+                PlannerFixtures.KM_COST,
+                PlannerFixtures.FOOD_COST,
+                PlannerFixtures.HOTEL_COST);
+    }
+
+    private static ItinerarySimulator.Model model(PlannerFixtures f) {
+        return new ItinerarySimulator.Model(
+                f.points, f.durations, PlannerFixtures.PC_DURATION, PlannerFixtures.OC_DURATION);
+    }
+
+    private static void assertEachPointOnce(PlannerFixtures f, List<int[]> routes) {
+        int[] seen = new int[f.points.size()];
+        for (int[] route : routes) {
+            for (int idx : route) seen[idx]++;
+        }
+        for (int idx : f.activeIndices()) {
+            assertEquals(1, seen[idx], "punto " + idx);
+        }
+        assertEquals(0, seen[0], "la ODS no es una parada");
+    }
+
+    private static void assertRoutesFeasible(PlannerFixtures f, List<int[]> routes) {
+        ItinerarySimulator simulator = new ItinerarySimulator(model(f), MAX_STOPS + 1);
+        for (int[] route : routes) {
+            assertTrue(route.length > 0 && route.length <= MAX_STOPS, Arrays.toString(route));
+            int[] path = new int[route.length + 1];
+            System.arraycopy(route, 0, path, 1, route.length);
+            simulator.simulate(path, path.length);
+            assertTrue(simulator.getResultDays() <= RoutingRules.MAX_ROUTE_DAYS, Arrays.toString(route));
+        }
+    }
+}
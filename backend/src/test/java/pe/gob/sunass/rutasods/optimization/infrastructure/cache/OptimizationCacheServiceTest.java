@@ -0,0 +1,146 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizationCacheServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private OptimizationCacheService cache;
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) cache.shutdown();
+    }
+
+    private OptimizationCacheService newCache(int snapshotsInMemory, Duration idleTtl, boolean spill) {
+        OptimizationCacheProperties props = new OptimizationCacheProperties();
+        long one = SnapshotSizeEstimator.estimate(SnapshotFixtures.snapshot(10, 0));
+        props.setMaxBytes(one * snapshotsInMemory + one / 2);
+        props.setIdleTtl(idleTtl);
+        props.setSpillEnabled(spill);
+        props.setSpillDir(dir);
+        SnapshotSpillStore store = new SnapshotSpillStore(props, new ObjectMapper().findAndRegisterModules());
+        return new OptimizationCacheService(props, store);
+    }
+
+    @Test
+    void savingDoesNotTouchTheDisk() {
+        cache = newCache(2, Duration.ofHours(1), true);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+
+        assertSame(cache.get("a"), cache.get("a"));
+        assertFalse(Files.exists(dir.resolve("a.snap")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverTheByteBudget() {
+        cache = newCache(2, Duration.ofHours(1), false);
+        OptimizationSnapshot a = SnapshotFixtures.snapshot(10, 0);
+        cache.save("a", a);
+        cache.save("b", SnapshotFixtures.snapshot(10, 1));
+        assertSame(a, cache.get("a")); // b pasa a ser el menos usado
+
+        cache.save("c", SnapshotFixtures.snapshot(10, 2));
+
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().entries());
+        assertTrue(cache.stats().bytes() <= cache.stats().maxBytes());
+    }
+
+    @Test
+    void evictedSessionsAreSpilledAndReloaded() throws Exception {
+        cache = newCache(1, Duration.ofHours(1), true);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+        cache.save("b", SnapshotFixtures.snapshot(10, 1));
+
+        awaitFile(dir.resolve("a.snap"));
+        assertFalse(Files.exists(dir.resolve("b.snap")));
+
+        OptimizationSnapshot reloaded = cache.get("a");
+        assertNotNull(reloaded);
+        assertEquals(SnapshotFixtures.snapshot(10, 0).distanceMatrix().get(1, 2),
+                reloaded.distanceMatrix().get(1, 2), 1e-4);
+    }
+
+    @Test
+    void idleSessionsExpire() throws Exception {
+        cache = newCache(4, Duration.ofMillis(50), false);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+        Thread.sleep(120);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0, cache.stats().entries());
+    }
+
+    @Test
+    void accessKeepsSessionAlive() throws Exception {
+        cache = newCache(4, Duration.ofMillis(300), false);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            assertNotNull(cache.get("a"));
+        }
+    }
+
+    @Test
+    void sweepSpillsExpiredSessions() throws Exception {
+        cache = newCache(4, Duration.ofMillis(50), true);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+        Thread.sleep(120);
+
+        cache.sweepExpired();
+
+        assertEquals(0, cache.stats().entries());
+        awaitFile(dir.resolve("a.snap"));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    void evictRemovesMemoryAndDiskCopies() throws Exception {
+        cache = newCache(1, Duration.ofHours(1), true);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+        cache.save("b", SnapshotFixtures.snapshot(10, 1));
+        awaitFile(dir.resolve("a.snap"));
+
+        cache.evict("a");
+        cache.evict("b");
+        cache.shutdown(); // espera las escrituras pendientes
+
+        assertFalse(Files.exists(dir.resolve("a.snap")));
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void shutdownSpillsSessionsStillInMemory() {
+        cache = newCache(2, Duration.ofHours(1), true);
+        cache.save("a", SnapshotFixtures.snapshot(10, 0));
+
+        cache.shutdown();
+
+        assertTrue(Files.exists(dir.resolve("a.snap")));
+    }
+
+    private static void awaitFile(Path file) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!Files.exists(file) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Files.exists(file), file + " no se escribió");
+    }
+}
@@ -0,0 +1,55 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+import pe.gob.sunass.rutasods.shared.domain.model.Location;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Snapshots chicos y deterministas para los tests del cache de sesiones. */
+final class SnapshotFixtures {
+
+    private SnapshotFixtures() {
+    }
+
+    static OptimizationSnapshot snapshot(int n, int seed) {
+        FlatTravelMatrix dist = new FlatTravelMatrix(n, n);
+        FlatTravelMatrix dur = new FlatTravelMatrix(n, n);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            names.add(i == 0 ? "ODS" : "P" + i);
+            for (int j = 0; j < n; j++) {
+                dist.set(i, j, i == j ? 0 : (seed + 1) * 10.25 + i * 3.5 + j);
+                dur.set(i, j, i == j ? 0 : (seed + 1) * 7.75 + i + j * 2.5);
+            }
+        }
+
+        Location p = new Location();
+        p.setName("P1");
+        p.setCategory(Location.Category.PC);
+
+        RouteSegment route = new RouteSegment();
+        route.setId(1L);
+        route.setName("Ruta 1");
+        route.setPoints(List.of(p));
+        route.setTotalCost(1234.5 + seed);
+        route.setDays(2);
+        route.setNights(1);
+
+        return new OptimizationSnapshot(
+                List.of(route),
+                dist,
+                dur,
+                names,
+                1.0,
+                180,
+                570,
+                180,
+                120,
+                1.25,
+                Instant.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+}
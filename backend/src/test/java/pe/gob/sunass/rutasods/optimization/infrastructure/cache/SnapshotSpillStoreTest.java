@@ -0,0 +1,111 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pe.gob.sunass.rutasods.shared.domain.model.SparseTravelMatrix;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotSpillStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private OptimizationCacheProperties props;
+    private SnapshotSpillStore store;
+
+    @BeforeEach
+    void setUp() {
+        props = new OptimizationCacheProperties();
+        props.setSpillDir(dir);
+        store = new SnapshotSpillStore(props, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void writeThenReadRoundTrip() {
+        OptimizationSnapshot original = SnapshotFixtures.snapshot(6, 3);
+
+        assertTrue(store.spill("s-1", original));
+        OptimizationSnapshot loaded = store.load("s-1");
+
+        assertNotNull(loaded);
+        assertEquals(6, loaded.distanceMatrix().rows());
+        assertEquals(6, loaded.distanceMatrix().cols());
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 6; j++) {
+                assertEquals(original.distanceMatrix().get(i, j), loaded.distanceMatrix().get(i, j), 1e-4);
+                assertEquals(original.durationMatrix().get(i, j), loaded.durationMatrix().get(i, j), 1e-4);
+            }
+        }
+        assertEquals(original.matrixNames(), loaded.matrixNames());
+        assertEquals(original.createdAt(), loaded.createdAt());
+        assertEquals(original.timeFactor(), loaded.timeFactor());
+        assertEquals(original.pcDuration(), loaded.pcDuration());
+        assertEquals(original.ocDuration(), loaded.ocDuration());
+        assertEquals(1, loaded.routes().size());
+        assertEquals("Ruta 1", loaded.routes().get(0).getName());
+        assertEquals(original.routes().get(0).getTotalCost(), loaded.routes().get(0).getTotalCost());
+        assertEquals("P1", loaded.routes().get(0).getPoints().get(0).getName());
+    }
+
+    @Test
+    void missingOrCorruptFilesLoadAsNull() throws Exception {
+        assertNull(store.load("nope"));
+
+        Files.writeString(dir.resolve("bad.snap"), "not a snapshot");
+        assertNull(store.load("bad"));
+    }
+
+    @Test
+    void rejectsIdsThatCouldEscapeTheDirectory() {
+        assertFalse(store.spill("../x", SnapshotFixtures.snapshot(3, 0)));
+        assertNull(store.load("../x"));
+    }
+
+    @Test
+    void sparseSnapshotsStayInMemoryOnly() {
+        OptimizationSnapshot dense = SnapshotFixtures.snapshot(3, 0);
+        SparseTravelMatrix sparse = new SparseTravelMatrix(new int[][]{{1, 2}, {0}, {0}}, (i, j) -> 1.0);
+        OptimizationSnapshot snapshot = new OptimizationSnapshot(
+                dense.routes(), sparse, sparse, dense.matrixNames(),
+                1, 1, 1, 1, 1, 1, dense.createdAt());
+
+        assertFalse(store.canSpill("s", snapshot));
+        assertFalse(store.spill("s", snapshot));
+    }
+
+    @Test
+    void diskBudgetDropsLeastRecentlyUsedFiles() throws Exception {
+        assertTrue(store.spill("old", SnapshotFixtures.snapshot(10, 0)));
+        long fileBytes = Files.size(dir.resolve("old.snap"));
+        Files.setLastModifiedTime(dir.resolve("old.snap"), FileTime.from(Instant.now().minusSeconds(60)));
+
+        assertTrue(store.spill("mid", SnapshotFixtures.snapshot(10, 1)));
+        Files.setLastModifiedTime(dir.resolve("mid.snap"), FileTime.from(Instant.now().minusSeconds(30)));
+
+        props.setMaxSpillBytes(2 * fileBytes + fileBytes / 2);
+        assertTrue(store.spill("new", SnapshotFixtures.snapshot(10, 2)));
+
+        assertFalse(Files.exists(dir.resolve("old.snap")));
+        assertTrue(Files.exists(dir.resolve("mid.snap")));
+        assertTrue(Files.exists(dir.resolve("new.snap")));
+    }
+
+    @Test
+    void retentionDeletesFilesUnusedSinceCutoff() throws Exception {
+        store.spill("a", SnapshotFixtures.snapshot(3, 0));
+        store.spill("b", SnapshotFixtures.snapshot(3, 1));
+        Files.setLastModifiedTime(dir.resolve("a.snap"), FileTime.from(Instant.now().minusSeconds(3600)));
+
+        assertEquals(1, store.deleteOlderThan(Instant.now().minusSeconds(60)));
+        assertNull(store.load("a"));
+        assertNotNull(store.load("b"));
+    }
+}
@@ -0,0 +1,218 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.executor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import pe.gob.sunass.rutasods.optimization.application.internal.RunMasterPlanUseCase;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeRequest;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeResponse;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OptimizationExecutorTest {
+
+    private RunMasterPlanUseCase useCase;
+    private OptimizationExecutor executor;
+
+    // el primer job corre hasta que se libera este latch
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        useCase = mock(RunMasterPlanUseCase.class);
+        when(useCase.execute(any(OptimizeRequest.class), any(PlanningMonitor.class)))
+                .thenAnswer(inv -> {
+                    PlanningMonitor monitor = inv.getArgument(1);
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    if (monitor.isCancelled()) throw new PlanningCancelledException();
+                    return new OptimizeResponse();
+                });
+
+        OptimizationExecutorProperties props = new OptimizationExecutorProperties();
+        props.setMaxConcurrentJobs(1);
+        props.setQueueCapacity(4);
+        executor = new OptimizationExecutor(useCase, props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void queuedJobIsCancelledImmediatelyAndNeverRuns() throws Exception {
+        OptimizationJob running = executor.submit(new OptimizeRequest());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CountingListener listener = new CountingListener();
+        OptimizationJob queued = executor.submit(new OptimizeRequest(), listener);
+        assertEquals(OptimizationJob.State.QUEUED, queued.getState());
+
+        executor.cancel(queued.getId());
+        assertEquals(OptimizationJob.State.CANCELLED, queued.getState());
+        assertNotNull(queued.getFinishedAt());
+        assertEquals(1, listener.finished.get());
+
+        release.countDown();
+        awaitFinished(running);
+        assertEquals(OptimizationJob.State.SUCCEEDED, running.getState());
+
+        // run() del job cancelado no llega a ejecutar el use case ni a avisar de nuevo
+        verify(useCase, times(1)).execute(any(OptimizeRequest.class), any(PlanningMonitor.class));
+        assertEquals(OptimizationJob.State.CANCELLED, queued.getState());
+        assertEquals(1, listener.finished.get());
+    }
+
+    @Test
+    void runningJobStaysRunningUntilThePlannerStops() throws Exception {
+        CountingListener listener = new CountingListener();
+        OptimizationJob job = executor.submit(new OptimizeRequest(), listener);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.cancel(job.getId());
+        assertTrue(job.isCancelRequested());
+        assertEquals(OptimizationJob.State.RUNNING, job.getState());
+        assertNull(job.getFinishedAt());
+        assertEquals(0, listener.finished.get());
+
+        release.countDown();
+        awaitFinished(job);
+        assertEquals(OptimizationJob.State.CANCELLED, job.getState());
+        assertEquals(1, listener.finished.get());
+    }
+
+    @Test
+    void invalidRequestIsRejectedBeforeQueueing() {
+        OptimizeRequest request = new OptimizeRequest();
+        doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "ordering inválido: FOO"))
+                .when(useCase).validate(request);
+        RecordingListener listener = new RecordingListener();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> executor.submit(request, listener));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertTrue(listener.events.isEmpty());
+        verify(useCase, never()).execute(any(OptimizeRequest.class), any(PlanningMonitor.class));
+    }
+
+    @Test
+    void fullQueueRejectsWithoutNotifyingTheListener() throws Exception {
+        executor.submit(new OptimizeRequest());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            executor.submit(new OptimizeRequest());
+        }
+        RecordingListener listener = new RecordingListener();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> executor.submit(new OptimizeRequest(), listener));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    void queuedIsTheFirstEventEvenWhenTheJobStartsRightAway() throws Exception {
+        release.countDown();
+        doAnswer(inv -> {
+            inv.<PlanningMonitor>getArgument(1).onPlanningStarted(3);
+            return new OptimizeResponse();
+        }).when(useCase).execute(any(OptimizeRequest.class), any(PlanningMonitor.class));
+
+        // el aviso de cola tarda (p. ej. un envío SSE): el job ya podría estar corriendo
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onQueued(OptimizationJob job) {
+                sleep(100);
+                super.onQueued(job);
+            }
+        };
+        OptimizationJob job = executor.submit(new OptimizeRequest(), listener);
+        awaitFinished(job);
+
+        assertEquals(List.of("queued", "planning", "finished"), listener.events);
+    }
+
+    @Test
+    void finalStateDoesNotChange() {
+        CountingListener listener = new CountingListener();
+        OptimizationJob job = new OptimizationJob("j", listener);
+        assertTrue(job.markRunning());
+
+        job.markCancelled();
+        job.markSucceeded(new OptimizeResponse());
+        job.markFailed("boom");
+
+        assertEquals(OptimizationJob.State.CANCELLED, job.getState());
+        assertEquals(1, listener.finished.get());
+        assertFalse(job.cancelIfQueued());
+    }
+
+    @Test
+    void cancelledInQueueCannotStartRunning() {
+        OptimizationJob job = new OptimizationJob("j", OptimizationJobListener.NONE);
+        assertTrue(job.cancelIfQueued());
+        assertFalse(job.markRunning());
+        assertEquals(OptimizationJob.State.CANCELLED, job.getState());
+        assertNull(job.getStartedAt());
+    }
+
+    private static void awaitFinished(OptimizationJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!job.getState().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingListener implements OptimizationJobListener {
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onQueued(OptimizationJob job) {
+            events.add("queued");
+        }
+
+        @Override
+        public void onPlanningStarted(OptimizationJob job) {
+            events.add("planning");
+        }
+
+        @Override
+        public void onFinished(OptimizationJob job) {
+            events.add("finished");
+        }
+    }
+
+    private static class CountingListener implements OptimizationJobListener {
+        final AtomicInteger finished = new AtomicInteger();
+
+        @Override
+        public void onFinished(OptimizationJob job) {
+            finished.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.optimization.domain.model.OrderingStrategy;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlannerOptions;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerPlannerMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerPlannerMetrics metrics = new MicrometerPlannerMetrics(registry);
+
+    @Test
+    void eachSearchIsOneSampleAndEveryEvaluatedPathOneSimulation() {
+        metrics.onSearchCompleted(120, 30);
+        metrics.onSearchCompleted(80, 10);
+
+        DistributionSummary evaluated = registry.get("rutasods.planner.candidates.evaluated").summary();
+        assertEquals(2, evaluated.count());
+        assertEquals(200, evaluated.totalAmount());
+        assertEquals(40, registry.get("rutasods.planner.candidates.pruned").summary().totalAmount());
+        assertEquals(200, registry.get("rutasods.planner.simulations").counter().count());
+    }
+
+    @Test
+    void planningDurationIsTaggedByBucketOrderingAndMode() {
+        PlannerOptions options = PlannerOptions.defaults();
+        options.setOrdering(OrderingStrategy.HELD_KARP);
+
+        metrics.onPlanningFinished(75, options, TimeUnit.MILLISECONDS.toNanos(250));
+        metrics.onPlanningFinished(90, options, TimeUnit.MILLISECONDS.toNanos(150));
+
+        Timer timer = registry.get("rutasods.planner.duration")
+                .tag("points", "<=100")
+                .tag("ordering", "HELD_KARP")
+                .tag("mode", options.getSearchMode().name())
+                .timer();
+        assertEquals(2, timer.count());
+        assertEquals(400, timer.totalTime(TimeUnit.MILLISECONDS), 1e-6);
+    }
+
+    @Test
+    void pointBucketsAreInclusiveUpperBounds() {
+        assertEquals("<=50", MicrometerPlannerMetrics.pointBucket(1));
+        assertEquals("<=50", MicrometerPlannerMetrics.pointBucket(50));
+        assertEquals("<=100", MicrometerPlannerMetrics.pointBucket(51));
+        assertEquals("<=500", MicrometerPlannerMetrics.pointBucket(500));
+        assertEquals(">500", MicrometerPlannerMetrics.pointBucket(501));
+    }
+}
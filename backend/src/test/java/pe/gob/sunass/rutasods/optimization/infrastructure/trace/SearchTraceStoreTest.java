@@ -0,0 +1,49 @@
+package pe.gob.sunass.rutasods.optimization.infrastructure.trace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import pe.gob.sunass.rutasods.optimization.domain.model.SearchTrace;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTraceStoreTest {
+
+    private final SearchTraceProperties props = new SearchTraceProperties();
+    private final SearchTraceStore store = new SearchTraceStore(props);
+
+    @Test
+    void requestLevelOverridesTheConfiguredOne() {
+        props.setLevel(SearchTrace.Level.ROUTES);
+        props.setCapacity(50);
+
+        assertEquals(SearchTrace.Level.ROUTES, store.newTrace(null).getLevel());
+        assertEquals(SearchTrace.Level.BEST, store.newTrace(SearchTrace.Level.BEST).getLevel());
+        assertEquals(50, store.newTrace(null).getCapacity());
+        assertSame(SearchTrace.OFF, store.newTrace(SearchTrace.Level.OFF));
+    }
+
+    @Test
+    void offTracesAreNotStored() {
+        store.save("s1", SearchTrace.OFF, List.of("ODS"));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> store.getOrThrow("s1"));
+        assertEquals(404, e.getStatusCode().value());
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentlyUsedSessions() {
+        props.setMaxSessions(2);
+        SearchTrace trace = new SearchTrace(SearchTrace.Level.ROUTES, 10);
+
+        store.save("s1", trace, List.of("ODS"));
+        store.save("s2", trace, List.of("ODS"));
+        store.getOrThrow("s1");
+        store.save("s3", trace, List.of("ODS"));
+
+        assertSame(trace, store.getOrThrow("s1").trace());
+        assertNotNull(store.getOrThrow("s3"));
+        assertThrows(ResponseStatusException.class, () -> store.getOrThrow("s2"));
+    }
+}
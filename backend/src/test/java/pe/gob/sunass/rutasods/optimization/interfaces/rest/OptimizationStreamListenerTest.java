@@ -0,0 +1,151 @@
+package pe.gob.sunass.rutasods.optimization.interfaces.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pe.gob.sunass.rutasods.optimization.application.internal.RunMasterPlanUseCase;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningCancelledException;
+import pe.gob.sunass.rutasods.optimization.domain.model.PlanningMonitor;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationExecutor;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationExecutorProperties;
+import pe.gob.sunass.rutasods.optimization.infrastructure.executor.OptimizationJob;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeRequest;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.OptimizeResponse;
+import pe.gob.sunass.rutasods.optimization.interfaces.rest.dto.RouteStreamEventDto;
+import pe.gob.sunass.rutasods.shared.domain.model.CostBreakdown;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OptimizationStreamListenerTest {
+
+    private RunMasterPlanUseCase useCase;
+    private OptimizationExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        useCase = mock(RunMasterPlanUseCase.class);
+        OptimizationExecutorProperties props = new OptimizationExecutorProperties();
+        props.setMaxConcurrentJobs(1);
+        props.setQueueCapacity(4);
+        executor = new OptimizationExecutor(useCase, props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void publishesEveryRouteWithRunningTotals() throws Exception {
+        OptimizeResponse response = new OptimizeResponse();
+        when(useCase.execute(any(OptimizeRequest.class), any(PlanningMonitor.class)))
+                .thenAnswer(inv -> {
+                    PlanningMonitor monitor = inv.getArgument(1);
+                    monitor.onPlanningStarted(5);
+                    monitor.onRouteCompleted(route("Ruta 1", 100, 40, 2), 3);
+                    monitor.onRouteCompleted(route("Ruta 2", 50, 10, 1), 0);
+                    return response;
+                });
+
+        RecordingEmitter emitter = new RecordingEmitter();
+        OptimizationJob job = executor.submit(new OptimizeRequest(), new OptimizationStreamListener(emitter, executor));
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("job", "planning", "route", "route", "complete"), emitter.names);
+        assertEquals(OptimizationJob.State.SUCCEEDED, job.getState());
+
+        RouteStreamEventDto first = (RouteStreamEventDto) emitter.data.get(2);
+        assertEquals("Ruta 1", first.getRoute().getName());
+        assertEquals(1, first.getRoutesCompleted());
+        assertEquals(3, first.getRemainingPoints());
+        assertEquals(0.4, first.getProgress(), 1e-9);
+
+        RouteStreamEventDto second = (RouteStreamEventDto) emitter.data.get(3);
+        assertEquals(2, second.getRoutesCompleted());
+        assertEquals(150, second.getTotalSystemCost(), 1e-9);
+        assertEquals(50, second.getTotalDistance(), 1e-9);
+        assertEquals(3, second.getTotalDays());
+        assertEquals(1, second.getTotalNights());
+
+        assertSame(response, emitter.data.get(4));
+    }
+
+    @Test
+    void disconnectedClientCancelsTheJob() throws Exception {
+        CountDownLatch disconnected = new CountDownLatch(1);
+        when(useCase.execute(any(OptimizeRequest.class), any(PlanningMonitor.class)))
+                .thenAnswer(inv -> {
+                    PlanningMonitor monitor = inv.getArgument(1);
+                    monitor.onPlanningStarted(5);
+                    disconnected.await(5, TimeUnit.SECONDS);
+                    if (monitor.isCancelled()) throw new PlanningCancelledException();
+                    return new OptimizeResponse();
+                });
+
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failOn = "planning";
+        OptimizationJob job = executor.submit(new OptimizeRequest(), new OptimizationStreamListener(emitter, executor));
+        assertTrue(emitter.failed.await(5, TimeUnit.SECONDS));
+        disconnected.countDown();
+
+        for (int i = 0; i < 100 && !job.getState().isFinished(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(job.isCancelRequested());
+        assertEquals(OptimizationJob.State.CANCELLED, job.getState());
+        // después de la desconexión no se intenta enviar nada más
+        assertEquals(List.of("job"), emitter.names);
+    }
+
+    // ---------------- helpers -----------------
+
+    private static RouteSegment route(String name, double cost, double distance, int days) {
+        RouteSegment route = new RouteSegment();
+        route.setName(name);
+        route.setTotalCost(cost);
+        route.setDistance(distance);
+        route.setDays(days);
+        route.setNights(days - 1);
+        route.setPoints(List.of());
+        route.setLogs(List.of());
+        route.setBreakdown(new CostBreakdown());
+        return route;
+    }
+
+    /** Guarda el nombre y el dato de cada evento en vez de escribirlos. */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        final List<String> names = new ArrayList<>();
+        final List<Object> data = new ArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        volatile String failOn;
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            List<DataWithMediaType> parts = new ArrayList<>(builder.build());
+            String name = parts.get(0).getData().toString().replaceFirst("(?s)^event:([^\\n]*)\\n.*", "$1");
+            if (name.equals(failOn)) {
+                failed.countDown();
+                throw new IOException("Broken pipe");
+            }
+            names.add(name);
+            data.add(parts.get(1).getData());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pe.gob.sunass.rutasods.reporting.application.internal;
+
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.reporting.infrastructure.cache.ReportArtifactCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportDownloadTest {
+
+    private static final String ETAG = "\"abc123\"";
+
+    private final ReportDownload cached =
+            ReportDownload.cached(new ReportArtifactCache.Artifact(new byte[]{1, 2, 3}, ETAG));
+
+    @Test
+    void matchesSameTag() {
+        assertTrue(cached.isNotModified(ETAG));
+        assertFalse(cached.isNotModified("\"other\""));
+    }
+
+    @Test
+    void wildcardMatchesAnyCachedReport() {
+        assertTrue(cached.isNotModified("*"));
+        assertTrue(cached.isNotModified(" * "));
+    }
+
+    @Test
+    void weakComparisonIgnoresPrefix() {
+        assertTrue(cached.isNotModified("W/" + ETAG));
+        assertFalse(cached.isNotModified("W/\"other\""));
+    }
+
+    @Test
+    void anyTagInListMatches() {
+        assertTrue(cached.isNotModified("\"x\", W/\"y\"," + ETAG));
+        assertTrue(cached.isNotModified("\"x\",  W/" + ETAG + " , \"z\""));
+        assertFalse(cached.isNotModified("\"x\", \"y\""));
+    }
+
+    @Test
+    void tagsAreComparedExactly() {
+        // sin comillas no es el mismo entity-tag
+        assertFalse(cached.isNotModified("abc123"));
+        assertFalse(cached.isNotModified("\"ABC123\""));
+    }
+
+    @Test
+    void missingHeaderOrRenderingReportIsNeverNotModified() {
+        assertFalse(cached.isNotModified(null));
+        assertFalse(cached.isNotModified(""));
+
+        ReportDownload rendering = ReportDownload.rendering(out -> { });
+        assertFalse(rendering.isNotModified("*"));
+        assertFalse(rendering.isNotModified(ETAG));
+        assertEquals(-1, rendering.contentLength());
+        assertEquals(3, cached.contentLength());
+    }
+}
@@ -0,0 +1,202 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportArtifactCacheTest {
+
+    private final ReportCacheProperties props = new ReportCacheProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReportArtifactCache cache = new ReportArtifactCache(props, registry);
+
+    @Test
+    void capturedArtifactIsServedWithAContentEtag() throws IOException {
+        ReportArtifactCache.Key key = key("s1", 1);
+        assertNull(cache.get(key));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.capture(key, body(100, (byte) 7)).writeTo(out);
+
+        ReportArtifactCache.Artifact artifact = cache.get(key);
+        assertArrayEquals(out.toByteArray(), artifact.content());
+        assertTrue(artifact.etag().matches("\"[0-9a-f]{64}\""));
+        assertEquals(100, cache.bytes());
+        assertEquals(1, registry.get("rutasods.report.cache").tag("result", "hit").counter().count());
+        assertEquals(1, registry.get("rutasods.report.cache").tag("result", "miss").counter().count());
+
+        // otra versión de plantilla es otra clave
+        assertNull(cache.get(key("s1", 2)));
+    }
+
+    @Test
+    void failedOrOversizedRendersAreNotStored() {
+        props.setMaxArtifactBytes(50);
+        ReportArtifactCache.Key big = key("s1", 1);
+        ReportArtifactCache.Key failed = key("s2", 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertDoesNotThrow(() -> cache.capture(big, body(80, (byte) 1)).writeTo(out));
+        assertEquals(80, out.size());
+        assertThrows(IOException.class, () -> cache.capture(failed, o -> {
+            o.write(1);
+            throw new IOException("Broken pipe");
+        }).writeTo(new ByteArrayOutputStream()));
+
+        assertNull(cache.get(big));
+        assertNull(cache.get(failed));
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithinTheByteBudget() throws IOException {
+        props.setMaxBytes(250);
+        ReportArtifactCache.Key a = key("a", 1);
+        ReportArtifactCache.Key b = key("b", 1);
+        ReportArtifactCache.Key c = key("c", 1);
+
+        cache.capture(a, body(100, (byte) 1)).writeTo(new ByteArrayOutputStream());
+        cache.capture(b, body(100, (byte) 2)).writeTo(new ByteArrayOutputStream());
+        cache.get(a);
+        cache.capture(c, body(100, (byte) 3)).writeTo(new ByteArrayOutputStream());
+
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+        assertEquals(200, cache.bytes());
+    }
+
+    @Test
+    void disabledCacheIsTransparent() throws IOException {
+        props.setEnabled(false);
+        StreamingResponseBody body = body(10, (byte) 1);
+
+        assertSame(body, cache.capture(key("s1", 1), body));
+        body.writeTo(new ByteArrayOutputStream());
+        assertNull(cache.get(key("s1", 1)));
+    }
+
+    @Test
+    void downloadDuringAPrerenderWaitsForItInsteadOfRendering() throws Exception {
+        ReportArtifactCache.Key key = key("s1", 1);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renders = new AtomicInteger();
+
+        CompletableFuture<Void> prerender = CompletableFuture.runAsync(() -> {
+            try {
+                cache.prerender(key, out -> {
+                    renders.incrementAndGet();
+                    rendering.countDown();
+                    await(release);
+                    body(60, (byte) 5).writeTo(out);
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> download = CompletableFuture.runAsync(() -> {
+            try {
+                cache.capture(key, o -> {
+                    renders.incrementAndGet();
+                    body(60, (byte) 9).writeTo(o);
+                }).writeTo(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        release.countDown();
+        prerender.get(5, TimeUnit.SECONDS);
+        download.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, renders.get());
+        assertArrayEquals(cache.get(key).content(), out.toByteArray());
+        assertEquals(5, out.toByteArray()[0]);
+    }
+
+    @Test
+    void prerenderSkipsReportsAlreadyStored() throws IOException {
+        ReportArtifactCache.Key key = key("s1", 1);
+        cache.capture(key, body(30, (byte) 1)).writeTo(new ByteArrayOutputStream());
+
+        cache.prerender(key, out -> fail("ya estaba guardado"));
+
+        assertEquals(1, cache.get(key).content()[0]);
+    }
+
+    @Test
+    void waiterRendersItselfWhenTheOtherRenderWasNotStored() throws Exception {
+        props.setMaxArtifactBytes(50);
+        ReportArtifactCache.Key key = key("s1", 1);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                cache.capture(key, out -> {
+                    rendering.countDown();
+                    await(release);
+                    body(80, (byte) 1).writeTo(out);
+                }).writeTo(new ByteArrayOutputStream());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+            try {
+                cache.capture(key, body(80, (byte) 2)).writeTo(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        // el primero no entraba en el cache: el segundo generó el suyo
+        assertEquals(80, out.size());
+        assertEquals(2, out.toByteArray()[0]);
+    }
+
+    // ---------------- helpers -----------------
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+
+    private static ReportArtifactCache.Key key(String sessionId, int templateVersion) {
+        return new ReportArtifactCache.Key(sessionId, "plan-maestro", "pdf", templateVersion);
+    }
+
+    private static StreamingResponseBody body(int size, byte value) {
+        return out -> {
+            for (int i = 0; i < size; i += 20) {
+                byte[] chunk = new byte[Math.min(20, size - i)];
+                Arrays.fill(chunk, value);
+                out.write(chunk, 0, chunk.length);
+            }
+        };
+    }
+}
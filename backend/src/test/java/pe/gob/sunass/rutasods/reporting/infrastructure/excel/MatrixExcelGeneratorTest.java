@@ -0,0 +1,62 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.shared.domain.model.FlatTravelMatrix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixExcelGeneratorTest {
+
+    @Test
+    void streamsEveryRowBeyondTheInMemoryWindow() throws Exception {
+        int n = StreamingWorkbook.ROW_WINDOW + 50;
+        List<String> names = IntStream.range(0, n).mapToObj(i -> "Punto " + i).toList();
+        FlatTravelMatrix distances = new FlatTravelMatrix(n, n);
+        FlatTravelMatrix durations = new FlatTravelMatrix(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances.set(i, j, i + j / 100.0);
+                durations.set(i, j, i * 2 + j);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MatrixExcelGenerator().writeMatrixExcel(distances, durations, names, out);
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(2, wb.getNumberOfSheets());
+            Sheet dist = wb.getSheet("Distancias (km)");
+            Sheet time = wb.getSheet("Tiempos (min)");
+
+            assertEquals("Distancias en Kilómetros", dist.getRow(0).getCell(0).getStringCellValue());
+            Row header = dist.getRow(2);
+            assertEquals("Punto 0", header.getCell(1).getStringCellValue());
+            assertEquals("Punto " + (n - 1), header.getCell(n).getStringCellValue());
+
+            // la última fila ya había salido de la ventana al escribirse
+            Row last = dist.getRow(3 + n - 1);
+            assertEquals("Punto " + (n - 1), last.getCell(0).getStringCellValue());
+            assertEquals(n - 1 + 3 / 100.0, last.getCell(4).getNumericCellValue(), 1e-9);
+            assertEquals(CellType.STRING, last.getCell(n).getCellType());
+            assertEquals("-", last.getCell(n).getStringCellValue());
+            assertEquals(7 * 2 + 5, time.getRow(3 + 7).getCell(6).getNumericCellValue(), 1e-9);
+
+            assertEquals("Unidad: min", time.getRow(3 + n + 1).getCell(0).getStringCellValue());
+
+            // anchos según lo escrito, los estilos se comparten entre las hojas
+            assertTrue(dist.getColumnWidth(0) >= "Punto 149".length() * 256);
+            assertEquals(dist.getRow(3).getCell(1).getCellStyle().getIndex(),
+                    time.getRow(3).getCell(1).getCellStyle().getIndex());
+            assertTrue(wb.getNumCellStyles() <= StreamingWorkbook.Style.values().length + 1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReportMetrics metrics = new ReportMetrics(registry);
+
+    @Test
+    void recordsDurationAndSizeOfEachReport() {
+        byte[] content = metrics.record("matriz", "xlsx", () -> new byte[1234]);
+
+        assertEquals(1234, content.length);
+        assertEquals(1, registry.get("rutasods.report.duration")
+                .tags("report", "matriz", "format", "xlsx", "outcome", "success")
+                .timer().count());
+        assertEquals(1234, registry.get("rutasods.report.size")
+                .tags("report", "matriz", "format", "xlsx")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void failedReportOnlyRecordsTheErrorDuration() {
+        IllegalStateException failure = new IllegalStateException("sin sesión");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> metrics.record("plan-maestro", "pdf", () -> { throw failure; }));
+
+        assertSame(failure, thrown);
+        assertEquals(1, registry.get("rutasods.report.duration")
+                .tags("report", "plan-maestro", "format", "pdf", "outcome", "error")
+                .timer().count());
+        assertNull(registry.find("rutasods.report.size").summary());
+    }
+
+    @Test
+    void streamedReportCountsTheBytesWritten() throws IOException {
+        StreamingResponseBody body = metrics.record("plan-maestro", "xlsx", out -> {
+            out.write(new byte[1000], 0, 600);
+            out.write(7);
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        body.writeTo(out);
+
+        assertEquals(601, out.size());
+        assertEquals(601, registry.get("rutasods.report.size")
+                .tags("report", "plan-maestro", "format", "xlsx")
+                .summary().totalAmount());
+        assertEquals(1, registry.get("rutasods.report.duration")
+                .tags("outcome", "success").timer().count());
+    }
+
+    @Test
+    void failedStreamRecordsTheErrorAndRethrows() {
+        StreamingResponseBody body = metrics.record("matriz", "xlsx", out -> {
+            out.write(1);
+            throw new IOException("Broken pipe");
+        });
+
+        assertThrows(IOException.class, () -> body.writeTo(new ByteArrayOutputStream()));
+        assertEquals(1, registry.get("rutasods.report.duration")
+                .tags("outcome", "error").timer().count());
+        assertNull(registry.find("rutasods.report.size").summary());
+    }
+}
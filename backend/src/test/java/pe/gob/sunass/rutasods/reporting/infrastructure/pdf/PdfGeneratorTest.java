@@ -0,0 +1,135 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.pdf;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.shared.domain.model.CostBreakdown;
+import pe.gob.sunass.rutasods.shared.domain.model.MasterPlanResult;
+import pe.gob.sunass.rutasods.shared.domain.model.RouteSegment;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfGeneratorTest {
+
+    private static final int THREADS = 4;
+    private static final int RENDERS_PER_THREAD = 10;
+
+    private final PdfGenerator generator = new PdfGenerator();
+
+    @Test
+    void concurrentRendersKeepTheirOwnContext() throws Exception {
+        Scenario a = new Scenario(new PdfRenderContext(1.11, 22.0, 333.0, 90, 60, 1.25), "Ruta Norte", 1234.5);
+        Scenario b = new Scenario(new PdfRenderContext(7.77, 88.0, 999.0, 240, 150, 2.5), "Ruta Sur", 98765.25);
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        try {
+            List<Future<?>> renders = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Scenario mine = t % 2 == 0 ? a : b;
+                Scenario other = t % 2 == 0 ? b : a;
+                renders.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < RENDERS_PER_THREAD; i++) {
+                        String text = render(mine);
+                        mine.assertIn(text);
+                        other.assertNotIn(text);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> render : renders) {
+                render.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void leavesTheOutputStreamOpen() throws Exception {
+        Scenario a = new Scenario(PdfRenderContext.defaults(), "Ruta Única", 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("el generador no debe cerrar el stream de la respuesta");
+            }
+        };
+
+        generator.writeMasterPlanPdf(a.result, a.ctx, out);
+
+        assertTrue(out.size() > 0);
+    }
+
+    // ---------------- helpers -----------------
+
+    private String render(Scenario scenario) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.writeMasterPlanPdf(scenario.result, scenario.ctx, out);
+        PdfReader reader = new PdfReader(out.toByteArray());
+        try {
+            StringBuilder text = new StringBuilder();
+            PdfTextExtractor extractor = new PdfTextExtractor(reader);
+            for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                text.append(extractor.getTextFromPage(page)).append('\n');
+            }
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Un resultado con su contexto y los textos que solo su PDF debe tener. */
+    private static final class Scenario {
+
+        final PdfRenderContext ctx;
+        final MasterPlanResult result;
+        final List<String> expected;
+
+        Scenario(PdfRenderContext ctx, String routeName, double cost) {
+            this.ctx = ctx;
+
+            RouteSegment route = new RouteSegment();
+            route.setName(routeName);
+            route.setTotalCost(cost);
+            route.setDays(1);
+            route.setPoints(List.of());
+            route.setLogs(List.of());
+            route.setBreakdown(new CostBreakdown());
+
+            this.result = new MasterPlanResult();
+            result.setRoutes(List.of(route));
+            result.setTotalSystemCost(cost);
+
+            PdfRenderContext formats = PdfRenderContext.defaults();
+            this.expected = List.of(
+                    formats.money(ctx.getKmCost()),
+                    formats.money(ctx.getHotelCost()),
+                    ctx.getPcDuration() + " minutos",
+                    String.format("%.2fx", ctx.getTimeFactor()),
+                    formats.money(cost),
+                    routeName);
+        }
+
+        void assertIn(String text) {
+            for (String value : expected) {
+                assertTrue(text.contains(value), "falta " + value);
+            }
+        }
+
+        void assertNotIn(String text) {
+            for (String value : expected) {
+                assertFalse(text.contains(value), "sobra " + value);
+            }
+        }
+    }
+}
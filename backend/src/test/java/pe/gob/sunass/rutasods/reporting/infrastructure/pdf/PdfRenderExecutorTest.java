@@ -0,0 +1,104 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.pdf;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfRenderExecutorTest {
+
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PdfRenderExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) executor.shutdown();
+    }
+
+    @Test
+    void fullQueueAnswers503() throws Exception {
+        PdfRenderProperties props = new PdfRenderProperties();
+        props.setMaxConcurrentRenders(1);
+        props.setQueueCapacity(1);
+        executor = new PdfRenderExecutor(props);
+
+        StreamingResponseBody blocking = executor.bounded(out -> {
+            running.countDown();
+            await(release);
+            out.write(1);
+        });
+        Thread first = writeInBackground(blocking);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Thread queued = writeInBackground(executor.bounded(out -> out.write(2)));
+        awaitWaiting(queued);
+
+        StreamingResponseBody rejected = executor.bounded(out -> fail("no debería renderizarse"));
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> rejected.writeTo(new ByteArrayOutputStream()));
+        assertEquals(503, e.getStatusCode().value());
+
+        // al liberarse el pool vuelve a aceptar renders
+        release.countDown();
+        first.join(5000);
+        queued.join(5000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        executor.bounded(o -> o.write(3)).writeTo(out);
+        assertArrayEquals(new byte[]{3}, out.toByteArray());
+    }
+
+    @Test
+    void renderFailuresReachTheResponseThread() {
+        executor = new PdfRenderExecutor(new PdfRenderProperties());
+
+        IOException io = assertThrows(IOException.class, () -> executor.bounded(out -> {
+            throw new IOException("Broken pipe");
+        }).writeTo(new ByteArrayOutputStream()));
+        assertEquals("Broken pipe", io.getMessage());
+
+        assertThrows(IllegalStateException.class, () -> executor.bounded(out -> {
+            throw new IllegalStateException("sin rutas");
+        }).writeTo(new ByteArrayOutputStream()));
+    }
+
+    // ---------------- helpers -----------------
+
+    private static Thread writeInBackground(StreamingResponseBody body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.writeTo(new ByteArrayOutputStream());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /** Espera a que el hilo quede bloqueado esperando su render (ya encolado). */
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package pe.gob.sunass.rutasods.reporting.infrastructure.prerender;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.gob.sunass.rutasods.optimization.infrastructure.cache.OptimizationSnapshot;
+import pe.gob.sunass.rutasods.optimization.infrastructure.cache.SessionSavedEvent;
+import pe.gob.sunass.rutasods.reporting.application.internal.GenerateExcelUseCase;
+import pe.gob.sunass.rutasods.reporting.application.internal.GenerateMatrixExcelUseCase;
+import pe.gob.sunass.rutasods.reporting.application.internal.GeneratePdfUseCase;
+
+import java.io.IOException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReportPrerendererTest {
+
+    private final ReportPrerenderProperties props = new ReportPrerenderProperties();
+    private final GeneratePdfUseCase pdf = mock(GeneratePdfUseCase.class);
+    private final GenerateExcelUseCase excel = mock(GenerateExcelUseCase.class);
+    private final GenerateMatrixExcelUseCase matrix = mock(GenerateMatrixExcelUseCase.class);
+    private final OptimizationSnapshot snapshot = mock(OptimizationSnapshot.class);
+
+    private ReportPrerenderer prerenderer;
+
+    @BeforeEach
+    void setUp() {
+        prerenderer = new ReportPrerenderer(props, pdf, excel, matrix);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prerenderer.shutdown();
+    }
+
+    @Test
+    void savedSessionQueuesTheThreeReports() throws IOException {
+        prerenderer.onSessionSaved(new SessionSavedEvent("s1", snapshot));
+
+        verify(pdf, timeout(2000)).prerender("s1", snapshot);
+        verify(excel, timeout(2000)).prerender("s1", snapshot);
+        verify(matrix, timeout(2000)).prerender("s1", snapshot);
+    }
+
+    @Test
+    void aFailedReportDoesNotStopTheOthers() throws IOException {
+        doThrow(new IOException("disco lleno")).when(pdf).prerender(anyString(), any());
+        doThrow(new IllegalStateException("sin puntos")).when(excel).prerender(anyString(), any());
+
+        prerenderer.onSessionSaved(new SessionSavedEvent("s1", snapshot));
+        prerenderer.onSessionSaved(new SessionSavedEvent("s2", snapshot));
+
+        verify(matrix, timeout(2000)).prerender("s1", snapshot);
+        verify(matrix, timeout(2000)).prerender("s2", snapshot);
+    }
+
+    @Test
+    void disabledPrerenderDoesNothing() throws IOException {
+        props.setEnabled(false);
+
+        prerenderer.onSessionSaved(new SessionSavedEvent("s1", snapshot));
+
+        verify(pdf, after(200).never()).prerender(anyString(), any());
+        verifyNoInteractions(excel, matrix);
+    }
+}
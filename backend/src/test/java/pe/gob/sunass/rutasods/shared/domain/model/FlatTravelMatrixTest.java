@@ -0,0 +1,113 @@
+package pe.gob.sunass.rutasods.shared.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatTravelMatrixTest {
+
+    private static final double MAX = Integer.MAX_VALUE / 100.0;
+    private static final double MIN = (FlatTravelMatrix.MISSING + 1) / 100.0;
+
+    @Test
+    void storesValuesRoundedToTwoDecimals() {
+        FlatTravelMatrix m = new FlatTravelMatrix(2, 3);
+        m.set(0, 1, 2.678);
+        m.set(0, 2, 2.674);
+        m.set(1, 0, -7.126);
+        m.set(1, 2, 1234.5);
+
+        assertEquals(2.68, m.get(0, 1));
+        assertEquals(2.67, m.get(0, 2));
+        assertEquals(-7.13, m.get(1, 0));
+        assertEquals(1234.5, m.get(1, 2));
+        assertEquals(0, m.get(0, 0));
+        assertEquals(268, m.getCenti(0, 1));
+    }
+
+    @Test
+    void roundedValuesComeBackExactly() {
+        Random random = new Random(7);
+        FlatTravelMatrix m = new FlatTravelMatrix(1, 1);
+        for (int run = 0; run < 1000; run++) {
+            double value = Math.round(random.nextDouble() * 2_000_000) / 100.0;
+            m.set(0, 0, value);
+            assertEquals(value, m.get(0, 0));
+        }
+    }
+
+    @Test
+    void nanIsStoredAsMissing() {
+        FlatTravelMatrix m = new FlatTravelMatrix(1, 2);
+        m.set(0, 1, Double.NaN);
+
+        assertEquals(FlatTravelMatrix.MISSING, m.getCenti(0, 1));
+        assertTrue(Double.isNaN(m.get(0, 1)));
+        assertEquals(0, m.getInt(0, 1));
+        assertEquals((int) Double.NaN, m.getInt(0, 1));
+    }
+
+    @Test
+    void outOfRangeValuesSaturateWithoutHittingMissing() {
+        FlatTravelMatrix m = new FlatTravelMatrix(1, 4);
+        m.set(0, 0, Double.POSITIVE_INFINITY);
+        m.set(0, 1, Double.NEGATIVE_INFINITY);
+        m.set(0, 2, 1e12);
+        m.set(0, 3, -1e12);
+
+        assertEquals(MAX, m.get(0, 0));
+        assertEquals(21474836.47, m.get(0, 0));
+        assertEquals(MIN, m.get(0, 1));
+        assertEquals(-21474836.47, m.get(0, 1));
+        assertEquals(MAX, m.get(0, 2));
+        assertEquals(MIN, m.get(0, 3));
+        for (int j = 0; j < 4; j++) {
+            assertNotEquals(FlatTravelMatrix.MISSING, m.getCenti(0, j));
+        }
+    }
+
+    @Test
+    void getIntTruncatesLikeACast() {
+        double[] values = {0, 0.99, 1, 59.5, 59.99, 120.01, -0.5, -1.5, -59.99, 21474836.47, -21474836.47};
+        FlatTravelMatrix m = new FlatTravelMatrix(1, values.length);
+        for (int j = 0; j < values.length; j++) {
+            m.set(0, j, values[j]);
+        }
+
+        for (int j = 0; j < values.length; j++) {
+            assertEquals((int) m.get(0, j), m.getInt(0, j), "valor " + values[j]);
+        }
+    }
+
+    @Test
+    void rejectsOutOfBoundsCells() {
+        FlatTravelMatrix m = new FlatTravelMatrix(2, 3);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> m.get(2, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> m.get(0, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> m.set(-1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FlatTravelMatrix(-1, 2));
+    }
+
+    @Test
+    void copyOfKeepsEveryCell() {
+        FlatTravelMatrix source = new FlatTravelMatrix(2, 2);
+        source.set(0, 1, 3.5);
+        source.set(1, 0, Double.NaN);
+
+        assertSame(source, FlatTravelMatrix.copyOf(source));
+
+        TravelMatrix view = new TravelMatrix() {
+            @Override public int rows() { return 2; }
+            @Override public int cols() { return 2; }
+            @Override public double get(int from, int to) { return source.get(from, to) + 0.004; }
+            @Override public long heapBytes() { return 0; }
+        };
+        FlatTravelMatrix copy = FlatTravelMatrix.copyOf(view);
+        assertEquals(3.5, copy.get(0, 1));
+        assertEquals(0, copy.get(0, 0));
+        assertEquals(FlatTravelMatrix.MISSING, copy.getCenti(1, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package pe.gob.sunass.rutasods.shared.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseTravelMatrixTest {
+
+    private static final SparseTravelMatrix.CellEstimator ESTIMATE = (from, to) -> 1000 + from * 10 + to + 0.123;
+
+    @Test
+    void columnsAreSortedAndDeduplicated() {
+        SparseTravelMatrix m = new SparseTravelMatrix(new int[][]{
+                {3, 1, 3, 2, 1},
+                {},
+                {0, 0},
+                {2}}, ESTIMATE);
+
+        assertArrayEquals(new int[]{1, 2, 3}, m.measuredColumns(0));
+        assertArrayEquals(new int[0], m.measuredColumns(1));
+        assertArrayEquals(new int[]{0}, m.measuredColumns(2));
+        assertEquals(5, m.measuredCells());
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> new SparseTravelMatrix(new int[][]{{0, 2}, {0}}, ESTIMATE));
+    }
+
+    @Test
+    void binarySearchFindsExactlyTheMeasuredCells() {
+        Random random = new Random(17);
+        int n = 60;
+        int[][] columns = new int[n][];
+        Set<Long> measured = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            columns[i] = random.ints(random.nextInt(12), 0, n).toArray();
+            for (int j : columns[i]) measured.add((long) i * n + j);
+        }
+
+        SparseTravelMatrix m = new SparseTravelMatrix(columns, ESTIMATE);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(measured.contains((long) i * n + j), m.isMeasured(i, j), i + "," + j);
+            }
+        }
+        assertEquals(measured.size(), m.measuredCells());
+    }
+
+    @Test
+    void measuredCellsWinAndTheRestAreEstimated() {
+        SparseTravelMatrix m = new SparseTravelMatrix(new int[][]{{1, 2}, {0}, {}}, ESTIMATE);
+        m.set(0, 1, 12.345);
+
+        assertEquals(12.35, m.get(0, 1));
+        // medida pero todavía sin valor: se estima
+        assertEquals(1002.12, m.get(0, 2));
+        assertEquals(1021.12, m.get(2, 1));
+        assertEquals(0, m.get(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> m.set(2, 1, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> m.get(3, 0));
+    }
+
+    @Test
+    void diagonalIsZeroWithoutAskingTheEstimator() {
+        AtomicInteger calls = new AtomicInteger();
+        SparseTravelMatrix m = new SparseTravelMatrix(new int[][]{{}, {}}, (from, to) -> {
+            calls.incrementAndGet();
+            return 99;
+        });
+
+        assertEquals(0, m.get(1, 1));
+        assertEquals(0, m.getInt(0, 0));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void getIntTruncatesLikeFlatTravelMatrix() {
+        double[] values = {0, 0.994, 0.995, 59.5, 59.999, 120.01, 7.0, 21474836.47, Double.POSITIVE_INFINITY};
+        int n = values.length;
+        int[][] columns = new int[n][];
+        for (int i = 0; i < n; i++) columns[i] = new int[]{(i + 1) % n};
+
+        SparseTravelMatrix sparse = new SparseTravelMatrix(columns, (from, to) -> values[from] + 0.004);
+        FlatTravelMatrix measuredFlat = new FlatTravelMatrix(n, n);
+        FlatTravelMatrix estimatedFlat = new FlatTravelMatrix(n, n);
+        for (int i = 0; i < n; i++) {
+            sparse.set(i, (i + 1) % n, values[i]);
+            measuredFlat.set(i, (i + 1) % n, values[i]);
+            estimatedFlat.set(i, (i + 2) % n, values[i] + 0.004);
+        }
+
+        for (int i = 0; i < n; i++) {
+            int measured = (i + 1) % n;
+            int estimated = (i + 2) % n;
+            assertEquals(measuredFlat.get(i, measured), sparse.get(i, measured));
+            assertEquals(measuredFlat.getInt(i, measured), sparse.getInt(i, measured), "medida " + values[i]);
+            assertEquals(estimatedFlat.get(i, estimated), sparse.get(i, estimated));
+            assertEquals(estimatedFlat.getInt(i, estimated), sparse.getInt(i, estimated), "estimada " + values[i]);
+        }
+    }
+
+    @Test
+    void nanEstimateReadsAsZeroInt() {
+        SparseTravelMatrix m = new SparseTravelMatrix(new int[][]{{}, {}}, (from, to) -> Double.NaN);
+
+        assertTrue(Double.isNaN(m.get(0, 1)));
+        assertEquals(0, m.getInt(0, 1));
+    }
+}
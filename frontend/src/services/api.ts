@@ -17,11 +17,19 @@ export type OptimizeRequest = {
   ocDuration?: number;
   costs?: { km?: number; food?: number; hotel?: number };
   timeFactor?: number;
+  matrixProvider?: "OSRM" | "HAVERSINE" | "AUTO";
+  // SPARSE: only ODS↔all and nearest-neighbour pairs are fetched (large plans)
+  matrixMode?: "DENSE" | "SPARSE" | "AUTO";
   constraints?: {
     maxRouteDays?: number;
     searchPoolSize?: number;
     maxComboSize?: number;
+    searchMode?: "SERIAL" | "PARALLEL";
+    ordering?: "BRANCH_AND_BOUND" | "BRUTE_FORCE" | "HELD_KARP";
+    // wall-clock time to improve the greedy plan with local search (0 = off)
+    improvementBudgetMs?: number;
   };
+  traceLevel?: SearchTraceLevel;
 };
 
 export type RouteSegmentDto = {
@@ -43,6 +51,21 @@ export type OptimizeResponse = {
   totalNights: number;
   totalDays: number;
   pointsCovered: number;
+  matrixProvider?: "OSRM" | "HAVERSINE";
+  improvement?: ImprovementDto | null;
+};
+
+export type ImprovementDto = {
+  budgetMs: number;
+  elapsedMs: number;
+  initialCost: number;
+  finalCost: number;
+  improvement: number;
+  routesBefore: number;
+  routesAfter: number;
+  movesApplied: number;
+  perturbations: number;
+  workers: number;
 };
 
 /**
@@ -90,3 +113,163 @@ export async function optimizeMasterPlan(
     if (signal) signal.removeEventListener("abort", onExternalAbort);
   }
 }
+
+export type OptimizationJobDto = {
+  jobId: string;
+  state: "QUEUED" | "RUNNING" | "SUCCEEDED" | "FAILED" | "CANCELLED";
+  phase?: "MATRIX" | "PLANNING" | null;
+  cancelRequested: boolean;
+  totalPoints: number;
+  remainingPoints: number;
+  routesCompleted: number;
+  progress: number;
+  sessionId?: string | null;
+  error?: string | null;
+  submittedAt: string;
+  startedAt?: string | null;
+  finishedAt?: string | null;
+};
+
+async function jobRequest<T>(url: string, init?: RequestInit): Promise<T> {
+  const res = await fetch(url, init);
+  if (!res.ok) {
+    const text = await res.text().catch(() => "");
+    throw new Error(`Job request failed: ${res.status} ${res.statusText} ${text}`);
+  }
+  return (await res.json()) as T;
+}
+
+/** POST /api/optimize/jobs — queues the optimization and returns immediately */
+export function submitOptimizationJob(payload: OptimizeRequest): Promise<OptimizationJobDto> {
+  return jobRequest<OptimizationJobDto>("/api/optimize/jobs", {
+    method: "POST",
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify(payload),
+  });
+}
+
+/** GET /api/optimize/jobs/{jobId} — state and progress */
+export function getOptimizationJob(jobId: string): Promise<OptimizationJobDto> {
+  return jobRequest<OptimizationJobDto>(`/api/optimize/jobs/${jobId}`);
+}
+
+/** GET /api/optimize/jobs/{jobId}/result — only once the job SUCCEEDED */
+export function getOptimizationJobResult(jobId: string): Promise<OptimizeResponse> {
+  return jobRequest<OptimizeResponse>(`/api/optimize/jobs/${jobId}/result`);
+}
+
+/** DELETE /api/optimize/jobs/{jobId} — cooperative cancellation */
+export function cancelOptimizationJob(jobId: string): Promise<OptimizationJobDto> {
+  return jobRequest<OptimizationJobDto>(`/api/optimize/jobs/${jobId}`, { method: "DELETE" });
+}
+
+export type SearchTraceLevel = "OFF" | "ROUTES" | "BEST" | "CANDIDATES";
+
+export type SearchTraceEntry = {
+  sequence: number;
+  kind: "SEED" | "CANDIDATE" | "BEST_UPDATE" | "ROUTE" | "FALLBACK_ROUTE";
+  path: number[];
+  names: string[];
+  km?: number | null;
+  days?: number | null;
+  nights?: number | null;
+  cost?: number | null;
+  metric?: number | null;
+  rejected: boolean;
+};
+
+export type SearchTraceDto = {
+  sessionId: string;
+  level: Exclude<SearchTraceLevel, "OFF">;
+  capacity: number;
+  recorded: number;
+  dropped: number;
+  entries: SearchTraceEntry[];
+};
+
+/** GET /api/optimize/{sessionId}/trace — 404 unless the run was traced (traceLevel) */
+export function getSearchTrace(sessionId: string): Promise<SearchTraceDto> {
+  return jobRequest<SearchTraceDto>(`/api/optimize/${sessionId}/trace`);
+}
+
+export type RouteStreamEvent = {
+  route: RouteSegmentDto;
+  routesCompleted: number;
+  remainingPoints: number;
+  totalPoints: number;
+  progress: number;
+  totalSystemCost: number;
+  totalDistance: number;
+  totalNights: number;
+  totalDays: number;
+};
+
+export type OptimizationStreamHandlers = {
+  onJob?: (job: OptimizationJobDto) => void;
+  onPlanning?: (totalPoints: number) => void;
+  onRoute?: (event: RouteStreamEvent) => void;
+};
+
+/**
+ * POST /api/optimize/stream — Server-Sent Events: each route arrives as soon
+ * as the planner commits it. Resolves with the final response; aborting the
+ * signal closes the stream and the backend cancels the job.
+ */
+export async function streamOptimization(
+  payload: OptimizeRequest,
+  handlers: OptimizationStreamHandlers,
+  signal?: AbortSignal,
+): Promise<OptimizeResponse> {
+  const res = await fetch("/api/optimize/stream", {
+    method: "POST",
+    headers: { "Content-Type": "application/json", Accept: "text/event-stream" },
+    body: JSON.stringify(payload),
+    signal,
+  });
+  if (!res.ok || !res.body) {
+    const text = await res.text().catch(() => "");
+    throw new Error(`Optimize stream failed: ${res.status} ${res.statusText} ${text}`);
+  }
+
+  const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+  let buffer = "";
+
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) break;
+    buffer += value;
+
+    let sep: number;
+    while ((sep = buffer.indexOf("\n\n")) >= 0) {
+      const block = buffer.slice(0, sep);
+      buffer = buffer.slice(sep + 2);
+
+      let name = "message";
+      const data: string[] = [];
+      for (const line of block.split("\n")) {
+        if (line.startsWith("event:")) name = line.slice(6).trim();
+        else if (line.startsWith("data:")) data.push(line.slice(5));
+      }
+      const body = data.length ? JSON.parse(data.join("\n")) : null;
+
+      switch (name) {
+        case "job":
+          handlers.onJob?.(body as OptimizationJobDto);
+          break;
+        case "planning":
+          handlers.onPlanning?.(body.totalPoints as number);
+          break;
+        case "route":
+          handlers.onRoute?.(body as RouteStreamEvent);
+          break;
+        case "complete":
+          return body as OptimizeResponse;
+        case "cancelled":
+          throw new Error("Optimization cancelled");
+        case "failed":
+          throw new Error(`Optimization failed: ${(body as OptimizationJobDto).error ?? ""}`);
+      }
+    }
+  }
+  throw new Error("Optimization stream closed before completion");
+}
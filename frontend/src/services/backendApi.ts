@@ -63,6 +63,7 @@ export type OptimizeRequest = {
   ocDuration?: number;
   costs?: { km?: number; food?: number; hotel?: number };
   timeFactor?: number;
+  matrixProvider?: "OSRM" | "HAVERSINE" | "AUTO";
   activityCount?: number;
   activityOption?: string;
 };
@@ -75,6 +76,7 @@ export type OptimizeResponse = {
   totalNights: number;
   totalDays: number;
   pointsCovered: number;
+  matrixProvider?: "OSRM" | "HAVERSINE";
 };
 
 /**